@@ -0,0 +1,45 @@
+package com.passwordmanager.benchmark;
+
+import com.passwordmanager.model.PasswordEntry;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Wspólne dane testowe dla benchmarków: deterministycznie generowany sejf o zadanym rozmiarze.
+ */
+final class BenchmarkData {
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Tworzy sejf z losową (ale powtarzalną) kolejnością nazw stron.
+     * @param size Liczba wpisów.
+     * @return Modyfikowalna lista wpisów z hasłami w postaci jawnej.
+     */
+    static List<PasswordEntry> vault(int size) {
+        List<PasswordEntry> entries = new ArrayList<>(size);
+        for (long i = 1; i <= size; i++) {
+            entries.add(new PasswordEntry(i, "Website" + i + ".com", "user" + i, "Secret!" + i));
+        }
+        Collections.shuffle(entries, new Random(42));
+        return entries;
+    }
+
+    /**
+     * Usuwa katalog tymczasowy benchmarku wraz z zawartością.
+     */
+    static void deleteRecursively(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
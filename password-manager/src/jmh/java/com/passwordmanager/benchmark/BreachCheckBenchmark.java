@@ -0,0 +1,99 @@
+package com.passwordmanager.benchmark;
+
+import com.passwordmanager.service.breach.BreachCorpusConverter;
+import com.passwordmanager.service.breach.BreachedPasswordChecker;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Czas sprawdzenia hasła w korpusie wycieków ({@link BreachedPasswordChecker}): SHA-1 i wyszukiwanie w pliku
+ * zmapowanym w pamięć, z filtrem Blooma i bez, dla hasła z korpusu i spoza niego.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BreachCheckBenchmark {
+
+    @Param({"1000000"})
+    public int corpusSize;
+
+    @Param({"true", "false"})
+    public boolean bloomFilter;
+
+    private static final int SAMPLES = 1024;
+
+    private Path directory;
+    private BreachedPasswordChecker checker;
+    private String[] breached;
+    private String[] clean;
+    private int next;
+
+    @Setup
+    public void setUp() throws Exception {
+        MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
+        HexFormat hex = HexFormat.of().withUpperCase();
+        List<String> lines = new ArrayList<>(corpusSize);
+        for (int i = 0; i < corpusSize; i++) {
+            lines.add(hex.formatHex(sha1.digest(("haslo" + i).getBytes(StandardCharsets.UTF_8))) + ":" + (i + 1));
+        }
+        lines.sort(null);
+        directory = Files.createTempDirectory("breach-benchmark");
+        Path corpus = directory.resolve("corpus.bin");
+        BreachCorpusConverter.convert(new ByteArrayInputStream(String.join("\n", lines).getBytes(StandardCharsets.US_ASCII)),
+                corpus, bloomFilter ? BreachCorpusConverter.DEFAULT_BLOOM_BITS_PER_ENTRY : 0);
+        checker = new BreachedPasswordChecker(corpus.toString(), bloomFilter);
+
+        breached = new String[SAMPLES];
+        clean = new String[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            breached[i] = "haslo" + (i * (corpusSize / SAMPLES));
+            clean[i] = "inne" + i;
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        checker.close();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Benchmark
+    public boolean breachedPassword() {
+        return checker.isBreached(breached[next++ & (SAMPLES - 1)]);
+    }
+
+    @Benchmark
+    public boolean cleanPassword() {
+        return checker.isBreached(clean[next++ & (SAMPLES - 1)]);
+    }
+}
@@ -0,0 +1,68 @@
+package com.passwordmanager.benchmark;
+
+import com.passwordmanager.service.EncryptionService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deszyfrowanie całego sejfu: pętla sekwencyjna (jak dawniej w getAllPasswords)
+ * w porównaniu z {@link EncryptionService#decryptAll(List)} na puli fork-join.
+ * Skalowanie z liczbą rdzeni: uruchomić z {@code -jvmArgs -XX:ActiveProcessorCount=N}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BulkDecryptionBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int vaultSize;
+
+    private EncryptionService encryptionService;
+    private List<String> cipherTexts;
+
+    @Setup
+    public void setUp() {
+        encryptionService = new EncryptionService("Benchmark!12345");
+        List<String> plainTexts = new ArrayList<>(vaultSize);
+        for (int i = 0; i < vaultSize; i++) {
+            plainTexts.add("Secret!" + i);
+        }
+        cipherTexts = encryptionService.encryptAll(plainTexts);
+    }
+
+    @TearDown
+    public void tearDown() {
+        encryptionService.shutdown();
+    }
+
+    @Benchmark
+    public List<String> sequentialLoop() {
+        List<String> plainTexts = new ArrayList<>(cipherTexts.size());
+        for (String cipherText : cipherTexts) {
+            plainTexts.add(encryptionService.decrypt(cipherText));
+        }
+        return plainTexts;
+    }
+
+    @Benchmark
+    public List<String> decryptAll() {
+        return encryptionService.decryptAll(cipherTexts);
+    }
+}
@@ -0,0 +1,111 @@
+package com.passwordmanager.benchmark;
+
+import com.passwordmanager.service.EncryptionService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Przepustowość {@link EncryptionService} (koperta AES/GCM) w porównaniu z pierwszą implementacją
+ * (AES/ECB, {@code Cipher.getInstance} i inicjalizacja klucza przy każdym wywołaniu).
+ * Wynik jest podawany na wątek; skalowanie na rdzenie: {@code -Djmh.includes="Encryption -t 4"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EncryptionBenchmark {
+
+    private static final String SECRET_KEY = "Benchmark!12345";
+
+    @Param({"16", "64"})
+    public int passwordLength;
+
+    private EncryptionService encryptionService;
+    private SecretKeySpec legacyKey;
+    private String plainText;
+    private byte[] plainBytes;
+    private String cipherText;
+    private String legacyCipherText;
+    private byte[] cipherBytes;
+
+    @Setup
+    public void setUp() throws Exception {
+        encryptionService = new EncryptionService(SECRET_KEY);
+        byte[] key = MessageDigest.getInstance("SHA-1").digest(SECRET_KEY.getBytes(StandardCharsets.UTF_8));
+        legacyKey = new SecretKeySpec(Arrays.copyOf(key, 16), "AES");
+        plainText = "x".repeat(passwordLength);
+        plainBytes = plainText.getBytes(StandardCharsets.UTF_8);
+        cipherText = encryptionService.encrypt(plainText);
+        cipherBytes = encryptionService.encrypt(plainBytes);
+        legacyCipherText = legacyEncrypt(); // Koperta (GCM) i szyfrogram ECB mają różne formaty
+    }
+
+    /** Bufory bezpośrednie na wątek dla wariantu bez alokacji. */
+    @State(Scope.Thread)
+    public static class Buffers {
+        final ByteBuffer input = ByteBuffer.allocateDirect(256);
+        final ByteBuffer output = ByteBuffer.allocateDirect(256);
+    }
+
+    @Benchmark
+    public String legacyEncrypt() throws Exception {
+        Cipher cipher = Cipher.getInstance("AES/ECB/PKCS5Padding");
+        cipher.init(Cipher.ENCRYPT_MODE, legacyKey);
+        return Base64.getEncoder().encodeToString(cipher.doFinal(plainText.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Benchmark
+    public String legacyDecrypt() throws Exception {
+        Cipher cipher = Cipher.getInstance("AES/ECB/PKCS5Padding");
+        cipher.init(Cipher.DECRYPT_MODE, legacyKey);
+        return new String(cipher.doFinal(Base64.getDecoder().decode(legacyCipherText)));
+    }
+
+    @Benchmark
+    public String encryptString() {
+        return encryptionService.encrypt(plainText);
+    }
+
+    @Benchmark
+    public String decryptString() {
+        return encryptionService.decrypt(cipherText);
+    }
+
+    @Benchmark
+    public byte[] encryptBytes() {
+        return encryptionService.encrypt(plainBytes);
+    }
+
+    @Benchmark
+    public byte[] decryptBytes() {
+        return encryptionService.decrypt(cipherBytes);
+    }
+
+    @Benchmark
+    public int encryptByteBuffer(Buffers buffers) {
+        buffers.input.clear();
+        buffers.input.put(plainBytes).flip();
+        buffers.output.clear();
+        return encryptionService.encrypt(buffers.input, buffers.output);
+    }
+}
@@ -0,0 +1,86 @@
+package com.passwordmanager.benchmark;
+
+import com.passwordmanager.model.PasswordEntry;
+import com.passwordmanager.service.FileStorageService;
+import com.passwordmanager.service.format.Compression;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Porównanie formatów eksportu ({@link FileStorageService#writePasswordStream}) i importu z wykrywaniem
+ * formatu ({@link FileStorageService#readPasswords}) dla każdej kombinacji formatu i kompresji.
+ * Rozmiar pliku raportowany jest jako licznik pomocniczy {@code fileBytes}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExportFormatBenchmark {
+
+    @Param({"10000", "100000"})
+    public int vaultSize;
+
+    @Param({"json", "smile", "cbor", "xml"})
+    public String format;
+
+    @Param({"none", "gzip", "deflate"})
+    public String compression;
+
+    private Path dataDir;
+    private FileStorageService fileStorageService;
+    private List<PasswordEntry> vault;
+    private Compression codec;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        dataDir = Files.createTempDirectory("format-benchmark");
+        fileStorageService = new FileStorageService(dataDir);
+        vault = BenchmarkData.vault(vaultSize);
+        codec = Compression.fromParam(compression);
+        fileStorageService.writePasswordStream(vault.stream(), "input", format, codec);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkData.deleteRecursively(dataDir);
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class FileSize {
+        public long fileBytes;
+    }
+
+    @Benchmark
+    public long write(FileSize size) throws IOException {
+        long written = fileStorageService.writePasswordStream(vault.stream(), "output", format, codec);
+        size.fileBytes = Files.size(dataDir.resolve("output"));
+        return written;
+    }
+
+    @Benchmark
+    public long read(Blackhole blackhole) throws IOException {
+        return fileStorageService.readPasswords("input", blackhole::consume);
+    }
+}
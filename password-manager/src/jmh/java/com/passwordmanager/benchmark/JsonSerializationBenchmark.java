@@ -0,0 +1,72 @@
+package com.passwordmanager.benchmark;
+
+import com.passwordmanager.model.PasswordEntry;
+import com.passwordmanager.service.FileStorageService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Zapis i odczyt JSON w {@link FileStorageService}: strumieniowy zapis przez JsonGenerator,
+ * odczyt całej tablicy do listy oraz odczyt strumieniowy wpis po wpisie.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonSerializationBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int vaultSize;
+
+    private Path dataDir;
+    private FileStorageService fileStorageService;
+    private List<PasswordEntry> vault;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        dataDir = Files.createTempDirectory("json-benchmark");
+        fileStorageService = new FileStorageService(dataDir);
+        vault = BenchmarkData.vault(vaultSize);
+        fileStorageService.writePasswordStreamToJson(vault.stream(), "input.json");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkData.deleteRecursively(dataDir);
+    }
+
+    @Benchmark
+    public long writeStream() throws IOException {
+        return fileStorageService.writePasswordStreamToJson(vault.stream(), "output.json");
+    }
+
+    @Benchmark
+    public List<PasswordEntry> readList() throws IOException {
+        return fileStorageService.readPasswordsFromJson("input.json");
+    }
+
+    @Benchmark
+    public long readStream(Blackhole blackhole) throws IOException {
+        return fileStorageService.readPasswordsFromJson("input.json", blackhole::consume);
+    }
+}
@@ -0,0 +1,72 @@
+package com.passwordmanager.benchmark;
+
+import com.passwordmanager.utill.PasswordGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Przepustowość {@link PasswordGenerator#generateSecurePassword(int)} dla typowych długości haseł
+ * w porównaniu z poprzednią implementacją (pula {@code List<Character>} budowana przy każdym wywołaniu
+ * i {@link Collections#shuffle}). Skalowanie na rdzenie: {@code -Djmh.includes="PasswordGenerator -t 4"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PasswordGeneratorBenchmark {
+
+    @Param({"16", "64"})
+    public int length;
+
+    private static final String LEGACY_POOL = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789!@#$%^&*()-_=+[]{}|;:'\",.<>/?";
+
+    private PasswordGenerator passwordGenerator;
+    private final SecureRandom legacyRandom = new SecureRandom();
+
+    @Setup
+    public void setUp() {
+        passwordGenerator = new PasswordGenerator();
+    }
+
+    @Benchmark
+    public String generateSecurePassword() {
+        return passwordGenerator.generateSecurePassword(length);
+    }
+
+    @Benchmark
+    public String legacyGenerateSecurePassword() {
+        StringBuilder password = new StringBuilder(length);
+        List<Character> charPool = new ArrayList<>();
+        charPool.addAll(LEGACY_POOL.chars().mapToObj(c -> (char) c).toList());
+        for (int i = 0; i < length; i++) {
+            password.append(charPool.get(legacyRandom.nextInt(charPool.size())));
+        }
+        List<Character> resultChars = password.chars().mapToObj(c -> (char) c).collect(Collectors.toList());
+        Collections.shuffle(resultChars, legacyRandom);
+        return resultChars.stream().map(String::valueOf).collect(Collectors.joining());
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public List<String> generateBulk1000() {
+        return passwordGenerator.generateSecurePasswords(1000, length);
+    }
+}
@@ -0,0 +1,83 @@
+package com.passwordmanager.benchmark;
+
+import com.passwordmanager.service.strength.PasswordStrengthEstimator;
+import com.passwordmanager.utill.PasswordGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Czas oceny siły jednego hasła ({@link PasswordStrengthEstimator#score(CharSequence, String...)}) - koszt
+ * doliczany do każdego zapisu wpisu. Rodzaje haseł: {@code common} - słowa ze słowników z cyframi, wielkimi
+ * literami i podstawieniami l33t, {@code passphrase} - cztery słowa, {@code random} - losowe 16 znaków,
+ * {@code long} - losowe 63 znaki (najdłuższy analizowany prefiks).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PasswordStrengthBenchmark {
+
+    @Param({"common", "passphrase", "random", "long"})
+    public String kind;
+
+    private static final int SAMPLES = 1024;
+    private static final String[] WORDS = {"kochanie", "password", "monkey", "słoneczko", "dragon", "zaq12wsx",
+            "wiosna", "football", "misiek", "sunshine", "qwerty", "polska", "master", "jesień", "shadow", "haslo"};
+    private static final char[][] LEET = {{'a', '4'}, {'e', '3'}, {'o', '0'}, {'s', '$'}, {'i', '1'}};
+
+    private PasswordStrengthEstimator estimator;
+    private String[] passwords;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        estimator = new PasswordStrengthEstimator();
+        PasswordGenerator generator = new PasswordGenerator();
+        Random random = new Random(42);
+        passwords = new String[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            passwords[i] = switch (kind) {
+                case "common" -> common(random);
+                case "passphrase" -> word(random) + word(random) + word(random) + word(random);
+                case "random" -> generator.generateSecurePassword(16);
+                case "long" -> generator.generateSecurePassword(63);
+                default -> throw new IllegalArgumentException("Nieznany rodzaj haseł: " + kind);
+            };
+        }
+    }
+
+    private static String word(Random random) {
+        return WORDS[random.nextInt(WORDS.length)];
+    }
+
+    private static String common(Random random) {
+        String word = word(random);
+        if (random.nextBoolean()) {
+            word = Character.toUpperCase(word.charAt(0)) + word.substring(1);
+        }
+        if (random.nextBoolean()) {
+            char[] substitution = LEET[random.nextInt(LEET.length)];
+            word = word.replace(substitution[0], substitution[1]);
+        }
+        return word + (random.nextBoolean() ? String.valueOf(1950 + random.nextInt(75)) : String.valueOf(random.nextInt(100)));
+    }
+
+    @Benchmark
+    public int score() {
+        return estimator.score(passwords[next++ & (SAMPLES - 1)], "example.com", "jan.kowalski");
+    }
+}
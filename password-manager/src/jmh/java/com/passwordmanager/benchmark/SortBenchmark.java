@@ -0,0 +1,91 @@
+package com.passwordmanager.benchmark;
+
+import com.passwordmanager.model.PasswordEntry;
+import com.passwordmanager.utill.CollationSort;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sortowanie w pamięci po nazwie strony przez {@link CollationSort} - to samo, co wykonuje
+ * {@code PasswordService.sortPasswordsByWebsite} (stabilne sortowanie po kluczach
+ * {@link java.text.CollationKey}) - w porównaniu z poprzednim
+ * QuickSortem z ostatnim elementem jako osią - dla danych losowych i już posortowanych
+ * (najgorszy przypadek dla QuickSorta: O(n²) i głęboka rekurencja).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SortBenchmark {
+
+    @Param({"1000", "10000"})
+    public int vaultSize;
+
+    @Param({"random", "sorted"})
+    public String order;
+
+    private List<PasswordEntry> vault;
+
+    @Setup
+    public void setUp() {
+        vault = BenchmarkData.vault(vaultSize);
+        if ("sorted".equals(order)) {
+            vault.sort(Comparator.comparing(PasswordEntry::getWebsite, String.CASE_INSENSITIVE_ORDER));
+        }
+    }
+
+    @Benchmark
+    public List<PasswordEntry> sortPasswordsByWebsite() {
+        List<PasswordEntry> copy = new ArrayList<>(vault); // Sortowanie działa w miejscu
+        CollationSort.sort(copy, PasswordEntry::getWebsite);
+        return copy;
+    }
+
+    @Benchmark
+    public List<PasswordEntry> legacyQuickSort() {
+        List<PasswordEntry> copy = new ArrayList<>(vault);
+        quickSort(copy, 0, copy.size() - 1);
+        return copy;
+    }
+
+    private static void quickSort(List<PasswordEntry> arr, int low, int high) {
+        if (low < high) {
+            int pi = partition(arr, low, high);
+            quickSort(arr, low, pi - 1);
+            quickSort(arr, pi + 1, high);
+        }
+    }
+
+    private static int partition(List<PasswordEntry> arr, int low, int high) {
+        PasswordEntry pivot = arr.get(high);
+        int i = (low - 1);
+        for (int j = low; j < high; j++) {
+            if (arr.get(j).getWebsite().compareToIgnoreCase(pivot.getWebsite()) < 0) {
+                i++;
+                PasswordEntry temp = arr.get(i);
+                arr.set(i, arr.get(j));
+                arr.set(j, temp);
+            }
+        }
+        PasswordEntry temp = arr.get(i + 1);
+        arr.set(i + 1, arr.get(high));
+        arr.set(high, temp);
+        return i + 1;
+    }
+}
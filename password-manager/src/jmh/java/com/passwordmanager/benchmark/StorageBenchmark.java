@@ -0,0 +1,131 @@
+package com.passwordmanager.benchmark;
+
+import com.passwordmanager.PasswordManagerApplication;
+import com.passwordmanager.model.PasswordEntry;
+import com.passwordmanager.repository.PasswordRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Magazyn wpisów: repozytorium JPA na H2 w pamięci w porównaniu z plikiem dziennika
+ * ({@code passwords.storage.type=log}) z fsync przy każdym commicie i bez niego.
+ * H2 w pamięci niczego nie utrwala, więc uczciwym odpowiednikiem jest wariant {@code log-nofsync};
+ * {@code log} pokazuje koszt trwałości i zysk z grupowania zapisów przy wielu wątkach.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StorageBenchmark {
+
+    private static final int BATCH_SIZE = 500;
+
+    @Param({"jpa", "log", "log-nofsync"})
+    public String storage;
+
+    @Param({"10000"})
+    public int vaultSize;
+
+    private Path dataDir;
+    private ConfigurableApplicationContext context;
+    private PasswordRepository repository;
+    private TransactionTemplate readOnlyTransaction;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dataDir = Files.createTempDirectory("storage-benchmark");
+        context = new SpringApplicationBuilder(PasswordManagerApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "passwords.storage.type=" + (storage.startsWith("log") ? "log" : "jpa"),
+                        "passwords.storage.log.path=" + dataDir.resolve("vault.log"),
+                        "passwords.storage.log.fsync=" + storage.equals("log"),
+                        "spring.datasource.url=jdbc:h2:mem:storage-benchmark;DB_CLOSE_DELAY=-1")
+                .run();
+        repository = context.getBean(PasswordRepository.class);
+        readOnlyTransaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnlyTransaction.setReadOnly(true);
+
+        List<PasswordEntry> vault = BenchmarkData.vault(vaultSize);
+        for (int from = 0; from < vault.size(); from += BATCH_SIZE) {
+            List<PasswordEntry> chunk = new ArrayList<>(vault.subList(from, Math.min(from + BATCH_SIZE, vault.size())));
+            chunk.forEach(entry -> entry.setId(null));
+            repository.saveAll(chunk);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+        BenchmarkData.deleteRecursively(dataDir);
+    }
+
+    @Benchmark
+    public Optional<PasswordEntry> findById() {
+        return repository.findById(ThreadLocalRandom.current().nextLong(1, vaultSize + 1));
+    }
+
+    @Benchmark
+    public PasswordEntry saveSingle() {
+        return repository.save(newEntry());
+    }
+
+    @Benchmark
+    @Threads(8)
+    public PasswordEntry saveSingleConcurrent() {
+        return repository.save(newEntry());
+    }
+
+    @Benchmark
+    public List<PasswordEntry> saveBatch() {
+        List<PasswordEntry> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            batch.add(newEntry());
+        }
+        return repository.saveAll(batch);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Long streamAll() {
+        return readOnlyTransaction.execute(status -> {
+            try (Stream<PasswordEntry> entries = repository.streamAll(PasswordEntry.DEFAULT_OWNER)) {
+                return entries.count();
+            }
+        });
+    }
+
+    private static PasswordEntry newEntry() {
+        long n = ThreadLocalRandom.current().nextLong(1_000_000);
+        return new PasswordEntry("user" + n, "Website" + n + ".com", "Secret!" + n);
+    }
+}
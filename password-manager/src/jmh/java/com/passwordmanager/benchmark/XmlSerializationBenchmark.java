@@ -0,0 +1,89 @@
+package com.passwordmanager.benchmark;
+
+import com.passwordmanager.model.PasswordEntry;
+import com.passwordmanager.model.PasswordListWrapper;
+import com.passwordmanager.service.FileStorageService;
+import jakarta.xml.bind.JAXBContext;
+import jakarta.xml.bind.Marshaller;
+import jakarta.xml.bind.Unmarshaller;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Porównanie strumieniowego zapisu/odczytu XML (StAX + współdzielony JAXBContext)
+ * z poprzednią ścieżką: nowy JAXBContext przy każdym wywołaniu i marshalling całego
+ * drzewa {@link PasswordListWrapper} w pamięci.
+ * Zużycie pamięci najlepiej porównać z profilerem GC: {@code -Djmh.includes="XmlSerialization -prof gc"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class XmlSerializationBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int vaultSize;
+
+    private Path dataDir;
+    private FileStorageService fileStorageService;
+    private List<PasswordEntry> vault;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        dataDir = Files.createTempDirectory("xml-benchmark");
+        fileStorageService = new FileStorageService(dataDir);
+        vault = BenchmarkData.vault(vaultSize);
+        fileStorageService.writePasswordStreamToXml(vault.stream(), "input.xml");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkData.deleteRecursively(dataDir);
+    }
+
+    @Benchmark
+    public void writeJaxbTree() throws Exception {
+        JAXBContext jaxbContext = JAXBContext.newInstance(PasswordListWrapper.class);
+        Marshaller marshaller = jaxbContext.createMarshaller();
+        marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
+        marshaller.marshal(new PasswordListWrapper(vault), dataDir.resolve("tree.xml").toFile());
+    }
+
+    @Benchmark
+    public long writeStax() throws Exception {
+        return fileStorageService.writePasswordStreamToXml(vault.stream(), "stax.xml");
+    }
+
+    @Benchmark
+    public List<PasswordEntry> readJaxbTree() throws Exception {
+        JAXBContext jaxbContext = JAXBContext.newInstance(PasswordListWrapper.class);
+        Unmarshaller unmarshaller = jaxbContext.createUnmarshaller();
+        PasswordListWrapper wrapper = (PasswordListWrapper) unmarshaller.unmarshal(dataDir.resolve("input.xml").toFile());
+        return wrapper.getPasswords();
+    }
+
+    @Benchmark
+    public long readStax(Blackhole blackhole) throws Exception {
+        return fileStorageService.readPasswordsFromXml("input.xml", blackhole::consume);
+    }
+}
@@ -2,11 +2,13 @@ package com.passwordmanager;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 /**
  * Główna klasa uruchamiająca aplikację Password Manager (Spring Boot).
  */
 
 @SpringBootApplication
+@EnableScheduling // Kompaktacja dziennika zmian synchronizacji (SyncService)
 public class PasswordManagerApplication {
 
 	public static void main(String[] args) {
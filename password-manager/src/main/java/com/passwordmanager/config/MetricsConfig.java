@@ -0,0 +1,34 @@
+package com.passwordmanager.config;
+
+import com.passwordmanager.repository.PasswordRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Metryki aplikacji, których nie da się zebrać adnotacją {@code @Timed}.
+ * Timery operacji ({@code passwords.crypto}, {@code passwords.service}, {@code passwords.repository})
+ * zbiera aspekt włączony przez {@code management.observations.annotations.enabled}, a metryki plików -
+ * {@link com.passwordmanager.service.FileStorageService}. Wszystko jest dostępne pod {@code /actuator/prometheus}.
+ */
+@Configuration
+public class MetricsConfig {
+
+    public static final String VAULT_SIZE_GAUGE = "passwords.vault.size";
+
+    /**
+     * Rejestruje miernik liczby wpisów w sejfie. Wartość jest odczytywana z repozytorium
+     * przy każdym pobraniu metryk (np. scrape Prometheusa), a nie przy każdej zmianie.
+     * @param passwordRepository Aktywne repozytorium wpisów (JPA lub plik dziennika).
+     * @return Rejestrator miernika.
+     */
+    @Bean
+    public MeterBinder vaultSizeMetrics(PasswordRepository passwordRepository) {
+        return registry -> Gauge.builder(VAULT_SIZE_GAUGE, passwordRepository, PasswordRepository::count)
+                .description("Liczba wpisów w sejfie")
+                .baseUnit("entries")
+                .strongReference(true)
+                .register(registry);
+    }
+}
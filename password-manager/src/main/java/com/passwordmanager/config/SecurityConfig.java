@@ -1,37 +1,97 @@
 package com.passwordmanager.config;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
+import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.provisioning.InMemoryUserDetailsManager;
 import org.springframework.security.web.SecurityFilterChain;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
 /**
- * Tymczasowa konfiguracja bezpieczeństwa dla aplikacji.
- * Na początek wyłącza ochronę CSRF i autoryzację dla wszystkich żądań,
- * aby ułatwić rozwój API. Zostanie rozbudowana w przyszłości.
+ * Konfiguracja bezpieczeństwa aplikacji.
+ * Wyłącza ochronę CSRF (REST API) i włącza uwierzytelnianie HTTP Basic - nazwa zalogowanego
+ * użytkownika wyznacza jego sejf ({@code VaultContext}). Żądania bez uwierzytelnienia trafiają
+ * do sejfu domyślnego, chyba że {@code passwords.security.require-auth=true}. Zadania obejmujące wpisy
+ * wszystkich sejfów ({@link #ADMIN_JOBS}) są dostępne tylko dla administratorów ({@code passwords.security.admins}).
  */
 @Configuration
 @EnableWebSecurity
 public class SecurityConfig {
 
+    /** Zadania przechodzące wpisy wszystkich sejfów: rotacja kluczy i uzupełnienia odcisków oraz ocen siły. */
+    static final String[] ADMIN_JOBS = {
+            "/api/passwords/jobs/rotate-keys",
+            "/api/passwords/jobs/backfill-fingerprints",
+            "/api/passwords/jobs/backfill-strength"
+    };
+
     /**
      * Konfiguruje łańcuch filtrów bezpieczeństwa HTTP.
-     * Wyłącza CSRF i autoryzuje wszystkie żądania dla celów deweloperskich.
      * Umożliwia również dostęp do konsoli H2.
      * @param http Obiekt HttpSecurity do konfiguracji bezpieczeństwa.
+     * @param requireAuth Czy wszystkie żądania (poza konsolą H2) wymagają uwierzytelnienia.
      * @return Skonfigurowany SecurityFilterChain.
      * @throws Exception Jeśli wystąpi błąd podczas konfiguracji.
      */
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain securityFilterChain(HttpSecurity http,
+                                                   @Value("${passwords.security.require-auth:false}") boolean requireAuth) throws Exception {
         http
                 .csrf(AbstractHttpConfigurer::disable) // Wyłącz CSRF dla łatwiejszego testowania REST API
-                .authorizeHttpRequests(authorize -> authorize
-                        .requestMatchers("/h2-console/**").permitAll() // Zezwól na dostęp do konsoli H2
-                        .anyRequest().permitAll() // Zezwól na wszystkie inne żądania
-                );
+                .authorizeHttpRequests(authorize -> {
+                    authorize.requestMatchers("/h2-console/**").permitAll(); // Zezwól na dostęp do konsoli H2
+                    authorize.requestMatchers(HttpMethod.POST, ADMIN_JOBS).hasRole("ADMIN"); // Także bez require-auth
+                    if (requireAuth) {
+                        authorize.anyRequest().authenticated();
+                    } else {
+                        authorize.anyRequest().permitAll(); // Bez logowania - sejf domyślny
+                    }
+                })
+                .httpBasic(Customizer.withDefaults());
         return http.build();
     }
-}
\ No newline at end of file
+
+    /**
+     * Użytkownicy z {@code passwords.security.users} ({@code nazwa:{algorytm}hash,...}, np. {@code {bcrypt}...}).
+     * Użytkownicy wymienieni w {@code passwords.security.admins} dostają dodatkowo rolę ADMIN.
+     * Bez tej właściwości działa domyślny użytkownik Spring Boot ({@code spring.security.user.*})
+     * lub własny {@link UserDetailsService}.
+     */
+    @Bean
+    @ConditionalOnExpression("!'${passwords.security.users:}'.isBlank()")
+    public UserDetailsService vaultUsers(@Value("${passwords.security.users}") String users,
+                                        @Value("${passwords.security.admins:}") String admins) {
+        Set<String> adminNames = Arrays.stream(admins.split(","))
+                .map(String::trim)
+                .filter(name -> !name.isEmpty())
+                .collect(Collectors.toSet());
+        List<UserDetails> details = new ArrayList<>();
+        for (String item : users.split(",")) {
+            String trimmed = item.trim();
+            int separator = trimmed.indexOf(':');
+            if (separator <= 0 || separator == trimmed.length() - 1) {
+                throw new IllegalArgumentException("Nieprawidłowy wpis passwords.security.users - oczekiwano formatu nazwa:{algorytm}hash");
+            }
+            String name = trimmed.substring(0, separator);
+            details.add(User.withUsername(name)
+                    .password(trimmed.substring(separator + 1))
+                    .roles(adminNames.contains(name) ? new String[]{"USER", "ADMIN"} : new String[]{"USER"})
+                    .build());
+        }
+        return new InMemoryUserDetailsManager(details);
+    }
+}
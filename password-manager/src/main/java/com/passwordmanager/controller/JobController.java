@@ -0,0 +1,159 @@
+package com.passwordmanager.controller;
+
+import com.passwordmanager.model.JobInfo;
+import com.passwordmanager.service.JobService;
+import com.passwordmanager.service.format.Compression;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.net.URI;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+
+/**
+ * Kontroler REST API zadań importu/eksportu wykonywanych w tle.
+ * Zgłoszenie zwraca od razu 202 Accepted z id zadania; postęp sprawdza się przez
+ * {@code GET /api/passwords/jobs/{id}}, a zadanie anuluje przez {@code DELETE}.
+ */
+@RestController
+@RequestMapping("/api/passwords/jobs")
+public class JobController {
+
+    private final JobService jobService;
+
+    public JobController(JobService jobService) {
+        this.jobService = jobService;
+    }
+
+    /**
+     * Endpoint POST zgłaszający eksport wszystkich haseł do pliku JSON.
+     * @param fileName Nazwa pliku do zapisu.
+     * @return 202 Accepted ze stanem zadania lub 503, jeśli kolejka zadań jest pełna.
+     */
+    @PostMapping("/export/json")
+    public ResponseEntity<JobInfo> exportToJson(@RequestParam String fileName) {
+        return submit(fileName, jobService::submitExportToJson);
+    }
+
+    /**
+     * Endpoint POST zgłaszający eksport wszystkich haseł do pliku XML.
+     * @param fileName Nazwa pliku do zapisu.
+     * @return 202 Accepted ze stanem zadania lub 503, jeśli kolejka zadań jest pełna.
+     */
+    @PostMapping("/export/xml")
+    public ResponseEntity<JobInfo> exportToXml(@RequestParam String fileName) {
+        return submit(fileName, jobService::submitExportToXml);
+    }
+
+    /**
+     * Endpoint POST zgłaszający import haseł z pliku JSON.
+     * @param fileName Nazwa pliku do odczytu.
+     * @return 202 Accepted ze stanem zadania lub 503, jeśli kolejka zadań jest pełna.
+     */
+    @PostMapping("/import/json")
+    public ResponseEntity<JobInfo> importFromJson(@RequestParam String fileName) {
+        return submit(fileName, jobService::submitImportFromJson);
+    }
+
+    /**
+     * Endpoint POST zgłaszający import haseł z pliku XML.
+     * @param fileName Nazwa pliku do odczytu.
+     * @return 202 Accepted ze stanem zadania lub 503, jeśli kolejka zadań jest pełna.
+     */
+    @PostMapping("/import/xml")
+    public ResponseEntity<JobInfo> importFromXml(@RequestParam String fileName) {
+        return submit(fileName, jobService::submitImportFromXml);
+    }
+
+    /**
+     * Endpoint POST zgłaszający eksport wszystkich haseł w wybranym formacie, opcjonalnie z kompresją.
+     * @param fileName Nazwa pliku do zapisu.
+     * @param format Format: "json", "smile", "cbor" lub "xml".
+     * @param compression Kompresja: "none", "gzip" lub "deflate".
+     * @return 202 Accepted ze stanem zadania, 400 przy nieobsługiwanym formacie lub kompresji
+     *         albo 503, jeśli kolejka zadań jest pełna.
+     */
+    @PostMapping("/export")
+    public ResponseEntity<JobInfo> export(@RequestParam String fileName,
+                                         @RequestParam(defaultValue = "json") String format,
+                                         @RequestParam(defaultValue = "none") String compression) {
+        return submit(fileName, name -> jobService.submitExport(name, format, Compression.fromParam(compression)));
+    }
+
+    /**
+     * Endpoint POST zgłaszający import haseł z pliku, z wykrywaniem formatu i kompresji.
+     * @param fileName Nazwa pliku do odczytu.
+     * @return 202 Accepted ze stanem zadania lub 503, jeśli kolejka zadań jest pełna.
+     */
+    @PostMapping("/import")
+    public ResponseEntity<JobInfo> importPasswords(@RequestParam String fileName) {
+        return submit(fileName, jobService::submitImport);
+    }
+
+    /**
+     * Endpoint POST zgłaszający przepakowanie kluczy danych aktywnym kluczem głównym.
+     * @return 202 Accepted ze stanem zadania lub 503, jeśli kolejka zadań jest pełna.
+     */
+    @PostMapping("/rotate-keys")
+    public ResponseEntity<JobInfo> rotateKeys() {
+        return submit(null, fileName -> jobService.submitKeyRotation());
+    }
+
+    /**
+     * Endpoint POST zgłaszający jednorazowe uzupełnienie odcisków haseł wpisów zapisanych przed ich wprowadzeniem
+     * (raport {@code GET /api/passwords/audit/reuse}).
+     * @return 202 Accepted ze stanem zadania lub 503, jeśli kolejka zadań jest pełna.
+     */
+    @PostMapping("/backfill-fingerprints")
+    public ResponseEntity<JobInfo> backfillFingerprints() {
+        return submit(null, fileName -> jobService.submitFingerprintBackfill());
+    }
+
+    /**
+     * Endpoint POST zgłaszający jednorazowe uzupełnienie ocen siły haseł wpisów zapisanych przed ich wprowadzeniem
+     * (raport {@code GET /api/passwords/audit/strength}).
+     * @return 202 Accepted ze stanem zadania lub 503, jeśli kolejka zadań jest pełna.
+     */
+    @PostMapping("/backfill-strength")
+    public ResponseEntity<JobInfo> backfillStrength() {
+        return submit(null, fileName -> jobService.submitStrengthBackfill());
+    }
+
+    /**
+     * Endpoint GET zwracający stan zadania: liczbę przetworzonych wierszy i przepustowość.
+     * @param id Id zadania.
+     * @return Stan zadania lub 404 Not Found.
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<JobInfo> getJob(@PathVariable String id) {
+        return jobService.getJob(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Endpoint DELETE anulujący zadanie.
+     * @param id Id zadania.
+     * @return Stan zadania po anulowaniu lub 404 Not Found.
+     */
+    @DeleteMapping("/{id}")
+    public ResponseEntity<JobInfo> cancelJob(@PathVariable String id) {
+        return jobService.cancelJob(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    private ResponseEntity<JobInfo> submit(String fileName, Function<String, JobInfo> submitter) {
+        try {
+            JobInfo job = submitter.apply(fileName);
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/passwords/jobs/" + job.getId()))
+                    .body(job);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+}
@@ -1,14 +1,36 @@
 package com.passwordmanager.controller;
 
+import com.passwordmanager.model.BatchItemResult;
+import com.passwordmanager.model.ChangeExportSummary;
+import com.passwordmanager.model.ChangeSince;
+import com.passwordmanager.model.ImportSummary;
+import com.passwordmanager.model.PageSort;
 import com.passwordmanager.model.PasswordEntry;
+import com.passwordmanager.model.PasswordPage;
+import com.passwordmanager.model.PasswordSecret;
+import com.passwordmanager.model.PasswordSummary;
+import com.passwordmanager.model.ReuseReport;
+import com.passwordmanager.model.StrengthReport;
+import com.passwordmanager.service.PasswordSearchIndex;
 import com.passwordmanager.service.PasswordService;
+import com.passwordmanager.service.breach.BreachedPasswordException;
+import com.passwordmanager.service.format.Compression;
+import com.passwordmanager.utill.PasswordGenerator;
 import jakarta.validation.Valid;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.io.IOException;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -24,6 +46,9 @@ import org.springframework.web.bind.annotation.RestController;
 @RequestMapping("/api/passwords")
 public class PasswordController {
 
+    /** Nagłówek odpowiedzi eksportu z rewizją sejfu do użycia jako {@code since} następnego eksportu. */
+    public static final String REVISION_HEADER = "X-Vault-Revision";
+
     private final PasswordService passwordService;
 
     public PasswordController(PasswordService passwordService) {
@@ -31,41 +56,182 @@ public class PasswordController {
     }
 
     /**
-     * Endpoint GET do pobierania wszystkich wpisów haseł.
-     * Dostępna opcja sortowania alfabetycznego po nazwie strony internetowej.
-     * @param sortByWebsite Jeśli true, lista zostanie posortowana algorytmem QuickSort.
-     * @return Lista wszystkich wpisów haseł z odszyfrowanymi hasłami.
+     * Endpoint GET do pobierania listy wszystkich wpisów haseł.
+     * Zwraca wyłącznie metadane (id, strona, użytkownik, data modyfikacji) - hasła nie są odczytywane ani deszyfrowane.
+     * Hasło pojedynczego wpisu udostępnia {@link #getPasswordSecret(Long)}.
+     * Lista jest sortowana w bazie (po indeksie), bez sortowania w pamięci.
+     * ETag odpowiedzi to rewizja sejfu - przy niezmienionym sejfie {@code If-None-Match} daje 304 bez zapytania do bazy.
+     * Podczas trwającego zapisu w sejfie odpowiedź nie ma ETagu.
+     * @param sortBy Klucz sortowania: "id", "website", "username" lub "lastModified".
+     * @param direction Kierunek sortowania: "asc" lub "desc".
+     * @param sortByWebsite Dawny parametr - true oznacza to samo co {@code sortBy=website}, jeśli nie podano {@code sortBy}.
+     * @param request Żądanie (nagłówek {@code If-None-Match}).
+     * @return Lista metadanych wszystkich wpisów, 304 Not Modified lub 400 Bad Request przy nieprawidłowych parametrach.
      */
     @GetMapping
-    public List<PasswordEntry> getAllPasswords(@RequestParam(required = false, defaultValue = "false") boolean sortByWebsite) {
-        List<PasswordEntry> passwords = passwordService.getAllPasswords();
-        if (sortByWebsite) {
-            passwordService.sortPasswordsByWebsite(passwords); // Wywołanie QuickSort
+    public ResponseEntity<List<PasswordSummary>> getAllPasswords(@RequestParam(required = false) String sortBy,
+                                                                 @RequestParam(defaultValue = "asc") String direction,
+                                                                 @RequestParam(required = false, defaultValue = "false") boolean sortByWebsite,
+                                                                 WebRequest request) {
+        PageSort sort;
+        Sort.Direction order;
+        try {
+            sort = sortBy != null ? PageSort.fromParam(sortBy) : (sortByWebsite ? PageSort.WEBSITE : PageSort.ID);
+            order = Sort.Direction.fromString(direction);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        String etag = vaultETag();
+        if (etag != null && request.checkNotModified(etag)) {
+            return null; // 304 Not Modified - bez odczytu z bazy
+        }
+        return ResponseEntity.ok().eTag(etag).body(passwordService.getPasswordSummaries(sort, order));
+    }
+
+    /**
+     * Endpoint GET do stronicowanego pobierania metadanych haseł (stronicowanie kursorowe / keyset).
+     * W odróżnieniu od {@link #getAllPasswords(String, String, boolean, WebRequest)} pobiera tylko jedną stronę.
+     * ETag - jak dla całej listy - to rewizja sejfu.
+     * @param cursor Token {@code nextCursor} z poprzedniej strony; brak oznacza pierwszą stronę.
+     * @param size Rozmiar strony (od 1 do {@link PasswordService#MAX_PAGE_SIZE}).
+     * @param sortBy Klucz sortowania: "id", "website", "username" lub "lastModified".
+     * @param direction Kierunek sortowania: "asc" lub "desc".
+     * @param includeTotal Jeśli true, odpowiedź zawiera łączną liczbę wpisów.
+     * @param request Żądanie (nagłówek {@code If-None-Match}).
+     * @return Strona haseł, 304 Not Modified lub 400 Bad Request przy nieprawidłowych parametrach.
+     */
+    @GetMapping("/page")
+    public ResponseEntity<PasswordPage> getPasswordsPage(@RequestParam(required = false) String cursor,
+                                                         @RequestParam(defaultValue = "" + PasswordService.DEFAULT_PAGE_SIZE) int size,
+                                                         @RequestParam(defaultValue = "id") String sortBy,
+                                                         @RequestParam(defaultValue = "asc") String direction,
+                                                         @RequestParam(defaultValue = "false") boolean includeTotal,
+                                                         WebRequest request) {
+        String etag = vaultETag();
+        if (etag != null && request.checkNotModified(etag)) {
+            return null;
+        }
+        try {
+            return ResponseEntity.ok().eTag(etag).body(passwordService.getPasswordsPage(cursor, size, PageSort.fromParam(sortBy),
+                    Sort.Direction.fromString(direction), includeTotal));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Endpoint GET do wyszukiwania wpisów po nazwie strony lub użytkowniku (prefiks, podciąg, literówki).
+     * Obsługiwany z indeksu w pamięci - bez pobierania całego sejfu.
+     * @param q Szukany tekst.
+     * @param limit Maksymalna liczba wyników (od 1 do {@link PasswordSearchIndex#MAX_LIMIT}).
+     * @return Metadane pasujących wpisów lub 400 Bad Request przy nieprawidłowych parametrach.
+     */
+    @GetMapping("/search")
+    public ResponseEntity<List<PasswordSummary>> searchPasswords(@RequestParam String q,
+                                                                 @RequestParam(defaultValue = "" + PasswordSearchIndex.DEFAULT_LIMIT) int limit) {
+        try {
+            return ResponseEntity.ok(passwordService.searchPasswords(q, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Endpoint GET raportu powtórzonych haseł: grupy wpisów sejfu z tym samym hasłem, wyznaczane
+     * po odciskach haseł w bazie - bez deszyfrowania. Wpisy bez odcisku ({@code unfingerprinted})
+     * uzupełnia zadanie {@code POST /api/passwords/jobs/backfill-fingerprints}.
+     * @return Raport powtórzonych haseł.
+     */
+    @GetMapping("/audit/reuse")
+    public ResponseEntity<ReuseReport> getReusedPasswords() {
+        return ResponseEntity.ok(passwordService.findReusedPasswords());
+    }
+
+    /**
+     * Endpoint GET raportu słabych haseł: wpisy sejfu z oceną siły nie wyższą niż {@code maxScore}, pogrupowane
+     * po ocenie - z ocen zapisanych przy zapisie wpisów, bez deszyfrowania. Wpisy bez oceny ({@code unscored})
+     * uzupełnia zadanie {@code POST /api/passwords/jobs/backfill-strength}.
+     * @param maxScore Najwyższa ocena uznawana za słabą (0-4, domyślnie 2).
+     * @return Raport słabych haseł lub 400 Bad Request przy ocenie spoza zakresu.
+     */
+    @GetMapping("/audit/strength")
+    public ResponseEntity<StrengthReport> getWeakPasswords(@RequestParam(defaultValue = "2") int maxScore) {
+        try {
+            return ResponseEntity.ok(passwordService.findWeakPasswords(maxScore));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
         }
-        return passwords;
     }
 
     // ... (pozostałe metody CRUD: getPasswordById, createPassword, updatePassword, deletePassword, generateSecurePassword) ...
     // Skopiuj je tutaj z poprzedniego kroku, jeśli pominąłeś
 
+    /**
+     * Endpoint GET zwracający odszyfrowany wpis. ETag to rewizja wpisu; jeśli jest znana bez odczytu z bazy,
+     * pasujący {@code If-None-Match} daje 304 bez odczytu i deszyfrowania.
+     * @param id Id wpisu.
+     * @param request Żądanie (nagłówek {@code If-None-Match}).
+     * @return Wpis, 304 Not Modified lub 404 Not Found.
+     */
     @GetMapping("/{id}")
-    public ResponseEntity<PasswordEntry> getPasswordById(@PathVariable Long id) {
+    public ResponseEntity<PasswordEntry> getPasswordById(@PathVariable Long id, WebRequest request) {
+        OptionalLong known = passwordService.getKnownRevision(id);
+        if (known.isPresent() && request.checkNotModified(entryETag(known.getAsLong()))) {
+            return null;
+        }
         return passwordService.getPasswordById(id)
+                .map(entry -> ResponseEntity.ok().eTag(entryETag(entry.getRevision())).body(entry))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Endpoint GET zwracający odszyfrowane hasło pojedynczego wpisu ("pokaż hasło").
+     * @param id Id wpisu.
+     * @return Hasło wpisu lub 404 Not Found.
+     */
+    @GetMapping("/{id}/secret")
+    public ResponseEntity<PasswordSecret> getPasswordSecret(@PathVariable Long id) {
+        return passwordService.getPasswordSecret(id)
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    /**
+     * Endpoint POST tworzący wpis. Jeśli sprawdzanie wycieków jest włączone, odpowiedź zawiera {@code breached}.
+     * @param passwordEntry Nowy wpis.
+     * @return Zapisany wpis lub 400 Bad Request, gdy hasło wyciekło, a konfiguracja odrzuca takie hasła.
+     */
     @PostMapping
-    @ResponseStatus(HttpStatus.CREATED)
-    public PasswordEntry createPassword(@Valid @RequestBody PasswordEntry passwordEntry) {
-        return passwordService.savePassword(passwordEntry);
+    public ResponseEntity<PasswordEntry> createPassword(@Valid @RequestBody PasswordEntry passwordEntry) {
+        try {
+            PasswordEntry saved = passwordService.savePassword(passwordEntry);
+            return ResponseEntity.status(HttpStatus.CREATED).eTag(entryETag(saved.getRevision())).body(saved);
+        } catch (BreachedPasswordException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
 
+    /**
+     * Endpoint PUT zmieniający wpis. Z nagłówkiem {@code If-Match} (ETag z odczytu wpisu) zmiana jest
+     * wykonywana tylko wtedy, gdy wpis nie zmienił się od tego odczytu - w przeciwnym razie 412.
+     * @param id Id wpisu.
+     * @param passwordEntry Nowe dane wpisu.
+     * @param ifMatch Opcjonalnie: ETag(i) wersji, którą zmienia klient.
+     * @return Zmieniony wpis z nowym ETagiem, 404 Not Found lub 412 Precondition Failed.
+     */
     @PutMapping("/{id}")
-    public ResponseEntity<PasswordEntry> updatePassword(@PathVariable Long id, @Valid @RequestBody PasswordEntry passwordEntry) {
-        return passwordService.updatePassword(id, passwordEntry)
-                .map(ResponseEntity::ok)
-                .orElse(ResponseEntity.notFound().build());
+    public ResponseEntity<PasswordEntry> updatePassword(@PathVariable Long id, @Valid @RequestBody PasswordEntry passwordEntry,
+                                                        @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        try {
+            Optional<PasswordEntry> updated = ifMatch == null
+                    ? passwordService.updatePassword(id, passwordEntry)
+                    : passwordService.updatePassword(id, passwordEntry, parseIfMatch(ifMatch));
+            return updated
+                    .map(entry -> ResponseEntity.ok().eTag(entryETag(entry.getRevision())).body(entry))
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+        }
     }
 
     @DeleteMapping("/{id}")
@@ -76,60 +242,230 @@ public class PasswordController {
         return ResponseEntity.notFound().build();
     }
 
+    /**
+     * Endpoint POST dodający wiele wpisów w jednym żądaniu i jednej transakcji.
+     * @param entries Nowe wpisy (najwyżej {@link PasswordService#MAX_BATCH_SIZE}).
+     * @return Wynik każdej pozycji (w kolejności żądania) lub 400 Bad Request przy pustej lub zbyt dużej liście.
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<List<BatchItemResult>> createPasswords(@RequestBody List<PasswordEntry> entries) {
+        try {
+            return ResponseEntity.ok(passwordService.savePasswords(entries));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Endpoint PUT zmieniający wiele wpisów (każdy z id) w jednym żądaniu i jednej transakcji.
+     * @param entries Nowe dane wpisów (najwyżej {@link PasswordService#MAX_BATCH_SIZE}).
+     * @return Wynik każdej pozycji (w kolejności żądania) lub 400 Bad Request przy pustej lub zbyt dużej liście.
+     */
+    @PutMapping("/batch")
+    public ResponseEntity<List<BatchItemResult>> updatePasswords(@RequestBody List<PasswordEntry> entries) {
+        try {
+            return ResponseEntity.ok(passwordService.updatePasswords(entries));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Endpoint DELETE usuwający wiele wpisów w jednym żądaniu i jednej transakcji.
+     * @param ids Id wpisów (najwyżej {@link PasswordService#MAX_BATCH_SIZE}).
+     * @return Wynik każdej pozycji (w kolejności żądania) lub 400 Bad Request przy pustej lub zbyt dużej liście.
+     */
+    @DeleteMapping("/batch")
+    public ResponseEntity<List<BatchItemResult>> deletePasswords(@RequestBody List<Long> ids) {
+        try {
+            return ResponseEntity.ok(passwordService.deletePasswords(ids));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @GetMapping("/generate-secure")
     public String generateSecurePassword() {
         return passwordService.generateSecurePassword();
     }
 
+    /**
+     * Endpoint GET do generowania wielu bezpiecznych haseł w jednym żądaniu.
+     * @param count Liczba haseł (od 1 do {@link PasswordGenerator#MAX_BULK_COUNT}).
+     * @param length Długość każdego hasła (od 8 do {@link PasswordGenerator#MAX_BULK_LENGTH}).
+     * @return Lista haseł lub 400 Bad Request przy nieprawidłowych parametrach.
+     */
+    @GetMapping("/generate-secure/bulk")
+    public ResponseEntity<List<String>> generateSecurePasswords(@RequestParam int count,
+                                                                @RequestParam(defaultValue = "16") int length) {
+        try {
+            return ResponseEntity.ok(passwordService.generateSecurePasswords(count, length));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
 
     // --- Nowe endpointy do obsługi plików ---
 
     /**
-     * Endpoint GET do eksportowania wszystkich haseł do pliku JSON.
+     * Endpoint GET do eksportowania haseł do pliku JSON.
+     * Bez {@code since} eksportowany jest cały sejf, z {@code since} - tylko zmiany (eksport przyrostowy).
+     * Nagłówek {@value #REVISION_HEADER} zawiera rewizję, którą należy podać jako {@code since} w następnym eksporcie.
      * @param fileName Nazwa pliku do zapisu (np. "my_passwords.json").
-     * @return ResponseEntity z komunikatem sukcesu lub błędu.
+     * @param since Opcjonalnie: rewizja lub data ISO-8601, od której eksportowane są zmiany.
+     * @return Komunikat sukcesu (pełny eksport), podsumowanie zmian (eksport przyrostowy)
+     *         lub 400 Bad Request przy nieprawidłowym {@code since}.
      */
     @GetMapping("/export/json")
-    public ResponseEntity<String> exportToJson(@RequestParam String fileName) throws IOException {
-        passwordService.exportPasswordsToJson(fileName);
-        return ResponseEntity.ok("Hasła wyeksportowane do " + fileName);
+    public ResponseEntity<?> exportToJson(@RequestParam String fileName, @RequestParam(required = false) String since) {
+        return export(fileName, since, "JSON", passwordService::exportPasswordsToJson, passwordService::exportChangesToJson);
     }
 
     /**
-     * Endpoint GET do eksportowania wszystkich haseł do pliku XML.
+     * Endpoint GET do eksportowania haseł do pliku XML, na tych samych zasadach co {@link #exportToJson(String, String)}.
      * @param fileName Nazwa pliku do zapisu (np. "my_passwords.xml").
-     * @return ResponseEntity z komunikatem sukcesu lub błędu.
+     * @param since Opcjonalnie: rewizja lub data ISO-8601, od której eksportowane są zmiany.
+     * @return Komunikat sukcesu (pełny eksport), podsumowanie zmian (eksport przyrostowy)
+     *         lub 400 Bad Request przy nieprawidłowym {@code since}.
      */
     @GetMapping("/export/xml")
-    public ResponseEntity<String> exportToXml(@RequestParam String fileName) {
+    public ResponseEntity<?> exportToXml(@RequestParam String fileName, @RequestParam(required = false) String since) {
+        return export(fileName, since, "XML", passwordService::exportPasswordsToXml, passwordService::exportChangesToXml);
+    }
+
+    /**
+     * Endpoint GET do eksportowania całego sejfu w wybranym formacie, opcjonalnie z kompresją.
+     * Formaty binarne ({@code smile}, {@code cbor}) dają kilkukrotnie mniejsze pliki niż sformatowany JSON.
+     * @param fileName Nazwa pliku do zapisu (np. "my_passwords.smile.gz").
+     * @param format Format: "json", "smile", "cbor" lub "xml".
+     * @param compression Kompresja: "none", "gzip" lub "deflate".
+     * @return Komunikat sukcesu z liczbą wpisów lub 400 Bad Request przy nieobsługiwanym formacie albo kompresji.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<String> exportPasswords(@RequestParam String fileName,
+                                                  @RequestParam(defaultValue = "json") String format,
+                                                  @RequestParam(defaultValue = "none") String compression) {
         try {
-            passwordService.exportPasswordsToXml(fileName);
-            return ResponseEntity.ok("Hasła wyeksportowane do " + fileName);
+            long revision = passwordService.getCurrentRevision();
+            long count = passwordService.exportPasswords(fileName, format, Compression.fromParam(compression));
+            return ResponseEntity.ok()
+                    .header(REVISION_HEADER, Long.toString(revision))
+                    .body("Wyeksportowano " + count + " haseł do " + fileName);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (IOException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Błąd podczas eksportu do " + format + ": " + e.getMessage());
+        }
+    }
+
+    @FunctionalInterface
+    private interface FullExport {
+        void export(String fileName) throws Exception;
+    }
+
+    @FunctionalInterface
+    private interface ChangeExport {
+        ChangeExportSummary export(ChangeSince since, String fileName) throws Exception;
+    }
+
+    private ResponseEntity<?> export(String fileName, String since, String format, FullExport full, ChangeExport changes) {
+        ChangeSince from;
+        try {
+            from = since == null || since.isBlank() ? null : ChangeSince.parse(since);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+        try {
+            if (from != null) {
+                ChangeExportSummary summary = changes.export(from, fileName);
+                return ResponseEntity.ok()
+                        .header(REVISION_HEADER, Long.toString(summary.getRevision()))
+                        .body(summary);
+            }
+            // Rewizja sprzed eksportu: zmiany zatwierdzone w trakcie trafią (ponownie) do następnego eksportu zmian
+            long revision = passwordService.getCurrentRevision();
+            full.export(fileName);
+            return ResponseEntity.ok()
+                    .header(REVISION_HEADER, Long.toString(revision))
+                    .body("Hasła wyeksportowane do " + fileName);
+        } catch (IllegalArgumentException e) { // Nieprawidłowa nazwa pliku
+            return ResponseEntity.badRequest().body(e.getMessage());
         } catch (Exception e) { // Używamy ogólnego Exception ze względu na JAXBException
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body("Błąd podczas eksportu do XML: " + e.getMessage());
+                    .body("Błąd podczas eksportu do " + format + ": " + e.getMessage());
         }
     }
 
     /**
      * Endpoint POST do importowania haseł z pliku JSON.
      * @param fileName Nazwa pliku JSON do odczytu (np. "import_data.json").
-     * @return Lista zaimportowanych haseł.
+     * @return Podsumowanie importu (liczba wpisów, porcji i czas trwania).
      */
     @PostMapping("/import/json")
     @ResponseStatus(HttpStatus.CREATED)
-    public List<PasswordEntry> importFromJson(@RequestParam String fileName) throws IOException {
+    public ImportSummary importFromJson(@RequestParam String fileName) throws IOException {
         return passwordService.importPasswordsFromJson(fileName);
     }
 
     /**
      * Endpoint POST do importowania haseł z pliku XML.
      * @param fileName Nazwa pliku XML do odczytu (np. "import_data.xml").
-     * @return Lista zaimportowanych haseł.
+     * @return Podsumowanie importu (liczba wpisów, porcji i czas trwania).
      */
     @PostMapping("/import/xml")
     @ResponseStatus(HttpStatus.CREATED)
-    public List<PasswordEntry> importFromXml(@RequestParam String fileName) throws Exception {
+    public ImportSummary importFromXml(@RequestParam String fileName) throws Exception {
         return passwordService.importPasswordsFromXml(fileName);
     }
-}
\ No newline at end of file
+
+    /**
+     * Endpoint POST do importowania haseł z pliku w dowolnym obsługiwanym formacie.
+     * Format (JSON, Smile, CBOR, XML) i kompresja (gzip, deflate) są wykrywane po nagłówku pliku.
+     * @param fileName Nazwa pliku do odczytu (np. "import_data.cbor.gz").
+     * @return Podsumowanie importu (liczba wpisów, porcji i czas trwania).
+     */
+    @PostMapping("/import")
+    @ResponseStatus(HttpStatus.CREATED)
+    public ImportSummary importPasswords(@RequestParam String fileName) throws IOException {
+        return passwordService.importPasswords(fileName);
+    }
+
+    // --- ETagi ---
+
+    /**
+     * ETag listy: rewizja sejfu sprzed odczytu - zmiana zatwierdzona w trakcie odczytu zmieni go przy następnym żądaniu.
+     * Zapisy w innych sejfach go nie zmieniają. Null, jeśli w sejfie trwa zapis.
+     */
+    private String vaultETag() {
+        OptionalLong revision = passwordService.getVaultRevision();
+        return revision.isPresent() ? "\"vault-" + revision.getAsLong() + "\"" : null;
+    }
+
+    private static String entryETag(long revision) {
+        return "\"" + revision + "\"";
+    }
+
+    /**
+     * Rewizje z nagłówka If-Match. {@code *} oznacza dowolną wersję (null - zmiana bezwarunkowa);
+     * słabe i obce ETagi nie pasują do żadnej rewizji (porównanie silne).
+     */
+    static Set<Long> parseIfMatch(String ifMatch) {
+        if (ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        Set<Long> revisions = new HashSet<>();
+        for (String tag : ifMatch.split(",")) {
+            String trimmed = tag.trim();
+            if (trimmed.length() > 2 && trimmed.startsWith("\"") && trimmed.endsWith("\"")) {
+                try {
+                    revisions.add(Long.parseLong(trimmed.substring(1, trimmed.length() - 1)));
+                } catch (NumberFormatException ignored) {
+                    // Nie jest ETagiem wpisu
+                }
+            }
+        }
+        return revisions;
+    }
+}
@@ -0,0 +1,45 @@
+package com.passwordmanager.controller;
+
+import com.passwordmanager.model.SyncResponse;
+import com.passwordmanager.service.SyncService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Kontroler REST API synchronizacji przyrostowej klientów z sejfem.
+ * Pierwsze wywołanie (bez kursora) zwraca cały sejf, kolejne - tylko zmiany od zwróconego kursora.
+ */
+@RestController
+@RequestMapping("/api/sync")
+public class SyncController {
+
+    private final SyncService syncService;
+
+    public SyncController(SyncService syncService) {
+        this.syncService = syncService;
+    }
+
+    /**
+     * Endpoint GET zwracający zmiany sejfu od kursora (zapisy wpisów z hasłami i usunięcia) oraz nowy kursor.
+     * @param cursor Token {@code cursor} z poprzedniej synchronizacji; brak oznacza pełną synchronizację.
+     * @param limit Maksymalna liczba zmian (od 1 do {@link SyncService#MAX_LIMIT}); przy {@code hasMore}
+     *              klient pobiera kolejną porcję od razu.
+     * @return Zmiany i nowy kursor, 400 Bad Request przy nieprawidłowym kursorze lub limicie albo 410 Gone,
+     *         jeśli kursor jest starszy niż okno retencji dziennika zmian (wymagana pełna synchronizacja).
+     */
+    @GetMapping
+    public ResponseEntity<SyncResponse> sync(@RequestParam(required = false) String cursor,
+                                             @RequestParam(defaultValue = "" + SyncService.DEFAULT_LIMIT) int limit) {
+        try {
+            return ResponseEntity.ok(syncService.sync(cursor, limit));
+        } catch (SyncService.CursorExpiredException e) {
+            return ResponseEntity.status(HttpStatus.GONE).build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.passwordmanager.model;
+
+/**
+ * Wynik jednej pozycji żądania hurtowego ({@code /api/passwords/batch}). Status ma znaczenie
+ * jak kod HTTP odpowiedzi pojedynczego żądania (201, 200, 204, 400, 404).
+ */
+public class BatchItemResult {
+
+    private int index;
+    private Long id;
+    private int status;
+    private String error;
+    private PasswordEntry entry;
+
+    public BatchItemResult() {
+    }
+
+    public BatchItemResult(int index, Long id, int status, String error, PasswordEntry entry) {
+        this.index = index;
+        this.id = id;
+        this.status = status;
+        this.error = error;
+        this.entry = entry;
+    }
+
+    /**
+     * Pozycja odrzucona przed zapisem (400).
+     */
+    public static BatchItemResult rejected(int index, Long id, String error) {
+        return new BatchItemResult(index, id, 400, error, null);
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public void setStatus(int status) {
+        this.status = status;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public PasswordEntry getEntry() {
+        return entry;
+    }
+
+    public void setEntry(PasswordEntry entry) {
+        this.entry = entry;
+    }
+}
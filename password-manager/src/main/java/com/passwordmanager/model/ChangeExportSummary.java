@@ -0,0 +1,65 @@
+package com.passwordmanager.model;
+
+/**
+ * Podsumowanie eksportu przyrostowego. {@code revision} należy przekazać jako {@code since}
+ * przy następnym eksporcie - obejmie on wtedy dokładnie zmiany, których ten eksport nie zawierał.
+ */
+public class ChangeExportSummary {
+
+    private String fileName;
+    private String since;
+    private long revision;
+    private long changed;
+    private long deleted;
+
+    public ChangeExportSummary() {
+    }
+
+    public ChangeExportSummary(String fileName, String since, long revision, long changed, long deleted) {
+        this.fileName = fileName;
+        this.since = since;
+        this.revision = revision;
+        this.changed = changed;
+        this.deleted = deleted;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public String getSince() {
+        return since;
+    }
+
+    public void setSince(String since) {
+        this.since = since;
+    }
+
+    public long getRevision() {
+        return revision;
+    }
+
+    public void setRevision(long revision) {
+        this.revision = revision;
+    }
+
+    public long getChanged() {
+        return changed;
+    }
+
+    public void setChanged(long changed) {
+        this.changed = changed;
+    }
+
+    public long getDeleted() {
+        return deleted;
+    }
+
+    public void setDeleted(long deleted) {
+        this.deleted = deleted;
+    }
+}
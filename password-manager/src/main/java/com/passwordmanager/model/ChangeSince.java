@@ -0,0 +1,71 @@
+package com.passwordmanager.model;
+
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Punkt, od którego eksportowane są zmiany (eksport przyrostowy): numer rewizji sejfu
+ * albo chwila w czasie. Rewizja jest dokładna - eksport obejmuje zmiany o rewizji większej
+ * od podanej. Chwila porównywana jest z datą modyfikacji wpisu i datą usunięcia.
+ */
+public final class ChangeSince {
+
+    private final Long revision;
+    private final Instant timestamp;
+
+    private ChangeSince(Long revision, Instant timestamp) {
+        this.revision = revision;
+        this.timestamp = timestamp;
+    }
+
+    public static ChangeSince revision(long revision) {
+        if (revision < 0) {
+            throw new IllegalArgumentException("Rewizja nie może być ujemna");
+        }
+        return new ChangeSince(revision, null);
+    }
+
+    public static ChangeSince timestamp(Instant timestamp) {
+        return new ChangeSince(null, timestamp);
+    }
+
+    /**
+     * Odczytuje parametr {@code since}: liczba to numer rewizji, w przeciwnym razie
+     * oczekiwana jest data w formacie ISO-8601 (np. {@code 2024-05-01T00:00:00Z}).
+     * @param value Wartość parametru.
+     * @return Odczytany punkt początkowy.
+     * @throws IllegalArgumentException Jeśli wartość nie jest ani rewizją, ani datą.
+     */
+    public static ChangeSince parse(String value) {
+        String trimmed = value.trim();
+        if (!trimmed.isEmpty() && trimmed.chars().allMatch(Character::isDigit)) {
+            try {
+                return revision(Long.parseLong(trimmed));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Nieprawidłowa rewizja: " + value, e);
+            }
+        }
+        try {
+            return timestamp(Instant.parse(trimmed));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Parametr since musi być rewizją lub datą ISO-8601: " + value, e);
+        }
+    }
+
+    public boolean isRevision() {
+        return revision != null;
+    }
+
+    public long getRevision() {
+        return revision;
+    }
+
+    public Instant getTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public String toString() {
+        return isRevision() ? revision.toString() : timestamp.toString();
+    }
+}
@@ -0,0 +1,55 @@
+package com.passwordmanager.model;
+
+/**
+ * Podsumowanie importu haseł z pliku. Zwracane zamiast całej zawartości sejfu,
+ * aby odpowiedź nie rosła wraz z rozmiarem importu.
+ */
+public class ImportSummary {
+
+    private String fileName;
+    private long imported;
+    private int chunks;
+    private long durationMillis;
+
+    public ImportSummary() {
+    }
+
+    public ImportSummary(String fileName, long imported, int chunks, long durationMillis) {
+        this.fileName = fileName;
+        this.imported = imported;
+        this.chunks = chunks;
+        this.durationMillis = durationMillis;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public long getImported() {
+        return imported;
+    }
+
+    public void setImported(long imported) {
+        this.imported = imported;
+    }
+
+    public int getChunks() {
+        return chunks;
+    }
+
+    public void setChunks(int chunks) {
+        this.chunks = chunks;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    public void setDurationMillis(long durationMillis) {
+        this.durationMillis = durationMillis;
+    }
+}
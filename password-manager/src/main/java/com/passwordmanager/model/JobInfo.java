@@ -0,0 +1,117 @@
+package com.passwordmanager.model;
+
+import java.time.Instant;
+
+/**
+ * Stan zadania importu/eksportu w tle zwracany przez {@code /api/passwords/jobs}.
+ */
+public class JobInfo {
+
+    private String id;
+    private String type;
+    private String fileName;
+    private JobState state;
+    private long rowsProcessed;
+    private double rowsPerSecond;
+    private Instant submittedAt;
+    private Instant startedAt;
+    private Instant finishedAt;
+    private String error;
+
+    public JobInfo() {
+    }
+
+    public JobInfo(String id, String type, String fileName, JobState state, long rowsProcessed, double rowsPerSecond,
+                   Instant submittedAt, Instant startedAt, Instant finishedAt, String error) {
+        this.id = id;
+        this.type = type;
+        this.fileName = fileName;
+        this.state = state;
+        this.rowsProcessed = rowsProcessed;
+        this.rowsPerSecond = rowsPerSecond;
+        this.submittedAt = submittedAt;
+        this.startedAt = startedAt;
+        this.finishedAt = finishedAt;
+        this.error = error;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public JobState getState() {
+        return state;
+    }
+
+    public void setState(JobState state) {
+        this.state = state;
+    }
+
+    public long getRowsProcessed() {
+        return rowsProcessed;
+    }
+
+    public void setRowsProcessed(long rowsProcessed) {
+        this.rowsProcessed = rowsProcessed;
+    }
+
+    public double getRowsPerSecond() {
+        return rowsPerSecond;
+    }
+
+    public void setRowsPerSecond(double rowsPerSecond) {
+        this.rowsPerSecond = rowsPerSecond;
+    }
+
+    public Instant getSubmittedAt() {
+        return submittedAt;
+    }
+
+    public void setSubmittedAt(Instant submittedAt) {
+        this.submittedAt = submittedAt;
+    }
+
+    public Instant getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(Instant startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public Instant getFinishedAt() {
+        return finishedAt;
+    }
+
+    public void setFinishedAt(Instant finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
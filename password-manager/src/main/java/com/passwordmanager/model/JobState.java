@@ -0,0 +1,16 @@
+package com.passwordmanager.model;
+
+/**
+ * Stan zadania importu/eksportu wykonywanego w tle.
+ */
+public enum JobState {
+    QUEUED,
+    RUNNING,
+    COMPLETED,
+    FAILED,
+    CANCELLED;
+
+    public boolean isFinished() {
+        return this == COMPLETED || this == FAILED || this == CANCELLED;
+    }
+}
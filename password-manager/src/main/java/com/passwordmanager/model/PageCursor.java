@@ -0,0 +1,88 @@
+package com.passwordmanager.model;
+
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Kursor stronicowania keyset. Przechowuje klucz i kierunek sortowania oraz wartości
+ * ostatniego zwróconego wiersza (id i wartość klucza), od których zaczyna się kolejna strona.
+ * Na zewnątrz kursor jest nieprzezroczystym tokenem Base64 (URL-safe).
+ */
+public final class PageCursor {
+
+    private static final char SEPARATOR = '\n';
+
+    private final PageSort sort;
+    private final Sort.Direction direction;
+    private final Long lastId;
+    private final String lastKey;
+
+    public PageCursor(PageSort sort, Sort.Direction direction, Long lastId, String lastKey) {
+        this.sort = sort;
+        this.direction = direction;
+        this.lastId = lastId;
+        this.lastKey = lastKey;
+    }
+
+    public PageSort getSort() {
+        return sort;
+    }
+
+    public Sort.Direction getDirection() {
+        return direction;
+    }
+
+    public Long getLastId() {
+        return lastId;
+    }
+
+    /**
+     * Wartość klucza sortowania ostatniego wiersza (zob. {@link PageSort#keyOf(PasswordSummary)});
+     * null dla sortowania po id.
+     */
+    public String getLastKey() {
+        return lastKey;
+    }
+
+    /**
+     * Koduje kursor do postaci tokenu przekazywanego klientowi.
+     * @return Token kursora.
+     */
+    public String encode() {
+        StringBuilder raw = new StringBuilder()
+                .append(sort.name()).append(SEPARATOR)
+                .append(direction.name()).append(SEPARATOR)
+                .append(lastId);
+        if (sort != PageSort.ID) {
+            raw.append(SEPARATOR).append(lastKey);
+        }
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(raw.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Dekoduje token kursora otrzymany od klienta.
+     * @param token Token zwrócony wcześniej jako {@code nextCursor}.
+     * @return Odczytany kursor.
+     * @throws IllegalArgumentException Jeśli token jest uszkodzony.
+     */
+    public static PageCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split(String.valueOf(SEPARATOR), 4);
+            PageSort sort = PageSort.valueOf(parts[0]);
+            Sort.Direction direction = Sort.Direction.valueOf(parts[1]);
+            Long lastId = Long.valueOf(parts[2]);
+            if (sort == PageSort.ID) {
+                return new PageCursor(sort, direction, lastId, null);
+            }
+            String lastKey = parts[3];
+            sort.parseKey(lastKey); // Walidacja formatu (np. daty) już przy dekodowaniu
+            return new PageCursor(sort, direction, lastId, lastKey);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Nieprawidłowy kursor stronicowania", e);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.passwordmanager.model;
+
+import com.passwordmanager.utill.SortKeys;
+
+import java.time.Instant;
+import java.util.Locale;
+
+/**
+ * Klucz sortowania listy haseł (pełnej i stronicowanej kursorowo).
+ * Sortowanie odbywa się w bazie po kolumnie z indeksem {@code (klucz, id)};
+ * każdy klucz jest uzupełniany o {@code id}, dzięki czemu kolejność jest jednoznaczna.
+ * Nazwa strony i użytkownik są sortowane po wyliczonych przy zapisie kluczach małymi literami
+ * ({@link SortKeys#fold(String)}), a nie po {@code lower(...)} liczonym w zapytaniu.
+ */
+public enum PageSort {
+    ID("id"),
+    WEBSITE("websiteSortKey"),
+    USERNAME("usernameSortKey"),
+    LAST_MODIFIED("lastModified");
+
+    private final String property;
+
+    PageSort(String property) {
+        this.property = property;
+    }
+
+    /**
+     * Nazwa właściwości encji {@link PasswordEntry}, po której sortuje baza.
+     * @return Nazwa właściwości (bezpieczna do użycia w JPQL - pochodzi wyłącznie z tego wyliczenia).
+     */
+    public String getProperty() {
+        return property;
+    }
+
+    /**
+     * Zwraca wartość klucza sortowania dla wiersza listy - zapisywaną w kursorze następnej strony.
+     * @param summary Ostatni wiersz strony.
+     * @return Wartość klucza w postaci tekstowej lub null dla {@link #ID} (wystarcza samo id).
+     */
+    public String keyOf(PasswordSummary summary) {
+        return switch (this) {
+            case ID -> null;
+            case WEBSITE -> SortKeys.fold(summary.getWebsite());
+            case USERNAME -> SortKeys.fold(summary.getUsername());
+            case LAST_MODIFIED -> summary.getLastModified() == null ? null : summary.getLastModified().toString();
+        };
+    }
+
+    /**
+     * Zamienia tekstową wartość klucza z kursora na wartość porównywaną w zapytaniu.
+     * @param key Wartość zwrócona wcześniej przez {@link #keyOf(PasswordSummary)}.
+     * @return Tekst lub {@link Instant}, zależnie od klucza.
+     * @throws RuntimeException Jeśli wartość nie pasuje do typu klucza.
+     */
+    public Object parseKey(String key) {
+        return this == LAST_MODIFIED ? Instant.parse(key) : key;
+    }
+
+    /**
+     * Zamienia wartość parametru żądania (bez względu na wielkość liter) na klucz sortowania.
+     * Akceptuje także zapis z myślnikiem lub camelCase, np. "last-modified" i "lastModified".
+     * @param value Wartość parametru, np. "id", "website", "username" lub "lastModified".
+     * @return Odpowiadający klucz sortowania.
+     * @throws IllegalArgumentException Jeśli wartość nie odpowiada żadnemu kluczowi.
+     */
+    public static PageSort fromParam(String value) {
+        String normalized = value.trim()
+                .replaceAll("([a-z])([A-Z])", "$1_$2")
+                .replace('-', '_')
+                .toUpperCase(Locale.ROOT);
+        try {
+            return PageSort.valueOf(normalized);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Nieobsługiwany klucz sortowania: " + value, e);
+        }
+    }
+}
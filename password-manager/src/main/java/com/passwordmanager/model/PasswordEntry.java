@@ -58,28 +58,112 @@
 //}
 package com.passwordmanager.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.passwordmanager.utill.SortKeys;
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
+import jakarta.persistence.Index;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
 import jakarta.xml.bind.annotation.XmlRootElement;
 import jakarta.xml.bind.annotation.XmlElement;
+import jakarta.xml.bind.annotation.XmlTransient;
+
+import java.time.Instant;
 
 @Entity
+@Table(indexes = {
+        // Każde zapytanie jest zawężone do jednego sejfu, więc właściciel jest pierwszą kolumną każdego indeksu.
+        // Indeksy pod sortowanie w bazie i stronicowanie kursorowe (keyset): właściciel + klucz sortowania + id
+        @Index(name = "idx_password_entry_owner_id", columnList = "owner, id"),
+        @Index(name = "idx_password_entry_owner_website_key_id", columnList = "owner, website_sort_key, id"),
+        @Index(name = "idx_password_entry_owner_username_key_id", columnList = "owner, username_sort_key, id"),
+        @Index(name = "idx_password_entry_owner_last_modified_id", columnList = "owner, last_modified, id"),
+        // Eksport przyrostowy: zmiany od zadanej rewizji
+        @Index(name = "idx_password_entry_owner_revision_id", columnList = "owner, revision, id"),
+        // Wykrywanie powtórzonych haseł: GROUP BY odcisku w obrębie sejfu
+        @Index(name = "idx_password_entry_owner_fingerprint", columnList = "owner, password_fingerprint"),
+        // Audyt słabych haseł: zakres ocen siły w obrębie sejfu, po id
+        @Index(name = "idx_password_entry_owner_strength_id", columnList = "owner, strength_score, id")
+})
 @XmlRootElement(name = "passwordEntry")
 public class PasswordEntry {
 
+    /** Sejf wpisów zapisanych bez uwierzytelnienia oraz wpisów sprzed podziału na sejfy. */
+    public static final String DEFAULT_OWNER = "default";
+
+    // Sekwencja z pulą identyfikatorów (optymalizator "pooled") zamiast IDENTITY:
+    // Hibernate zna id przed INSERT-em, więc może grupować wstawienia w batche JDBC.
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "password_entry_seq")
+    @SequenceGenerator(name = "password_entry_seq", sequenceName = "password_entry_seq", allocationSize = 50)
     private Long id;
 
+    // Sejf (właściciel), do którego należy wpis - ustawiany przez serwis, nigdy z treści żądania
+    @Column(nullable = false)
+    private String owner = DEFAULT_OWNER;
+
+    // Walidacja treści żądania (@Valid w kontrolerze); przy zapisie do bazy nie jest powtarzana
+    @NotBlank(message = "Nazwa użytkownika nie może być pusta")
+    @Size(min = 3, max = 100, message = "Nazwa użytkownika musi mieć od 3 do 100 znaków")
     private String username;
+    @NotBlank(message = "Nazwa strony internetowej nie może być pusta")
+    @Size(min = 3, max = 100, message = "Nazwa strony internetowej musi mieć od 3 do 100 znaków")
     private String website;
-    private String password; // zaszyfrowane hasło
+    // Zaszyfrowane hasło w kopercie (nagłówek z opakowanym kluczem danych + IV + szyfrogram GCM, Base64)
+    @Column(length = 1024)
+    private String password;
+
+    // Klucze sortowania (małe litery) wyliczane przy zapisie - sortowanie bez lower() w zapytaniu
+    @Column(name = "website_sort_key", nullable = false)
+    private String websiteSortKey;
+
+    @Column(name = "username_sort_key", nullable = false)
+    private String usernameSortKey;
+
+    @Column(name = "last_modified", nullable = false)
+    private Instant lastModified;
+
+    // Rewizja sejfu, w której wpis zmieniono ostatnio (nadawana przez RevisionCounter)
+    @Column(nullable = false)
+    private long revision;
+
+    // Odcisk hasła (HMAC tekstu jawnego kluczem sejfu) - null dla wpisów sprzed odcisków, do uzupełnienia zadaniem w tle
+    @Column(name = "password_fingerprint", length = 64)
+    private String passwordFingerprint;
+
+    // Ocena siły hasła (0-4) wyliczana przy zapisie - null dla wpisów sprzed ocen, do uzupełnienia zadaniem w tle
+    @Column(name = "strength_score")
+    private Integer strengthScore;
+
+    // Wynik sprawdzenia hasła w korpusie wycieków przy zapisie - tylko w odpowiedzi, null gdy nie sprawdzano
+    @Transient
+    private Boolean breached;
 
     public PasswordEntry() {
     }
 
+    /**
+     * Wylicza klucze sortowania i datę modyfikacji przed zapisem. Wywoływane przez JPA
+     * oraz przez magazyny spoza JPA (np. plik dziennika) przed utrwaleniem wpisu.
+     */
+    @PrePersist
+    @PreUpdate
+    public void beforeSave() {
+        websiteSortKey = SortKeys.fold(website);
+        usernameSortKey = SortKeys.fold(username);
+        lastModified = Instant.now();
+    }
+
     public PasswordEntry(String username, String website, String password) {
         this.username = username;
         this.website = website;
@@ -129,11 +213,89 @@ public class PasswordEntry {
         this.password = encryptedPassword;
     }
 
-    private String encryptedPassword;
     public PasswordEntry(Long id, String website, String username, String encryptedPassword) {
         this.id = id;
         this.website = website;
         this.username = username;
-        this.encryptedPassword = encryptedPassword;
+        this.password = encryptedPassword;
+    }
+
+    /**
+     * Odtwarza wpis odczytany spoza JPA (np. z pliku dziennika) razem z datą ostatniej modyfikacji.
+     */
+    public static PasswordEntry restore(Long id, String website, String username, String encryptedPassword, Instant lastModified) {
+        PasswordEntry entry = new PasswordEntry(id, website, username, encryptedPassword);
+        entry.websiteSortKey = SortKeys.fold(website);
+        entry.usernameSortKey = SortKeys.fold(username);
+        entry.lastModified = lastModified;
+        return entry;
+    }
+
+    @JsonIgnore
+    @XmlTransient
+    public String getWebsiteSortKey() {
+        return websiteSortKey;
+    }
+
+    @JsonIgnore
+    @XmlTransient
+    public String getUsernameSortKey() {
+        return usernameSortKey;
+    }
+
+    @JsonIgnore
+    @XmlTransient
+    public Instant getLastModified() {
+        return lastModified;
+    }
+
+    @JsonIgnore
+    @XmlTransient
+    public long getRevision() {
+        return revision;
+    }
+
+    public void setRevision(long revision) {
+        this.revision = revision;
+    }
+
+    @JsonIgnore
+    @XmlTransient
+    public String getOwner() {
+        return owner;
+    }
+
+    public void setOwner(String owner) {
+        this.owner = owner;
+    }
+
+    @JsonIgnore
+    @XmlTransient
+    public String getPasswordFingerprint() {
+        return passwordFingerprint;
+    }
+
+    public void setPasswordFingerprint(String passwordFingerprint) {
+        this.passwordFingerprint = passwordFingerprint;
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @XmlTransient
+    public Integer getStrengthScore() {
+        return strengthScore;
+    }
+
+    public void setStrengthScore(Integer strengthScore) {
+        this.strengthScore = strengthScore;
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @XmlTransient
+    public Boolean getBreached() {
+        return breached;
+    }
+
+    public void setBreached(Boolean breached) {
+        this.breached = breached;
     }
-}
\ No newline at end of file
+}
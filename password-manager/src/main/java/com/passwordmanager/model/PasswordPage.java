@@ -0,0 +1,49 @@
+package com.passwordmanager.model;
+
+import java.util.List;
+
+/**
+ * Pojedyncza strona listy haseł zwracana przez stronicowanie kursorowe (keyset).
+ * Zawiera wyłącznie metadane wpisów ({@link PasswordSummary}) - bez haseł.
+ * {@code nextCursor} jest pusty na ostatniej stronie, a {@code totalCount}
+ * jest wypełniany tylko na życzenie klienta (wymaga dodatkowego zapytania COUNT).
+ */
+public class PasswordPage {
+
+    private List<PasswordSummary> items;
+    private String nextCursor;
+    private Long totalCount;
+
+    public PasswordPage() {
+    }
+
+    public PasswordPage(List<PasswordSummary> items, String nextCursor, Long totalCount) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+        this.totalCount = totalCount;
+    }
+
+    public List<PasswordSummary> getItems() {
+        return items;
+    }
+
+    public void setItems(List<PasswordSummary> items) {
+        this.items = items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public Long getTotalCount() {
+        return totalCount;
+    }
+
+    public void setTotalCount(Long totalCount) {
+        this.totalCount = totalCount;
+    }
+}
@@ -0,0 +1,34 @@
+package com.passwordmanager.model;
+
+/**
+ * Odszyfrowane hasło pojedynczego wpisu, zwracane na żądanie ("pokaż hasło").
+ */
+public class PasswordSecret {
+
+    private Long id;
+    private String password;
+
+    public PasswordSecret() {
+    }
+
+    public PasswordSecret(Long id, String password) {
+        this.id = id;
+        this.password = password;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    public void setPassword(String password) {
+        this.password = password;
+    }
+}
@@ -0,0 +1,63 @@
+package com.passwordmanager.model;
+
+import java.time.Instant;
+
+/**
+ * Lekka projekcja wpisu hasła używana na listach - tylko metadane, bez szyfrogramu.
+ * Tworzona bezpośrednio w zapytaniu JPQL ({@code select new ...}), więc listowanie
+ * nie odczytuje kolumny z hasłem ani niczego nie deszyfruje.
+ * Hasło pojedynczego wpisu jest dostępne przez {@code GET /api/passwords/{id}/secret}.
+ */
+public class PasswordSummary {
+
+    private Long id;
+    private String website;
+    private String username;
+    private Instant lastModified;
+
+    public PasswordSummary() {
+    }
+
+    public PasswordSummary(Long id, String website, String username) {
+        this(id, website, username, null);
+    }
+
+    public PasswordSummary(Long id, String website, String username, Instant lastModified) {
+        this.id = id;
+        this.website = website;
+        this.username = username;
+        this.lastModified = lastModified;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getWebsite() {
+        return website;
+    }
+
+    public void setWebsite(String website) {
+        this.website = website;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    public Instant getLastModified() {
+        return lastModified;
+    }
+
+    public void setLastModified(Instant lastModified) {
+        this.lastModified = lastModified;
+    }
+}
@@ -0,0 +1,66 @@
+package com.passwordmanager.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+import java.time.Instant;
+
+/**
+ * Znacznik usunięcia wpisu. Pozostaje po usuniętym wpisie, aby eksport przyrostowy
+ * mógł przekazać usunięcie (a nie tylko brak wpisu) do kopii zapasowej lub innego sejfu.
+ * Znaczniki starsze niż okno retencji synchronizacji ({@code passwords.sync.retention}) są usuwane.
+ */
+@Entity
+@Table(indexes = {
+        @Index(name = "idx_password_tombstone_owner_revision_id", columnList = "owner, revision, id"),
+        @Index(name = "idx_password_tombstone_owner_deleted_at_id", columnList = "owner, deleted_at, id"),
+        // Kompaktacja dziennika zmian usuwa stare znaczniki wszystkich sejfów
+        @Index(name = "idx_password_tombstone_deleted_at", columnList = "deleted_at")
+})
+public class PasswordTombstone {
+
+    @Id
+    private Long id; // id usuniętego wpisu
+
+    @Column(nullable = false)
+    private String owner = PasswordEntry.DEFAULT_OWNER;
+
+    @Column(nullable = false)
+    private long revision;
+
+    @Column(name = "deleted_at", nullable = false)
+    private Instant deletedAt;
+
+    public PasswordTombstone() {
+    }
+
+    public PasswordTombstone(Long id, long revision, Instant deletedAt) {
+        this.id = id;
+        this.revision = revision;
+        this.deletedAt = deletedAt;
+    }
+
+    public PasswordTombstone(Long id, String owner, long revision, Instant deletedAt) {
+        this(id, revision, deletedAt);
+        this.owner = owner;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public long getRevision() {
+        return revision;
+    }
+
+    public Instant getDeletedAt() {
+        return deletedAt;
+    }
+}
@@ -0,0 +1,41 @@
+package com.passwordmanager.model;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Grupa wpisów sejfu z tym samym hasłem (równym odciskiem hasła). Zawiera wyłącznie metadane wpisów - bez haseł.
+ */
+public class ReuseGroup {
+
+    /** Od najliczniejszej grupy; przy równej liczności - po najmniejszym id (kolejność niezależna od wartości odcisków). */
+    public static final Comparator<ReuseGroup> ORDER = Comparator.comparingInt(ReuseGroup::getCount).reversed()
+            .thenComparing(group -> group.getEntries().get(0).getId());
+
+    private int count;
+    private List<PasswordSummary> entries;
+
+    public ReuseGroup() {
+    }
+
+    public ReuseGroup(List<PasswordSummary> entries) {
+        this.count = entries.size();
+        this.entries = entries;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public void setCount(int count) {
+        this.count = count;
+    }
+
+    public List<PasswordSummary> getEntries() {
+        return entries;
+    }
+
+    public void setEntries(List<PasswordSummary> entries) {
+        this.entries = entries;
+    }
+}
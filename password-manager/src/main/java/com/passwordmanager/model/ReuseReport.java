@@ -0,0 +1,38 @@
+package com.passwordmanager.model;
+
+import java.util.List;
+
+/**
+ * Raport powtórzonych haseł w sejfie: grupy wpisów z tym samym hasłem (od najliczniejszej).
+ * {@code unfingerprinted} to liczba wpisów bez odcisku hasła (zapisanych przed wprowadzeniem odcisków) -
+ * nie są uwzględnione w grupach, dopóki nie uzupełni ich zadanie {@code POST /api/passwords/jobs/backfill-fingerprints}.
+ */
+public class ReuseReport {
+
+    private List<ReuseGroup> groups;
+    private long unfingerprinted;
+
+    public ReuseReport() {
+    }
+
+    public ReuseReport(List<ReuseGroup> groups, long unfingerprinted) {
+        this.groups = groups;
+        this.unfingerprinted = unfingerprinted;
+    }
+
+    public List<ReuseGroup> getGroups() {
+        return groups;
+    }
+
+    public void setGroups(List<ReuseGroup> groups) {
+        this.groups = groups;
+    }
+
+    public long getUnfingerprinted() {
+        return unfingerprinted;
+    }
+
+    public void setUnfingerprinted(long unfingerprinted) {
+        this.unfingerprinted = unfingerprinted;
+    }
+}
@@ -0,0 +1,46 @@
+package com.passwordmanager.model;
+
+import java.util.List;
+
+/**
+ * Grupa wpisów sejfu z tą samą oceną siły hasła (0-4). Zawiera wyłącznie metadane wpisów - bez haseł.
+ */
+public class StrengthGroup {
+
+    private int score;
+    private int count;
+    private List<PasswordSummary> entries;
+
+    public StrengthGroup() {
+    }
+
+    public StrengthGroup(int score, List<PasswordSummary> entries) {
+        this.score = score;
+        this.count = entries.size();
+        this.entries = entries;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public void setScore(int score) {
+        this.score = score;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public void setCount(int count) {
+        this.count = count;
+    }
+
+    public List<PasswordSummary> getEntries() {
+        return entries;
+    }
+
+    public void setEntries(List<PasswordSummary> entries) {
+        this.entries = entries;
+    }
+}
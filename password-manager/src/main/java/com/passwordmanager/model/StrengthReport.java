@@ -0,0 +1,48 @@
+package com.passwordmanager.model;
+
+import java.util.List;
+
+/**
+ * Raport słabych haseł w sejfie: grupy wpisów z oceną siły nie wyższą niż {@code maxScore} (od najsłabszej).
+ * {@code unscored} to liczba wpisów bez oceny siły (zapisanych przed wprowadzeniem ocen) - nie są uwzględnione
+ * w grupach, dopóki nie uzupełni ich zadanie {@code POST /api/passwords/jobs/backfill-strength}.
+ */
+public class StrengthReport {
+
+    private int maxScore;
+    private List<StrengthGroup> groups;
+    private long unscored;
+
+    public StrengthReport() {
+    }
+
+    public StrengthReport(int maxScore, List<StrengthGroup> groups, long unscored) {
+        this.maxScore = maxScore;
+        this.groups = groups;
+        this.unscored = unscored;
+    }
+
+    public int getMaxScore() {
+        return maxScore;
+    }
+
+    public void setMaxScore(int maxScore) {
+        this.maxScore = maxScore;
+    }
+
+    public List<StrengthGroup> getGroups() {
+        return groups;
+    }
+
+    public void setGroups(List<StrengthGroup> groups) {
+        this.groups = groups;
+    }
+
+    public long getUnscored() {
+        return unscored;
+    }
+
+    public void setUnscored(long unscored) {
+        this.unscored = unscored;
+    }
+}
@@ -0,0 +1,88 @@
+package com.passwordmanager.model;
+
+import java.time.Instant;
+
+/**
+ * Pojedyncza zmiana w odpowiedzi synchronizacji: zapis wpisu ({@link Type#PUT}, z odszyfrowanym wpisem)
+ * albo jego usunięcie ({@link Type#DELETE}, z datą usunięcia). Zmiany są uporządkowane po rewizji i id.
+ */
+public class SyncChange {
+
+    public enum Type {
+        PUT,
+        DELETE
+    }
+
+    private Type type;
+    private Long id;
+    private long revision;
+    private PasswordEntry entry;
+    private Instant deletedAt;
+
+    public SyncChange() {
+    }
+
+    public static SyncChange put(PasswordEntry entry) {
+        SyncChange change = new SyncChange();
+        change.type = Type.PUT;
+        change.id = entry.getId();
+        change.revision = entry.getRevision();
+        change.entry = entry;
+        return change;
+    }
+
+    public static SyncChange delete(PasswordTombstone tombstone) {
+        SyncChange change = new SyncChange();
+        change.type = Type.DELETE;
+        change.id = tombstone.getId();
+        change.revision = tombstone.getRevision();
+        change.deletedAt = tombstone.getDeletedAt();
+        return change;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public void setType(Type type) {
+        this.type = type;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public long getRevision() {
+        return revision;
+    }
+
+    public void setRevision(long revision) {
+        this.revision = revision;
+    }
+
+    /**
+     * @return Wpis z odszyfrowanym hasłem lub null dla usunięcia.
+     */
+    public PasswordEntry getEntry() {
+        return entry;
+    }
+
+    public void setEntry(PasswordEntry entry) {
+        this.entry = entry;
+    }
+
+    /**
+     * @return Data usunięcia lub null dla zapisu.
+     */
+    public Instant getDeletedAt() {
+        return deletedAt;
+    }
+
+    public void setDeletedAt(Instant deletedAt) {
+        this.deletedAt = deletedAt;
+    }
+}
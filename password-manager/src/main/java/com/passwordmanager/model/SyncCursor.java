@@ -0,0 +1,75 @@
+package com.passwordmanager.model;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Kursor synchronizacji przyrostowej. Wskazuje miejsce w dzienniku zmian sejfu - ostatnią przekazaną
+ * zmianę w kolejności (rewizja, id) - oraz chwilę {@code syncedAt}, od której klient może nie znać usunięć.
+ * Po pełnej synchronizacji (bez kolejnych stron) {@code syncedAt} to czas tej synchronizacji; przy kolejnych
+ * stronach jednej synchronizacji pozostaje czasem jej pierwszej strony.
+ * Na zewnątrz kursor jest nieprzezroczystym tokenem Base64 (URL-safe).
+ */
+public final class SyncCursor {
+
+    /** Początek dziennika - pierwsza synchronizacja zwraca wszystkie wpisy sejfu (także z rewizją 0). */
+    public static final SyncCursor START = new SyncCursor(0, Long.MIN_VALUE, null);
+
+    private static final char SEPARATOR = '\n';
+
+    private final long revision;
+    private final long lastId;
+    private final Instant syncedAt;
+
+    public SyncCursor(long revision, long lastId, Instant syncedAt) {
+        this.revision = revision;
+        this.lastId = lastId;
+        this.syncedAt = syncedAt;
+    }
+
+    public long getRevision() {
+        return revision;
+    }
+
+    public long getLastId() {
+        return lastId;
+    }
+
+    /**
+     * @return Chwila, od której klient może nie znać zmian, lub null dla {@link #START}.
+     */
+    public Instant getSyncedAt() {
+        return syncedAt;
+    }
+
+    /**
+     * Koduje kursor do postaci tokenu przekazywanego klientowi.
+     * @return Token kursora.
+     */
+    public String encode() {
+        String raw = revision + String.valueOf(SEPARATOR) + lastId + SEPARATOR + syncedAt;
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Dekoduje token kursora otrzymany od klienta.
+     * @param token Token zwrócony wcześniej jako {@code cursor}.
+     * @return Odczytany kursor.
+     * @throws IllegalArgumentException Jeśli token jest uszkodzony.
+     */
+    public static SyncCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split(String.valueOf(SEPARATOR), 3);
+            long revision = Long.parseLong(parts[0]);
+            if (revision < 0) {
+                throw new IllegalArgumentException("Ujemna rewizja");
+            }
+            return new SyncCursor(revision, Long.parseLong(parts[1]), Instant.parse(parts[2]));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Nieprawidłowy kursor synchronizacji", e);
+        }
+    }
+}
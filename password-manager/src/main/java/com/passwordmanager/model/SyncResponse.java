@@ -0,0 +1,48 @@
+package com.passwordmanager.model;
+
+import java.util.List;
+
+/**
+ * Odpowiedź synchronizacji przyrostowej: zmiany od kursora w kolejności (rewizja, id) i nowy kursor.
+ * {@code cursor} należy przekazać przy następnej synchronizacji; gdy {@code hasMore} jest true,
+ * kolejne zmiany są już dostępne i klient może od razu pobrać następną porcję.
+ */
+public class SyncResponse {
+
+    private List<SyncChange> changes;
+    private String cursor;
+    private boolean hasMore;
+
+    public SyncResponse() {
+    }
+
+    public SyncResponse(List<SyncChange> changes, String cursor, boolean hasMore) {
+        this.changes = changes;
+        this.cursor = cursor;
+        this.hasMore = hasMore;
+    }
+
+    public List<SyncChange> getChanges() {
+        return changes;
+    }
+
+    public void setChanges(List<SyncChange> changes) {
+        this.changes = changes;
+    }
+
+    public String getCursor() {
+        return cursor;
+    }
+
+    public void setCursor(String cursor) {
+        this.cursor = cursor;
+    }
+
+    public boolean isHasMore() {
+        return hasMore;
+    }
+
+    public void setHasMore(boolean hasMore) {
+        this.hasMore = hasMore;
+    }
+}
@@ -1,14 +1,54 @@
 package com.passwordmanager.repository;
 
 import com.passwordmanager.model.PasswordEntry;
+import com.passwordmanager.model.PasswordSummary;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
 /**
  * Repozytorium do zarządzania operacjami CRUD na encjach {@link PasswordEntry}.
  */
 @Repository // Oznacza interfejs jako komponent repozytorium Springa
-public interface PasswordRepository extends JpaRepository<PasswordEntry, Long> {
+public interface PasswordRepository extends JpaRepository<PasswordEntry, Long>, PasswordRepositoryCustom {
     // Spring Data JPA automatycznie udostępnia metody CRUD
     // np. save(), findById(), findAll(), deleteById()
-}
\ No newline at end of file
+
+    /** Liczba wierszy pobieranych z bazy naraz przy odczycie strumieniowym. */
+    int STREAM_FETCH_SIZE = 500;
+
+    // --- Listowanie metadanych (bez kolumny z hasłem) ---
+    // Wszystkie zapytania są zawężone do jednego sejfu (właściciela) - indeksy zaczynają się od kolumny owner
+
+    @Query("select new com.passwordmanager.model.PasswordSummary(p.id, p.website, p.username, p.lastModified) from PasswordEntry p where p.owner = :owner")
+    List<PasswordSummary> findAllSummaries(@Param("owner") String owner, Sort sort);
+
+    @Query("select p.password from PasswordEntry p where p.owner = :owner and p.id = :id")
+    Optional<String> findEncryptedPasswordById(@Param("owner") String owner, @Param("id") Long id);
+
+    Optional<PasswordEntry> findByIdAndOwner(Long id, String owner);
+
+    long countByOwner(String owner);
+
+    // Stronicowanie kursorowe (keyset): PasswordRepositoryCustom#findSummaryPage
+
+    /**
+     * Strumieniuje wszystkie wpisy sejfu w kolejności id bez ładowania całej tabeli do pamięci.
+     * Musi być wywołane wewnątrz transakcji, a zwrócony strumień zamknięty po użyciu.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + STREAM_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select p from PasswordEntry p where p.owner = :owner order by p.id asc")
+    Stream<PasswordEntry> streamAll(@Param("owner") String owner);
+}
@@ -0,0 +1,161 @@
+package com.passwordmanager.repository;
+
+import com.passwordmanager.model.ChangeSince;
+import com.passwordmanager.model.PageCursor;
+import com.passwordmanager.model.PageSort;
+import com.passwordmanager.model.PasswordEntry;
+import com.passwordmanager.model.PasswordSummary;
+import com.passwordmanager.model.PasswordTombstone;
+import com.passwordmanager.model.ReuseGroup;
+import com.passwordmanager.model.StrengthGroup;
+import org.springframework.data.domain.Sort;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Zapytania repozytorium haseł budowane dynamicznie (dołączane do {@link PasswordRepository}).
+ * Parametr {@code owner} zawęża zapytanie do jednego sejfu; metody bez niego działają na wszystkich sejfach
+ * i są przeznaczone dla zadań systemowych (np. rotacji klucza głównego).
+ */
+public interface PasswordRepositoryCustom {
+
+    /**
+     * Pobiera stronę metadanych wpisów przy użyciu stronicowania kursorowego (keyset).
+     * Kolejność: wybrany klucz, a przy równych kluczach id - w tym samym kierunku,
+     * dzięki czemu baza może przejść indeks {@code (owner, klucz, id)} wprost lub wstecz.
+     * @param owner Sejf.
+     * @param sort Klucz sortowania.
+     * @param direction Kierunek sortowania.
+     * @param after Kursor ostatniego wiersza poprzedniej strony lub null dla pierwszej strony.
+     * @param limit Maksymalna liczba zwracanych wierszy.
+     * @return Wiersze strony w żądanej kolejności.
+     */
+    List<PasswordSummary> findSummaryPage(String owner, PageSort sort, Sort.Direction direction, PageCursor after, int limit);
+
+    /**
+     * Usuwa wpis i zostawia po nim znacznik usunięcia (w jednej transakcji).
+     * @param owner Sejf; wpis innego sejfu nie jest usuwany.
+     * @param id Id wpisu.
+     * @param revision Rewizja usunięcia.
+     * @return true, jeśli wpis istniał i został usunięty.
+     */
+    boolean deleteWithTombstone(String owner, Long id, long revision);
+
+    /**
+     * Usuwa wiele wpisów jednym zapytaniem i zostawia po nich znaczniki usunięcia (w jednej transakcji).
+     * @param owner Sejf.
+     * @param ids Id wpisów; nieistniejące i należące do innego sejfu są pomijane.
+     * @param revision Rewizja usunięcia.
+     * @return Id faktycznie usuniętych wpisów.
+     */
+    List<Long> deleteAllWithTombstones(String owner, Collection<Long> ids, long revision);
+
+    /**
+     * Zamienia zaszyfrowane hasło wpisu, jeśli jest ono nadal równe {@code expected} (porównaj-i-zamień).
+     * Rewizja i data modyfikacji pozostają bez zmian - zmienia się postać szyfrogramu, a nie treść wpisu
+     * (np. przy przepakowaniu klucza danych nowym kluczem głównym).
+     * @param id Id wpisu.
+     * @param expected Szyfrogram odczytany wcześniej.
+     * @param replacement Nowy szyfrogram tego samego hasła.
+     * @return true, jeśli hasło zostało zamienione; false, jeśli wpis zmieniono lub usunięto w międzyczasie.
+     */
+    boolean replaceEncryptedPassword(Long id, String expected, String replacement);
+
+    /**
+     * Zwraca do {@code limit} wpisów wszystkich sejfów o id większym niż {@code afterId}, w kolejności id
+     * (przejście całej tabeli porcjami, np. przy rotacji klucza głównego).
+     */
+    List<PasswordEntry> findAllAfterId(long afterId, int limit);
+
+    /**
+     * Zwraca najwyższą rewizję zapisanych wpisów i znaczników usunięcia (0 dla pustego sejfu).
+     */
+    long findMaxRevision();
+
+    /**
+     * Strumieniuje wpisy sejfu {@code owner} zmienione po {@code since}, o rewizji nie większej niż {@code upToRevision},
+     * w kolejności rewizji (lub daty modyfikacji, jeśli {@code since} jest datą) i id.
+     * Musi być wywołane wewnątrz transakcji, a zwrócony strumień zamknięty po użyciu.
+     */
+    Stream<PasswordEntry> streamChangedSince(String owner, ChangeSince since, long upToRevision);
+
+    /**
+     * Zwraca znaczniki wpisów sejfu {@code owner} usuniętych po {@code since}, o rewizji nie większej niż {@code upToRevision}.
+     */
+    List<PasswordTombstone> findTombstonesSince(String owner, ChangeSince since, long upToRevision);
+
+    /**
+     * Zwraca do {@code limit} wpisów sejfu {@code owner} położonych w dzienniku zmian za pozycją
+     * ({@code afterRevision}, {@code afterId}), o rewizji nie większej niż {@code upToRevision},
+     * w kolejności rewizji i id (stronicowanie keyset po indeksie {@code (owner, revision, id)}).
+     */
+    List<PasswordEntry> findChangesAfter(String owner, long afterRevision, long afterId, long upToRevision, int limit);
+
+    /**
+     * Zwraca do {@code limit} znaczników usunięcia sejfu {@code owner} za pozycją ({@code afterRevision}, {@code afterId}),
+     * o rewizji nie większej niż {@code upToRevision}, w kolejności rewizji i id.
+     */
+    List<PasswordTombstone> findTombstonesAfter(String owner, long afterRevision, long afterId, long upToRevision, int limit);
+
+    /**
+     * Usuwa znaczniki usunięcia wszystkich sejfów starsze niż {@code cutoff} (kompaktacja dziennika zmian).
+     * Znaczniki o rewizji {@code keepRevision} lub wyższej są zachowywane, aby najwyższa rewizja
+     * ({@link #findMaxRevision()}) nie cofnęła się po restarcie.
+     * @return Liczba usuniętych znaczników.
+     */
+    int deleteTombstonesBefore(Instant cutoff, long keepRevision);
+
+    /**
+     * Zwraca grupy wpisów sejfu z tym samym odciskiem hasła (co najmniej dwa wpisy), od najliczniejszej grupy;
+     * wpisy w grupie w kolejności id. Odciski są grupowane w bazie (indeks {@code (owner, password_fingerprint)}),
+     * bez odczytu i deszyfrowania haseł.
+     */
+    List<ReuseGroup> findReusedPasswords(String owner);
+
+    /**
+     * Zwraca liczbę wpisów sejfu bez odcisku hasła.
+     */
+    long countWithoutFingerprint(String owner);
+
+    /**
+     * Zwraca do {@code limit} wpisów wszystkich sejfów bez odcisku hasła, o id większym niż {@code afterId},
+     * w kolejności id (uzupełnianie odcisków porcjami).
+     */
+    List<PasswordEntry> findWithoutFingerprintAfterId(long afterId, int limit);
+
+    /**
+     * Zapisuje odcisk hasła wpisu, jeśli jego zaszyfrowane hasło jest nadal równe {@code expected}
+     * (porównaj-i-zamień). Rewizja i data modyfikacji pozostają bez zmian.
+     * @return true, jeśli odcisk został zapisany; false, jeśli wpis zmieniono lub usunięto w międzyczasie.
+     */
+    boolean updatePasswordFingerprint(Long id, String expected, String fingerprint);
+
+    /**
+     * Zwraca wpisy sejfu z oceną siły hasła nie wyższą niż {@code maxScore}, pogrupowane po ocenie
+     * (od najsłabszej); wpisy w grupie w kolejności id. Zakres ocen jest czytany z indeksu
+     * {@code (owner, strength_score, id)}, bez odczytu i deszyfrowania haseł. Puste grupy są pomijane.
+     */
+    List<StrengthGroup> findWeakPasswords(String owner, int maxScore);
+
+    /**
+     * Zwraca liczbę wpisów sejfu bez oceny siły hasła.
+     */
+    long countWithoutStrength(String owner);
+
+    /**
+     * Zwraca do {@code limit} wpisów wszystkich sejfów bez oceny siły hasła, o id większym niż {@code afterId},
+     * w kolejności id (uzupełnianie ocen porcjami).
+     */
+    List<PasswordEntry> findWithoutStrengthAfterId(long afterId, int limit);
+
+    /**
+     * Zapisuje ocenę siły hasła wpisu, jeśli jego zaszyfrowane hasło jest nadal równe {@code expected}
+     * (porównaj-i-zamień). Ocena jest częścią odpowiedzi z wpisem, więc wpis dostaje nową rewizję (ETag);
+     * data modyfikacji pozostaje bez zmian.
+     * @return true, jeśli ocena została zapisana; false, jeśli wpis zmieniono lub usunięto w międzyczasie.
+     */
+    boolean updateStrengthScore(Long id, String expected, int score, long revision);
+}
@@ -0,0 +1,295 @@
+package com.passwordmanager.repository;
+
+import com.passwordmanager.model.ChangeSince;
+import com.passwordmanager.model.PageCursor;
+import com.passwordmanager.model.PageSort;
+import com.passwordmanager.model.PasswordEntry;
+import com.passwordmanager.model.PasswordSummary;
+import com.passwordmanager.model.PasswordTombstone;
+import com.passwordmanager.model.ReuseGroup;
+import com.passwordmanager.model.StrengthGroup;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Implementacja {@link PasswordRepositoryCustom}. Nazwy kolumn w zapytaniu pochodzą
+ * wyłącznie z {@link PageSort#getProperty()}, a wartości kursora są przekazywane jako parametry.
+ */
+class PasswordRepositoryCustomImpl implements PasswordRepositoryCustom {
+
+    private static final String SELECT_SUMMARY =
+            "select new com.passwordmanager.model.PasswordSummary(p.id, p.website, p.username, p.lastModified) "
+                    + "from PasswordEntry p where p.owner = :owner ";
+
+    private final EntityManager entityManager;
+
+    PasswordRepositoryCustomImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public List<PasswordSummary> findSummaryPage(String owner, PageSort sort, Sort.Direction direction, PageCursor after, int limit) {
+        String order = direction.isAscending() ? "asc" : "desc";
+        String comparison = direction.isAscending() ? ">" : "<";
+        String key = "p." + sort.getProperty();
+
+        StringBuilder jpql = new StringBuilder(SELECT_SUMMARY);
+        if (after != null) {
+            if (sort == PageSort.ID) {
+                jpql.append("and p.id ").append(comparison).append(" :id ");
+            } else {
+                jpql.append("and (").append(key).append(' ').append(comparison).append(" :key or (")
+                        .append(key).append(" = :key and p.id ").append(comparison).append(" :id)) ");
+            }
+        }
+        if (sort != PageSort.ID) {
+            jpql.append("order by ").append(key).append(' ').append(order).append(", ");
+        } else {
+            jpql.append("order by ");
+        }
+        jpql.append("p.id ").append(order);
+
+        TypedQuery<PasswordSummary> query = entityManager.createQuery(jpql.toString(), PasswordSummary.class)
+                .setParameter("owner", owner)
+                .setMaxResults(limit);
+        if (after != null) {
+            query.setParameter("id", after.getLastId());
+            if (sort != PageSort.ID) {
+                query.setParameter("key", sort.parseKey(after.getLastKey()));
+            }
+        }
+        return query.getResultList();
+    }
+
+    @Override
+    @Transactional
+    public boolean deleteWithTombstone(String owner, Long id, long revision) {
+        PasswordEntry entry = entityManager.find(PasswordEntry.class, id);
+        if (entry == null || !entry.getOwner().equals(owner)) {
+            return false;
+        }
+        entityManager.remove(entry);
+        entityManager.merge(new PasswordTombstone(id, owner, revision, Instant.now()));
+        return true;
+    }
+
+    @Override
+    @Transactional
+    public List<Long> deleteAllWithTombstones(String owner, Collection<Long> ids, long revision) {
+        List<Long> existing = entityManager.createQuery("select p.id from PasswordEntry p where p.owner = :owner and p.id in :ids", Long.class)
+                .setParameter("owner", owner)
+                .setParameter("ids", ids)
+                .getResultList();
+        if (existing.isEmpty()) {
+            return existing;
+        }
+        entityManager.createQuery("delete from PasswordEntry p where p.id in :ids")
+                .setParameter("ids", existing)
+                .executeUpdate();
+        // Id wpisów nie są używane ponownie, więc znacznik dla tego id jeszcze nie istnieje - persist bez odczytu
+        Instant deletedAt = Instant.now();
+        for (Long id : existing) {
+            entityManager.persist(new PasswordTombstone(id, owner, revision, deletedAt));
+        }
+        entityManager.flush();
+        entityManager.clear();
+        return existing;
+    }
+
+    @Override
+    @Transactional
+    public boolean replaceEncryptedPassword(Long id, String expected, String replacement) {
+        // Aktualizacja hurtowa JPQL omija @PreUpdate - data modyfikacji i rewizja zostają bez zmian
+        return entityManager.createQuery("update PasswordEntry p set p.password = :replacement where p.id = :id and p.password = :expected")
+                .setParameter("replacement", replacement)
+                .setParameter("id", id)
+                .setParameter("expected", expected)
+                .executeUpdate() == 1;
+    }
+
+    @Override
+    public List<PasswordEntry> findAllAfterId(long afterId, int limit) {
+        return entityManager.createQuery("select p from PasswordEntry p where p.id > :afterId order by p.id", PasswordEntry.class)
+                .setParameter("afterId", afterId)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @Override
+    public long findMaxRevision() {
+        long entries = entityManager.createQuery("select coalesce(max(p.revision), 0) from PasswordEntry p", Long.class)
+                .getSingleResult();
+        long tombstones = entityManager.createQuery("select coalesce(max(t.revision), 0) from PasswordTombstone t", Long.class)
+                .getSingleResult();
+        return Math.max(entries, tombstones);
+    }
+
+    @Override
+    public Stream<PasswordEntry> streamChangedSince(String owner, ChangeSince since, long upToRevision) {
+        // Warunek i kolejność zgodne z indeksem (owner, revision, id) lub (owner, last_modified, id)
+        String jpql = since.isRevision()
+                ? "select p from PasswordEntry p where p.owner = :owner and p.revision > :since and p.revision <= :upTo order by p.revision, p.id"
+                : "select p from PasswordEntry p where p.owner = :owner and p.lastModified > :since and p.revision <= :upTo order by p.lastModified, p.id";
+        return sinceQuery(jpql, PasswordEntry.class, owner, since, upToRevision)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, PasswordRepository.STREAM_FETCH_SIZE)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream();
+    }
+
+    @Override
+    public List<PasswordTombstone> findTombstonesSince(String owner, ChangeSince since, long upToRevision) {
+        String jpql = since.isRevision()
+                ? "select t from PasswordTombstone t where t.owner = :owner and t.revision > :since and t.revision <= :upTo order by t.revision, t.id"
+                : "select t from PasswordTombstone t where t.owner = :owner and t.deletedAt > :since and t.revision <= :upTo order by t.deletedAt, t.id";
+        return sinceQuery(jpql, PasswordTombstone.class, owner, since, upToRevision).getResultList();
+    }
+
+    @Override
+    public List<PasswordEntry> findChangesAfter(String owner, long afterRevision, long afterId, long upToRevision, int limit) {
+        return afterQuery("select p from PasswordEntry p where p.owner = :owner and p.revision <= :upTo "
+                        + "and (p.revision > :revision or (p.revision = :revision and p.id > :id)) order by p.revision, p.id",
+                PasswordEntry.class, owner, afterRevision, afterId, upToRevision, limit)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultList();
+    }
+
+    @Override
+    public List<PasswordTombstone> findTombstonesAfter(String owner, long afterRevision, long afterId, long upToRevision, int limit) {
+        return afterQuery("select t from PasswordTombstone t where t.owner = :owner and t.revision <= :upTo "
+                        + "and (t.revision > :revision or (t.revision = :revision and t.id > :id)) order by t.revision, t.id",
+                PasswordTombstone.class, owner, afterRevision, afterId, upToRevision, limit)
+                .getResultList();
+    }
+
+    @Override
+    @Transactional
+    public int deleteTombstonesBefore(Instant cutoff, long keepRevision) {
+        return entityManager.createQuery("delete from PasswordTombstone t where t.deletedAt < :cutoff and t.revision < :keep")
+                .setParameter("cutoff", cutoff)
+                .setParameter("keep", keepRevision)
+                .executeUpdate();
+    }
+
+    @Override
+    public List<ReuseGroup> findReusedPasswords(String owner) {
+        // Jedno zapytanie: GROUP BY odcisków sejfu w podzapytaniu, metadane wpisów powtórzonych odcisków - po tym samym indeksie
+        List<Object[]> rows = entityManager.createQuery("select p.passwordFingerprint, p.id, p.website, p.username, p.lastModified "
+                        + "from PasswordEntry p where p.owner = :owner and p.passwordFingerprint in ("
+                        + "select q.passwordFingerprint from PasswordEntry q where q.owner = :owner and q.passwordFingerprint is not null "
+                        + "group by q.passwordFingerprint having count(q) > 1) "
+                        + "order by p.passwordFingerprint, p.id", Object[].class)
+                .setParameter("owner", owner)
+                .getResultList();
+        Map<String, List<PasswordSummary>> groups = new LinkedHashMap<>();
+        for (Object[] row : rows) {
+            groups.computeIfAbsent((String) row[0], fingerprint -> new ArrayList<>())
+                    .add(new PasswordSummary((Long) row[1], (String) row[2], (String) row[3], (Instant) row[4]));
+        }
+        return groups.values().stream().map(ReuseGroup::new).sorted(ReuseGroup.ORDER).toList();
+    }
+
+    @Override
+    public long countWithoutFingerprint(String owner) {
+        return entityManager.createQuery("select count(p) from PasswordEntry p where p.owner = :owner and p.passwordFingerprint is null", Long.class)
+                .setParameter("owner", owner)
+                .getSingleResult();
+    }
+
+    @Override
+    public List<PasswordEntry> findWithoutFingerprintAfterId(long afterId, int limit) {
+        return entityManager.createQuery("select p from PasswordEntry p where p.passwordFingerprint is null and p.id > :afterId order by p.id",
+                        PasswordEntry.class)
+                .setParameter("afterId", afterId)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @Override
+    @Transactional
+    public boolean updatePasswordFingerprint(Long id, String expected, String fingerprint) {
+        // Aktualizacja hurtowa JPQL omija @PreUpdate - data modyfikacji i rewizja zostają bez zmian
+        return entityManager.createQuery("update PasswordEntry p set p.passwordFingerprint = :fingerprint where p.id = :id and p.password = :expected")
+                .setParameter("fingerprint", fingerprint)
+                .setParameter("id", id)
+                .setParameter("expected", expected)
+                .executeUpdate() == 1;
+    }
+
+    @Override
+    public List<StrengthGroup> findWeakPasswords(String owner, int maxScore) {
+        List<Object[]> rows = entityManager.createQuery("select p.strengthScore, p.id, p.website, p.username, p.lastModified "
+                        + "from PasswordEntry p where p.owner = :owner and p.strengthScore <= :maxScore "
+                        + "order by p.strengthScore, p.id", Object[].class)
+                .setParameter("owner", owner)
+                .setParameter("maxScore", maxScore)
+                .getResultList();
+        Map<Integer, List<PasswordSummary>> groups = new LinkedHashMap<>();
+        for (Object[] row : rows) {
+            groups.computeIfAbsent((Integer) row[0], score -> new ArrayList<>())
+                    .add(new PasswordSummary((Long) row[1], (String) row[2], (String) row[3], (Instant) row[4]));
+        }
+        return groups.entrySet().stream().map(group -> new StrengthGroup(group.getKey(), group.getValue())).toList();
+    }
+
+    @Override
+    public long countWithoutStrength(String owner) {
+        return entityManager.createQuery("select count(p) from PasswordEntry p where p.owner = :owner and p.strengthScore is null", Long.class)
+                .setParameter("owner", owner)
+                .getSingleResult();
+    }
+
+    @Override
+    public List<PasswordEntry> findWithoutStrengthAfterId(long afterId, int limit) {
+        return entityManager.createQuery("select p from PasswordEntry p where p.strengthScore is null and p.id > :afterId order by p.id",
+                        PasswordEntry.class)
+                .setParameter("afterId", afterId)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @Override
+    @Transactional
+    public boolean updateStrengthScore(Long id, String expected, int score, long revision) {
+        // Aktualizacja hurtowa JPQL omija @PreUpdate - data modyfikacji zostaje bez zmian
+        return entityManager.createQuery("update PasswordEntry p set p.strengthScore = :score, p.revision = :revision "
+                        + "where p.id = :id and p.password = :expected")
+                .setParameter("score", score)
+                .setParameter("revision", revision)
+                .setParameter("id", id)
+                .setParameter("expected", expected)
+                .executeUpdate() == 1;
+    }
+
+    private <T> TypedQuery<T> afterQuery(String jpql, Class<T> type, String owner, long afterRevision, long afterId,
+                                         long upToRevision, int limit) {
+        return entityManager.createQuery(jpql, type)
+                .setParameter("owner", owner)
+                .setParameter("upTo", upToRevision)
+                .setParameter("revision", afterRevision)
+                .setParameter("id", afterId)
+                .setMaxResults(limit);
+    }
+
+    private <T> TypedQuery<T> sinceQuery(String jpql, Class<T> type, String owner, ChangeSince since, long upToRevision) {
+        TypedQuery<T> query = entityManager.createQuery(jpql, type)
+                .setParameter("owner", owner)
+                .setParameter("upTo", upToRevision);
+        if (since.isRevision()) {
+            query.setParameter("since", since.getRevision());
+        } else {
+            query.setParameter("since", since.getTimestamp());
+        }
+        return query;
+    }
+}
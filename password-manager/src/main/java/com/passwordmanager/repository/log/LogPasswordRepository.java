@@ -0,0 +1,429 @@
+package com.passwordmanager.repository.log;
+
+import com.passwordmanager.model.ChangeSince;
+import com.passwordmanager.model.PageCursor;
+import com.passwordmanager.model.PageSort;
+import com.passwordmanager.model.PasswordEntry;
+import com.passwordmanager.model.PasswordSummary;
+import com.passwordmanager.model.PasswordTombstone;
+import com.passwordmanager.model.ReuseGroup;
+import com.passwordmanager.model.StrengthGroup;
+import com.passwordmanager.repository.PasswordRepository;
+import io.micrometer.core.annotation.Timed;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityNotFoundException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.repository.query.FluentQuery;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * {@link PasswordRepository} przechowujące wpisy w pliku dziennika ({@link VaultLog}) zamiast w bazie H2.
+ * Włączane przez {@code passwords.storage.type=log}; ma wtedy pierwszeństwo przed repozytorium JPA.
+ * Dane przetrwają restart aplikacji, a odczyt pojedynczego wpisu nie przechodzi przez Hibernate.
+ * <p>
+ * Zapytania przez przykład ({@link Example}) nie są obsługiwane. Transakcje JPA nie obejmują tego
+ * magazynu - każdy zapis ({@code save}, {@code saveAll}, usunięcie) jest osobnym, atomowym commitem.
+ * <p>
+ * Wywołania są mierzone timerem {@code passwords.repository} - odpowiednikiem
+ * {@code spring.data.repository.invocations}, które Spring Boot zbiera dla repozytorium JPA.
+ */
+@Repository
+@Timed("passwords.repository")
+@Primary
+@ConditionalOnProperty(name = "passwords.storage.type", havingValue = "log")
+public class LogPasswordRepository implements PasswordRepository {
+
+    private final VaultLog vaultLog;
+
+    @Autowired
+    public LogPasswordRepository(@Value("${passwords.storage.log.path:data/vault.log}") String path,
+                                 @Value("${passwords.storage.log.fsync:true}") boolean fsync,
+                                 @Value("${passwords.storage.log.compaction-ratio:0.5}") double compactionRatio,
+                                 @Value("${passwords.storage.log.compaction-min-bytes:1048576}") long compactionMinBytes) throws IOException {
+        this(new VaultLog(Path.of(path), fsync, compactionRatio, compactionMinBytes));
+    }
+
+    LogPasswordRepository(VaultLog vaultLog) {
+        this.vaultLog = vaultLog;
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        vaultLog.close();
+    }
+
+    // --- Zapytania PasswordRepository ---
+
+    @Override
+    public List<PasswordSummary> findAllSummaries(String owner, Sort sort) {
+        Sort.Order order = primaryOrder(sort);
+        return vaultLog.summaries(owner, sortOf(order), order.isAscending());
+    }
+
+    @Override
+    public Optional<String> findEncryptedPasswordById(String owner, Long id) {
+        return findByIdAndOwner(id, owner).map(PasswordEntry::getEncryptedPassword);
+    }
+
+    @Override
+    public Optional<PasswordEntry> findByIdAndOwner(Long id, String owner) {
+        return vaultLog.get(id).filter(entry -> entry.getOwner().equals(owner));
+    }
+
+    @Override
+    public long countByOwner(String owner) {
+        return vaultLog.count(owner);
+    }
+
+    @Override
+    public Stream<PasswordEntry> streamAll(String owner) {
+        return vaultLog.streamAll(owner);
+    }
+
+    @Override
+    public List<PasswordSummary> findSummaryPage(String owner, PageSort sort, Sort.Direction direction, PageCursor after, int limit) {
+        Long afterId = after == null ? null : after.getLastId();
+        Object afterKey = after == null || sort == PageSort.ID ? null : sort.parseKey(after.getLastKey());
+        return vaultLog.page(owner, sort, direction.isAscending(), afterId, afterKey, limit);
+    }
+
+    @Override
+    public boolean deleteWithTombstone(String owner, Long id, long revision) {
+        if (!owner.equals(vaultLog.ownerOf(id))) {
+            return false;
+        }
+        vaultLog.deleteAll(List.of(id), revision);
+        return true;
+    }
+
+    @Override
+    public List<Long> deleteAllWithTombstones(String owner, Collection<Long> ids, long revision) {
+        List<Long> existing = ids.stream().filter(id -> owner.equals(vaultLog.ownerOf(id))).toList();
+        vaultLog.deleteAll(existing, revision);
+        return existing;
+    }
+
+    @Override
+    public List<PasswordEntry> findAllAfterId(long afterId, int limit) {
+        return vaultLog.entriesAfter(afterId, limit);
+    }
+
+    @Override
+    public boolean replaceEncryptedPassword(Long id, String expected, String replacement) {
+        return vaultLog.replacePassword(id, expected, replacement);
+    }
+
+    @Override
+    public long findMaxRevision() {
+        return vaultLog.maxRevision();
+    }
+
+    @Override
+    public Stream<PasswordEntry> streamChangedSince(String owner, ChangeSince since, long upToRevision) {
+        return vaultLog.streamChangedSince(owner, since, upToRevision);
+    }
+
+    @Override
+    public List<PasswordTombstone> findTombstonesSince(String owner, ChangeSince since, long upToRevision) {
+        return vaultLog.tombstonesSince(owner, since, upToRevision);
+    }
+
+    @Override
+    public List<PasswordEntry> findChangesAfter(String owner, long afterRevision, long afterId, long upToRevision, int limit) {
+        return vaultLog.changesAfter(owner, afterRevision, afterId, upToRevision, limit);
+    }
+
+    @Override
+    public List<PasswordTombstone> findTombstonesAfter(String owner, long afterRevision, long afterId, long upToRevision, int limit) {
+        return vaultLog.tombstonesAfter(owner, afterRevision, afterId, upToRevision, limit);
+    }
+
+    @Override
+    public int deleteTombstonesBefore(Instant cutoff, long keepRevision) {
+        return vaultLog.purgeTombstones(cutoff, keepRevision);
+    }
+
+    @Override
+    public List<ReuseGroup> findReusedPasswords(String owner) {
+        return vaultLog.reusedPasswords(owner);
+    }
+
+    @Override
+    public long countWithoutFingerprint(String owner) {
+        return vaultLog.countWithoutFingerprint(owner);
+    }
+
+    @Override
+    public List<PasswordEntry> findWithoutFingerprintAfterId(long afterId, int limit) {
+        return vaultLog.entriesWithoutFingerprintAfter(afterId, limit);
+    }
+
+    @Override
+    public boolean updatePasswordFingerprint(Long id, String expected, String fingerprint) {
+        return vaultLog.setFingerprint(id, expected, fingerprint);
+    }
+
+    @Override
+    public List<StrengthGroup> findWeakPasswords(String owner, int maxScore) {
+        return vaultLog.weakPasswords(owner, maxScore);
+    }
+
+    @Override
+    public long countWithoutStrength(String owner) {
+        return vaultLog.countWithoutStrength(owner);
+    }
+
+    @Override
+    public List<PasswordEntry> findWithoutStrengthAfterId(long afterId, int limit) {
+        return vaultLog.entriesWithoutStrengthAfter(afterId, limit);
+    }
+
+    @Override
+    public boolean updateStrengthScore(Long id, String expected, int score, long revision) {
+        return vaultLog.setStrength(id, expected, score, revision);
+    }
+
+    // --- Zapis ---
+
+    @Override
+    public <S extends PasswordEntry> S save(S entity) {
+        saveAll(List.of(entity));
+        return entity;
+    }
+
+    @Override
+    public <S extends PasswordEntry> List<S> saveAll(Iterable<S> entities) {
+        List<S> list = new ArrayList<>();
+        entities.forEach(list::add);
+        list.forEach(PasswordEntry::beforeSave);
+        return vaultLog.putAll(list);
+    }
+
+    @Override
+    public <S extends PasswordEntry> S saveAndFlush(S entity) {
+        return save(entity);
+    }
+
+    @Override
+    public <S extends PasswordEntry> List<S> saveAllAndFlush(Iterable<S> entities) {
+        return saveAll(entities);
+    }
+
+    @Override
+    public void flush() {
+        // Każdy zapis jest utrwalany przed powrotem z save()
+    }
+
+    // --- Odczyt (metody CrudRepository przechodzą wszystkie sejfy) ---
+
+    @Override
+    public Optional<PasswordEntry> findById(Long id) {
+        return vaultLog.get(id);
+    }
+
+    @Override
+    public boolean existsById(Long id) {
+        return vaultLog.contains(id);
+    }
+
+    @Override
+    public List<PasswordEntry> findAll() {
+        try (Stream<PasswordEntry> entries = vaultLog.streamAll()) {
+            return entries.collect(Collectors.toCollection(ArrayList::new));
+        }
+    }
+
+    @Override
+    public List<PasswordEntry> findAll(Sort sort) {
+        Sort.Order order = primaryOrder(sort);
+        Comparator<PasswordEntry> comparator = switch (sortOf(order)) {
+            case ID -> Comparator.comparing(PasswordEntry::getId);
+            case WEBSITE -> Comparator.comparing(PasswordEntry::getWebsiteSortKey).thenComparing(PasswordEntry::getId);
+            case USERNAME -> Comparator.comparing(PasswordEntry::getUsernameSortKey).thenComparing(PasswordEntry::getId);
+            case LAST_MODIFIED -> Comparator.comparing(PasswordEntry::getLastModified).thenComparing(PasswordEntry::getId);
+        };
+        List<PasswordEntry> entries = findAll();
+        entries.sort(order.isAscending() ? comparator : comparator.reversed());
+        return entries;
+    }
+
+    @Override
+    public Page<PasswordEntry> findAll(Pageable pageable) {
+        List<PasswordEntry> entries = findAll(pageable.getSort());
+        if (pageable.isUnpaged()) {
+            return new PageImpl<>(entries);
+        }
+        int from = (int) Math.min(pageable.getOffset(), entries.size());
+        int to = Math.min(from + pageable.getPageSize(), entries.size());
+        return new PageImpl<>(new ArrayList<>(entries.subList(from, to)), pageable, entries.size());
+    }
+
+    @Override
+    public List<PasswordEntry> findAllById(Iterable<Long> ids) {
+        List<PasswordEntry> entries = new ArrayList<>();
+        for (Long id : ids) {
+            vaultLog.get(id).ifPresent(entries::add);
+        }
+        return entries;
+    }
+
+    @Override
+    public long count() {
+        return vaultLog.size();
+    }
+
+    @Override
+    public PasswordEntry getReferenceById(Long id) {
+        return findById(id).orElseThrow(() -> new EntityNotFoundException("Nie znaleziono wpisu o id " + id));
+    }
+
+    @Override
+    @Deprecated
+    public PasswordEntry getOne(Long id) {
+        return getReferenceById(id);
+    }
+
+    @Override
+    @Deprecated
+    public PasswordEntry getById(Long id) {
+        return getReferenceById(id);
+    }
+
+    // --- Usuwanie ---
+
+    @Override
+    public void deleteById(Long id) {
+        vaultLog.deleteAll(List.of(id));
+    }
+
+    @Override
+    public void delete(PasswordEntry entity) {
+        if (entity.getId() != null) {
+            deleteById(entity.getId());
+        }
+    }
+
+    @Override
+    public void deleteAllById(Iterable<? extends Long> ids) {
+        List<Long> list = new ArrayList<>();
+        ids.forEach(list::add);
+        vaultLog.deleteAll(list);
+    }
+
+    @Override
+    public void deleteAll(Iterable<? extends PasswordEntry> entities) {
+        List<Long> ids = new ArrayList<>();
+        entities.forEach(entity -> ids.add(entity.getId()));
+        vaultLog.deleteAll(ids);
+    }
+
+    @Override
+    public void deleteAll() {
+        vaultLog.clear();
+    }
+
+    @Override
+    public void deleteAllInBatch(Iterable<PasswordEntry> entities) {
+        deleteAll(entities);
+    }
+
+    @Override
+    public void deleteAllByIdInBatch(Iterable<Long> ids) {
+        deleteAllById(ids);
+    }
+
+    @Override
+    public void deleteAllInBatch() {
+        deleteAll();
+    }
+
+    // --- Zapytania przez przykład (nieobsługiwane) ---
+
+    @Override
+    public <S extends PasswordEntry> Optional<S> findOne(Example<S> example) {
+        throw unsupportedExample();
+    }
+
+    @Override
+    public <S extends PasswordEntry> List<S> findAll(Example<S> example) {
+        throw unsupportedExample();
+    }
+
+    @Override
+    public <S extends PasswordEntry> List<S> findAll(Example<S> example, Sort sort) {
+        throw unsupportedExample();
+    }
+
+    @Override
+    public <S extends PasswordEntry> Page<S> findAll(Example<S> example, Pageable pageable) {
+        throw unsupportedExample();
+    }
+
+    @Override
+    public <S extends PasswordEntry> long count(Example<S> example) {
+        throw unsupportedExample();
+    }
+
+    @Override
+    public <S extends PasswordEntry> boolean exists(Example<S> example) {
+        throw unsupportedExample();
+    }
+
+    @Override
+    public <S extends PasswordEntry, R> R findBy(Example<S> example, Function<FluentQuery.FetchableFluentQuery<S>, R> queryFunction) {
+        throw unsupportedExample();
+    }
+
+    private static UnsupportedOperationException unsupportedExample() {
+        return new UnsupportedOperationException("Magazyn dziennika nie obsługuje zapytań przez przykład");
+    }
+
+    /**
+     * Wybiera klucz sortowania z {@link Sort}. Obsługiwane są klucze {@link PageSort}
+     * (także "website" i "username") z opcjonalnym dodatkowym sortowaniem po id w tym samym kierunku.
+     */
+    private static Sort.Order primaryOrder(Sort sort) {
+        List<Sort.Order> orders = sort.toList();
+        if (orders.isEmpty()) {
+            return Sort.Order.asc("id");
+        }
+        Sort.Order primary = orders.get(0);
+        boolean idTieBreak = orders.size() == 2
+                && orders.get(1).getProperty().equals("id")
+                && orders.get(1).getDirection() == primary.getDirection();
+        if (orders.size() > 2 || (orders.size() == 2 && !idTieBreak)) {
+            throw new IllegalArgumentException("Nieobsługiwane sortowanie: " + sort);
+        }
+        return primary;
+    }
+
+    private static PageSort sortOf(Sort.Order order) {
+        return switch (order.getProperty()) {
+            case "id" -> PageSort.ID;
+            case "website", "websiteSortKey" -> PageSort.WEBSITE;
+            case "username", "usernameSortKey" -> PageSort.USERNAME;
+            case "lastModified" -> PageSort.LAST_MODIFIED;
+            default -> throw new IllegalArgumentException("Nieobsługiwany klucz sortowania: " + order.getProperty());
+        };
+    }
+}
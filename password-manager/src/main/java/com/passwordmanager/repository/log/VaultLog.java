@@ -0,0 +1,1572 @@
+package com.passwordmanager.repository.log;
+
+import com.passwordmanager.model.ChangeSince;
+import com.passwordmanager.model.PageSort;
+import com.passwordmanager.model.PasswordEntry;
+import com.passwordmanager.model.PasswordSummary;
+import com.passwordmanager.model.PasswordTombstone;
+import com.passwordmanager.model.ReuseGroup;
+import com.passwordmanager.model.StrengthGroup;
+import com.passwordmanager.utill.SortKeys;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataRetrievalFailureException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Magazyn wpisów w pliku dziennika tylko do dopisywania (append-only).
+ * <p>
+ * Plik zaczyna się nagłówkiem ({@link #MAGIC}, wersja formatu), po którym następują rekordy
+ * {@code [długość treści: int][CRC32 treści: int][treść]}. Treść to typ rekordu, id i rewizja, a dla zapisu
+ * i usunięcia także data modyfikacji (usunięcia) i sejf (właściciel); zapis zawiera jeszcze stronę, użytkownika,
+ * zaszyfrowane hasło (w postaci otrzymanej od {@code EncryptionService}) i jego odcisk. Rekordy nigdy nie są nadpisywane: zmiana wpisu dopisuje jego nową wersję,
+ * usunięcie dopisuje znacznik usunięcia. Znaczniki z niezerową rewizją są zachowywane (także przy kompaktacji)
+ * na potrzeby eksportu przyrostowego i synchronizacji, dopóki nie usunie ich {@link #purgeTombstones(Instant, long)}.
+ * <ul>
+ *     <li>Indeks id → położenie rekordu (z metadanymi do sortowania i stronicowania) jest trzymany w pamięci
+ *     i odtwarzany przy otwarciu przez przejście całego pliku. Zbiory uporządkowane (sortowanie, rewizje,
+ *     znaczniki) zaczynają się od właściciela, więc zapytania jednego sejfu przechodzą tylko jego wiersze. Niepełny lub uszkodzony rekord na końcu
+ *     pliku (przerwany zapis) jest odcinany.</li>
+ *     <li>Odczyty idą przez mapowanie pliku w pamięć ({@link MappedByteBuffer}) - bez wywołania systemowego na rekord.</li>
+ *     <li>Zapisy z wielu wątków są grupowane (group commit): jeden wątek zapisujący dopisuje wszystko,
+ *     co nagromadziło się w kolejce, jednym zapisem i jednym {@code fsync}. Zmiana jest widoczna
+ *     dla odczytów i potwierdzana wywołującemu dopiero po utrwaleniu.</li>
+ *     <li>Kompaktacja w tle przepisuje żywe rekordy do nowego pliku, gdy nieaktualne wersje zajmują
+ *     zadany odsetek pliku. Zapisy są wstrzymywane tylko na czas dopisania ogona i podmiany pliku.</li>
+ * </ul>
+ * Rozmiar pliku jest ograniczony do 2 GB (jedno mapowanie).
+ */
+public class VaultLog implements Closeable {
+
+    /** "PMVL" */
+    static final int MAGIC = 0x504D564C;
+    /**
+     * Wersja 2 dodała rewizje i znaczniki usunięcia, wersja 3 - sejf (właściciela) wpisu, wersja 4 - odcisk hasła,
+     * wersja 5 - ocenę siły hasła. Pliki w starszych wersjach są przepisywane przy otwarciu.
+     */
+    static final int VERSION = 5;
+    static final int HEADER_SIZE = 8;
+    /** Długość i suma kontrolna przed treścią rekordu. */
+    static final int RECORD_HEADER_SIZE = 8;
+
+    static final byte PUT = 1;
+    static final byte DELETE = 2;
+    /**
+     * Następne wolne id i najwyższa rewizja - zapisywane przy kompaktacji, aby id ani rewizje
+     * usuniętych wpisów nie wracały po restarcie.
+     */
+    static final byte SEQUENCE = 3;
+
+    private static final long MAX_FILE_SIZE = Integer.MAX_VALUE;
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+    /** Maksymalna liczba oczekujących zapisów łączonych w jeden commit. */
+    private static final int MAX_GROUP_SIZE = 1024;
+    private static final PendingWrite SHUTDOWN = new PendingWrite(List.of());
+
+    private final Path path;
+    private final boolean fsync;
+    private final double compactionRatio;
+    private final long compactionMinBytes;
+
+    /** Chroni indeks, kanał, mapowanie i koniec pliku; kanał i mapowanie są podmieniane tylko przy kompaktacji. */
+    private final ReadWriteLock indexLock = new ReentrantReadWriteLock();
+    /** Trzymana przez wątek zapisujący na czas zapisu porcji i przez kompaktację na czas podmiany pliku. */
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final Object mapLock = new Object();
+    /** Łączy sprawdzenie {@code closed} z dodaniem do kolejki - po znaczniku SHUTDOWN nie trafi do niej żaden zapis. */
+    private final Object submitLock = new Object();
+
+    private FileChannel channel;
+    private volatile MappedByteBuffer mapped;
+    private Index index;
+    /** Koniec ostatniego zatwierdzonego rekordu. */
+    private long end;
+    private final AtomicLong nextId;
+
+    private final BlockingQueue<PendingWrite> pending = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private final ExecutorService compactor;
+    private final AtomicBoolean compacting = new AtomicBoolean();
+    private volatile boolean closed;
+
+    private final AtomicLong commits = new AtomicLong();
+    private final AtomicLong compactions = new AtomicLong();
+
+    /**
+     * Otwiera (lub tworzy) plik dziennika i odtwarza indeks.
+     * @param path Ścieżka pliku.
+     * @param fsync Czy każdy commit ma być utrwalany na dysku ({@code fsync}) przed potwierdzeniem.
+     * @param compactionRatio Odsetek nieaktualnych danych w pliku, od którego uruchamiana jest kompaktacja.
+     * @param compactionMinBytes Minimalny rozmiar pliku, od którego kompaktacja ma sens.
+     * @throws IOException Jeśli plik nie może zostać otwarty lub nie jest plikiem dziennika.
+     */
+    public VaultLog(Path path, boolean fsync, double compactionRatio, long compactionMinBytes) throws IOException {
+        if (compactionRatio <= 0 || compactionRatio >= 1) {
+            throw new IllegalArgumentException("Próg kompaktacji musi być z przedziału (0, 1)");
+        }
+        this.path = path;
+        this.fsync = fsync;
+        this.compactionRatio = compactionRatio;
+        this.compactionMinBytes = compactionMinBytes;
+
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            if (channel.size() == 0) {
+                writeHeader(channel);
+                channel.force(true);
+            }
+            if (channel.size() > MAX_FILE_SIZE) {
+                throw new IOException("Plik dziennika przekracza 2 GB: " + path);
+            }
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            int version = mapped.capacity() < HEADER_SIZE ? 0 : mapped.getInt(4);
+            if (mapped.capacity() < HEADER_SIZE || mapped.getInt(0) != MAGIC || version < 1 || version > VERSION) {
+                throw new IOException("Plik nie jest dziennikiem sejfu w obsługiwanej wersji: " + path);
+            }
+            index = new Index();
+            end = index.replay(mapped, HEADER_SIZE, mapped.capacity(), version);
+            if (end < mapped.capacity()) {
+                // Niepełny rekord po przerwanym zapisie - odcinamy go, kolejne rekordy trafią za ostatni poprawny
+                channel.truncate(end);
+                channel.force(true);
+                mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, end);
+            }
+            if (version < VERSION) {
+                upgrade(version);
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        nextId = new AtomicLong(index.nextId);
+
+        writer = new Thread(this::writeLoop, "vault-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+        compactor = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "vault-log-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // ---------- Zapis ----------
+
+    /**
+     * Zapisuje wpisy (nowe lub nowe wersje istniejących) w jednym commicie.
+     * Wpisy bez id otrzymują kolejne wolne id. Metoda wraca po utrwaleniu zapisu.
+     * @param entries Wpisy z zaszyfrowanymi hasłami.
+     * @return Te same wpisy z nadanymi id.
+     */
+    public <S extends PasswordEntry> List<S> putAll(List<S> entries) {
+        List<Mutation> mutations = new ArrayList<>(entries.size());
+        for (S entry : entries) {
+            if (entry.getId() == null) {
+                entry.setId(nextId.getAndIncrement());
+            } else {
+                nextId.accumulateAndGet(entry.getId() + 1, Math::max);
+            }
+            mutations.add(Mutation.put(entry));
+        }
+        commit(mutations);
+        return entries;
+    }
+
+    /**
+     * Zamienia zaszyfrowane hasło wpisu, jeśli jest ono nadal równe {@code expected} (porównaj-i-zamień).
+     * Warunek jest sprawdzany przez wątek zapisujący, już w kolejności commitów - zapis, który zmienił
+     * wpis wcześniej (także w tej samej grupie), powoduje odrzucenie zamiany. Rewizja i data modyfikacji
+     * wpisu pozostają bez zmian.
+     * @return true, jeśli hasło zostało zamienione.
+     */
+    public boolean replacePassword(long id, String expected, String replacement) {
+        return update(id, expected, entry -> entry.setEncryptedPassword(replacement));
+    }
+
+    /**
+     * Ustawia odcisk hasła wpisu, jeśli jego zaszyfrowane hasło jest nadal równe {@code expected}
+     * (porównaj-i-zamień, jak {@link #replacePassword}). Rewizja i data modyfikacji wpisu pozostają bez zmian.
+     * @return true, jeśli odcisk został zapisany.
+     */
+    public boolean setFingerprint(long id, String expected, String fingerprint) {
+        return update(id, expected, entry -> entry.setPasswordFingerprint(fingerprint));
+    }
+
+    /**
+     * Ustawia ocenę siły hasła wpisu i nową rewizję, jeśli jego zaszyfrowane hasło jest nadal równe {@code expected}
+     * (porównaj-i-zamień, jak {@link #replacePassword}). Data modyfikacji wpisu pozostaje bez zmian.
+     * @return true, jeśli ocena została zapisana.
+     */
+    public boolean setStrength(long id, String expected, int score, long revision) {
+        return update(id, expected, entry -> {
+            entry.setStrengthScore(score);
+            entry.setRevision(revision);
+        });
+    }
+
+    /**
+     * Zmiana warunkowa jednego wpisu. {@code change} jest stosowana przez wątek zapisujący do wpisu w stanie
+     * z chwili commitu (po wcześniejszych zmianach tej samej grupy), a nie do kopii odczytanej tutaj - dwie
+     * zmiany różnych pól tego samego wpisu nie nadpisują się nawzajem.
+     * @return true, jeśli zmiana została zapisana.
+     */
+    private boolean update(long id, String expected, Consumer<PasswordEntry> change) {
+        if (!expected.equals(getPassword(id).orElse(null))) {
+            return false;
+        }
+        Mutation mutation = Mutation.update(id, expected, change);
+        commit(List.of(mutation));
+        return !mutation.rejected;
+    }
+
+    /**
+     * Usuwa wpisy o podanych id (nieistniejące są pomijane) w jednym commicie, bez znaczników usunięcia.
+     * @param ids Id wpisów do usunięcia.
+     */
+    public void deleteAll(Collection<Long> ids) {
+        deleteAll(ids, 0);
+    }
+
+    /**
+     * Usuwa wpisy o podanych id (nieistniejące są pomijane) w jednym commicie.
+     * @param ids Id wpisów do usunięcia.
+     * @param revision Rewizja usunięcia; dla wartości dodatniej po wpisach zostają znaczniki usunięcia.
+     */
+    public void deleteAll(Collection<Long> ids, long revision) {
+        List<Mutation> mutations = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            String owner = id == null ? null : ownerOf(id);
+            if (owner != null) {
+                mutations.add(Mutation.delete(owner, id, revision));
+            }
+        }
+        commit(mutations);
+    }
+
+    /**
+     * Usuwa wszystkie wpisy.
+     */
+    public void clear() {
+        List<Long> ids;
+        indexLock.readLock().lock();
+        try {
+            ids = new ArrayList<>(index.byId.keySet());
+        } finally {
+            indexLock.readLock().unlock();
+        }
+        deleteAll(ids);
+    }
+
+    private void commit(List<Mutation> mutations) {
+        if (mutations.isEmpty()) {
+            return;
+        }
+        PendingWrite write = new PendingWrite(mutations);
+        synchronized (submitLock) {
+            if (closed) {
+                throw new IllegalStateException("Dziennik sejfu jest zamknięty");
+            }
+            pending.add(write);
+        }
+        try {
+            // Oczekiwanie nieprzerywalne: porcja zostaje zapisana w całości albo wcale
+            write.done.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new DataAccessResourceFailureException("Zapis do dziennika sejfu nie powiódł się: " + path, e.getCause());
+        }
+    }
+
+    private void writeLoop() {
+        List<PendingWrite> group = new ArrayList<>();
+        boolean running = true;
+        while (running) {
+            try {
+                group.add(pending.take());
+            } catch (InterruptedException e) {
+                break;
+            }
+            // Wszystko, co nagromadziło się podczas poprzedniego fsync, trafia do jednego commitu
+            pending.drainTo(group, MAX_GROUP_SIZE - 1);
+            running = !group.remove(SHUTDOWN);
+            try {
+                writeGroup(group);
+            } catch (RuntimeException e) {
+                group.forEach(write -> write.done.completeExceptionally(e));
+            }
+            group.clear();
+            if (running) {
+                compactIfNeeded();
+            }
+        }
+        failPending();
+    }
+
+    private void failPending() {
+        PendingWrite left;
+        while ((left = pending.poll()) != null) {
+            left.done.completeExceptionally(new IllegalStateException("Dziennik sejfu jest zamknięty"));
+        }
+    }
+
+    private void writeGroup(List<PendingWrite> group) {
+        if (group.isEmpty()) {
+            return;
+        }
+        appendLock.lock();
+        try {
+            if (group.stream().anyMatch(write -> write.conditional)) {
+                checkConditions(group);
+            }
+            long start = end;
+            int size = 0;
+            for (PendingWrite write : group) {
+                for (Mutation mutation : write.mutations) {
+                    if (!mutation.rejected) {
+                        size += mutation.record.length;
+                    }
+                }
+            }
+            try {
+                if (start + size > MAX_FILE_SIZE) {
+                    throw new IOException("Plik dziennika przekroczyłby 2 GB: " + path);
+                }
+                ByteBuffer buffer = ByteBuffer.allocate(size);
+                for (PendingWrite write : group) {
+                    for (Mutation mutation : write.mutations) {
+                        if (!mutation.rejected) {
+                            buffer.put(mutation.record);
+                        }
+                    }
+                }
+                buffer.flip();
+                writeFully(channel, buffer, start);
+                if (fsync) {
+                    channel.force(false);
+                }
+            } catch (IOException e) {
+                truncateQuietly(start);
+                group.forEach(write -> write.done.completeExceptionally(e));
+                return;
+            }
+
+            indexLock.writeLock().lock();
+            try {
+                long offset = start;
+                for (PendingWrite write : group) {
+                    for (Mutation mutation : write.mutations) {
+                        if (mutation.rejected) {
+                            continue;
+                        }
+                        index.apply(mutation.type, mutation.id, mutation.revision, mutation.toSlot(offset), mutation.toTombstone(offset));
+                        offset += mutation.record.length;
+                    }
+                }
+                end = offset;
+            } finally {
+                indexLock.writeLock().unlock();
+            }
+            commits.incrementAndGet();
+        } finally {
+            appendLock.unlock();
+        }
+        group.forEach(write -> write.done.complete(null));
+    }
+
+    /**
+     * Rozstrzyga zmiany warunkowe na stanie po zmianach zatwierdzonych i wcześniejszych zmianach tej samej grupy:
+     * odrzuca te, których oczekiwane hasło się nie zgadza, a pozostałe zastępuje rekordem zbudowanym z tego stanu.
+     * Wołane pod {@link #appendLock}, więc stan nie zmienia się w trakcie.
+     */
+    private void checkConditions(List<PendingWrite> group) {
+        Map<Long, Mutation> latest = new HashMap<>();
+        for (PendingWrite write : group) {
+            for (int i = 0; i < write.mutations.size(); i++) {
+                Mutation mutation = write.mutations.get(i);
+                if (mutation.change != null) {
+                    PasswordEntry current;
+                    if (latest.containsKey(mutation.id)) {
+                        Mutation earlier = latest.get(mutation.id);
+                        current = earlier.type == PUT ? earlier.toEntry() : null;
+                    } else {
+                        current = get(mutation.id).orElse(null);
+                    }
+                    mutation.rejected = current == null || !mutation.expected.equals(current.getEncryptedPassword());
+                    if (!mutation.rejected) {
+                        mutation.change.accept(current);
+                        mutation = Mutation.put(current);
+                        write.mutations.set(i, mutation);
+                    }
+                }
+                if (!mutation.rejected && mutation.type != SEQUENCE) {
+                    latest.put(mutation.id, mutation);
+                }
+            }
+        }
+    }
+
+    private void truncateQuietly(long size) {
+        try {
+            channel.truncate(size);
+        } catch (IOException ignored) {
+            // Niepełny rekord zostanie odcięty przy następnym otwarciu (suma kontrolna)
+        }
+    }
+
+    // ---------- Odczyt ----------
+
+    public Optional<PasswordEntry> get(long id) {
+        Located located = locate(id);
+        return located == null ? Optional.empty() : Optional.of(read(located.mapping(), located.slot()).toEntry());
+    }
+
+    /**
+     * Zwraca samo zaszyfrowane hasło wpisu.
+     */
+    public Optional<String> getPassword(long id) {
+        Located located = locate(id);
+        return located == null ? Optional.empty() : Optional.of(read(located.mapping(), located.slot()).password());
+    }
+
+    public boolean contains(long id) {
+        indexLock.readLock().lock();
+        try {
+            return index.byId.containsKey(id);
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return Sejf (właściciel) wpisu lub null, jeśli wpis nie istnieje.
+     */
+    public String ownerOf(long id) {
+        indexLock.readLock().lock();
+        try {
+            Slot slot = index.byId.get(id);
+            return slot == null ? null : slot.owner();
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        indexLock.readLock().lock();
+        try {
+            return index.byId.size();
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Strumieniuje wszystkie wpisy w kolejności id. Strumień czyta spójny obraz sejfu z chwili wywołania
+     * (rekordy są niezmienne, a mapowanie pozostaje ważne także po kompaktacji), bez ładowania haseł do pamięci.
+     */
+    public Stream<PasswordEntry> streamAll() {
+        List<Slot> slots;
+        MappedByteBuffer mapping;
+        indexLock.readLock().lock();
+        try {
+            slots = new ArrayList<>(index.byId.values());
+            mapping = mapping();
+        } finally {
+            indexLock.readLock().unlock();
+        }
+        return slots.stream().map(slot -> read(mapping, slot).toEntry());
+    }
+
+    /**
+     * Strumieniuje wpisy jednego sejfu w kolejności id (spójny obraz z chwili wywołania, jak {@link #streamAll()}).
+     */
+    public Stream<PasswordEntry> streamAll(String owner) {
+        List<Slot> slots;
+        MappedByteBuffer mapping;
+        indexLock.readLock().lock();
+        try {
+            slots = ownerRows(owner, PageSort.ID, true, null).toList();
+            mapping = mapping();
+        } finally {
+            indexLock.readLock().unlock();
+        }
+        return slots.stream().map(slot -> read(mapping, slot).toEntry());
+    }
+
+    /**
+     * Zwraca do {@code limit} wpisów wszystkich sejfów o id większym niż {@code afterId}, w kolejności id.
+     */
+    public List<PasswordEntry> entriesAfter(long afterId, int limit) {
+        List<Slot> slots;
+        MappedByteBuffer mapping;
+        indexLock.readLock().lock();
+        try {
+            slots = index.byId.tailMap(afterId, false).values().stream().limit(limit).toList();
+            mapping = mapping();
+        } finally {
+            indexLock.readLock().unlock();
+        }
+        return slots.stream().map(slot -> read(mapping, slot).toEntry()).toList();
+    }
+
+    /**
+     * Zwraca do {@code limit} wpisów wszystkich sejfów bez odcisku hasła o id większym niż {@code afterId}, w kolejności id.
+     */
+    public List<PasswordEntry> entriesWithoutFingerprintAfter(long afterId, int limit) {
+        List<Slot> slots;
+        MappedByteBuffer mapping;
+        indexLock.readLock().lock();
+        try {
+            slots = index.byId.tailMap(afterId, false).values().stream()
+                    .filter(slot -> slot.fingerprint() == null)
+                    .limit(limit)
+                    .toList();
+            mapping = mapping();
+        } finally {
+            indexLock.readLock().unlock();
+        }
+        return slots.stream().map(slot -> read(mapping, slot).toEntry()).toList();
+    }
+
+    /**
+     * Grupy wpisów sejfu o tym samym odcisku hasła (co najmniej dwa wpisy w grupie), z metadanych indeksu -
+     * bez odczytu rekordów i deszyfrowania.
+     */
+    public List<ReuseGroup> reusedPasswords(String owner) {
+        Map<String, List<PasswordSummary>> byFingerprint = new LinkedHashMap<>();
+        indexLock.readLock().lock();
+        try {
+            ownerRows(owner, PageSort.ID, true, null)
+                    .filter(slot -> slot.fingerprint() != null)
+                    .forEach(slot -> byFingerprint.computeIfAbsent(slot.fingerprint(), key -> new ArrayList<>()).add(slot.toSummary()));
+        } finally {
+            indexLock.readLock().unlock();
+        }
+        return byFingerprint.values().stream()
+                .filter(entries -> entries.size() > 1)
+                .map(ReuseGroup::new)
+                .sorted(ReuseGroup.ORDER)
+                .toList();
+    }
+
+    /**
+     * Zwraca do {@code limit} wpisów wszystkich sejfów bez oceny siły hasła o id większym niż {@code afterId}, w kolejności id.
+     */
+    public List<PasswordEntry> entriesWithoutStrengthAfter(long afterId, int limit) {
+        List<Slot> slots;
+        MappedByteBuffer mapping;
+        indexLock.readLock().lock();
+        try {
+            slots = index.byId.tailMap(afterId, false).values().stream()
+                    .filter(slot -> slot.strength() == null)
+                    .limit(limit)
+                    .toList();
+            mapping = mapping();
+        } finally {
+            indexLock.readLock().unlock();
+        }
+        return slots.stream().map(slot -> read(mapping, slot).toEntry()).toList();
+    }
+
+    /**
+     * Grupy wpisów sejfu z oceną siły hasła nie wyższą niż {@code maxScore} (od najsłabszej, w grupie po id) -
+     * zakres zbioru uporządkowanego po ocenie, bez przechodzenia pozostałych wpisów i bez odczytu rekordów.
+     */
+    public List<StrengthGroup> weakPasswords(String owner, int maxScore) {
+        Map<Integer, List<PasswordSummary>> byScore = new LinkedHashMap<>();
+        indexLock.readLock().lock();
+        try {
+            index.byStrength.subSet(Slot.strengthProbe(owner, Integer.MIN_VALUE, Long.MIN_VALUE), true,
+                            Slot.strengthProbe(owner, maxScore, Long.MAX_VALUE), true)
+                    .forEach(slot -> byScore.computeIfAbsent(slot.strength(), key -> new ArrayList<>()).add(slot.toSummary()));
+        } finally {
+            indexLock.readLock().unlock();
+        }
+        return byScore.entrySet().stream().map(group -> new StrengthGroup(group.getKey(), group.getValue())).toList();
+    }
+
+    /** Liczba wpisów sejfu bez oceny siły hasła. */
+    public long countWithoutStrength(String owner) {
+        indexLock.readLock().lock();
+        try {
+            return index.byStrength.subSet(Slot.strengthProbe(owner, null, Long.MIN_VALUE), true,
+                    Slot.strengthProbe(owner, null, Long.MAX_VALUE), true).size();
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
+
+    /** Liczba wpisów sejfu bez odcisku hasła. */
+    public long countWithoutFingerprint(String owner) {
+        indexLock.readLock().lock();
+        try {
+            return ownerRows(owner, PageSort.ID, true, null).filter(slot -> slot.fingerprint() == null).count();
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
+
+    /** Liczba wpisów sejfu. */
+    public long count(String owner) {
+        indexLock.readLock().lock();
+        try {
+            return ownerRows(owner, PageSort.ID, true, null).count();
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Zwraca metadane wszystkich wpisów sejfu w kolejności wybranego klucza (przy równych kluczach - po id).
+     */
+    public List<PasswordSummary> summaries(String owner, PageSort sort, boolean ascending) {
+        indexLock.readLock().lock();
+        try {
+            return ownerRows(owner, sort, ascending, null).map(Slot::toSummary).toList();
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Zwraca stronę metadanych sejfu (stronicowanie kursorowe) z posortowanych indeksów w pamięci - O(log n + limit).
+     * @param owner Sejf.
+     * @param sort Klucz sortowania.
+     * @param ascending Kierunek sortowania.
+     * @param afterId Id ostatniego wiersza poprzedniej strony lub null dla pierwszej strony.
+     * @param afterKey Klucz ostatniego wiersza poprzedniej strony ({@link PageSort#parseKey(String)}); ignorowany dla {@link PageSort#ID}.
+     * @param limit Maksymalna liczba wierszy.
+     */
+    public List<PasswordSummary> page(String owner, PageSort sort, boolean ascending, Long afterId, Object afterKey, int limit) {
+        indexLock.readLock().lock();
+        try {
+            Slot after = afterId == null ? null : Slot.probe(owner, sort, afterKey, afterId);
+            return ownerRows(owner, sort, ascending, after).limit(limit).map(Slot::toSummary).toList();
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
+
+    /** Najwyższa rewizja zapisanych wpisów i znaczników usunięcia (0 dla pustego dziennika). */
+    public long maxRevision() {
+        indexLock.readLock().lock();
+        try {
+            return index.maxRevision;
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Strumieniuje wpisy zmienione po {@code since} (o rewizji nie większej niż {@code upToRevision})
+     * w kolejności rewizji lub daty modyfikacji. Z indeksu wybierane są tylko zmienione wpisy - koszt
+     * zależy od liczby zmian, a nie od rozmiaru sejfu.
+     */
+    public Stream<PasswordEntry> streamChangedSince(String owner, ChangeSince since, long upToRevision) {
+        List<Slot> slots = new ArrayList<>();
+        MappedByteBuffer mapping;
+        indexLock.readLock().lock();
+        try {
+            if (since.isRevision()) {
+                for (Slot slot : index.byRevision.tailSet(Slot.revisionProbe(owner, since.getRevision()), false)) {
+                    if (!slot.owner().equals(owner) || slot.revision() > upToRevision) {
+                        break;
+                    }
+                    slots.add(slot);
+                }
+            } else {
+                Slot probe = Slot.probe(owner, PageSort.LAST_MODIFIED, since.getTimestamp(), Long.MAX_VALUE);
+                ownerRows(owner, PageSort.LAST_MODIFIED, true, probe)
+                        .filter(slot -> slot.revision() <= upToRevision)
+                        .forEach(slots::add);
+            }
+            mapping = mapping();
+        } finally {
+            indexLock.readLock().unlock();
+        }
+        return slots.stream().map(slot -> read(mapping, slot).toEntry());
+    }
+
+    /**
+     * Zwraca znaczniki wpisów sejfu usuniętych po {@code since} (o rewizji nie większej niż {@code upToRevision}).
+     */
+    public List<PasswordTombstone> tombstonesSince(String owner, ChangeSince since, long upToRevision) {
+        indexLock.readLock().lock();
+        try {
+            NavigableSet<Tombstone> ordered = since.isRevision()
+                    ? index.tombstonesByRevision.tailSet(Tombstone.probe(owner, since.getRevision(), null), false)
+                    : index.tombstonesByTime.tailSet(Tombstone.probe(owner, 0, since.getTimestamp()), false);
+            List<PasswordTombstone> tombstones = new ArrayList<>();
+            for (Tombstone tombstone : ordered) {
+                if (!tombstone.owner().equals(owner)) {
+                    break;
+                }
+                if (tombstone.revision() <= upToRevision) {
+                    tombstones.add(tombstone.toModel());
+                } else if (since.isRevision()) {
+                    break;
+                }
+            }
+            return tombstones;
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Zwraca do {@code limit} wpisów sejfu za pozycją ({@code afterRevision}, {@code afterId}) w kolejności rewizji i id,
+     * o rewizji nie większej niż {@code upToRevision} - O(log n + limit) z indeksu rewizji.
+     */
+    public List<PasswordEntry> changesAfter(String owner, long afterRevision, long afterId, long upToRevision, int limit) {
+        List<Slot> slots = new ArrayList<>();
+        MappedByteBuffer mapping;
+        indexLock.readLock().lock();
+        try {
+            for (Slot slot : index.byRevision.tailSet(Slot.revisionProbe(owner, afterRevision, afterId), false)) {
+                if (slots.size() == limit || !slot.owner().equals(owner) || slot.revision() > upToRevision) {
+                    break;
+                }
+                slots.add(slot);
+            }
+            mapping = mapping();
+        } finally {
+            indexLock.readLock().unlock();
+        }
+        return slots.stream().map(slot -> read(mapping, slot).toEntry()).toList();
+    }
+
+    /**
+     * Zwraca do {@code limit} znaczników sejfu za pozycją ({@code afterRevision}, {@code afterId}) w kolejności rewizji i id,
+     * o rewizji nie większej niż {@code upToRevision}.
+     */
+    public List<PasswordTombstone> tombstonesAfter(String owner, long afterRevision, long afterId, long upToRevision, int limit) {
+        indexLock.readLock().lock();
+        try {
+            List<PasswordTombstone> tombstones = new ArrayList<>();
+            for (Tombstone tombstone : index.tombstonesByRevision.tailSet(Tombstone.probe(owner, afterRevision, afterId), false)) {
+                if (tombstones.size() == limit || !tombstone.owner().equals(owner) || tombstone.revision() > upToRevision) {
+                    break;
+                }
+                tombstones.add(tombstone.toModel());
+            }
+            return tombstones;
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Usuwa znaczniki wszystkich sejfów usunięte przed {@code cutoff} i o rewizji mniejszej niż {@code keepRevision}.
+     * Dopisuje dla nich usunięcia z rewizją 0 (bez znacznika) w jednym commicie - po restarcie znaczniki nie wracają,
+     * a miejsce w pliku odzyskuje kompaktacja. Najwyższa rewizja jest zachowywana w rekordzie sekwencji.
+     * Id usuniętych wpisów nie są używane ponownie, więc usunięcie nie trafi w nowy wpis o tym samym id.
+     * @return Liczba usuniętych znaczników.
+     */
+    public int purgeTombstones(Instant cutoff, long keepRevision) {
+        List<Mutation> mutations = new ArrayList<>();
+        indexLock.readLock().lock();
+        try {
+            for (Tombstone tombstone : index.tombstones.values()) {
+                if (tombstone.deletedAt().isBefore(cutoff) && tombstone.revision() < keepRevision) {
+                    mutations.add(Mutation.delete(tombstone.owner(), tombstone.id(), 0));
+                }
+            }
+        } finally {
+            indexLock.readLock().unlock();
+        }
+        commit(mutations);
+        return mutations.size();
+    }
+
+    /**
+     * Wiersze sejfu {@code owner} w kolejności {@code sort}, za kursorem {@code after} (od początku, gdy null).
+     * Zbiory są uporządkowane najpierw po właścicielu, więc wiersze sejfu tworzą spójny zakres - przejście
+     * kończy się na pierwszym wierszu innego sejfu. Wywoływane pod blokadą odczytu indeksu.
+     */
+    private Stream<Slot> ownerRows(String owner, PageSort sort, boolean ascending, Slot after) {
+        NavigableSet<Slot> ordered = index.orders.get(sort);
+        NavigableSet<Slot> rows = ascending
+                ? ordered.tailSet(after != null ? after : Slot.probe(owner, sort, null, Long.MIN_VALUE), false)
+                // owner + '\0' to najmniejszy napis większy od owner - sonda leży tuż za ostatnim wierszem sejfu
+                : ordered.headSet(after != null ? after : Slot.probe(owner + '\0', sort, null, Long.MIN_VALUE), false).descendingSet();
+        return rows.stream().takeWhile(slot -> slot.owner().equals(owner));
+    }
+
+    private Located locate(long id) {
+        indexLock.readLock().lock();
+        try {
+            Slot slot = index.byId.get(id);
+            return slot == null ? null : new Located(slot, mapping());
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Mapowanie obejmujące wszystkie zatwierdzone rekordy. Po dopisaniu rekordów plik jest mapowany
+     * ponownie przy pierwszym odczycie, który tego wymaga. Wywoływane pod blokadą odczytu indeksu.
+     */
+    private MappedByteBuffer mapping() {
+        MappedByteBuffer current = mapped;
+        if (current.capacity() >= end) {
+            return current;
+        }
+        synchronized (mapLock) {
+            if (mapped.capacity() < end) {
+                try {
+                    mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, end);
+                } catch (IOException e) {
+                    throw new DataAccessResourceFailureException("Nie można zmapować dziennika sejfu: " + path, e);
+                }
+            }
+            return mapped;
+        }
+    }
+
+    private static Body read(ByteBuffer mapping, Slot slot) {
+        return read(mapping, slot, VERSION);
+    }
+
+    private static Body read(ByteBuffer mapping, Slot slot, int version) {
+        int offset = (int) slot.offset();
+        byte[] body = new byte[slot.length() - RECORD_HEADER_SIZE];
+        mapping.get(offset + RECORD_HEADER_SIZE, body);
+        if (crc(body) != mapping.getInt(offset + 4)) {
+            throw new DataRetrievalFailureException("Uszkodzony rekord wpisu o id " + slot.id());
+        }
+        return Body.decode(ByteBuffer.wrap(body), version);
+    }
+
+    // ---------- Kompaktacja ----------
+
+    private void compactIfNeeded() {
+        long size;
+        long live;
+        indexLock.readLock().lock();
+        try {
+            size = end - HEADER_SIZE;
+            live = index.liveBytes;
+        } finally {
+            indexLock.readLock().unlock();
+        }
+        if (size < compactionMinBytes || size - live < compactionRatio * size) {
+            return;
+        }
+        if (compacting.compareAndSet(false, true)) {
+            compactor.execute(() -> {
+                try {
+                    compact();
+                } catch (IOException | RuntimeException e) {
+                    // Nieudana kompaktacja nie narusza bieżącego pliku - zostanie ponowiona po kolejnym zapisie
+                } finally {
+                    compacting.set(false);
+                }
+            });
+        }
+    }
+
+    /**
+     * Przepisuje żywe rekordy do nowego pliku i zastępuje nim bieżący plik.
+     * Rekordy dopisane w trakcie kopiowania są przenoszone na końcu, przy wstrzymanych zapisach.
+     * @throws IOException Jeśli nowy plik nie może zostać zapisany; bieżący plik pozostaje wtedy bez zmian.
+     */
+    public void compact() throws IOException {
+        List<Slot> live;
+        List<Tombstone> tombstones;
+        long maxRevision;
+        MappedByteBuffer source;
+        long snapshotEnd;
+        indexLock.readLock().lock();
+        try {
+            live = new ArrayList<>(index.byId.values());
+            tombstones = new ArrayList<>(index.tombstones.values());
+            maxRevision = index.maxRevision;
+            source = mapping();
+            snapshotEnd = end;
+        } finally {
+            indexLock.readLock().unlock();
+        }
+
+        Path target = path.resolveSibling(path.getFileName() + ".compact");
+        FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        boolean swapped = false;
+        try {
+            writeHeader(out);
+            Index compacted = new Index();
+            Appender appender = new Appender(out, HEADER_SIZE);
+            Mutation sequence = Mutation.sequence(nextId.get(), maxRevision);
+            appender.append(ByteBuffer.wrap(sequence.record));
+            compacted.apply(SEQUENCE, sequence.id, sequence.revision, null, null);
+            for (Slot slot : live) {
+                long offset = appender.append(source.slice((int) slot.offset(), slot.length()));
+                compacted.apply(PUT, slot.id(), slot.revision(), slot.movedTo(offset), null);
+            }
+            for (Tombstone tombstone : tombstones) {
+                long offset = appender.append(source.slice((int) tombstone.offset(), tombstone.length()));
+                compacted.apply(DELETE, tombstone.id(), tombstone.revision(), null, tombstone.movedTo(offset));
+            }
+            appender.flush();
+
+            appendLock.lock();
+            try {
+                // Ogon: rekordy zatwierdzone po wykonaniu obrazu - kopiowane w całości i odtwarzane w nowym indeksie
+                long tailStart = appender.position();
+                long tailLength = end - snapshotEnd;
+                if (tailLength > 0) {
+                    writeFully(out, channel.map(FileChannel.MapMode.READ_ONLY, snapshotEnd, tailLength), tailStart);
+                }
+                long newEnd = tailStart + tailLength;
+                out.force(true);
+                MappedByteBuffer newMapping = out.map(FileChannel.MapMode.READ_ONLY, 0, newEnd);
+                if (compacted.replay(newMapping, tailStart, newEnd, VERSION) != newEnd) {
+                    throw new IOException("Niespójny ogon dziennika podczas kompaktacji: " + path);
+                }
+                Files.move(target, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+                FileChannel previous;
+                indexLock.writeLock().lock();
+                try {
+                    previous = channel;
+                    channel = out;
+                    mapped = newMapping;
+                    index = compacted;
+                    end = newEnd;
+                } finally {
+                    indexLock.writeLock().unlock();
+                }
+                swapped = true;
+                // Zamknięcie kanału nie unieważnia mapowań - trwające strumienie czytają dalej stary plik
+                previous.close();
+                compactions.incrementAndGet();
+            } finally {
+                appendLock.unlock();
+            }
+        } finally {
+            if (!swapped) {
+                out.close();
+                Files.deleteIfExists(target);
+            }
+        }
+    }
+
+    /**
+     * Przepisuje plik w starszym formacie do bieżącego. Wywoływane przy otwarciu, przed startem wątku zapisującego.
+     * Wpisy z pliku w wersji 1 mają rewizję 0, a wpisy i znaczniki sprzed wersji 3 trafiają do sejfu
+     * {@link PasswordEntry#DEFAULT_OWNER}.
+     */
+    private void upgrade(int version) throws IOException {
+        Path target = path.resolveSibling(path.getFileName() + ".upgrade");
+        try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+            writeHeader(out);
+            Appender appender = new Appender(out, HEADER_SIZE);
+            appender.append(ByteBuffer.wrap(Mutation.sequence(index.nextId, index.maxRevision).record));
+            for (Slot slot : index.byId.values()) {
+                appender.append(ByteBuffer.wrap(Mutation.put(read(mapped, slot, version).toEntry()).record));
+            }
+            for (Tombstone tombstone : index.tombstones.values()) {
+                Mutation delete = Mutation.delete(tombstone.owner(), tombstone.id(), tombstone.revision(), tombstone.deletedAt());
+                appender.append(ByteBuffer.wrap(delete.record));
+            }
+            appender.flush();
+            out.force(true);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(target);
+            throw e;
+        }
+        Files.move(target, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel.close();
+        channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        index = new Index();
+        end = index.replay(mapped, HEADER_SIZE, mapped.capacity(), VERSION);
+    }
+
+    // ---------- Statystyki i zamknięcie ----------
+
+    /** Rozmiar pliku (koniec ostatniego zatwierdzonego rekordu) w bajtach. */
+    public long fileSize() {
+        indexLock.readLock().lock();
+        try {
+            return end;
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
+
+    /** Liczba wykonanych commitów grupowych (jeden zapis i jeden fsync każdy). */
+    public long getCommitCount() {
+        return commits.get();
+    }
+
+    public long getCompactionCount() {
+        return compactions.get();
+    }
+
+    /**
+     * Kończy zapis oczekujących zmian, czeka na trwającą kompaktację i zamyka plik.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (submitLock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            pending.add(SHUTDOWN);
+        }
+        try {
+            writer.join();
+            compactor.shutdown(); // Dopiero po zatrzymaniu wątku zapisującego, który zleca kompaktację
+            compactor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        failPending();
+        appendLock.lock();
+        try {
+            channel.close();
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    // ---------- Format pliku ----------
+
+    private static void writeHeader(FileChannel target) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION).flip();
+        writeFully(target, header, 0);
+    }
+
+    private static void writeFully(FileChannel target, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += target.write(buffer, position);
+        }
+    }
+
+    private static int crc(byte[] body) {
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Pojedyncza zmiana do zapisania: gotowy rekord (kodowany w wątku wywołującym) i metadane do indeksu.
+     */
+    private static final class Mutation {
+
+        final byte type;
+        final long id;
+        final long revision;
+        final byte[] record;
+        final String owner;
+        final String website;
+        final String username;
+        /** Data modyfikacji (zapis) lub usunięcia. */
+        final Instant time;
+        /** Zaszyfrowane hasło (zapis) - do rozstrzygania kolejnych zmian warunkowych w tej samej grupie. */
+        final String password;
+        final String fingerprint;
+        final Integer strength;
+        /** Dla zmiany warunkowej: hasło, które wpis musi mieć w chwili zapisu; null dla zwykłych zmian. */
+        final String expected;
+        /**
+         * Dla zmiany warunkowej: zmiana wpisu, którą wątek zapisujący stosuje do stanu z chwili commitu
+         * i zastępuje nią tę zmianę (bez rekordu); null dla zwykłych zmian.
+         */
+        final Consumer<PasswordEntry> change;
+        /** Ustawiane przez wątek zapisujący, gdy warunek zmiany nie jest spełniony - zmiana nie jest zapisywana. */
+        boolean rejected;
+
+        private Mutation(byte type, long id, long revision, byte[] record, String owner, String website, String username,
+                         Instant time, String password, String fingerprint, Integer strength) {
+            this.type = type;
+            this.id = id;
+            this.revision = revision;
+            this.record = record;
+            this.owner = owner;
+            this.website = website;
+            this.username = username;
+            this.time = time;
+            this.password = password;
+            this.fingerprint = fingerprint;
+            this.strength = strength;
+            this.expected = null;
+            this.change = null;
+        }
+
+        private Mutation(long id, String expected, Consumer<PasswordEntry> change) {
+            this.type = PUT;
+            this.id = id;
+            this.revision = 0;
+            this.record = null;
+            this.owner = null;
+            this.website = null;
+            this.username = null;
+            this.time = null;
+            this.password = null;
+            this.fingerprint = null;
+            this.strength = null;
+            this.expected = expected;
+            this.change = change;
+        }
+
+        /**
+         * Zmiana warunkowa - rekord powstaje dopiero w wątku zapisującym, przez {@link #put(PasswordEntry)}
+         * ze stanu wpisu z chwili commitu.
+         */
+        static Mutation update(long id, String expected, Consumer<PasswordEntry> change) {
+            return new Mutation(id, expected, change);
+        }
+
+        static Mutation put(PasswordEntry entry) {
+            Instant lastModified = entry.getLastModified() != null ? entry.getLastModified() : Instant.now();
+            byte[] owner = utf8(entry.getOwner());
+            byte[] website = utf8(entry.getWebsite());
+            byte[] username = utf8(entry.getUsername());
+            byte[] password = utf8(entry.getEncryptedPassword());
+            byte[] fingerprint = utf8(entry.getPasswordFingerprint());
+            ByteBuffer body = ByteBuffer.allocate(1 + 8 + 8 + 8 + 4
+                    + sizeOf(owner) + sizeOf(website) + sizeOf(username) + sizeOf(password) + sizeOf(fingerprint) + 1);
+            body.put(PUT).putLong(entry.getId()).putLong(entry.getRevision())
+                    .putLong(lastModified.getEpochSecond()).putInt(lastModified.getNano());
+            putBytes(body, owner);
+            putBytes(body, website);
+            putBytes(body, username);
+            putBytes(body, password);
+            putBytes(body, fingerprint);
+            // Ocena siły: -1 - brak oceny
+            body.put(entry.getStrengthScore() == null ? -1 : entry.getStrengthScore().byteValue());
+            return new Mutation(PUT, entry.getId(), entry.getRevision(), frame(body.array()), entry.getOwner(),
+                    entry.getWebsite(), entry.getUsername(), lastModified, entry.getEncryptedPassword(),
+                    entry.getPasswordFingerprint(), entry.getStrengthScore());
+        }
+
+        static Mutation delete(String owner, long id, long revision) {
+            return delete(owner, id, revision, Instant.now());
+        }
+
+        static Mutation delete(String owner, long id, long revision, Instant deletedAt) {
+            byte[] ownerBytes = utf8(owner);
+            ByteBuffer body = ByteBuffer.allocate(1 + 8 + 8 + 8 + 4 + sizeOf(ownerBytes)).put(DELETE).putLong(id).putLong(revision)
+                    .putLong(deletedAt.getEpochSecond()).putInt(deletedAt.getNano());
+            putBytes(body, ownerBytes);
+            return new Mutation(DELETE, id, revision, frame(body.array()), owner, null, null, deletedAt, null, null, null);
+        }
+
+        static Mutation sequence(long nextId, long maxRevision) {
+            ByteBuffer body = ByteBuffer.allocate(1 + 8 + 8).put(SEQUENCE).putLong(nextId).putLong(maxRevision);
+            return new Mutation(SEQUENCE, nextId, maxRevision, frame(body.array()), null, null, null, null, null, null, null);
+        }
+
+        /**
+         * @return Wpis zapisywany tą zmianą (tylko dla zapisu).
+         */
+        PasswordEntry toEntry() {
+            PasswordEntry entry = PasswordEntry.restore(id, website, username, password, time);
+            entry.setOwner(owner);
+            entry.setRevision(revision);
+            entry.setPasswordFingerprint(fingerprint);
+            entry.setStrengthScore(strength);
+            return entry;
+        }
+
+        Slot toSlot(long offset) {
+            return type == PUT ? Slot.of(id, owner, offset, record.length, website, username, fingerprint, strength, time, revision) : null;
+        }
+
+        Tombstone toTombstone(long offset) {
+            return type == DELETE && revision > 0 ? new Tombstone(id, owner, revision, time, offset, record.length) : null;
+        }
+
+        private static byte[] frame(byte[] body) {
+            return ByteBuffer.allocate(RECORD_HEADER_SIZE + body.length)
+                    .putInt(body.length)
+                    .putInt(crc(body))
+                    .put(body)
+                    .array();
+        }
+
+        private static byte[] utf8(String value) {
+            return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+        }
+
+        private static int sizeOf(byte[] bytes) {
+            return 4 + (bytes == null ? 0 : bytes.length);
+        }
+
+        private static void putBytes(ByteBuffer body, byte[] bytes) {
+            if (bytes == null) {
+                body.putInt(-1);
+            } else {
+                body.putInt(bytes.length).put(bytes);
+            }
+        }
+    }
+
+    /**
+     * Odczytana treść rekordu. {@code time} to data modyfikacji (zapis) lub usunięcia.
+     * Rekordy sprzed wersji 3 należą do sejfu {@link PasswordEntry#DEFAULT_OWNER}, zapisy sprzed wersji 4
+     * nie mają odcisku hasła, a sprzed wersji 5 - oceny siły.
+     */
+    private record Body(byte type, long id, long revision, Instant time, String owner,
+                        String website, String username, String password, String fingerprint, Integer strength) {
+
+        static Body decode(ByteBuffer body, int version) {
+            byte type = body.get();
+            long id = body.getLong();
+            if (version < 2) {
+                // Format 1: bez rewizji, usunięcie i sekwencja zawierają samo id
+                if (type != PUT) {
+                    return new Body(type, id, 0, null, PasswordEntry.DEFAULT_OWNER, null, null, null, null, null);
+                }
+                Instant lastModified = Instant.ofEpochSecond(body.getLong(), body.getInt());
+                return new Body(type, id, 0, lastModified, PasswordEntry.DEFAULT_OWNER, getString(body), getString(body), getString(body), null, null);
+            }
+            long revision = body.getLong();
+            if (type == SEQUENCE) {
+                return new Body(type, id, revision, null, null, null, null, null, null, null);
+            }
+            Instant time = Instant.ofEpochSecond(body.getLong(), body.getInt());
+            String owner = version < 3 ? PasswordEntry.DEFAULT_OWNER : getString(body);
+            if (type != PUT) {
+                return new Body(type, id, revision, time, owner, null, null, null, null, null);
+            }
+            String website = getString(body);
+            String username = getString(body);
+            String password = getString(body);
+            String fingerprint = version < 4 ? null : getString(body);
+            byte strength = version < 5 ? -1 : body.get();
+            return new Body(type, id, revision, time, owner, website, username, password, fingerprint,
+                    strength < 0 ? null : (int) strength);
+        }
+
+        PasswordEntry toEntry() {
+            PasswordEntry entry = PasswordEntry.restore(id, website, username, password, time);
+            entry.setOwner(owner);
+            entry.setRevision(revision);
+            entry.setPasswordFingerprint(fingerprint);
+            entry.setStrengthScore(strength);
+            return entry;
+        }
+
+        private static String getString(ByteBuffer body) {
+            int length = body.getInt();
+            if (length < 0) {
+                return null;
+            }
+            String value = new String(body.array(), body.arrayOffset() + body.position(), length, StandardCharsets.UTF_8);
+            body.position(body.position() + length);
+            return value;
+        }
+    }
+
+    /**
+     * Położenie żywego rekordu w pliku i metadane wpisu (bez hasła) do sortowania, stronicowania i eksportu zmian.
+     */
+    private record Slot(long id, String owner, long offset, int length, String website, String username,
+                        String websiteKey, String usernameKey, String fingerprint, Integer strength, Instant lastModified,
+                        long revision) {
+
+        static final Comparator<Slot> BY_REVISION = Comparator.comparing(Slot::owner)
+                .thenComparingLong(Slot::revision).thenComparingLong(Slot::id);
+        /** Wpisy bez oceny siły poprzedzają ocenione. */
+        static final Comparator<Slot> BY_STRENGTH = Comparator.comparing(Slot::owner)
+                .thenComparing(Slot::strength, nullsFirst()).thenComparingLong(Slot::id);
+
+        static Slot of(long id, String owner, long offset, int length, String website, String username,
+                       String fingerprint, Integer strength, Instant lastModified, long revision) {
+            return new Slot(id, owner, offset, length, website, username, SortKeys.fold(website), SortKeys.fold(username),
+                    fingerprint, strength, lastModified, revision);
+        }
+
+        /**
+         * Wartość porównywana z wierszami indeksu przy wyszukiwaniu miejsca kursora.
+         * Pusty klucz z id {@link Long#MIN_VALUE} poprzedza wszystkie wiersze sejfu.
+         */
+        static Slot probe(String owner, PageSort sort, Object key, long id) {
+            return switch (sort) {
+                case ID -> new Slot(id, owner, -1, 0, null, null, null, null, null, null, null, 0);
+                case WEBSITE -> new Slot(id, owner, -1, 0, null, null, (String) key, null, null, null, null, 0);
+                case USERNAME -> new Slot(id, owner, -1, 0, null, null, null, (String) key, null, null, null, 0);
+                case LAST_MODIFIED -> new Slot(id, owner, -1, 0, null, null, null, null, null, null, (Instant) key, 0);
+            };
+        }
+
+        /** Wartość większa od wszystkich wierszy sejfu o rewizji nie większej niż podana ({@link #BY_REVISION}). */
+        static Slot revisionProbe(String owner, long revision) {
+            return revisionProbe(owner, revision, Long.MAX_VALUE);
+        }
+
+        /** Wartość na pozycji (rewizja, id) w kolejności {@link #BY_REVISION}. */
+        static Slot revisionProbe(String owner, long revision, long id) {
+            return new Slot(id, owner, -1, 0, null, null, null, null, null, null, null, revision);
+        }
+
+        /** Wartość na pozycji (ocena siły, id) w kolejności {@link #BY_STRENGTH}; pusta ocena - wpisy bez oceny. */
+        static Slot strengthProbe(String owner, Integer strength, long id) {
+            return new Slot(id, owner, -1, 0, null, null, null, null, null, strength, null, 0);
+        }
+
+        static Comparator<Slot> order(PageSort sort) {
+            Comparator<Slot> byOwner = Comparator.comparing(Slot::owner);
+            return switch (sort) {
+                case ID -> byOwner.thenComparingLong(Slot::id);
+                case WEBSITE -> byOwner.thenComparing(Slot::websiteKey, nullsFirst()).thenComparingLong(Slot::id);
+                case USERNAME -> byOwner.thenComparing(Slot::usernameKey, nullsFirst()).thenComparingLong(Slot::id);
+                case LAST_MODIFIED -> byOwner.thenComparing(Slot::lastModified, nullsFirst()).thenComparingLong(Slot::id);
+            };
+        }
+
+        /** Klucze sond mogą być puste ({@link #probe}) - pusty klucz poprzedza wszystkie klucze. */
+        private static <T extends Comparable<? super T>> Comparator<T> nullsFirst() {
+            return Comparator.nullsFirst(Comparator.naturalOrder());
+        }
+
+        Slot movedTo(long newOffset) {
+            return new Slot(id, owner, newOffset, length, website, username, websiteKey, usernameKey, fingerprint,
+                    strength, lastModified, revision);
+        }
+
+        PasswordSummary toSummary() {
+            return new PasswordSummary(id, website, username, lastModified);
+        }
+    }
+
+    /**
+     * Położenie rekordu usunięcia, po którym zostaje znacznik dla eksportu przyrostowego.
+     */
+    private record Tombstone(long id, String owner, long revision, Instant deletedAt, long offset, int length) {
+
+        static final Comparator<Tombstone> BY_REVISION = Comparator.comparing(Tombstone::owner)
+                .thenComparingLong(Tombstone::revision).thenComparingLong(Tombstone::id);
+        static final Comparator<Tombstone> BY_TIME = Comparator.comparing(Tombstone::owner)
+                .thenComparing(Tombstone::deletedAt).thenComparingLong(Tombstone::id);
+
+        /** Wartość większa od wszystkich znaczników sejfu o rewizji (lub dacie usunięcia) nie większej niż podana. */
+        static Tombstone probe(String owner, long revision, Instant deletedAt) {
+            return new Tombstone(Long.MAX_VALUE, owner, revision, deletedAt, -1, 0);
+        }
+
+        /** Wartość na pozycji (rewizja, id) w kolejności {@link #BY_REVISION}. */
+        static Tombstone probe(String owner, long revision, long id) {
+            return new Tombstone(id, owner, revision, null, -1, 0);
+        }
+
+        Tombstone movedTo(long newOffset) {
+            return new Tombstone(id, owner, revision, deletedAt, newOffset, length);
+        }
+
+        PasswordTombstone toModel() {
+            return new PasswordTombstone(id, owner, revision, deletedAt);
+        }
+    }
+
+    /**
+     * Indeks w pamięci: id → rekord, zbiory uporządkowane po właścicielu i kluczach sortowania (także id)
+     * oraz po właścicielu i rewizji lub ocenie siły hasła, a także znaczniki usunięcia.
+     */
+    private static final class Index {
+
+        final NavigableMap<Long, Slot> byId = new TreeMap<>();
+        final Map<PageSort, NavigableSet<Slot>> orders = new EnumMap<>(PageSort.class);
+        final NavigableSet<Slot> byRevision = new TreeSet<>(Slot.BY_REVISION);
+        final NavigableSet<Slot> byStrength = new TreeSet<>(Slot.BY_STRENGTH);
+        final NavigableMap<Long, Tombstone> tombstones = new TreeMap<>();
+        final NavigableSet<Tombstone> tombstonesByRevision = new TreeSet<>(Tombstone.BY_REVISION);
+        final NavigableSet<Tombstone> tombstonesByTime = new TreeSet<>(Tombstone.BY_TIME);
+        /** Łączny rozmiar żywych rekordów i znaczników - reszta pliku to dane do odzyskania przez kompaktację. */
+        long liveBytes;
+        long nextId = 1;
+        long maxRevision;
+
+        Index() {
+            for (PageSort sort : PageSort.values()) {
+                orders.put(sort, new TreeSet<>(Slot.order(sort)));
+            }
+        }
+
+        /**
+         * Stosuje rekord do indeksu. Dla {@link #SEQUENCE} {@code id} to następne wolne id,
+         * a {@code revision} - najwyższa rewizja.
+         */
+        void apply(byte type, long id, long revision, Slot slot, Tombstone tombstone) {
+            switch (type) {
+                case PUT -> {
+                    remove(id);
+                    byId.put(id, slot);
+                    orders.values().forEach(order -> order.add(slot));
+                    byRevision.add(slot);
+                    byStrength.add(slot);
+                    liveBytes += slot.length();
+                    nextId = Math.max(nextId, id + 1);
+                }
+                case DELETE -> {
+                    remove(id);
+                    if (tombstone != null) {
+                        tombstones.put(id, tombstone);
+                        tombstonesByRevision.add(tombstone);
+                        tombstonesByTime.add(tombstone);
+                        liveBytes += tombstone.length();
+                    }
+                    nextId = Math.max(nextId, id + 1);
+                }
+                case SEQUENCE -> nextId = Math.max(nextId, id);
+                default -> throw new IllegalStateException("Nieznany typ rekordu: " + type);
+            }
+            maxRevision = Math.max(maxRevision, revision);
+        }
+
+        private void remove(long id) {
+            Slot previous = byId.remove(id);
+            if (previous != null) {
+                orders.values().forEach(order -> order.remove(previous));
+                byRevision.remove(previous);
+                byStrength.remove(previous);
+                liveBytes -= previous.length();
+            }
+            Tombstone tombstone = tombstones.remove(id);
+            if (tombstone != null) {
+                tombstonesByRevision.remove(tombstone);
+                tombstonesByTime.remove(tombstone);
+                liveBytes -= tombstone.length();
+            }
+        }
+
+        /**
+         * Odtwarza zmiany z rekordów w zakresie [from, to).
+         * @param version Wersja formatu rekordów.
+         * @return Koniec ostatniego poprawnego rekordu (mniejszy od {@code to}, jeśli dalej jest rekord niepełny lub uszkodzony).
+         */
+        long replay(ByteBuffer buffer, long from, long to, int version) {
+            long offset = from;
+            while (offset + RECORD_HEADER_SIZE <= to) {
+                int bodyLength = buffer.getInt((int) offset);
+                if (bodyLength <= 0 || offset + RECORD_HEADER_SIZE + bodyLength > to) {
+                    break;
+                }
+                byte[] body = new byte[bodyLength];
+                buffer.get((int) offset + RECORD_HEADER_SIZE, body);
+                if (crc(body) != buffer.getInt((int) offset + 4)) {
+                    break;
+                }
+                Body decoded = Body.decode(ByteBuffer.wrap(body), version);
+                int length = RECORD_HEADER_SIZE + bodyLength;
+                Slot slot = decoded.type() == PUT
+                        ? Slot.of(decoded.id(), decoded.owner(), offset, length, decoded.website(), decoded.username(),
+                                decoded.fingerprint(), decoded.strength(), decoded.time(), decoded.revision())
+                        : null;
+                Tombstone tombstone = decoded.type() == DELETE && decoded.revision() > 0
+                        ? new Tombstone(decoded.id(), decoded.owner(), decoded.revision(), decoded.time(), offset, length)
+                        : null;
+                apply(decoded.type(), decoded.id(), decoded.revision(), slot, tombstone);
+                offset += length;
+            }
+            return offset;
+        }
+    }
+
+    /**
+     * Buforowany zapis kolejnych rekordów do nowego pliku (kompaktacja).
+     */
+    private static final class Appender {
+
+        private final FileChannel target;
+        private final ByteBuffer buffer = ByteBuffer.allocate(COPY_BUFFER_SIZE);
+        private long flushed;
+
+        Appender(FileChannel target, long position) {
+            this.target = target;
+            this.flushed = position;
+        }
+
+        /** Dopisuje rekord i zwraca jego położenie w pliku. */
+        long append(ByteBuffer record) throws IOException {
+            long offset = position();
+            int length = record.remaining();
+            if (length > buffer.remaining()) {
+                flush();
+            }
+            if (length > buffer.capacity()) {
+                writeFully(target, record, flushed);
+                flushed += length;
+                return offset;
+            }
+            buffer.put(record);
+            return offset;
+        }
+
+        long position() {
+            return flushed + buffer.position();
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            long length = buffer.remaining();
+            writeFully(target, buffer, flushed);
+            flushed += length;
+            buffer.clear();
+        }
+    }
+
+    private record Located(Slot slot, MappedByteBuffer mapping) {
+    }
+
+    private static final class PendingWrite {
+
+        final List<Mutation> mutations;
+        /** Czy porcja zawiera zamiany warunkowe - tylko wtedy wątek zapisujący sprawdza warunki. */
+        final boolean conditional;
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        PendingWrite(List<Mutation> mutations) {
+            this.conditional = mutations.stream().anyMatch(mutation -> mutation.change != null);
+            // Zmiany warunkowe są zastępowane rekordami przez wątek zapisujący
+            this.mutations = conditional ? new ArrayList<>(mutations) : mutations;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.passwordmanager.service;
+
+import com.passwordmanager.model.PasswordEntry;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+/**
+ * Potok trzech etapów przetwarzających porcje wpisów: odczyt → szyfrowanie/deszyfrowanie → zapis.
+ * Etapy działają w osobnych wątkach i są połączone ograniczonymi kolejkami, więc najwolniejszy
+ * etap spowalnia pozostałe (backpressure), a w pamięci jest najwyżej kilka porcji naraz.
+ * Błąd dowolnego etapu lub {@link #cancel()} przerywa wszystkie etapy.
+ */
+final class ChunkPipeline {
+
+    /** Etap odczytu: przekazuje kolejne porcje do {@link ChunkSink}. */
+    @FunctionalInterface
+    interface Source {
+        void produce(ChunkSink sink) throws Exception;
+    }
+
+    @FunctionalInterface
+    interface ChunkSink {
+        void accept(List<PasswordEntry> chunk);
+    }
+
+    /** Etap zapisu: pobiera porcje z iteratora aż do ich wyczerpania. */
+    @FunctionalInterface
+    interface Sink {
+        void consume(Iterator<List<PasswordEntry>> chunks) throws Exception;
+    }
+
+    /** Znacznik końca danych (porównywany przez referencję). */
+    private static final List<PasswordEntry> END = new ArrayList<>(0);
+    private static final int STAGES = 3;
+
+    private final BlockingQueue<List<PasswordEntry>> readQueue;
+    private final BlockingQueue<List<PasswordEntry>> cryptQueue;
+    private final AtomicReference<Exception> failure = new AtomicReference<>();
+    private final Set<Thread> stageThreads = ConcurrentHashMap.newKeySet();
+
+    ChunkPipeline(int queueCapacity) {
+        this.readQueue = new ArrayBlockingQueue<>(queueCapacity);
+        this.cryptQueue = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    /**
+     * Uruchamia etapy na {@code stageExecutor} (trzy zadania) i czeka na ich zakończenie.
+     * @param source Etap odczytu.
+     * @param transform Etap szyfrowania/deszyfrowania porcji.
+     * @param sink Etap zapisu.
+     * @param stageExecutor Pula wątków etapów.
+     * @throws Exception Pierwszy błąd zgłoszony przez którykolwiek etap lub {@link CancellationException} po anulowaniu.
+     */
+    void run(Source source, UnaryOperator<List<PasswordEntry>> transform, Sink sink, Executor stageExecutor) throws Exception {
+        CountDownLatch finished = new CountDownLatch(STAGES);
+        stageExecutor.execute(() -> runStage(() -> source.produce(chunk -> put(readQueue, chunk)), readQueue, finished));
+        stageExecutor.execute(() -> runStage(() -> {
+            for (List<PasswordEntry> chunk = readQueue.take(); chunk != END; chunk = readQueue.take()) {
+                cryptQueue.put(transform.apply(chunk));
+            }
+        }, cryptQueue, finished));
+        stageExecutor.execute(() -> runStage(() -> sink.consume(new QueueIterator(cryptQueue)), null, finished));
+        try {
+            finished.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancel();
+        }
+        Exception error = failure.get();
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    /**
+     * Przerywa wszystkie etapy potoku. Metoda {@link #run} kończy się wtedy wyjątkiem {@link CancellationException}.
+     */
+    void cancel() {
+        fail(new CancellationException("Zadanie anulowane"));
+    }
+
+    @FunctionalInterface
+    private interface StageBody {
+        void run() throws Exception;
+    }
+
+    /**
+     * Wykonuje etap; po poprawnym zakończeniu przekazuje znacznik końca do {@code output} (null dla etapu zapisu).
+     */
+    private void runStage(StageBody body, BlockingQueue<List<PasswordEntry>> output, CountDownLatch finished) {
+        Thread thread = Thread.currentThread();
+        stageThreads.add(thread);
+        try {
+            if (failure.get() != null) {
+                return; // Potok przerwano, zanim etap wystartował
+            }
+            body.run();
+            if (output != null) {
+                output.put(END);
+            }
+        } catch (InterruptedException e) {
+            fail(new CancellationException("Etap potoku przerwany"));
+        } catch (Exception e) {
+            fail(e);
+        } finally {
+            stageThreads.remove(thread);
+            Thread.interrupted(); // Wątek wraca do puli bez flagi przerwania
+            finished.countDown();
+        }
+    }
+
+    private void fail(Exception e) {
+        if (failure.compareAndSet(null, e)) {
+            stageThreads.forEach(Thread::interrupt);
+        }
+    }
+
+    private static void put(BlockingQueue<List<PasswordEntry>> queue, List<PasswordEntry> chunk) {
+        try {
+            queue.put(chunk);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Etap potoku przerwany");
+        }
+    }
+
+    /**
+     * Iterator po porcjach z kolejki, zakończony znacznikiem {@link #END}.
+     */
+    private static final class QueueIterator implements Iterator<List<PasswordEntry>> {
+
+        private final BlockingQueue<List<PasswordEntry>> queue;
+        private List<PasswordEntry> next;
+
+        QueueIterator(BlockingQueue<List<PasswordEntry>> queue) {
+            this.queue = queue;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null) {
+                try {
+                    next = queue.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new CancellationException("Etap potoku przerwany");
+                }
+            }
+            return next != END;
+        }
+
+        @Override
+        public List<PasswordEntry> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            List<PasswordEntry> chunk = next;
+            next = null;
+            return chunk;
+        }
+    }
+}
@@ -1,78 +1,833 @@
 package com.passwordmanager.service;
 
+import io.micrometer.core.annotation.Timed;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
 import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
 
 /**
  * Serwis odpowiedzialny za szyfrowanie i deszyfrowanie haseł.
- * Używa algorytmu AES. Klucz szyfrowania jest pobierany z właściwości aplikacji.
+ * <p>
+ * Szyfrowanie kopertowe (envelope encryption): hasła są szyfrowane AES-256/GCM losowym kluczem danych,
+ * a klucz danych - opakowany (AESWrap) wersjonowanym kluczem głównym - jest zapisywany w nagłówku
+ * szyfrogramu. Jeden klucz danych obsługuje kolejne szyfrowania (porcję wpisów) aż do
+ * {@code encryption.data-key-max-uses} użyć, po czym jest zastępowany nowym.
+ * <p>
+ * Klucze główne: wersja 1 pochodzi z {@code encryption.secret-key}, kolejne z {@code encryption.master-keys}
+ * ({@code wersja:sekret,...}); nowe klucze danych są opakowywane wersją {@code encryption.master-key-version}.
+ * Zmiana klucza głównego nie wymaga ponownego szyfrowania sejfu - {@link #rewrap(String)} przepakowuje
+ * tylko klucz danych w nagłówku. Szyfrogramy bez prefiksu {@value #ENVELOPE_PREFIX} pochodzą z wcześniejszej
+ * wersji (AES/ECB, klucz z SHA-1 sekretu) i są nadal odczytywane.
+ * <p>
+ * Sejfy: metody z parametrem {@code vault} szyfrują kluczem sejfu - klucz danych jest opakowywany kluczem
+ * wyprowadzonym z klucza głównego i nazwy sejfu (HMAC-SHA256, format koperty 2), więc szyfrogram jednego sejfu
+ * nie da się odszyfrować w innym. Klucze sejfu (wyprowadzone klucze opakowujące, aktywny klucz danych i rozpakowane
+ * klucze danych) są trzymane w ograniczonej pamięci podręcznej LRU ({@code encryption.vault-key-cache-size} sejfów).
+ * Koperty instancji (format 1) i szyfrogramy AES/ECB są nadal odczytywane także w sejfie, a
+ * {@link #rewrap(String, String)} przenosi je pod klucz sejfu.
+ * <p>
+ * Odciski haseł ({@link #fingerprint(String, String)}) to HMAC tekstu jawnego kluczem wyprowadzonym dla sejfu -
+ * zapisywane obok szyfrogramu pozwalają wykryć powtórzone hasła bez deszyfrowania.
+ * <p>
+ * Obiekty {@link Cipher} nie są bezpieczne wątkowo, dlatego każdy wątek ma własne instancje,
+ * inicjalizowane przy każdym wywołaniu kluczem danych i wektorem IV. Rozpakowane klucze danych
+ * są trzymane w pamięci podręcznej (po nagłówku), więc klucz główny jest używany raz na porcję, a nie na wpis.
+ * <p>
+ * Operacje hurtowe ({@link #decryptAll(List)}, {@link #encryptAll(List)}) dzielą pracę
+ * na własnej puli fork-join; każdy wątek roboczy używa swoich szyfrów.
+ * <p>
+ * Wywołania z zewnątrz są mierzone timerem {@value #CRYPTO_TIMER} (tag {@code method});
+ * wywołania wewnętrzne (np. pojedyncze deszyfrowania w {@link #decryptAll(List)}) nie przechodzą przez aspekt.
  */
 
 @Service
 public class EncryptionService {
-    @Value("${encryption.secret-key}")
-    private String secretKey;
 
+    /** Nazwa timera Micrometer dla operacji kryptograficznych. */
+    public static final String CRYPTO_TIMER = "passwords.crypto";
 
+    /** Prefiks tekstowej postaci szyfrogramu w kopercie; starsze szyfrogramy (sam Base64) go nie mają. */
+    public static final String ENVELOPE_PREFIX = "$env1$";
 
-    private SecretKeySpec secretKeySpec;
+    private static final String LEGACY_TRANSFORMATION = "AES/ECB/PKCS5Padding";
+    private static final String DATA_TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final String WRAP_TRANSFORMATION = "AESWrap";
 
-    public EncryptionService() {
-        this.secretKey = secretKey;
+    /** Koperta z kluczem danych opakowanym kluczem głównym instancji. */
+    private static final byte FORMAT_VERSION = 1;
+    /** Koperta z kluczem danych opakowanym kluczem sejfu (wyprowadzonym z klucza głównego i nazwy sejfu). */
+    private static final byte VAULT_FORMAT_VERSION = 2;
+    private static final int DATA_KEY_LENGTH = 32;
+    /** AESWrap (RFC 3394) dodaje 8 bajtów do opakowywanego klucza. */
+    private static final int WRAPPED_KEY_LENGTH = DATA_KEY_LENGTH + 8;
+    /** Nagłówek koperty: wersja formatu, wersja klucza głównego (2 bajty), opakowany klucz danych. */
+    private static final int HEADER_LENGTH = 3 + WRAPPED_KEY_LENGTH;
+    private static final int IV_LENGTH = 12;
+    private static final int TAG_LENGTH = 16;
+    private static final int MAX_MASTER_KEY_VERSION = 0xFFFF;
+    private static final String FINGERPRINT_ALGORITHM = "HmacSHA256";
+    /** Po przekroczeniu tej liczby wpisów pamięć podręczna kluczy danych jest czyszczona. */
+    private static final int MAX_CACHED_DATA_KEYS = 4096;
+
+    /** Poniżej tej liczby elementów operacje hurtowe działają sekwencyjnie w wątku wywołującym. */
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 256;
+    /** Domyślna liczba szyfrowań jednym kluczem danych (dla losowych IV GCM daleko poniżej granicy 2^32). */
+    public static final long DEFAULT_DATA_KEY_MAX_USES = 100_000;
+    /** Domyślna liczba sejfów, których klucze są trzymane w pamięci. */
+    public static final int DEFAULT_VAULT_KEY_CACHE_SIZE = 10_000;
+    /** Najmniejsza porcja pracy pojedynczego zadania fork-join. */
+    private static final int MIN_LEAF_SIZE = 64;
+
+    private final SecretKeySpec legacyKey;
+    private final Map<Integer, SecretKey> masterKeys;
+    private final int activeMasterKeyVersion;
+    private final long dataKeyMaxUses;
+    private final SecureRandom random = new SecureRandom();
+    /** Klucze instancji (koperty w formacie 1). */
+    private final KeyRing instanceKeys = new KeyRing(FORMAT_VERSION, null);
+    /** Sejf → jego klucze; najdawniej używane są usuwane po przekroczeniu rozmiaru (chronione przez synchronized). */
+    private final Map<String, KeyRing> vaultKeys;
+    private final ThreadLocal<Cipher> dataCiphers;
+    private final ThreadLocal<Cipher> legacyCiphers;
+    private final ThreadLocal<Mac> fingerprintMacs = ThreadLocal.withInitial(EncryptionService::newFingerprintMac);
+    private final int parallelThreshold;
+    private final ForkJoinPool cryptoPool;
+
+    public EncryptionService(String secretKey) {
+        this(secretKey, DEFAULT_PARALLEL_THRESHOLD);
+    }
+
+    public EncryptionService(String secretKey, int parallelThreshold) {
+        this(secretKey, parallelThreshold, "", 1, DEFAULT_DATA_KEY_MAX_USES);
+    }
+
+    public EncryptionService(String secretKey, int parallelThreshold, String masterKeys, int activeMasterKeyVersion,
+                             long dataKeyMaxUses) {
+        this(secretKey, parallelThreshold, masterKeys, activeMasterKeyVersion, dataKeyMaxUses, DEFAULT_VAULT_KEY_CACHE_SIZE);
+    }
+
+    @Autowired
+    public EncryptionService(@Value("${encryption.secret-key}") String secretKey,
+                             @Value("${encryption.parallel-threshold:256}") int parallelThreshold,
+                             @Value("${encryption.master-keys:}") String masterKeys,
+                             @Value("${encryption.master-key-version:1}") int activeMasterKeyVersion,
+                             @Value("${encryption.data-key-max-uses:100000}") long dataKeyMaxUses,
+                             @Value("${encryption.vault-key-cache-size:10000}") int vaultKeyCacheSize) {
+        this.legacyKey = deriveLegacyKey(secretKey);
+        this.masterKeys = parseMasterKeys(secretKey, masterKeys);
+        if (!this.masterKeys.containsKey(activeMasterKeyVersion)) {
+            throw new IllegalArgumentException("Brak klucza głównego w wersji " + activeMasterKeyVersion);
+        }
+        this.activeMasterKeyVersion = activeMasterKeyVersion;
+        this.dataKeyMaxUses = Math.max(1, dataKeyMaxUses);
+        int maxVaults = Math.max(1, vaultKeyCacheSize);
+        this.vaultKeys = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, KeyRing> eldest) {
+                return size() > maxVaults;
+            }
+        };
+        this.dataCiphers = ThreadLocal.withInitial(() -> newCipher(DATA_TRANSFORMATION));
+        this.legacyCiphers = ThreadLocal.withInitial(() -> {
+            Cipher cipher = newCipher(LEGACY_TRANSFORMATION);
+            try {
+                cipher.init(Cipher.DECRYPT_MODE, legacyKey);
+            } catch (GeneralSecurityException e) {
+                throw new RuntimeException("Błąd podczas inicjalizacji szyfru", e);
+            }
+            return cipher;
+        });
+        this.parallelThreshold = Math.max(1, parallelThreshold);
+        this.cryptoPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        cryptoPool.shutdown();
+    }
+
+    private static SecretKeySpec deriveLegacyKey(String secretKey) {
+        byte[] key = digest("SHA-1", secretKey);
+        return new SecretKeySpec(Arrays.copyOf(key, 16), "AES"); // Pierwsze 16 bajtów - AES-128, jak w poprzedniej wersji
+    }
+
+    private static SecretKeySpec deriveMasterKey(String secret) {
+        return new SecretKeySpec(digest("SHA-256", secret), "AES");
+    }
+
+    /** Klucz sejfu: HMAC-SHA256 nazwy sejfu kluczem głównym - klucze sejfów nie są nigdzie przechowywane. */
+    private static SecretKey deriveVaultKey(SecretKey masterKey, String vault) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(masterKey.getEncoded(), "HmacSHA256"));
+            return new SecretKeySpec(mac.doFinal(("vault:" + vault).getBytes(StandardCharsets.UTF_8)), "AES");
+        } catch (GeneralSecurityException e) {
+            throw new RuntimeException("Błąd podczas wyprowadzania klucza sejfu", e);
+        }
+    }
+
+    /**
+     * Klucz odcisków sejfu: HMAC-SHA256 kluczem głównym w wersji 1 ({@code encryption.secret-key}), który zawsze
+     * istnieje - odciski nie zmieniają się przy zmianie aktywnego klucza głównego i nie wymagają przeliczenia.
+     */
+    private static SecretKey deriveFingerprintKey(SecretKey masterKey, String vault) {
+        try {
+            Mac mac = Mac.getInstance(FINGERPRINT_ALGORITHM);
+            mac.init(new SecretKeySpec(masterKey.getEncoded(), FINGERPRINT_ALGORITHM));
+            return new SecretKeySpec(mac.doFinal(("fingerprint:" + vault).getBytes(StandardCharsets.UTF_8)), FINGERPRINT_ALGORITHM);
+        } catch (GeneralSecurityException e) {
+            throw new RuntimeException("Błąd podczas wyprowadzania klucza odcisków", e);
+        }
+    }
+
+    private static Mac newFingerprintMac() {
+        try {
+            return Mac.getInstance(FINGERPRINT_ALGORITHM);
+        } catch (GeneralSecurityException e) {
+            throw new RuntimeException("Błąd podczas inicjalizacji HMAC", e);
+        }
     }
 
-    private void setKey() {
+    private static byte[] digest(String algorithm, String secret) {
         try {
-            byte[] key = secretKey.getBytes(StandardCharsets.UTF_8);
-            MessageDigest sha = MessageDigest.getInstance("SHA-1");
-            key = sha.digest(key);
-            key = Arrays.copyOf(key, 16); // Używamy tylko pierwszych 16 bajtów dla AES-128
-            secretKeySpec = new SecretKeySpec(key, "AES");
-        } catch (Exception e) {
+            return MessageDigest.getInstance(algorithm).digest(secret.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
             // Logowanie błędu jest kluczowe w prawdziwej aplikacji
             throw new RuntimeException("Błąd podczas generowania klucza szyfrowania", e);
         }
     }
 
     /**
-     * Szyfruje podany tekst przy użyciu algorytmu AES.
+     * Wersja 1 to {@code encryption.secret-key}; pozostałe wersje z listy {@code wersja:sekret} rozdzielonej przecinkami
+     * (sekret nie może więc zawierać przecinka).
+     */
+    static Map<Integer, SecretKey> parseMasterKeys(String secretKey, String masterKeys) {
+        Map<Integer, SecretKey> keys = new HashMap<>();
+        keys.put(1, deriveMasterKey(secretKey));
+        for (String item : masterKeys.split(",")) {
+            String trimmed = item.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            int separator = trimmed.indexOf(':');
+            if (separator <= 0 || separator == trimmed.length() - 1) {
+                throw new IllegalArgumentException("Nieprawidłowy wpis encryption.master-keys - oczekiwano formatu wersja:sekret");
+            }
+            int version;
+            try {
+                version = Integer.parseInt(trimmed.substring(0, separator).trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Nieprawidłowa wersja klucza głównego w encryption.master-keys", e);
+            }
+            if (version < 2 || version > MAX_MASTER_KEY_VERSION) {
+                throw new IllegalArgumentException("Wersja klucza głównego musi być z zakresu 2-" + MAX_MASTER_KEY_VERSION
+                        + " (wersja 1 to encryption.secret-key): " + version);
+            }
+            if (keys.put(version, deriveMasterKey(trimmed.substring(separator + 1))) != null) {
+                throw new IllegalArgumentException("Powtórzona wersja klucza głównego: " + version);
+            }
+        }
+        return Map.copyOf(keys);
+    }
+
+    private static Cipher newCipher(String transformation) {
+        try {
+            return Cipher.getInstance(transformation);
+        } catch (GeneralSecurityException e) {
+            throw new RuntimeException("Błąd podczas inicjalizacji szyfru", e);
+        }
+    }
+
+    /** Wersja klucza głównego, którym są opakowywane nowe klucze danych. */
+    public int getActiveMasterKeyVersion() {
+        return activeMasterKeyVersion;
+    }
+
+    /**
+     * Szyfruje podany tekst (koperta AES/GCM).
+     * Pusty tekst pozostaje pusty.
      * @param strToEncrypt Tekst do zaszyfrowania.
-     * @return Zaszyfrowany tekst w formacie Base64.
+     * @return Zaszyfrowany tekst: {@value #ENVELOPE_PREFIX} i koperta w formacie Base64.
      */
+    @Timed(CRYPTO_TIMER)
     public String encrypt(String strToEncrypt) {
-        if (secretKeySpec == null) {
-            setKey(); // Upewnij się, że klucz jest ustawiony
+        return encryptText(instanceKeys, strToEncrypt);
+    }
+
+    /**
+     * Szyfruje podany tekst kluczem sejfu.
+     * @param vault Sejf (właściciel wpisu).
+     * @param strToEncrypt Tekst do zaszyfrowania.
+     * @return Zaszyfrowany tekst, który da się odszyfrować tylko w tym samym sejfie.
+     */
+    @Timed(CRYPTO_TIMER)
+    public String encrypt(String vault, String strToEncrypt) {
+        return encryptText(vaultKeys(vault), strToEncrypt);
+    }
+
+    /**
+     * Deszyfruje podany tekst - kopertę lub szyfrogram z poprzedniej wersji (AES/ECB).
+     * Pusty tekst pozostaje pusty.
+     * @param strToDecrypt Zaszyfrowany tekst.
+     * @return Odszyfrowany tekst.
+     */
+    @Timed(CRYPTO_TIMER)
+    public String decrypt(String strToDecrypt) {
+        return decryptText(null, strToDecrypt);
+    }
+
+    /**
+     * Deszyfruje tekst sejfu - kopertę sejfu, kopertę instancji lub szyfrogram z poprzedniej wersji (AES/ECB).
+     * @param vault Sejf (właściciel wpisu).
+     * @param strToDecrypt Zaszyfrowany tekst.
+     * @return Odszyfrowany tekst.
+     */
+    @Timed(CRYPTO_TIMER)
+    public String decrypt(String vault, String strToDecrypt) {
+        return decryptText(vaultKeys(vault), strToDecrypt);
+    }
+
+    /**
+     * Szyfruje surowe bajty (bez pośrednich kopii w postaci String/Base64).
+     * @param plainText Bajty do zaszyfrowania.
+     * @return Koperta: nagłówek z opakowanym kluczem danych, IV i szyfrogram z tagiem GCM.
+     */
+    @Timed(CRYPTO_TIMER)
+    public byte[] encrypt(byte[] plainText) {
+        return seal(instanceKeys, plainText);
+    }
+
+    /**
+     * Deszyfruje surowe bajty koperty.
+     * @param cipherText Koperta zwrócona przez {@link #encrypt(byte[])}.
+     * @return Odszyfrowane bajty.
+     */
+    @Timed(CRYPTO_TIMER)
+    public byte[] decrypt(byte[] cipherText) {
+        return open(null, cipherText);
+    }
+
+    private String encryptText(KeyRing keys, String strToEncrypt) {
+        if (strToEncrypt.isEmpty()) {
+            return "";
+        }
+        return ENVELOPE_PREFIX + Base64.getEncoder().encodeToString(seal(keys, strToEncrypt.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /** Deszyfruje tekst; {@code keys} to klucze sejfu lub null - wtedy przyjmowane są tylko koperty instancji. */
+    private String decryptText(KeyRing keys, String strToDecrypt) {
+        if (strToDecrypt.isEmpty()) {
+            return "";
         }
+        if (!strToDecrypt.startsWith(ENVELOPE_PREFIX)) {
+            return decryptLegacy(strToDecrypt);
+        }
+        return new String(open(keys, decodeEnvelope(strToDecrypt)), StandardCharsets.UTF_8);
+    }
+
+    private byte[] seal(KeyRing keys, byte[] plainText) {
+        DataKey dataKey = currentDataKey(keys);
+        byte[] iv = newIv();
+        byte[] envelope = new byte[encryptedLength(plainText.length)];
+        System.arraycopy(dataKey.header(), 0, envelope, 0, HEADER_LENGTH);
+        System.arraycopy(iv, 0, envelope, HEADER_LENGTH, IV_LENGTH);
         try {
-            Cipher cipher = Cipher.getInstance("AES/ECB/PKCS5Padding"); // ECB jest prosty, ale w produkcji zalecane są tryby z wektorem inicjalizacji (np. GCM)
-            cipher.init(Cipher.ENCRYPT_MODE, secretKeySpec);
-            return Base64.getEncoder().encodeToString(cipher.doFinal(strToEncrypt.getBytes(StandardCharsets.UTF_8)));
-        } catch (Exception e) {
+            Cipher cipher = dataCiphers.get();
+            cipher.init(Cipher.ENCRYPT_MODE, dataKey.key(), new GCMParameterSpec(TAG_LENGTH * 8, iv));
+            cipher.doFinal(plainText, 0, plainText.length, envelope, HEADER_LENGTH + IV_LENGTH);
+            return envelope;
+        } catch (GeneralSecurityException | RuntimeException e) {
+            dataCiphers.remove(); // Szyfr w nieznanym stanie - przy kolejnym wywołaniu powstanie nowy
             throw new RuntimeException("Błąd podczas szyfrowania", e);
         }
     }
 
+    private byte[] open(KeyRing vaultKeyRing, byte[] cipherText) {
+        try {
+            KeyRing keys = keysOf(vaultKeyRing, cipherText.length, cipherText.length == 0 ? 0 : cipherText[0]);
+            SecretKey key = dataKey(keys, ByteBuffer.wrap(cipherText, 0, HEADER_LENGTH));
+            Cipher cipher = dataCiphers.get();
+            cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH * 8, cipherText, HEADER_LENGTH, IV_LENGTH));
+            return cipher.doFinal(cipherText, HEADER_LENGTH + IV_LENGTH, cipherText.length - HEADER_LENGTH - IV_LENGTH);
+        } catch (GeneralSecurityException | RuntimeException e) {
+            dataCiphers.remove();
+            throw new RuntimeException("Błąd podczas deszyfrowania", e);
+        }
+    }
+
     /**
-     * Deszyfruje podany tekst przy użyciu algorytmu AES.
-     * @param strToDecrypt Zaszyfrowany tekst w formacie Base64.
-     * @return Odszyfrowany tekst.
+     * Szyfruje pozostałe bajty bufora {@code input} do bufora {@code output} bez alokacji tablic na dane.
+     * Bufor wyjściowy musi mieć co najmniej {@link #encryptedLength(int)} wolnych bajtów.
+     * @param input Bufor z tekstem jawnym (odczytywany od position do limit).
+     * @param output Bufor na kopertę.
+     * @return Liczba zapisanych bajtów.
      */
-    public String decrypt(String strToDecrypt) {
-        if (secretKeySpec == null) {
-            setKey(); // Upewnij się, że klucz jest ustawiony
+    @Timed(CRYPTO_TIMER)
+    public int encrypt(ByteBuffer input, ByteBuffer output) {
+        DataKey dataKey = currentDataKey(instanceKeys);
+        byte[] iv = newIv();
+        try {
+            Cipher cipher = dataCiphers.get();
+            cipher.init(Cipher.ENCRYPT_MODE, dataKey.key(), new GCMParameterSpec(TAG_LENGTH * 8, iv));
+            output.put(dataKey.header()).put(iv);
+            return HEADER_LENGTH + IV_LENGTH + cipher.doFinal(input, output);
+        } catch (GeneralSecurityException | RuntimeException e) {
+            dataCiphers.remove();
+            throw new RuntimeException("Błąd podczas szyfrowania", e);
         }
+    }
+
+    /**
+     * Deszyfruje pozostałe bajty bufora {@code input} (kopertę) do bufora {@code output} bez alokacji tablic na dane.
+     * Bufor wyjściowy musi mieć co najmniej {@code input.remaining()} wolnych bajtów.
+     * @param input Bufor z kopertą.
+     * @param output Bufor na tekst jawny.
+     * @return Liczba zapisanych bajtów.
+     */
+    @Timed(CRYPTO_TIMER)
+    public int decrypt(ByteBuffer input, ByteBuffer output) {
         try {
-            Cipher cipher = Cipher.getInstance("AES/ECB/PKCS5Padding");
-            cipher.init(Cipher.DECRYPT_MODE, secretKeySpec);
-            return new String(cipher.doFinal(Base64.getDecoder().decode(strToDecrypt)));
-        } catch (Exception e) {
+            int start = input.position();
+            KeyRing keys = keysOf(null, input.remaining(), input.hasRemaining() ? input.get(start) : 0);
+            SecretKey key = dataKey(keys, input.slice(start, HEADER_LENGTH));
+            byte[] iv = new byte[IV_LENGTH];
+            input.position(start + HEADER_LENGTH).get(iv);
+            Cipher cipher = dataCiphers.get();
+            cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH * 8, iv));
+            return cipher.doFinal(input, output);
+        } catch (GeneralSecurityException | RuntimeException e) {
+            dataCiphers.remove();
             throw new RuntimeException("Błąd podczas deszyfrowania", e);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Deszyfruje listę tekstów, zachowując kolejność. Duże listy są dzielone
+     * między wątki puli fork-join, małe (poniżej progu) deszyfrowane sekwencyjnie.
+     * @param cipherTexts Zaszyfrowane teksty.
+     * @return Odszyfrowane teksty w tej samej kolejności.
+     */
+    @Timed(CRYPTO_TIMER)
+    public List<String> decryptAll(List<String> cipherTexts) {
+        return transformAll(cipherTexts, this::decrypt);
+    }
+
+    /**
+     * Szyfruje listę tekstów, zachowując kolejność - na tych samych zasadach co {@link #decryptAll(List)}.
+     * @param plainTexts Teksty do zaszyfrowania.
+     * @return Zaszyfrowane teksty w tej samej kolejności.
+     */
+    @Timed(CRYPTO_TIMER)
+    public List<String> encryptAll(List<String> plainTexts) {
+        return transformAll(plainTexts, this::encrypt);
+    }
+
+    /**
+     * Deszyfruje listę tekstów sejfu - jak {@link #decryptAll(List)}, ale z {@link #decrypt(String, String)}.
+     */
+    @Timed(CRYPTO_TIMER)
+    public List<String> decryptAll(String vault, List<String> cipherTexts) {
+        KeyRing keys = vaultKeys(vault);
+        return transformAll(cipherTexts, cipherText -> decryptText(keys, cipherText));
+    }
+
+    /**
+     * Szyfruje listę tekstów kluczem sejfu - jak {@link #encryptAll(List)}, ale z {@link #encrypt(String, String)}.
+     */
+    @Timed(CRYPTO_TIMER)
+    public List<String> encryptAll(String vault, List<String> plainTexts) {
+        KeyRing keys = vaultKeys(vault);
+        return transformAll(plainTexts, plainText -> encryptText(keys, plainText));
+    }
+
+    /**
+     * Zwraca odcisk hasła w sejfie: HMAC-SHA256 tekstu jawnego kluczem odcisków sejfu (Base64 URL-safe, 43 znaki).
+     * Te same hasła w jednym sejfie mają ten sam odcisk, więc powtórzenia da się wykryć bez deszyfrowania;
+     * bez klucza odcisk nie pozwala odgadnąć hasła słownikiem, a odciski różnych sejfów są nieporównywalne.
+     * @param vault Sejf (właściciel wpisu).
+     * @param plainText Hasło jawne.
+     * @return Odcisk lub null dla pustego (null) hasła.
+     */
+    @Timed(CRYPTO_TIMER)
+    public String fingerprint(String vault, String plainText) {
+        return fingerprintText(vaultKeys(vault), plainText);
+    }
+
+    /**
+     * Zwraca odciski listy haseł sejfu, zachowując kolejność - jak {@link #fingerprint(String, String)},
+     * z podziałem dużych list między wątki jak w {@link #encryptAll(List)}.
+     */
+    @Timed(CRYPTO_TIMER)
+    public List<String> fingerprintAll(String vault, List<String> plainTexts) {
+        KeyRing keys = vaultKeys(vault);
+        return transformAll(plainTexts, plainText -> fingerprintText(keys, plainText));
+    }
+
+    private String fingerprintText(KeyRing keys, String plainText) {
+        if (plainText == null) {
+            return null;
+        }
+        Mac mac = fingerprintMacs.get();
+        try {
+            mac.init(keys.fingerprintKey());
+        } catch (GeneralSecurityException e) {
+            throw new RuntimeException("Błąd podczas inicjalizacji HMAC", e);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(mac.doFinal(plainText.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Sprawdza, czy szyfrogram wymaga przepakowania: jest z poprzedniej wersji (AES/ECB)
+     * albo jego klucz danych jest opakowany innym kluczem głównym niż aktywny.
+     * @param encrypted Zaszyfrowany tekst.
+     * @return true, jeśli {@link #rewrap(String)} zmieni szyfrogram.
+     */
+    public boolean needsRewrap(String encrypted) {
+        return needsRewrap(null, encrypted);
+    }
+
+    /**
+     * Sprawdza, czy szyfrogram sejfu wymaga przepakowania: jest z poprzedniej wersji (AES/ECB), jest kopertą
+     * instancji zamiast koperty sejfu albo jego klucz danych jest opakowany innym kluczem głównym niż aktywny.
+     * @param vault Sejf (właściciel wpisu); null oznacza klucze instancji.
+     * @param encrypted Zaszyfrowany tekst.
+     * @return true, jeśli {@link #rewrap(String, String)} zmieni szyfrogram.
+     */
+    public boolean needsRewrap(String vault, String encrypted) {
+        if (encrypted.isEmpty()) {
+            return false;
+        }
+        if (!encrypted.startsWith(ENVELOPE_PREFIX)) {
+            return true;
+        }
+        // Pierwsze 4 znaki Base64 to pierwsze 3 bajty nagłówka: wersja formatu i wersja klucza głównego
+        int from = ENVELOPE_PREFIX.length();
+        if (encrypted.length() < from + 4) {
+            throw new RuntimeException("Nieprawidłowy szyfrogram");
+        }
+        byte[] prefix = Base64.getDecoder().decode(encrypted.substring(from, from + 4));
+        byte format = vault == null ? FORMAT_VERSION : VAULT_FORMAT_VERSION;
+        return masterKeyVersion(prefix) != activeMasterKeyVersion || prefix[0] != format;
+    }
+
+    /**
+     * Zwraca szyfrogram tego samego tekstu pod aktywnym kluczem głównym. Dla koperty przepakowywany jest
+     * tylko klucz danych w nagłówku - IV i szyfrogram pozostają bez zmian (każdy klucz danych jest przepakowywany
+     * raz, niezależnie od liczby wpisów). Szyfrogram z poprzedniej wersji (AES/ECB) jest szyfrowany ponownie.
+     * @param encrypted Zaszyfrowany tekst.
+     * @return Szyfrogram pod aktywnym kluczem głównym (ten sam obiekt, jeśli przepakowanie nie jest potrzebne).
+     */
+    @Timed(CRYPTO_TIMER)
+    public String rewrap(String encrypted) {
+        return rewrapText(null, encrypted);
+    }
+
+    /**
+     * Zwraca szyfrogram tego samego tekstu pod kluczem sejfu w aktywnej wersji klucza głównego - jak
+     * {@link #rewrap(String)}; koperta instancji jest przepakowywana kluczem sejfu (także bez ponownego szyfrowania).
+     * @param vault Sejf (właściciel wpisu).
+     * @param encrypted Zaszyfrowany tekst.
+     * @return Szyfrogram pod kluczem sejfu (ten sam obiekt, jeśli przepakowanie nie jest potrzebne).
+     */
+    @Timed(CRYPTO_TIMER)
+    public String rewrap(String vault, String encrypted) {
+        return rewrapText(vault, encrypted);
+    }
+
+    private String rewrapText(String vault, String encrypted) {
+        if (!needsRewrap(vault, encrypted)) {
+            return encrypted;
+        }
+        KeyRing target = vault == null ? instanceKeys : vaultKeys(vault);
+        if (!encrypted.startsWith(ENVELOPE_PREFIX)) {
+            return encryptText(target, decryptLegacy(encrypted));
+        }
+        byte[] envelope = decodeEnvelope(encrypted);
+        KeyRing source = keysOf(vault == null ? null : target, envelope.length, envelope[0]);
+        ByteBuffer header = ByteBuffer.wrap(envelope, 0, HEADER_LENGTH);
+        byte[] rewrapped = target.rewrappedHeaders.get(header);
+        if (rewrapped == null) {
+            SecretKey key = dataKey(source, header);
+            rewrapped = target.header(activeMasterKeyVersion, wrap(target, key));
+            cache(target.rewrappedHeaders, Arrays.copyOf(envelope, HEADER_LENGTH), rewrapped);
+            cache(target.dataKeys, rewrapped.clone(), key);
+        }
+        System.arraycopy(rewrapped, 0, envelope, 0, HEADER_LENGTH);
+        return ENVELOPE_PREFIX + Base64.getEncoder().encodeToString(envelope);
+    }
+
+    private List<String> transformAll(List<String> inputs, UnaryOperator<String> operation) {
+        List<String> source = inputs instanceof RandomAccess ? inputs : new ArrayList<>(inputs);
+        String[] results = new String[source.size()];
+        if (source.size() < parallelThreshold) {
+            for (int i = 0; i < results.length; i++) {
+                results[i] = operation.apply(source.get(i));
+            }
+        } else {
+            int leafSize = Math.max(MIN_LEAF_SIZE, results.length / (cryptoPool.getParallelism() * 4));
+            cryptoPool.invoke(new CryptTask(source, results, 0, results.length, leafSize, operation));
+        }
+        return Arrays.asList(results);
+    }
+
+    // ---------- Koperta i klucze danych ----------
+
+    private String decryptLegacy(String strToDecrypt) {
+        try {
+            byte[] plainText = legacyCiphers.get().doFinal(Base64.getDecoder().decode(strToDecrypt));
+            return new String(plainText, StandardCharsets.UTF_8);
+        } catch (GeneralSecurityException | RuntimeException e) {
+            legacyCiphers.remove();
+            throw new RuntimeException("Błąd podczas deszyfrowania", e);
+        }
+    }
+
+    private static byte[] decodeEnvelope(String encrypted) {
+        try {
+            return Base64.getDecoder().decode(encrypted.substring(ENVELOPE_PREFIX.length()));
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Błąd podczas deszyfrowania", e);
+        }
+    }
+
+    /**
+     * Klucze, którymi zaszyfrowano kopertę: instancji (format 1) albo sejfu (format 2 - tylko przy podanych kluczach sejfu).
+     */
+    private KeyRing keysOf(KeyRing vaultKeyRing, int length, byte format) {
+        if (length >= HEADER_LENGTH + IV_LENGTH + TAG_LENGTH) {
+            if (format == FORMAT_VERSION) {
+                return instanceKeys;
+            }
+            if (format == VAULT_FORMAT_VERSION && vaultKeyRing != null) {
+                return vaultKeyRing;
+            }
+        }
+        throw new IllegalArgumentException("Nieprawidłowy szyfrogram");
+    }
+
+    private KeyRing vaultKeys(String vault) {
+        synchronized (vaultKeys) {
+            return vaultKeys.computeIfAbsent(vault, name -> new KeyRing(VAULT_FORMAT_VERSION, name));
+        }
+    }
+
+    /** Liczba sejfów, których klucze są w pamięci podręcznej. */
+    int cachedVaultKeys() {
+        synchronized (vaultKeys) {
+            return vaultKeys.size();
+        }
+    }
+
+    private byte[] newIv() {
+        byte[] iv = new byte[IV_LENGTH];
+        random.nextBytes(iv);
+        return iv;
+    }
+
+    /**
+     * Klucz danych dla kolejnego szyfrowania; po {@code dataKeyMaxUses} użyciach tworzony jest nowy.
+     */
+    private DataKey currentDataKey(KeyRing keys) {
+        AtomicReference<DataKey> activeDataKey = keys.activeDataKey;
+        DataKey dataKey = activeDataKey.get();
+        if (dataKey != null && dataKey.uses().decrementAndGet() >= 0) {
+            return dataKey;
+        }
+        synchronized (activeDataKey) {
+            dataKey = activeDataKey.get();
+            if (dataKey != null && dataKey.uses().decrementAndGet() >= 0) {
+                return dataKey; // Inny wątek zdążył utworzyć nowy klucz
+            }
+            byte[] raw = new byte[DATA_KEY_LENGTH];
+            random.nextBytes(raw);
+            SecretKey key = new SecretKeySpec(raw, "AES");
+            byte[] header = keys.header(activeMasterKeyVersion, wrap(keys, key));
+            cache(keys.dataKeys, header.clone(), key);
+            dataKey = new DataKey(header, key, new AtomicLong(dataKeyMaxUses - 1));
+            activeDataKey.set(dataKey);
+            return dataKey;
+        }
+    }
+
+    /**
+     * Rozpakowany klucz danych z nagłówka koperty (bufor o długości nagłówka).
+     */
+    private SecretKey dataKey(KeyRing keys, ByteBuffer header) {
+        SecretKey key = keys.dataKeys.get(header);
+        if (key == null) {
+            byte[] copy = new byte[HEADER_LENGTH];
+            header.duplicate().get(copy);
+            key = unwrap(keys, copy);
+            cache(keys.dataKeys, copy, key);
+        }
+        return key;
+    }
+
+    private byte[] wrap(KeyRing keys, SecretKey dataKey) {
+        try {
+            Cipher cipher = Cipher.getInstance(WRAP_TRANSFORMATION);
+            cipher.init(Cipher.WRAP_MODE, keys.wrappingKey(activeMasterKeyVersion));
+            return cipher.wrap(dataKey);
+        } catch (GeneralSecurityException e) {
+            throw new RuntimeException("Błąd podczas opakowywania klucza danych", e);
+        }
+    }
+
+    private SecretKey unwrap(KeyRing keys, byte[] header) {
+        SecretKey wrappingKey = keys.wrappingKey(masterKeyVersion(header));
+        try {
+            Cipher cipher = Cipher.getInstance(WRAP_TRANSFORMATION);
+            cipher.init(Cipher.UNWRAP_MODE, wrappingKey);
+            return (SecretKey) cipher.unwrap(Arrays.copyOfRange(header, 3, HEADER_LENGTH), "AES", Cipher.SECRET_KEY);
+        } catch (GeneralSecurityException e) {
+            throw new RuntimeException("Błąd podczas rozpakowywania klucza danych", e);
+        }
+    }
+
+    private static int masterKeyVersion(byte[] header) {
+        if (header[0] != FORMAT_VERSION && header[0] != VAULT_FORMAT_VERSION) {
+            throw new IllegalArgumentException("Nieprawidłowy szyfrogram");
+        }
+        return (header[1] & 0xFF) << 8 | header[2] & 0xFF;
+    }
+
+
+    /** Liczba kluczy danych w sejfie jest mała (jeden na porcję), więc proste czyszczenie po przepełnieniu wystarcza. */
+    private static <V> void cache(Map<ByteBuffer, V> cache, byte[] header, V value) {
+        if (cache.size() >= MAX_CACHED_DATA_KEYS) {
+            cache.clear();
+        }
+        cache.put(ByteBuffer.wrap(header), value);
+    }
+
+    /**
+     * Klucze jednego zakresu szyfrowania - instancji (format 1) albo sejfu (format 2): aktywny klucz danych,
+     * rozpakowane klucze danych i przepakowane nagłówki. Pamięć podręczna jest osobna dla każdego sejfu,
+     * więc nagłówek z innego sejfu nigdy nie trafi w cudzy rozpakowany klucz.
+     */
+    private final class KeyRing {
+
+        final byte format;
+        /** Sejf lub null dla kluczy instancji. */
+        final String vault;
+        /** Wersja klucza głównego → klucz sejfu (wyprowadzany przy pierwszym użyciu). */
+        final Map<Integer, SecretKey> vaultWrappingKeys = new ConcurrentHashMap<>();
+        final AtomicReference<DataKey> activeDataKey = new AtomicReference<>();
+        /** Nagłówek koperty → rozpakowany klucz danych. */
+        final Map<ByteBuffer, SecretKey> dataKeys = new ConcurrentHashMap<>();
+        /** Nagłówek pod starszym kluczem głównym (lub kluczem instancji) → nagłówek przepakowany aktywnym kluczem. */
+        final Map<ByteBuffer, byte[]> rewrappedHeaders = new ConcurrentHashMap<>();
+        /** Klucz odcisków haseł sejfu (wyprowadzany przy pierwszym użyciu). */
+        private volatile SecretKey fingerprintKey;
+
+        KeyRing(byte format, String vault) {
+            this.format = format;
+            this.vault = vault;
+        }
+
+        SecretKey fingerprintKey() {
+            SecretKey key = fingerprintKey;
+            if (key == null) {
+                // Wyprowadzenie jest deterministyczne - równoległe wyliczenia dają ten sam klucz
+                key = deriveFingerprintKey(masterKeys.get(1), vault);
+                fingerprintKey = key;
+            }
+            return key;
+        }
+
+        /** Klucz opakowujący klucze danych w podanej wersji klucza głównego. */
+        SecretKey wrappingKey(int version) {
+            SecretKey masterKey = masterKeys.get(version);
+            if (masterKey == null) {
+                throw new IllegalStateException("Brak klucza głównego w wersji " + version);
+            }
+            return vault == null ? masterKey : vaultWrappingKeys.computeIfAbsent(version, v -> deriveVaultKey(masterKey, vault));
+        }
+
+        byte[] header(int masterKeyVersion, byte[] wrappedKey) {
+            byte[] header = new byte[HEADER_LENGTH];
+            header[0] = format;
+            header[1] = (byte) (masterKeyVersion >>> 8);
+            header[2] = (byte) masterKeyVersion;
+            System.arraycopy(wrappedKey, 0, header, 3, WRAPPED_KEY_LENGTH);
+            return header;
+        }
+    }
+
+    /**
+     * Aktywny klucz danych: nagłówek koperty (z kluczem opakowanym kluczem głównym) i pozostała liczba użyć.
+     */
+    private record DataKey(byte[] header, SecretKey key, AtomicLong uses) {
+    }
+
+    /**
+     * Zadanie fork-join dzielące zakres [from, to) na połowy aż do rozmiaru liścia.
+     */
+    private static final class CryptTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<String> inputs;
+        private final String[] results;
+        private final int from;
+        private final int to;
+        private final int leafSize;
+        private final UnaryOperator<String> operation;
+
+        CryptTask(List<String> inputs, String[] results, int from, int to, int leafSize, UnaryOperator<String> operation) {
+            this.inputs = inputs;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+            this.leafSize = leafSize;
+            this.operation = operation;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= leafSize) {
+                for (int i = from; i < to; i++) {
+                    results[i] = operation.apply(inputs.get(i));
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new CryptTask(inputs, results, from, middle, leafSize, operation),
+                    new CryptTask(inputs, results, middle, to, leafSize, operation));
+        }
+    }
+
+    /**
+     * Długość koperty dla tekstu jawnego o podanej długości: nagłówek, IV, szyfrogram GCM (bez dopełnienia) i tag.
+     * @param plainTextLength Długość tekstu jawnego w bajtach.
+     * @return Długość koperty w bajtach.
+     */
+    public static int encryptedLength(int plainTextLength) {
+        return HEADER_LENGTH + IV_LENGTH + plainTextLength + TAG_LENGTH;
+    }
+}
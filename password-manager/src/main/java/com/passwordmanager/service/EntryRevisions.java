@@ -0,0 +1,76 @@
+package com.passwordmanager.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.OptionalLong;
+
+/**
+ * Ostatnia znana rewizja każdego wpisu (id → sejf i rewizja) - pozwala odpowiedzieć na warunkowy GET
+ * pojedynczego wpisu ({@code If-None-Match}) bez odczytu z bazy i deszyfrowania. Rewizja jest zwracana
+ * tylko dla sejfu, do którego należy wpis - inny użytkownik nie dostanie 304 dla cudzego id.
+ * <p>
+ * Mapa jest uzupełniana leniwie: przy odczycie wpisu oraz przy każdej zmianie i usunięciu w {@link PasswordService}.
+ * Rewizja wpisu tylko rośnie (zmiany jednego wpisu są szeregowane w {@link PasswordService}), więc spóźniony
+ * odczyt nie cofnie jej do starszej wartości. Usunięty wpis pozostaje oznaczony - id nie są używane ponownie.
+ * <p>
+ * Mapa przechowuje najwyżej {@code passwords.revisions.max-entries} wpisów (najdawniej używane są zwalniane,
+ * także znaczniki usunięcia). Zwolniony wpis po prostu nie jest znany - następny GET odczyta go z bazy.
+ */
+@Component
+public class EntryRevisions {
+
+    private static final long DELETED = Long.MAX_VALUE;
+
+    /** Id → sejf i rewizja w kolejności ostatniego użycia (chronione przez synchronized). */
+    private final Map<Long, Known> revisions;
+
+    public EntryRevisions(@Value("${passwords.revisions.max-entries:100000}") int maxEntries) {
+        int capacity = Math.max(1, maxEntries);
+        this.revisions = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Known> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * @param owner Sejf wywołującego.
+     * @param id Id wpisu.
+     * @return Ostatnia znana rewizja wpisu lub pusty wynik, jeśli wpis nie był jeszcze odczytany, został usunięty
+     * albo należy do innego sejfu.
+     */
+    public OptionalLong get(String owner, Long id) {
+        Known known;
+        synchronized (revisions) {
+            known = revisions.get(id);
+        }
+        return known == null || known.revision() == DELETED || !known.owner().equals(owner)
+                ? OptionalLong.empty()
+                : OptionalLong.of(known.revision());
+    }
+
+    /**
+     * Zapamiętuje rewizję odczytanego lub zapisanego wpisu (starsza niż znana jest pomijana).
+     */
+    public void update(String owner, Long id, long revision) {
+        synchronized (revisions) {
+            revisions.merge(id, new Known(owner, revision), (current, next) -> current.revision() >= next.revision() ? current : next);
+        }
+    }
+
+    /**
+     * Oznacza wpis jako usunięty - późniejsze {@link #update(String, Long, long)} z odczytu sprzed usunięcia nic nie zmieni.
+     */
+    public void markDeleted(Long id) {
+        synchronized (revisions) {
+            revisions.put(id, new Known(null, DELETED));
+        }
+    }
+
+    private record Known(String owner, long revision) {
+    }
+}
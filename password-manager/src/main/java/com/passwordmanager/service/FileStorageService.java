@@ -1,21 +1,54 @@
 package com.passwordmanager.service;
 
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.SerializationFeature;
+import com.passwordmanager.model.ChangeSince;
 import com.passwordmanager.model.PasswordEntry;
 import com.passwordmanager.model.PasswordListWrapper;
+import com.passwordmanager.model.PasswordTombstone;
+import com.passwordmanager.service.format.Compression;
+import com.passwordmanager.service.format.JacksonPasswordFormat;
+import com.passwordmanager.service.format.PasswordFormat;
+import com.passwordmanager.service.format.PasswordFormats;
+import com.passwordmanager.service.format.XmlPasswordFormat;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import jakarta.xml.bind.*;
-import java.io.File;
+
+import javax.xml.stream.XMLStreamWriter;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
- * Serwis odpowiedzialny za odczyt i zapis danych haseł do/z plików JSON i XML.
+ * Serwis odpowiedzialny za odczyt i zapis danych haseł do/z plików. Formaty plików (JSON, Smile, CBOR, XML
+ * i zarejestrowane przez {@link java.util.ServiceLoader}) dostarcza {@link PasswordFormats};
+ * zapis może być kompresowany ({@link Compression}), a przy odczycie format i kompresja są wykrywane.
+ * <p>
+ * Każdy zapis i odczyt jest mierzony: czas ({@value #FILE_TIMER}), liczba wierszy ({@value #FILE_ROWS}),
+ * rozmiar pliku ({@value #FILE_BYTES}) i przepustowość w wierszach na sekundę ({@value #FILE_THROUGHPUT}),
+ * z tagami {@code operation} (read/write) i {@code format}.
  */
 @Service
 public class FileStorageService {
@@ -23,16 +56,179 @@ public class FileStorageService {
     private final ObjectMapper objectMapper = new ObjectMapper()
             .enable(SerializationFeature.INDENT_OUTPUT); // Formatowanie JSON dla czytelności
 
+    public static final String FILE_TIMER = "passwords.file.io";
+    public static final String FILE_ROWS = "passwords.file.rows";
+    public static final String FILE_BYTES = "passwords.file.bytes";
+    public static final String FILE_THROUGHPUT = "passwords.file.throughput";
+    private static final String OPERATION_READ = "read";
+    private static final String OPERATION_WRITE = "write";
+
     private static final String DATA_DIRECTORY = "data/"; // Katalog do przechowywania plików
-    private final Path dataDirPath = Paths.get(DATA_DIRECTORY);
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private final Path dataDirPath;
+    private final MeterRegistry meterRegistry;
+
+    // Eksport przyrostowy
+    private static final String XML_CHANGES_ELEMENT = "passwordChanges";
+    private static final String XML_DELETED_ELEMENT = "deleted";
 
-    private final JAXBContext jaxbContext;
+    private final XmlPasswordFormat xmlFormat = new XmlPasswordFormat();
+    private final PasswordFormats formats = PasswordFormats.load(JacksonPasswordFormat.json(),
+            JacksonPasswordFormat.smile(), JacksonPasswordFormat.cbor(), xmlFormat);
 
     public FileStorageService() {
+        this(Paths.get(DATA_DIRECTORY));
+    }
+
+    @Autowired
+    public FileStorageService(MeterRegistry meterRegistry) {
+        this(Paths.get(DATA_DIRECTORY), meterRegistry);
+    }
+
+    public FileStorageService(Path dataDirPath) {
+        this(dataDirPath, Metrics.globalRegistry);
+    }
+
+    public FileStorageService(Path dataDirPath, MeterRegistry meterRegistry) {
+        this.dataDirPath = dataDirPath;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Zwraca format o podanej nazwie.
+     * @param name Nazwa formatu (np. "smile").
+     * @return Format.
+     * @throws IllegalArgumentException Jeśli format nie jest obsługiwany.
+     */
+    public PasswordFormat getFormat(String name) {
+        return formats.get(name);
+    }
+
+    /**
+     * Zapisuje strumień wpisów do pliku w podanym formacie, opcjonalnie kompresując go w locie.
+     * W pamięci znajduje się jednocześnie tylko jeden wpis. Strumień nie jest zamykany przez tę metodę.
+     * @param passwordEntries Strumień wpisów haseł do zapisania.
+     * @param fileName Nazwa pliku (np. "passwords.smile.gz").
+     * @param format Nazwa formatu ("json", "smile", "cbor", "xml").
+     * @param compression Kompresja pliku.
+     * @return Liczba zapisanych wpisów.
+     * @throws IOException Jeśli wystąpi błąd wejścia/wyjścia.
+     * @throws IllegalArgumentException Jeśli format nie jest obsługiwany.
+     */
+    public long writePasswordStream(Stream<PasswordEntry> passwordEntries, String fileName,
+                                    String format, Compression compression) throws IOException {
+        return write(passwordEntries, fileName, formats.get(format), compression);
+    }
+
+    /**
+     * Odczytuje wpisy z pliku strumieniowo, wykrywając kompresję i format po pierwszych bajtach pliku.
+     * @param fileName Nazwa pliku.
+     * @param consumer Odbiorca kolejnych wpisów.
+     * @return Liczba odczytanych wpisów (0, jeśli plik nie istnieje).
+     * @throws IOException Jeśli wystąpi błąd wejścia/wyjścia lub format nie został rozpoznany.
+     */
+    public long readPasswords(String fileName, Consumer<PasswordEntry> consumer) throws IOException {
+        Path file = dataDirPath.resolve(fileName);
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        InputStream in = new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE);
+        PasswordFormats.Detected detected;
+        try {
+            detected = formats.detect(in);
+        } catch (IOException | RuntimeException e) {
+            in.close();
+            throw e;
+        }
+        return measure(OPERATION_READ, detected.format().getName(), fileName,
+                () -> detected.format().read(detected.stream(), consumer));
+    }
+
+    private long write(Stream<PasswordEntry> passwordEntries, String fileName,
+                       PasswordFormat format, Compression compression) throws IOException {
+        createParentDirectories(fileName);
+        return measure(OPERATION_WRITE, format.getName(), fileName, () -> {
+            try (OutputStream out = compression.wrap(
+                    new BufferedOutputStream(Files.newOutputStream(dataDirPath.resolve(fileName)), BUFFER_SIZE))) {
+                return format.write(passwordEntries, out);
+            }
+        });
+    }
+
+    private long read(String fileName, PasswordFormat format, Consumer<PasswordEntry> consumer) throws IOException {
+        Path file = dataDirPath.resolve(fileName);
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        return measure(OPERATION_READ, format.getName(), fileName,
+                () -> format.read(new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE), consumer));
+    }
+
+    @FunctionalInterface
+    private interface FileOperation<E extends Exception> {
+        long run() throws E;
+    }
+
+    /**
+     * Wykonuje zapis lub odczyt pliku i rejestruje jego metryki. Czas jest rejestrowany zawsze
+     * (z tagiem {@code outcome}), wiersze, bajty i przepustowość - tylko po udanej operacji.
+     */
+    private <E extends Exception> long measure(String operation, String format, String fileName,
+                                               FileOperation<E> body) throws E {
+        long start = System.nanoTime();
+        boolean success = false;
+        long rows = 0;
+        try {
+            rows = body.run();
+            success = true;
+            return rows;
+        } finally {
+            record(operation, format, fileName, success, rows, System.nanoTime() - start);
+        }
+    }
+
+    private void record(String operation, String format, String fileName, boolean success, long rows, long nanos) {
+        Timer.builder(FILE_TIMER)
+                .description("Czas zapisu/odczytu pliku z hasłami")
+                .tags("operation", operation, "format", format, "outcome", success ? "success" : "error")
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+        if (!success) {
+            return;
+        }
+        Tags tags = Tags.of("operation", operation, "format", format);
+        Counter.builder(FILE_ROWS)
+                .description("Liczba zapisanych/odczytanych wpisów")
+                .baseUnit("rows")
+                .tags(tags)
+                .register(meterRegistry)
+                .increment(rows);
+        Counter.builder(FILE_BYTES)
+                .description("Rozmiar zapisanych/odczytanych plików")
+                .baseUnit(BaseUnits.BYTES)
+                .tags(tags)
+                .register(meterRegistry)
+                .increment(fileSize(fileName));
+        if (nanos > 0) {
+            DistributionSummary.builder(FILE_THROUGHPUT)
+                    .description("Przepustowość pojedynczego zapisu/odczytu")
+                    .baseUnit("rows.per.second")
+                    .tags(tags)
+                    .register(meterRegistry)
+                    .record(rows * 1e9 / nanos);
+        }
+    }
+
+    /** Tworzy katalog pliku - także podkatalog sejfu ({@link VaultContext#fileName(String, String)}). */
+    private void createParentDirectories(String fileName) throws IOException {
+        Files.createDirectories(dataDirPath.resolve(fileName).toAbsolutePath().getParent());
+    }
+
+    private long fileSize(String fileName) {
         try {
-            jaxbContext = JAXBContext.newInstance(PasswordListWrapper.class);
-        } catch (JAXBException e) {
-            throw new RuntimeException("Błąd inicjalizacji JAXBContext", e);
+            return Files.size(dataDirPath.resolve(fileName));
+        } catch (IOException e) {
+            return 0; // Metryka nie może przerwać udanej operacji
         }
     }
 
@@ -43,11 +239,21 @@ public class FileStorageService {
      * @throws IOException Jeśli wystąpi błąd wejścia/wyjścia.
      */
     public List<PasswordEntry> readPasswordsFromJson(String fileName) throws IOException {
-        File file = dataDirPath.resolve(fileName).toFile();
-        if (!file.exists()) {
-            return new ArrayList<>(); // Zwróć pustą listę, jeśli plik nie istnieje
-        }
-        return Arrays.asList(objectMapper.readValue(file, PasswordEntry[].class));
+        List<PasswordEntry> entries = new ArrayList<>(); // Pusta lista, jeśli plik nie istnieje
+        readPasswordsFromJson(fileName, entries::add);
+        return entries;
+    }
+
+    /**
+     * Odczytuje wpisy haseł z pliku JSON strumieniowo, przekazując je
+     * kolejno do konsumenta. Plik musi zawierać tablicę obiektów; naraz w pamięci jest tylko jeden wpis.
+     * @param fileName Nazwa pliku JSON (np. "passwords.json").
+     * @param consumer Odbiorca kolejnych wpisów.
+     * @return Liczba odczytanych wpisów (0, jeśli plik nie istnieje).
+     * @throws IOException Jeśli wystąpi błąd wejścia/wyjścia lub plik nie zawiera tablicy JSON.
+     */
+    public long readPasswordsFromJson(String fileName, Consumer<PasswordEntry> consumer) throws IOException {
+        return read(fileName, formats.get(PasswordFormats.JSON), consumer);
     }
 
     /**
@@ -57,7 +263,71 @@ public class FileStorageService {
      * @throws IOException Jeśli wystąpi błąd wejścia/wyjścia.
      */
     public void writePasswordsToJson(List<PasswordEntry> passwordEntries, String fileName) throws IOException {
-        objectMapper.writeValue(dataDirPath.resolve(fileName).toFile(), passwordEntries);
+        writePasswordStreamToJson(passwordEntries.stream(), fileName);
+    }
+
+    /**
+     * Zapisuje strumień wpisów haseł do pliku JSON, wpis po wpisie, przez {@link JsonGenerator}.
+     * W pamięci znajduje się jednocześnie tylko jeden wpis, więc zużycie sterty
+     * nie zależy od rozmiaru sejfu. Strumień nie jest zamykany przez tę metodę.
+     * @param passwordEntries Strumień wpisów haseł do zapisania.
+     * @param fileName Nazwa pliku JSON (np. "passwords.json").
+     * @return Liczba zapisanych wpisów.
+     * @throws IOException Jeśli wystąpi błąd wejścia/wyjścia.
+     */
+    public long writePasswordStreamToJson(Stream<PasswordEntry> passwordEntries, String fileName) throws IOException {
+        return write(passwordEntries, fileName, formats.get(PasswordFormats.JSON), Compression.NONE);
+    }
+
+    /**
+     * Zapisuje eksport przyrostowy do pliku JSON: obiekt z polami {@code since} i {@code revision},
+     * tablicą zmienionych wpisów {@code entries} (wpis po wpisie, jak w {@link #writePasswordStreamToJson})
+     * i tablicą usuniętych wpisów {@code deleted}. Strumień nie jest zamykany przez tę metodę.
+     * @param changed Strumień zmienionych wpisów.
+     * @param deleted Znaczniki usuniętych wpisów.
+     * @param since Punkt, od którego liczone są zmiany.
+     * @param revision Rewizja, do której sięga eksport (kolejny eksport zaczyna się od niej).
+     * @param fileName Nazwa pliku JSON.
+     * @return Liczba zapisanych zmienionych wpisów.
+     * @throws IOException Jeśli wystąpi błąd wejścia/wyjścia.
+     */
+    public long writePasswordChangesToJson(Stream<PasswordEntry> changed, List<PasswordTombstone> deleted,
+                                           ChangeSince since, long revision, String fileName) throws IOException {
+        createParentDirectories(fileName);
+        return measure(OPERATION_WRITE, PasswordFormats.JSON, fileName,
+                () -> writeChangesToJson(changed, deleted, since, revision, fileName));
+    }
+
+    private long writeChangesToJson(Stream<PasswordEntry> changed, List<PasswordTombstone> deleted,
+                                    ChangeSince since, long revision, String fileName) throws IOException {
+        ObjectWriter entryWriter = objectMapper.writerFor(PasswordEntry.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        long count = 0;
+        try (JsonGenerator generator = objectMapper.getFactory()
+                .createGenerator(dataDirPath.resolve(fileName).toFile(), JsonEncoding.UTF8)) {
+            generator.useDefaultPrettyPrinter();
+            generator.writeStartObject();
+            generator.writeStringField("since", since.toString());
+            generator.writeNumberField("revision", revision);
+            generator.writeArrayFieldStart("entries");
+            Iterator<PasswordEntry> iterator = changed.iterator();
+            while (iterator.hasNext()) {
+                entryWriter.writeValue(generator, iterator.next());
+                count++;
+            }
+            generator.writeEndArray();
+            generator.writeArrayFieldStart("deleted");
+            for (PasswordTombstone tombstone : deleted) {
+                generator.writeStartObject();
+                generator.writeNumberField("id", tombstone.getId());
+                generator.writeNumberField("revision", tombstone.getRevision());
+                generator.writeStringField("deletedAt", tombstone.getDeletedAt().toString());
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+        return count;
     }
 
     /**
@@ -67,14 +337,22 @@ public class FileStorageService {
      * @throws Exception Jeśli wystąpi błąd podczas operacji JAXB.
      */
     public List<PasswordEntry> readPasswordsFromXml(String fileName) throws Exception {
-        File file = dataDirPath.resolve(fileName).toFile();
-        if (!file.exists()) {
-            return new ArrayList<>(); // Zwróć pustą listę, jeśli plik nie istnieje
-        }
-        JAXBContext jaxbContext = JAXBContext.newInstance(PasswordListWrapper.class);
-        Unmarshaller jaxbUnmarshaller = jaxbContext.createUnmarshaller();
-        PasswordListWrapper wrapper = (PasswordListWrapper) jaxbUnmarshaller.unmarshal(file);
-        return wrapper.getPasswords();
+        List<PasswordEntry> entries = new ArrayList<>();
+        readPasswordsFromXml(fileName, entries::add);
+        return entries;
+    }
+
+    /**
+     * Odczytuje wpisy haseł z pliku XML strumieniowo (StAX), przekazując je kolejno do konsumenta.
+     * Naraz w pamięci jest tylko jeden element {@code passwordEntry}, więc pliki
+     * o rozmiarze wielu gigabajtów są przetwarzane w stałej pamięci.
+     * @param fileName Nazwa pliku XML (np. "passwords.xml").
+     * @param consumer Odbiorca kolejnych wpisów.
+     * @return Liczba odczytanych wpisów (0, jeśli plik nie istnieje).
+     * @throws Exception Jeśli wystąpi błąd wejścia/wyjścia, StAX lub JAXB.
+     */
+    public long readPasswordsFromXml(String fileName, Consumer<PasswordEntry> consumer) throws Exception {
+        return read(fileName, xmlFormat, consumer);
     }
 
     /**
@@ -84,13 +362,83 @@ public class FileStorageService {
      * @throws Exception Jeśli wystąpi błąd podczas operacji JAXB.
      */
     public void writePasswordsToXml(List<PasswordEntry> passwordEntries, String fileName) throws Exception {
-        JAXBContext jaxbContext = JAXBContext.newInstance(PasswordListWrapper.class);
-        Marshaller jaxbMarshaller = jaxbContext.createMarshaller();
-        jaxbMarshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true); // Formatowanie XML dla czytelności
+        writePasswordStreamToXml(passwordEntries.stream(), fileName);
+    }
+
+    /**
+     * Zapisuje strumień wpisów haseł do pliku XML (StAX), marshallując każdy wpis osobno
+     * jako fragment wewnątrz elementu {@code passwords}. Format pliku jest zgodny
+     * z {@link PasswordListWrapper}. Strumień nie jest zamykany przez tę metodę.
+     * @param passwordEntries Strumień wpisów haseł do zapisania.
+     * @param fileName Nazwa pliku XML (np. "passwords.xml").
+     * @return Liczba zapisanych wpisów.
+     * @throws Exception Jeśli wystąpi błąd wejścia/wyjścia, StAX lub JAXB.
+     */
+    public long writePasswordStreamToXml(Stream<PasswordEntry> passwordEntries, String fileName) throws Exception {
+        return write(passwordEntries, fileName, xmlFormat, Compression.NONE);
+    }
+
+    /**
+     * Zapisuje eksport przyrostowy do pliku XML (StAX): element {@code passwordChanges} z atrybutami
+     * {@code since} i {@code revision}, zmienione wpisy jako elementy {@code passwordEntry}
+     * i usunięte jako puste elementy {@code deleted}. Strumień nie jest zamykany przez tę metodę.
+     * @param changed Strumień zmienionych wpisów.
+     * @param deleted Znaczniki usuniętych wpisów.
+     * @param since Punkt, od którego liczone są zmiany.
+     * @param revision Rewizja, do której sięga eksport (kolejny eksport zaczyna się od niej).
+     * @param fileName Nazwa pliku XML.
+     * @return Liczba zapisanych zmienionych wpisów.
+     * @throws Exception Jeśli wystąpi błąd wejścia/wyjścia, StAX lub JAXB.
+     */
+    public long writePasswordChangesToXml(Stream<PasswordEntry> changed, List<PasswordTombstone> deleted,
+                                          ChangeSince since, long revision, String fileName) throws Exception {
+        createParentDirectories(fileName);
+        return measure(OPERATION_WRITE, PasswordFormats.XML, fileName,
+                () -> writeChangesToXml(changed, deleted, since, revision, fileName));
+    }
 
-        PasswordListWrapper wrapper;
-        wrapper = new PasswordListWrapper(passwordEntries);
-        jaxbMarshaller.marshal(wrapper,
-                dataDirPath.resolve(fileName).toFile());
+    private long writeChangesToXml(Stream<PasswordEntry> changed, List<PasswordTombstone> deleted,
+                                   ChangeSince since, long revision, String fileName) throws Exception {
+        long count = 0;
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(dataDirPath.resolve(fileName)))) {
+            XMLStreamWriter writer = XmlPasswordFormat.outputFactory().createXMLStreamWriter(out, StandardCharsets.UTF_8.name());
+            try {
+                writer.writeStartDocument(StandardCharsets.UTF_8.name(), "1.0");
+                writer.writeCharacters("\n");
+                writer.writeStartElement(XML_CHANGES_ELEMENT);
+                writer.writeAttribute("since", since.toString());
+                writer.writeAttribute("revision", Long.toString(revision));
+                Iterator<PasswordEntry> iterator = changed.iterator();
+                while (iterator.hasNext()) {
+                    writer.writeCharacters("\n    ");
+                    xmlFormat.writeEntry(iterator.next(), writer);
+                    count++;
+                }
+                for (PasswordTombstone tombstone : deleted) {
+                    writer.writeCharacters("\n    ");
+                    writer.writeEmptyElement(XML_DELETED_ELEMENT);
+                    writer.writeAttribute("id", tombstone.getId().toString());
+                    writer.writeAttribute("revision", Long.toString(tombstone.getRevision()));
+                    writer.writeAttribute("deletedAt", tombstone.getDeletedAt().toString());
+                }
+                writer.writeCharacters("\n");
+                writer.writeEndElement();
+                writer.writeEndDocument();
+                writer.flush();
+            } finally {
+                writer.close();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Usuwa plik z katalogu danych (np. niepełny plik przerwanego eksportu).
+     * @param fileName Nazwa pliku.
+     * @return true, jeśli plik istniał i został usunięty.
+     * @throws IOException Jeśli wystąpi błąd wejścia/wyjścia.
+     */
+    public boolean deleteFile(String fileName) throws IOException {
+        return Files.deleteIfExists(dataDirPath.resolve(fileName));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,653 @@
+package com.passwordmanager.service;
+
+import com.passwordmanager.model.JobInfo;
+import com.passwordmanager.model.JobState;
+import com.passwordmanager.model.PasswordEntry;
+import com.passwordmanager.repository.PasswordRepository;
+import com.passwordmanager.service.format.Compression;
+import com.passwordmanager.service.format.PasswordFormat;
+import com.passwordmanager.service.strength.PasswordStrengthEstimator;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Zadania importu, eksportu i przepakowania kluczy wykonywane w tle, poza wątkami obsługi żądań HTTP.
+ * <p>
+ * Zadania trafiają do ograniczonej puli ({@code jobs.max-concurrent} wątków i kolejka
+ * {@code jobs.queue-capacity}); gdy kolejka jest pełna, zgłoszenie jest odrzucane.
+ * Import i eksport działają jako {@link ChunkPipeline}: odczyt, szyfrowanie/deszyfrowanie i zapis
+ * w osobnych wątkach, połączone ograniczonymi kolejkami porcji. Przepakowanie kluczy jest ograniczane
+ * co do tempa i działa w jednym wątku.
+ * <p>
+ * Anulowanie eksportu usuwa częściowo zapisany plik. Anulowanie importu zatrzymuje go po bieżącej porcji -
+ * porcje już zapisane (każda we własnej transakcji) pozostają w bazie.
+ * <p>
+ * Zadanie należy do sejfu, z którego je zgłoszono ({@link VaultContext}) - import i eksport działają na tym sejfie
+ * i jego plikach, a stan zadania widzi i anuluje tylko ten sam sejf.
+ */
+@Service
+public class JobService {
+
+    public static final String EXPORT_JSON = "EXPORT_JSON";
+    public static final String EXPORT_XML = "EXPORT_XML";
+    public static final String IMPORT_JSON = "IMPORT_JSON";
+    public static final String IMPORT_XML = "IMPORT_XML";
+    /** Import z wykrywaniem formatu i kompresji; eksport w wybranym formacie ma typ {@code EXPORT_<FORMAT>}. */
+    public static final String IMPORT = "IMPORT";
+    /** Przepakowanie kluczy danych aktywnym kluczem głównym ({@link EncryptionService#rewrap(String, String)}). */
+    public static final String KEY_ROTATION = "KEY_ROTATION";
+    /** Uzupełnienie odcisków haseł wpisów zapisanych przed ich wprowadzeniem ({@link EncryptionService#fingerprint(String, String)}). */
+    public static final String FINGERPRINT_BACKFILL = "FINGERPRINT_BACKFILL";
+    /** Uzupełnienie ocen siły haseł wpisów zapisanych przed ich wprowadzeniem ({@link PasswordStrengthEstimator}). */
+    public static final String STRENGTH_BACKFILL = "STRENGTH_BACKFILL";
+
+    private final PasswordRepository passwordRepository;
+    private final EncryptionService encryptionService;
+    private final FileStorageService fileStorageService;
+    private final PasswordBatchWriter passwordBatchWriter;
+    private final PasswordSearchIndex searchIndex;
+    private final RevisionCounter revisionCounter;
+    private final EntryRevisions entryRevisions;
+    private final SecretCache secretCache;
+    private final VaultContext vaultContext;
+    private final PasswordStrengthEstimator strengthEstimator;
+    private final EntityManager entityManager;
+    private final TransactionTemplate snapshotTransaction;
+
+    private final ThreadPoolExecutor jobExecutor;
+    private final ExecutorService stageExecutor;
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+
+    @Value("${passwords.import.batch-size:500}")
+    private int importBatchSize = 500;
+    @Value("${jobs.pipeline-queue-capacity:4}")
+    private int pipelineQueueCapacity = 4;
+    @Value("${jobs.history-size:100}")
+    private int historySize = 100;
+    @Value("${encryption.rotation.batch-size:100}")
+    private int rotationBatchSize = 100;
+    @Value("${encryption.rotation.rows-per-second:500}")
+    private int rotationRowsPerSecond = 500;
+    @Value("${passwords.audit.backfill-batch-size:500}")
+    private int backfillBatchSize = 500;
+
+    public JobService(PasswordRepository passwordRepository,
+                      EncryptionService encryptionService,
+                      FileStorageService fileStorageService,
+                      PasswordBatchWriter passwordBatchWriter,
+                      PasswordSearchIndex searchIndex,
+                      RevisionCounter revisionCounter,
+                      EntryRevisions entryRevisions,
+                      SecretCache secretCache,
+                      VaultContext vaultContext,
+                      PasswordStrengthEstimator strengthEstimator,
+                      EntityManager entityManager,
+                      PlatformTransactionManager transactionManager,
+                      @Value("${jobs.max-concurrent:2}") int maxConcurrent,
+                      @Value("${jobs.queue-capacity:16}") int queueCapacity) {
+        this.passwordRepository = passwordRepository;
+        this.encryptionService = encryptionService;
+        this.fileStorageService = fileStorageService;
+        this.passwordBatchWriter = passwordBatchWriter;
+        this.searchIndex = searchIndex;
+        this.revisionCounter = revisionCounter;
+        this.entryRevisions = entryRevisions;
+        this.secretCache = secretCache;
+        this.vaultContext = vaultContext;
+        this.strengthEstimator = strengthEstimator;
+        this.entityManager = entityManager;
+        this.snapshotTransaction = new TransactionTemplate(transactionManager);
+        this.snapshotTransaction.setReadOnly(true);
+        this.snapshotTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.jobExecutor = new ThreadPoolExecutor(maxConcurrent, maxConcurrent, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity));
+        // Każde uruchomione zadanie zajmuje dokładnie trzy wątki etapów - pula nigdy nie jest wyczerpana
+        this.stageExecutor = Executors.newFixedThreadPool(maxConcurrent * 3);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        jobs.values().forEach(Job::cancel);
+        jobExecutor.shutdownNow();
+        stageExecutor.shutdownNow();
+    }
+
+    /**
+     * Zgłasza eksport całego sejfu do pliku JSON.
+     * @param fileName Nazwa pliku do zapisu.
+     * @return Stan nowego zadania (z jego id).
+     * @throws RejectedExecutionException Jeśli kolejka zadań jest pełna.
+     */
+    public JobInfo submitExportToJson(String fileName) {
+        return submit(EXPORT_JSON, fileName, job -> runExport(job, chunks ->
+                fileStorageService.writePasswordStreamToJson(entries(chunks, job), job.path())));
+    }
+
+    /**
+     * Zgłasza eksport całego sejfu do pliku XML.
+     * @param fileName Nazwa pliku do zapisu.
+     * @return Stan nowego zadania (z jego id).
+     * @throws RejectedExecutionException Jeśli kolejka zadań jest pełna.
+     */
+    public JobInfo submitExportToXml(String fileName) {
+        return submit(EXPORT_XML, fileName, job -> runExport(job, chunks ->
+                fileStorageService.writePasswordStreamToXml(entries(chunks, job), job.path())));
+    }
+
+    /**
+     * Zgłasza import haseł z pliku JSON.
+     * @param fileName Nazwa pliku do odczytu.
+     * @return Stan nowego zadania (z jego id).
+     * @throws RejectedExecutionException Jeśli kolejka zadań jest pełna.
+     */
+    public JobInfo submitImportFromJson(String fileName) {
+        return submit(IMPORT_JSON, fileName, job -> runImport(job, consumer ->
+                fileStorageService.readPasswordsFromJson(job.path(), consumer::add)));
+    }
+
+    /**
+     * Zgłasza import haseł z pliku XML.
+     * @param fileName Nazwa pliku do odczytu.
+     * @return Stan nowego zadania (z jego id).
+     * @throws RejectedExecutionException Jeśli kolejka zadań jest pełna.
+     */
+    public JobInfo submitImportFromXml(String fileName) {
+        return submit(IMPORT_XML, fileName, job -> runImport(job, consumer ->
+                fileStorageService.readPasswordsFromXml(job.path(), consumer::add)));
+    }
+
+    /**
+     * Zgłasza eksport całego sejfu w podanym formacie, opcjonalnie z kompresją.
+     * @param fileName Nazwa pliku do zapisu.
+     * @param format Nazwa formatu ("json", "smile", "cbor", "xml").
+     * @param compression Kompresja pliku.
+     * @return Stan nowego zadania (z jego id).
+     * @throws IllegalArgumentException Jeśli format nie jest obsługiwany.
+     * @throws RejectedExecutionException Jeśli kolejka zadań jest pełna.
+     */
+    public JobInfo submitExport(String fileName, String format, Compression compression) {
+        PasswordFormat target = fileStorageService.getFormat(format); // Nieznany format odrzucamy przed zgłoszeniem
+        String type = "EXPORT_" + target.getName().toUpperCase(Locale.ROOT);
+        return submit(type, fileName, job -> runExport(job, chunks ->
+                fileStorageService.writePasswordStream(entries(chunks, job), job.path(), target.getName(), compression)));
+    }
+
+    /**
+     * Zgłasza import haseł z pliku, wykrywając format i kompresję po nagłówku pliku.
+     * @param fileName Nazwa pliku do odczytu.
+     * @return Stan nowego zadania (z jego id).
+     * @throws RejectedExecutionException Jeśli kolejka zadań jest pełna.
+     */
+    public JobInfo submitImport(String fileName) {
+        return submit(IMPORT, fileName, job -> runImport(job, consumer ->
+                fileStorageService.readPasswords(job.path(), consumer::add)));
+    }
+
+    /**
+     * Zgłasza przepakowanie kluczy danych wszystkich sejfów aktywnym kluczem głównym (po jego zmianie).
+     * Szyfrogramy zapisane przed podziałem na sejfy są przy tym przenoszone na klucz sejfu właściciela wpisu.
+     * Zadanie przechodzi wpisy porcjami {@code encryption.rotation.batch-size} w kolejności id,
+     * nie szybciej niż {@code encryption.rotation.rows-per-second}, i podmienia szyfrogram metodą
+     * porównaj-i-zamień - odczyty i zapisy działają w tym czasie normalnie, a wpis zmieniony w międzyczasie
+     * zachowuje nowszą wartość (zaszyfrowaną już aktywnym kluczem).
+     * @return Stan nowego zadania (z jego id).
+     * @throws RejectedExecutionException Jeśli kolejka zadań jest pełna.
+     */
+    public JobInfo submitKeyRotation() {
+        return submit(KEY_ROTATION, null, this::runKeyRotation);
+    }
+
+    /**
+     * Zgłasza jednorazowe uzupełnienie odcisków haseł wszystkich sejfów - dla wpisów zapisanych przed
+     * wprowadzeniem odcisków, które nie są jeszcze uwzględniane w raporcie powtórzonych haseł.
+     * Zadanie przechodzi wpisy bez odcisku porcjami {@code passwords.audit.backfill-batch-size} w kolejności id,
+     * deszyfruje porcję hurtowo i zapisuje odciski metodą porównaj-i-zamień - wpis zmieniony w międzyczasie
+     * ma już odcisk nowego hasła i nie jest nadpisywany.
+     * @return Stan nowego zadania (z jego id).
+     * @throws RejectedExecutionException Jeśli kolejka zadań jest pełna.
+     */
+    public JobInfo submitFingerprintBackfill() {
+        return submit(FINGERPRINT_BACKFILL, null, this::runFingerprintBackfill);
+    }
+
+    /**
+     * Zgłasza jednorazowe uzupełnienie ocen siły haseł wszystkich sejfów - dla wpisów zapisanych przed
+     * wprowadzeniem ocen, które nie są jeszcze uwzględniane w raporcie słabych haseł.
+     * Zadanie przechodzi wpisy bez oceny porcjami {@code passwords.audit.backfill-batch-size} w kolejności id,
+     * deszyfruje porcję hurtowo i zapisuje oceny metodą porównaj-i-zamień - wpis zmieniony w międzyczasie
+     * ma już ocenę nowego hasła i nie jest nadpisywany.
+     * @return Stan nowego zadania (z jego id).
+     * @throws RejectedExecutionException Jeśli kolejka zadań jest pełna.
+     */
+    public JobInfo submitStrengthBackfill() {
+        return submit(STRENGTH_BACKFILL, null, this::runStrengthBackfill);
+    }
+
+    /**
+     * Zwraca bieżący stan zadania.
+     * @param id Id zadania.
+     * @return Stan zadania lub pusty Optional, jeśli zadanie nie istnieje lub należy do innego sejfu.
+     */
+    public Optional<JobInfo> getJob(String id) {
+        return findJob(id).map(Job::toInfo);
+    }
+
+    /**
+     * Anuluje zadanie oczekujące lub trwające. Zakończone zadania pozostają bez zmian.
+     * @param id Id zadania.
+     * @return Stan zadania po anulowaniu lub pusty Optional, jeśli zadanie nie istnieje lub należy do innego sejfu.
+     */
+    public Optional<JobInfo> cancelJob(String id) {
+        return findJob(id).map(job -> {
+            job.cancel();
+            return job.toInfo();
+        });
+    }
+
+    private Optional<Job> findJob(String id) {
+        String vault = vaultContext.currentVault();
+        return Optional.ofNullable(jobs.get(id)).filter(job -> job.vault.equals(vault));
+    }
+
+    // ---------- Wykonanie zadań ----------
+
+    @FunctionalInterface
+    private interface JobBody {
+        void run(Job job) throws Exception;
+    }
+
+    @FunctionalInterface
+    private interface ExportWriter {
+        void write(Iterator<List<PasswordEntry>> chunks) throws Exception;
+    }
+
+    @FunctionalInterface
+    private interface ImportReader {
+        void read(ChunkBuffer buffer) throws Exception;
+    }
+
+    private JobInfo submit(String type, String fileName, JobBody body) {
+        pruneHistory();
+        Job job = new Job(UUID.randomUUID().toString(), type, vaultContext.currentVault(), fileName);
+        jobs.put(job.id, job);
+        try {
+            job.future = jobExecutor.submit(() -> execute(job, body));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id);
+            throw e;
+        }
+        return job.toInfo();
+    }
+
+    private void execute(Job job, JobBody body) {
+        if (!job.start()) {
+            return; // Anulowane w kolejce
+        }
+        try {
+            body.run(job);
+            job.finish(JobState.COMPLETED, null);
+        } catch (CancellationException e) {
+            job.finish(JobState.CANCELLED, null);
+        } catch (Exception e) {
+            job.finish(job.cancelRequested ? JobState.CANCELLED : JobState.FAILED, e.getMessage());
+        }
+    }
+
+    /**
+     * Eksport: odczyt spójnego obrazu sejfu w transakcji tylko do odczytu → hurtowe deszyfrowanie → zapis pliku.
+     */
+    private void runExport(Job job, ExportWriter writer) throws Exception {
+        ChunkPipeline pipeline = job.attach(new ChunkPipeline(pipelineQueueCapacity));
+        try {
+            pipeline.run(sink -> readSnapshot(job.vault, sink), chunk -> decryptChunk(job.vault, chunk), writer::write, stageExecutor);
+        } catch (Exception e) {
+            try {
+                fileStorageService.deleteFile(job.path()); // Nie zostawiamy niepełnego pliku
+            } catch (IOException deleteError) {
+                e.addSuppressed(deleteError);
+            }
+            throw e;
+        }
+    }
+
+    private void readSnapshot(String vault, ChunkPipeline.ChunkSink sink) {
+        snapshotTransaction.executeWithoutResult(status -> {
+            try (Stream<PasswordEntry> managed = passwordRepository.streamAll(vault)) {
+                List<PasswordEntry> chunk = new ArrayList<>(PasswordService.EXPORT_CHUNK_SIZE);
+                Iterator<PasswordEntry> iterator = managed.iterator();
+                while (iterator.hasNext()) {
+                    PasswordEntry p = iterator.next();
+                    chunk.add(new PasswordEntry(p.getId(), p.getWebsite(), p.getUsername(), p.getEncryptedPassword()));
+                    if (chunk.size() == PasswordService.EXPORT_CHUNK_SIZE) {
+                        entityManager.clear(); // Odłączone kopie - kontekst persystencji nie rośnie
+                        sink.accept(chunk);
+                        chunk = new ArrayList<>(PasswordService.EXPORT_CHUNK_SIZE);
+                    }
+                }
+                if (!chunk.isEmpty()) {
+                    sink.accept(chunk);
+                }
+            }
+        });
+    }
+
+    private List<PasswordEntry> decryptChunk(String vault, List<PasswordEntry> chunk) {
+        List<String> plainTexts = encryptionService.decryptAll(vault, chunk.stream().map(PasswordEntry::getEncryptedPassword).toList());
+        for (int i = 0; i < chunk.size(); i++) {
+            chunk.get(i).setEncryptedPassword(plainTexts.get(i)); // Kopie odłączone od bazy
+        }
+        return chunk;
+    }
+
+    /** Strumień wpisów z porcji potoku; liczy wiersze przekazane do zapisu. */
+    private static Stream<PasswordEntry> entries(Iterator<List<PasswordEntry>> chunks, Job job) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(chunks, Spliterator.ORDERED), false)
+                .peek(chunk -> job.rowsProcessed.addAndGet(chunk.size()))
+                .flatMap(List::stream);
+    }
+
+    /**
+     * Import: strumieniowy odczyt pliku w porcje → hurtowe szyfrowanie → zapis porcji (batch JDBC) i indeksu wyszukiwania.
+     */
+    private void runImport(Job job, ImportReader reader) throws Exception {
+        ChunkPipeline pipeline = job.attach(new ChunkPipeline(pipelineQueueCapacity));
+        pipeline.run(sink -> {
+                    ChunkBuffer buffer = new ChunkBuffer(job.vault, sink);
+                    reader.read(buffer);
+                    buffer.flush();
+                },
+                chunk -> encryptChunk(job.vault, chunk),
+                chunks -> {
+                    while (chunks.hasNext()) {
+                        List<PasswordEntry> chunk = chunks.next();
+                        long revision = revisionCounter.begin(job.vault); // Jedna rewizja na porcję (jedną transakcję)
+                        try {
+                            chunk.forEach(entry -> entry.setRevision(revision));
+                            job.rowsProcessed.addAndGet(passwordBatchWriter.writeChunk(chunk));
+                        } finally {
+                            revisionCounter.complete(revision);
+                        }
+                        searchIndex.putAll(chunk);
+                    }
+                },
+                stageExecutor);
+    }
+
+    private List<PasswordEntry> encryptChunk(String vault, List<PasswordEntry> chunk) {
+        List<String> plain = chunk.stream().map(PasswordEntry::getEncryptedPassword).toList();
+        List<String> encrypted = encryptionService.encryptAll(vault, plain);
+        List<String> fingerprints = encryptionService.fingerprintAll(vault, plain);
+        for (int i = 0; i < chunk.size(); i++) {
+            chunk.get(i).setEncryptedPassword(encrypted.get(i));
+            chunk.get(i).setPasswordFingerprint(fingerprints.get(i));
+            chunk.get(i).setStrengthScore(strengthEstimator.score(plain.get(i), chunk.get(i).getWebsite(), chunk.get(i).getUsername()));
+        }
+        return chunk;
+    }
+
+    /**
+     * Grupuje wczytywane wpisy sejfu w porcje po {@code passwords.import.batch-size}.
+     */
+    private final class ChunkBuffer {
+
+        private final String vault;
+        private final ChunkPipeline.ChunkSink sink;
+        private List<PasswordEntry> chunk = new ArrayList<>(importBatchSize);
+
+        ChunkBuffer(String vault, ChunkPipeline.ChunkSink sink) {
+            this.vault = vault;
+            this.sink = sink;
+        }
+
+        void add(PasswordEntry entry) {
+            entry.setId(null); // Nowy wpis - id nada sekwencja
+            entry.setOwner(vault);
+            chunk.add(entry);
+            if (chunk.size() >= importBatchSize) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (!chunk.isEmpty()) {
+                sink.accept(chunk);
+                chunk = new ArrayList<>(importBatchSize);
+            }
+        }
+    }
+
+    /**
+     * Przepakowanie kluczy: porcja wpisów wszystkich sejfów w kolejności id (kursor po ostatnim id) →
+     * {@link EncryptionService#rewrap(String, String)} kluczem sejfu właściciela i zamiana warunkowa.
+     * Bez potoku i bez długiej transakcji - każda zamiana jest osobnym, krótkim zapisem.
+     */
+    private void runKeyRotation(Job job) throws InterruptedException {
+        int batchSize = Math.max(1, rotationBatchSize);
+        long pauseNanos = rotationRowsPerSecond > 0 ? TimeUnit.SECONDS.toNanos(batchSize) / rotationRowsPerSecond : 0;
+        long lastId = Long.MIN_VALUE;
+        while (true) {
+            if (job.cancelRequested) {
+                throw new CancellationException("Zadanie anulowane");
+            }
+            long started = System.nanoTime();
+            List<PasswordEntry> page = passwordRepository.findAllAfterId(lastId, batchSize);
+            if (page.isEmpty()) {
+                return;
+            }
+            for (PasswordEntry entry : page) {
+                String current = entry.getEncryptedPassword();
+                if (encryptionService.needsRewrap(entry.getOwner(), current)) {
+                    passwordRepository.replaceEncryptedPassword(entry.getId(), current,
+                            encryptionService.rewrap(entry.getOwner(), current));
+                }
+            }
+            job.rowsProcessed.addAndGet(page.size());
+            lastId = page.get(page.size() - 1).getId();
+            long remaining = pauseNanos - (System.nanoTime() - started);
+            if (remaining > 0) {
+                TimeUnit.NANOSECONDS.sleep(remaining); // Ograniczenie tempa - rotacja nie konkuruje z ruchem użytkowników
+            }
+        }
+    }
+
+    /**
+     * Uzupełnienie odcisków: porcja wpisów bez odcisku w kolejności id (kursor po ostatnim id) → deszyfrowanie
+     * i odciski hurtowo, osobno dla każdego sejfu w porcji → zapis warunkowy względem odczytanego szyfrogramu.
+     * Wpis, którego zapis został odrzucony (zmieniony lub usunięty), nie wraca w kolejnych porcjach - kursor idzie dalej.
+     */
+    private void runFingerprintBackfill(Job job) {
+        int batchSize = Math.max(1, backfillBatchSize);
+        long lastId = Long.MIN_VALUE;
+        while (true) {
+            if (job.cancelRequested) {
+                throw new CancellationException("Zadanie anulowane");
+            }
+            List<PasswordEntry> page = passwordRepository.findWithoutFingerprintAfterId(lastId, batchSize);
+            if (page.isEmpty()) {
+                return;
+            }
+            Map<String, List<PasswordEntry>> byVault = page.stream()
+                    .collect(Collectors.groupingBy(PasswordEntry::getOwner, LinkedHashMap::new, Collectors.toList()));
+            byVault.forEach((vault, entries) -> {
+                List<String> encrypted = entries.stream().map(PasswordEntry::getEncryptedPassword).toList();
+                List<String> fingerprints = encryptionService.fingerprintAll(vault, encryptionService.decryptAll(vault, encrypted));
+                for (int i = 0; i < entries.size(); i++) {
+                    passwordRepository.updatePasswordFingerprint(entries.get(i).getId(), encrypted.get(i), fingerprints.get(i));
+                }
+            });
+            job.rowsProcessed.addAndGet(page.size());
+            lastId = page.get(page.size() - 1).getId();
+        }
+    }
+
+    /**
+     * Uzupełnienie ocen siły: porcja wpisów bez oceny w kolejności id (kursor po ostatnim id) → deszyfrowanie
+     * hurtowo, osobno dla każdego sejfu w porcji, i ocena haseł → zapis warunkowy względem odczytanego szyfrogramu.
+     * Ocena jest częścią odpowiedzi z wpisem, więc każda porcja sejfu dostaje nową rewizję - zmieniają się ETagi
+     * ocenionych wpisów i list sejfu.
+     */
+    private void runStrengthBackfill(Job job) {
+        int batchSize = Math.max(1, backfillBatchSize);
+        long lastId = Long.MIN_VALUE;
+        while (true) {
+            if (job.cancelRequested) {
+                throw new CancellationException("Zadanie anulowane");
+            }
+            List<PasswordEntry> page = passwordRepository.findWithoutStrengthAfterId(lastId, batchSize);
+            if (page.isEmpty()) {
+                return;
+            }
+            Map<String, List<PasswordEntry>> byVault = page.stream()
+                    .collect(Collectors.groupingBy(PasswordEntry::getOwner, LinkedHashMap::new, Collectors.toList()));
+            byVault.forEach((vault, entries) -> {
+                List<String> encrypted = entries.stream().map(PasswordEntry::getEncryptedPassword).toList();
+                List<String> plain = encryptionService.decryptAll(vault, encrypted);
+                long revision = revisionCounter.begin(vault);
+                try {
+                    for (int i = 0; i < entries.size(); i++) {
+                        PasswordEntry entry = entries.get(i);
+                        int score = strengthEstimator.score(plain.get(i), entry.getWebsite(), entry.getUsername());
+                        if (passwordRepository.updateStrengthScore(entry.getId(), encrypted.get(i), score, revision)) {
+                            secretCache.invalidate(vault, entry.getId()); // Wpis w pamięci podręcznej ma poprzednią rewizję
+                            entryRevisions.update(vault, entry.getId(), revision);
+                        }
+                    }
+                } finally {
+                    revisionCounter.complete(revision);
+                }
+            });
+            job.rowsProcessed.addAndGet(page.size());
+            lastId = page.get(page.size() - 1).getId();
+        }
+    }
+
+    /** Usuwa najstarsze zakończone zadania ponad {@code jobs.history-size}. */
+    private void pruneHistory() {
+        List<Job> finished = jobs.values().stream()
+                .filter(job -> job.state.isFinished())
+                .sorted((a, b) -> a.submittedAt.compareTo(b.submittedAt))
+                .toList();
+        for (int i = 0; i < finished.size() - historySize + 1; i++) {
+            jobs.remove(finished.get(i).id);
+        }
+    }
+
+    /**
+     * Zadanie w tle - stan zmieniany przez wątek zadania, odczytywany przez wątki żądań.
+     */
+    private static final class Job {
+
+        final String id;
+        final String type;
+        final String vault;
+        final String fileName;
+        final String path;
+        final Instant submittedAt = Instant.now();
+        final AtomicLong rowsProcessed = new AtomicLong();
+
+        volatile JobState state = JobState.QUEUED;
+        volatile Instant startedAt;
+        volatile Instant finishedAt;
+        volatile String error;
+        volatile boolean cancelRequested;
+        volatile Future<?> future;
+        volatile ChunkPipeline pipeline;
+
+        Job(String id, String type, String vault, String fileName) {
+            this.id = id;
+            this.type = type;
+            this.vault = vault;
+            this.fileName = fileName;
+            // Nieprawidłową nazwę pliku odrzucamy przy zgłoszeniu, a nie dopiero w wątku zadania
+            this.path = fileName != null ? VaultContext.fileName(vault, fileName) : null;
+        }
+
+        /** Ścieżka pliku zadania w katalogu sejfu ({@link VaultContext#fileName(String, String)}). */
+        String path() {
+            return path;
+        }
+
+        synchronized boolean start() {
+            if (cancelRequested) {
+                return false;
+            }
+            state = JobState.RUNNING;
+            startedAt = Instant.now();
+            return true;
+        }
+
+        /** Wiąże potok z zadaniem, aby {@link #cancel()} mógł go przerwać. */
+        synchronized ChunkPipeline attach(ChunkPipeline pipeline) {
+            if (cancelRequested) {
+                throw new CancellationException("Zadanie anulowane");
+            }
+            this.pipeline = pipeline;
+            return pipeline;
+        }
+
+        synchronized void finish(JobState finalState, String errorMessage) {
+            state = finalState;
+            error = errorMessage;
+            finishedAt = Instant.now();
+        }
+
+        synchronized void cancel() {
+            if (state.isFinished()) {
+                return;
+            }
+            cancelRequested = true;
+            if (state == JobState.QUEUED) {
+                if (future != null) {
+                    future.cancel(false);
+                }
+                finish(JobState.CANCELLED, null);
+            } else if (pipeline != null) {
+                pipeline.cancel();
+            }
+        }
+
+        JobInfo toInfo() {
+            Instant start = startedAt;
+            Instant end = finishedAt != null ? finishedAt : Instant.now();
+            long rows = rowsProcessed.get();
+            double rowsPerSecond = 0;
+            if (start != null) {
+                long millis = Math.max(1, Duration.between(start, end).toMillis());
+                rowsPerSecond = rows * 1000.0 / millis;
+            }
+            return new JobInfo(id, type, fileName, state, rows, rowsPerSecond, submittedAt, start, finishedAt, error);
+        }
+    }
+}
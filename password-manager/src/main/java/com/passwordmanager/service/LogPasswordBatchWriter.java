@@ -0,0 +1,51 @@
+package com.passwordmanager.service;
+
+import com.passwordmanager.model.PasswordEntry;
+import com.passwordmanager.repository.PasswordRepository;
+import jakarta.persistence.EntityManager;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * {@link PasswordBatchWriter} dla magazynu w pliku dziennika ({@code passwords.storage.type=log}):
+ * porcja importu lub zmian trafia do dziennika jednym commitem przez {@link PasswordRepository#saveAll(Iterable)},
+ * bez kontekstu persystencji i transakcji JPA.
+ */
+@Component
+@Primary
+@ConditionalOnProperty(name = "passwords.storage.type", havingValue = "log")
+public class LogPasswordBatchWriter extends PasswordBatchWriter {
+
+    private final PasswordRepository passwordRepository;
+
+    public LogPasswordBatchWriter(EntityManager entityManager, PasswordRepository passwordRepository) {
+        super(entityManager);
+        this.passwordRepository = passwordRepository;
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public int writeChunk(List<PasswordEntry> encryptedEntries) {
+        return passwordRepository.saveAll(encryptedEntries).size();
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<PasswordEntry> updateChunk(String owner, List<PasswordEntry> changes, long revision) {
+        Map<Long, PasswordEntry> byId = changes.stream().collect(Collectors.toMap(PasswordEntry::getId, Function.identity()));
+        List<PasswordEntry> existing = passwordRepository.findAllById(byId.keySet()).stream()
+                .filter(entry -> entry.getOwner().equals(owner))
+                .collect(Collectors.toCollection(ArrayList::new));
+        applyChanges(existing, byId, revision);
+        return passwordRepository.saveAll(existing);
+    }
+}
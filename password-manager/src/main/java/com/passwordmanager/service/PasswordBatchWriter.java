@@ -0,0 +1,77 @@
+package com.passwordmanager.service;
+
+import com.passwordmanager.model.PasswordEntry;
+import jakarta.persistence.EntityManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Zapisuje i zmienia porcje (chunki) już zaszyfrowanych wpisów w osobnych transakcjach.
+ * Wydzielony do osobnego komponentu, aby {@link Transactional} działało przez proxy Springa
+ * także przy wywołaniach z {@link PasswordService}.
+ */
+@Component
+public class PasswordBatchWriter {
+
+    private final EntityManager entityManager;
+
+    public PasswordBatchWriter(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    /**
+     * Utrwala porcję nowych wpisów w jednej transakcji. INSERT-y są grupowane w batche JDBC
+     * (hibernate.jdbc.batch_size), a po zapisie kontekst persystencji jest czyszczony,
+     * więc pamięć nie rośnie wraz z liczbą porcji.
+     * @param encryptedEntries Wpisy z zaszyfrowanymi hasłami i bez id.
+     * @return Liczba zapisanych wpisów.
+     */
+    @Transactional
+    public int writeChunk(List<PasswordEntry> encryptedEntries) {
+        for (PasswordEntry entry : encryptedEntries) {
+            entityManager.persist(entry);
+        }
+        entityManager.flush();
+        entityManager.clear();
+        return encryptedEntries.size();
+    }
+
+    /**
+     * Zmienia porcję istniejących wpisów w jednej transakcji: wpisy są wczytywane jednym zapytaniem
+     * ({@code id in (...)}), a UPDATE-y grupowane w batche JDBC (hibernate.order_updates).
+     * @param owner Sejf; wpisy innych sejfów są traktowane jak nieistniejące.
+     * @param changes Nowe dane wpisów (id, strona, użytkownik, zaszyfrowane hasło).
+     * @param revision Rewizja zmiany.
+     * @return Zmienione wpisy (odłączone, z zaszyfrowanymi hasłami); brakuje w nich wpisów, które nie istnieją.
+     */
+    @Transactional
+    public List<PasswordEntry> updateChunk(String owner, List<PasswordEntry> changes, long revision) {
+        Map<Long, PasswordEntry> byId = changes.stream().collect(Collectors.toMap(PasswordEntry::getId, Function.identity()));
+        List<PasswordEntry> existing = entityManager
+                .createQuery("select p from PasswordEntry p where p.owner = :owner and p.id in :ids", PasswordEntry.class)
+                .setParameter("owner", owner)
+                .setParameter("ids", byId.keySet())
+                .getResultList();
+        applyChanges(existing, byId, revision);
+        entityManager.flush();
+        entityManager.clear();
+        return existing;
+    }
+
+    protected static void applyChanges(List<PasswordEntry> existing, Map<Long, PasswordEntry> changes, long revision) {
+        for (PasswordEntry entry : existing) {
+            PasswordEntry change = changes.get(entry.getId());
+            entry.setWebsite(change.getWebsite());
+            entry.setUsername(change.getUsername());
+            entry.setEncryptedPassword(change.getEncryptedPassword());
+            entry.setPasswordFingerprint(change.getPasswordFingerprint());
+            entry.setStrengthScore(change.getStrengthScore());
+            entry.setRevision(revision);
+        }
+    }
+}
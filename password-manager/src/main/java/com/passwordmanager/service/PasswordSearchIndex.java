@@ -0,0 +1,405 @@
+package com.passwordmanager.service;
+
+import com.passwordmanager.model.PasswordEntry;
+import com.passwordmanager.model.PasswordSummary;
+import com.passwordmanager.repository.PasswordRepository;
+import com.passwordmanager.utill.SortKeys;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Indeks wyszukiwania w pamięci po nazwie strony i użytkowniku (bez haseł), osobny dla każdego sejfu.
+ * <ul>
+ *     <li>prefiks - posortowana mapa kluczy (małe litery) → id, O(log n + k),</li>
+ *     <li>podciąg - indeks trigramów: kandydaci z najrzadszego trigramu zapytania, sprawdzani na tekście,</li>
+ *     <li>wyszukiwanie przybliżone - wspólne trigramy z zapytaniem (np. literówka w jednym znaku).</li>
+ * </ul>
+ * Indeks sejfu jest budowany z bazy przy pierwszym wyszukiwaniu w tym sejfie (sejf domyślny - przy starcie
+ * aplikacji) i aktualizowany przez {@link PasswordService} przy każdym zapisie, zmianie i usunięciu wpisu.
+ * Zmiany w sejfach bez zbudowanego indeksu są pomijane - trafią do indeksu przy jego budowie.
+ * W pamięci jest najwyżej {@code passwords.search.max-vaults} indeksów (najdawniej używane są zwalniane).
+ * Dostęp do indeksu sejfu jest chroniony jego blokadą odczyt/zapis.
+ */
+@Component
+public class PasswordSearchIndex {
+
+    public static final int DEFAULT_LIMIT = 20;
+    public static final int MAX_LIMIT = 100;
+    /** Domyślna liczba sejfów, których indeksy są trzymane w pamięci. */
+    public static final int DEFAULT_MAX_VAULTS = 1000;
+    /** Długość n-gramu; krótsze zapytania są dopasowywane tylko jako prefiks. */
+    static final int GRAM = 3;
+    /** Trigramy występujące w większej liczbie wpisów (np. "com") nie niosą informacji przy wyszukiwaniu przybliżonym. */
+    static final int FUZZY_MAX_POSTINGS = 10_000;
+    /** Minimalny odsetek trigramów zapytania, które musi zawierać wynik przybliżony. */
+    private static final double FUZZY_MIN_SIMILARITY = 0.5;
+
+    private final PasswordRepository passwordRepository;
+    /** Sejf → jego indeks w kolejności ostatniego użycia (chronione przez synchronized). */
+    private final Map<String, VaultIndex> vaults;
+
+    public PasswordSearchIndex(PasswordRepository passwordRepository) {
+        this(passwordRepository, DEFAULT_MAX_VAULTS);
+    }
+
+    @Autowired
+    public PasswordSearchIndex(PasswordRepository passwordRepository,
+                               @Value("${passwords.search.max-vaults:1000}") int maxVaults) {
+        this.passwordRepository = passwordRepository;
+        int capacity = Math.max(1, maxVaults);
+        this.vaults = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, VaultIndex> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Zwalnia zbudowane indeksy i buduje od nowa indeks sejfu domyślnego; pozostałe sejfy
+     * zostaną zaindeksowane przy pierwszym wyszukiwaniu.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        synchronized (vaults) {
+            vaults.clear();
+        }
+        indexOf(PasswordEntry.DEFAULT_OWNER);
+    }
+
+    /**
+     * Dodaje wpis do indeksu jego sejfu lub zastępuje jego poprzednią wersję.
+     * @param entry Zapisany wpis (z nadanym id).
+     */
+    public void put(PasswordEntry entry) {
+        putAll(List.of(entry));
+    }
+
+    /**
+     * Dodaje do indeksów porcję wpisów (np. z importu) - pod jedną blokadą na sejf.
+     * @param entries Zapisane wpisy (z nadanymi id).
+     */
+    public void putAll(List<PasswordEntry> entries) {
+        Map<String, List<PasswordEntry>> byOwner = new HashMap<>();
+        for (PasswordEntry entry : entries) {
+            byOwner.computeIfAbsent(entry.getOwner(), owner -> new ArrayList<>()).add(entry);
+        }
+        byOwner.forEach((owner, changed) -> {
+            VaultIndex index = loadedIndexOf(owner);
+            if (index == null) {
+                return;
+            }
+            index.lock.writeLock().lock();
+            try {
+                for (PasswordEntry entry : changed) {
+                    index.remove(entry.getId());
+                    index.add(new PasswordSummary(entry.getId(), entry.getWebsite(), entry.getUsername(), entry.getLastModified()));
+                }
+            } finally {
+                index.lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Usuwa wpis z indeksu sejfu.
+     * @param owner Sejf wpisu.
+     * @param id Id usuniętego wpisu.
+     */
+    public void delete(String owner, Long id) {
+        VaultIndex index = loadedIndexOf(owner);
+        if (index == null) {
+            return;
+        }
+        index.lock.writeLock().lock();
+        try {
+            index.remove(id);
+        } finally {
+            index.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Wyszukuje wpisy sejfu, których nazwa strony lub użytkownik pasuje do zapytania (bez względu na wielkość liter).
+     * Kolejność wyników: dopasowania prefiksu, potem podciągu, na końcu przybliżone (od najbardziej podobnych).
+     * @param owner Sejf.
+     * @param query Szukany tekst.
+     * @param limit Maksymalna liczba wyników (od 1 do {@link #MAX_LIMIT}).
+     * @return Metadane pasujących wpisów.
+     * @throws IllegalArgumentException Jeśli zapytanie jest puste lub limit jest poza zakresem.
+     */
+    public List<PasswordSummary> search(String owner, String query, int limit) {
+        if (query == null || query.isBlank()) {
+            throw new IllegalArgumentException("Zapytanie wyszukiwania nie może być puste");
+        }
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new IllegalArgumentException("Limit wyników musi wynosić od 1 do " + MAX_LIMIT);
+        }
+        String q = SortKeys.fold(query.trim());
+        Set<Long> hits = new LinkedHashSet<>();
+
+        VaultIndex index = indexOf(owner);
+        index.lock.readLock().lock();
+        try {
+            index.collectPrefixMatches(q, limit, hits);
+            if (q.length() >= GRAM && hits.size() < limit) {
+                index.collectSubstringMatches(q, limit, hits);
+            }
+            if (q.length() >= GRAM && hits.size() < limit) {
+                index.collectFuzzyMatches(q, limit, hits);
+            }
+            List<PasswordSummary> results = new ArrayList<>(hits.size());
+            for (Long id : hits) {
+                results.add(index.documents.get(id).summary);
+            }
+            return results;
+        } finally {
+            index.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Liczba wpisów w zbudowanych indeksach wszystkich sejfów.
+     */
+    public int size() {
+        List<VaultIndex> loaded;
+        synchronized (vaults) {
+            loaded = new ArrayList<>(vaults.values());
+        }
+        int size = 0;
+        for (VaultIndex index : loaded) {
+            index.lock.readLock().lock();
+            try {
+                size += index.documents.size();
+            } finally {
+                index.lock.readLock().unlock();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Indeks sejfu - budowany z bazy, jeśli jeszcze go nie ma. Budowa trzyma blokadę zapisu indeksu
+     * przez cały odczyt z bazy, więc zmiany zgłoszone w tym czasie zostaną zastosowane po niej.
+     */
+    private VaultIndex indexOf(String owner) {
+        VaultIndex index;
+        synchronized (vaults) {
+            index = vaults.computeIfAbsent(owner, key -> new VaultIndex());
+        }
+        if (!index.loaded) {
+            index.lock.writeLock().lock();
+            try {
+                if (!index.loaded) {
+                    for (PasswordSummary summary : passwordRepository.findAllSummaries(owner, Sort.by("id"))) {
+                        index.remove(summary.getId());
+                        index.add(summary);
+                    }
+                    index.loaded = true;
+                }
+            } finally {
+                index.lock.writeLock().unlock();
+            }
+        }
+        return index;
+    }
+
+    /** Indeks sejfu, jeśli jest w pamięci (także w trakcie budowy); null w przeciwnym razie. */
+    private VaultIndex loadedIndexOf(String owner) {
+        synchronized (vaults) {
+            return vaults.get(owner);
+        }
+    }
+
+    /**
+     * Indeks jednego sejfu: dokumenty, prefiksy i trigramy.
+     */
+    private static final class VaultIndex {
+
+        final ReadWriteLock lock = new ReentrantReadWriteLock();
+        final Map<Long, Document> documents = new HashMap<>();
+        final NavigableMap<String, Postings> prefixes = new TreeMap<>();
+        final Map<String, Postings> grams = new HashMap<>();
+        /** Czy indeks został zbudowany z bazy (zapisywane pod blokadą zapisu). */
+        volatile boolean loaded;
+
+        void collectPrefixMatches(String q, int limit, Set<Long> hits) {
+            for (Postings postings : prefixes.subMap(q, true, q + Character.MAX_VALUE, false).values()) {
+                for (int i = 0; i < postings.size && hits.size() < limit; i++) {
+                    hits.add(postings.ids[i]);
+                }
+                if (hits.size() >= limit) {
+                    return;
+                }
+            }
+        }
+
+        void collectSubstringMatches(String q, int limit, Set<Long> hits) {
+            Postings rarest = null;
+            for (String gram : gramsOf(q)) {
+                Postings postings = grams.get(gram);
+                if (postings == null) {
+                    return; // Trigram zapytania nie występuje nigdzie - brak dopasowań podciągu
+                }
+                if (rarest == null || postings.size < rarest.size) {
+                    rarest = postings;
+                }
+            }
+            for (int i = 0; i < rarest.size && hits.size() < limit; i++) {
+                long id = rarest.ids[i];
+                Document document = documents.get(id);
+                if (document.website.contains(q) || document.username.contains(q)) {
+                    hits.add(id);
+                }
+            }
+        }
+
+        void collectFuzzyMatches(String q, int limit, Set<Long> hits) {
+            Set<String> queryGrams = gramsOf(q);
+            Map<Long, Integer> shared = new HashMap<>();
+            for (String gram : queryGrams) {
+                Postings postings = grams.get(gram);
+                if (postings == null || postings.size > FUZZY_MAX_POSTINGS) {
+                    continue;
+                }
+                for (int i = 0; i < postings.size; i++) {
+                    shared.merge(postings.ids[i], 1, Integer::sum);
+                }
+            }
+            int required = (int) Math.ceil(queryGrams.size() * FUZZY_MIN_SIMILARITY);
+            shared.entrySet().stream()
+                    .filter(e -> e.getValue() >= required && !hits.contains(e.getKey()))
+                    .sorted(Map.Entry.<Long, Integer>comparingByValue().reversed().thenComparing(Map.Entry.<Long, Integer>comparingByKey()))
+                    .limit(limit - hits.size())
+                    .forEach(e -> hits.add(e.getKey()));
+        }
+
+        // --- Modyfikacje; wywoływane pod blokadą zapisu ---
+
+        void add(PasswordSummary summary) {
+            Document document = new Document(summary);
+            documents.put(summary.getId(), document);
+            for (String key : document.keys()) {
+                prefixes.computeIfAbsent(key, k -> new Postings()).add(summary.getId());
+            }
+            for (String gram : document.grams()) {
+                grams.computeIfAbsent(gram, g -> new Postings()).add(summary.getId());
+            }
+        }
+
+        void remove(Long id) {
+            Document document = documents.remove(id);
+            if (document == null) {
+                return;
+            }
+            for (String key : document.keys()) {
+                removePosting(prefixes, key, id);
+            }
+            for (String gram : document.grams()) {
+                removePosting(grams, gram, id);
+            }
+        }
+    }
+
+    private static void removePosting(Map<String, Postings> index, String key, long id) {
+        Postings postings = index.get(key);
+        if (postings != null && postings.remove(id) && postings.size == 0) {
+            index.remove(key);
+        }
+    }
+
+    private static Set<String> gramsOf(String text) {
+        Set<String> result = new LinkedHashSet<>();
+        for (int i = 0; i + GRAM <= text.length(); i++) {
+            result.add(text.substring(i, i + GRAM));
+        }
+        return result;
+    }
+
+    /**
+     * Zaindeksowany wpis: metadane zwracane w wynikach oraz klucze (małe litery) do dopasowań.
+     */
+    private static final class Document {
+
+        final PasswordSummary summary;
+        final String website;
+        final String username;
+
+        Document(PasswordSummary summary) {
+            this.summary = summary;
+            this.website = SortKeys.fold(summary.getWebsite());
+            this.username = SortKeys.fold(summary.getUsername());
+        }
+
+        Set<String> keys() {
+            Set<String> keys = new LinkedHashSet<>(2);
+            keys.add(website);
+            keys.add(username);
+            return keys;
+        }
+
+        Set<String> grams() {
+            Set<String> result = gramsOf(website);
+            result.addAll(gramsOf(username));
+            return result;
+        }
+    }
+
+    /**
+     * Posortowana rosnąco lista id (tablica prymitywów zamiast zbioru obiektów Long).
+     * Nowe wpisy mają zwykle największe id, więc dodanie to najczęściej dopisanie na końcu.
+     */
+    static final class Postings {
+
+        long[] ids = new long[4];
+        int size;
+
+        void add(long id) {
+            if (size > 0 && ids[size - 1] >= id) {
+                int index = Arrays.binarySearch(ids, 0, size, id);
+                if (index >= 0) {
+                    return;
+                }
+                insert(-index - 1, id);
+                return;
+            }
+            insert(size, id);
+        }
+
+        boolean remove(long id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+            size--;
+            return true;
+        }
+
+        private void insert(int index, long id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, index, ids, index + 1, size - index);
+            ids[index] = id;
+            size++;
+        }
+    }
+}
@@ -1,131 +1,883 @@
 
 package com.passwordmanager.service;
 
+import com.passwordmanager.model.BatchItemResult;
+import com.passwordmanager.model.ChangeExportSummary;
+import com.passwordmanager.model.ChangeSince;
+import com.passwordmanager.model.ImportSummary;
+import com.passwordmanager.model.PageCursor;
+import com.passwordmanager.model.PageSort;
 import com.passwordmanager.model.PasswordEntry;
+import com.passwordmanager.model.PasswordPage;
+import com.passwordmanager.model.PasswordSecret;
+import com.passwordmanager.model.PasswordSummary;
+import com.passwordmanager.model.PasswordTombstone;
+import com.passwordmanager.model.ReuseReport;
+import com.passwordmanager.model.StrengthReport;
 import com.passwordmanager.repository.PasswordRepository;
+import com.passwordmanager.service.breach.BreachedPasswordChecker;
+import com.passwordmanager.service.breach.BreachedPasswordException;
+import com.passwordmanager.service.format.Compression;
+import com.passwordmanager.service.strength.PasswordStrengthEstimator;
+import com.passwordmanager.utill.CollationSort;
 import com.passwordmanager.utill.PasswordGenerator;
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 @Service
+@Timed("passwords.service") // Timer dla każdej publicznej operacji (tag method)
 public class PasswordService {
 
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 500;
+    /** Maksymalna liczba operacji w jednym żądaniu hurtowym (jedna transakcja). */
+    public static final int MAX_BATCH_SIZE = 1000;
+    /** Co tyle wpisów eksport czyści kontekst persystencji, aby nie gromadził encji. */
+    static final int EXPORT_CHUNK_SIZE = PasswordRepository.STREAM_FETCH_SIZE;
+    /** Liczba blokad szeregujących zmiany tego samego wpisu (wpis → blokada po id). */
+    private static final int ENTRY_LOCK_STRIPES = 64;
+
     private final PasswordRepository passwordRepository;
     private final EncryptionService encryptionService;
     private final PasswordGenerator passwordGenerator;
     private final FileStorageService fileStorageService;
+    private final EntityManager entityManager;
+    private final PasswordBatchWriter passwordBatchWriter;
+    private final PasswordSearchIndex searchIndex;
+    private final SecretCache secretCache;
+    private final RevisionCounter revisionCounter;
+    private final EntryRevisions entryRevisions;
+    private final VaultContext vaultContext;
+    private final BreachedPasswordChecker breachedPasswordChecker;
+    private final PasswordStrengthEstimator strengthEstimator;
+    private final ReentrantLock[] entryLocks = new ReentrantLock[ENTRY_LOCK_STRIPES];
+
+    /** Rozmiar porcji importu - zgodny z hibernate.jdbc.batch_size, jedna transakcja na porcję. */
+    @Value("${passwords.import.batch-size:500}")
+    private int importBatchSize = 500;
+
+    /** Czy odrzucać zapis hasła z korpusu wycieków; domyślnie wpis jest zapisywany z ostrzeżeniem ({@code breached}). */
+    @Value("${passwords.breach.reject:false}")
+    private boolean rejectBreached;
 
     public PasswordService(PasswordRepository passwordRepository,
                            EncryptionService encryptionService,
                            PasswordGenerator passwordGenerator,
-                           FileStorageService fileStorageService) {
+                           FileStorageService fileStorageService,
+                           EntityManager entityManager,
+                           PasswordBatchWriter passwordBatchWriter,
+                           PasswordSearchIndex searchIndex,
+                           SecretCache secretCache,
+                           RevisionCounter revisionCounter,
+                           EntryRevisions entryRevisions,
+                           VaultContext vaultContext,
+                           BreachedPasswordChecker breachedPasswordChecker,
+                           PasswordStrengthEstimator strengthEstimator) {
         this.passwordRepository = passwordRepository;
         this.encryptionService = encryptionService;
         this.passwordGenerator = passwordGenerator;
         this.fileStorageService = fileStorageService;
+        this.entityManager = entityManager;
+        this.passwordBatchWriter = passwordBatchWriter;
+        this.searchIndex = searchIndex;
+        this.secretCache = secretCache;
+        this.revisionCounter = revisionCounter;
+        this.entryRevisions = entryRevisions;
+        this.vaultContext = vaultContext;
+        this.breachedPasswordChecker = breachedPasswordChecker;
+        this.strengthEstimator = strengthEstimator;
+        for (int i = 0; i < entryLocks.length; i++) {
+            entryLocks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Zwraca metadane wszystkich wpisów (id, strona, użytkownik, data modyfikacji) bez odczytu
+     * i deszyfrowania haseł, posortowane w bazie po wybranym kluczu. Jak wszystkie operacje serwisu
+     * dotyczy tylko sejfu bieżącego użytkownika ({@link VaultContext}).
+     * Sortowanie korzysta z indeksu {@code (owner, klucz, id)}; przy równych kluczach decyduje id.
+     * @param sort Klucz sortowania.
+     * @param direction Kierunek sortowania.
+     * @return Lista metadanych wpisów.
+     */
+    public List<PasswordSummary> getPasswordSummaries(PageSort sort, Sort.Direction direction) {
+        Sort order = sort == PageSort.ID
+                ? Sort.by(direction, "id")
+                : Sort.by(new Sort.Order(direction, sort.getProperty()), new Sort.Order(direction, "id"));
+        return passwordRepository.findAllSummaries(vaultContext.currentVault(), order);
+    }
+
+    /**
+     * Wyszukuje wpisy po nazwie strony lub użytkowniku w indeksie w pamięci (bez zapytań do bazy).
+     * @param query Szukany tekst (prefiks, podciąg lub tekst z literówką).
+     * @param limit Maksymalna liczba wyników.
+     * @return Metadane pasujących wpisów, od najlepiej dopasowanych.
+     * @throws IllegalArgumentException Jeśli zapytanie jest puste lub limit jest poza zakresem.
+     */
+    public List<PasswordSummary> searchPasswords(String query, int limit) {
+        return searchIndex.search(vaultContext.currentVault(), query, limit);
+    }
+
+    /**
+     * Wykrywa powtórzone hasła w sejfie: grupy wpisów o tym samym odcisku hasła
+     * ({@link EncryptionService#fingerprint(String, String)}), wyznaczane jednym zapytaniem grupującym
+     * po indeksie odcisków - bez odczytu i deszyfrowania haseł.
+     * @return Grupy powtórzonych haseł i liczba wpisów bez odcisku (do uzupełnienia zadaniem w tle).
+     */
+    public ReuseReport findReusedPasswords() {
+        String vault = vaultContext.currentVault();
+        return new ReuseReport(passwordRepository.findReusedPasswords(vault), passwordRepository.countWithoutFingerprint(vault));
+    }
+
+    /**
+     * Wykrywa słabe hasła w sejfie: wpisy z oceną siły ({@link PasswordStrengthEstimator}) nie wyższą niż
+     * {@code maxScore}, pogrupowane po ocenie. Oceny są wyliczane przy zapisie, więc raport to zakres indeksu
+     * {@code (owner, strength_score, id)} - bez odczytu i deszyfrowania haseł.
+     * @param maxScore Najwyższa ocena uznawana za słabą (0-4).
+     * @return Grupy słabych haseł i liczba wpisów bez oceny (do uzupełnienia zadaniem w tle).
+     * @throws IllegalArgumentException Jeśli ocena jest poza zakresem 0-4.
+     */
+    public StrengthReport findWeakPasswords(int maxScore) {
+        if (maxScore < PasswordStrengthEstimator.MIN_SCORE || maxScore > PasswordStrengthEstimator.MAX_SCORE) {
+            throw new IllegalArgumentException("Ocena siły hasła musi wynosić od " + PasswordStrengthEstimator.MIN_SCORE
+                    + " do " + PasswordStrengthEstimator.MAX_SCORE);
+        }
+        String vault = vaultContext.currentVault();
+        return new StrengthReport(maxScore, passwordRepository.findWeakPasswords(vault, maxScore),
+                passwordRepository.countWithoutStrength(vault));
+    }
+
+    /**
+     * Deszyfruje hasło pojedynczego wpisu ("pokaż hasło"). Z bazy odczytywana jest tylko kolumna z hasłem.
+     * @param id Id wpisu.
+     * @return Odszyfrowane hasło lub pusty Optional, jeśli wpis nie istnieje.
+     */
+    public Optional<PasswordSecret> getPasswordSecret(Long id) {
+        String vault = vaultContext.currentVault();
+        return passwordRepository.findEncryptedPasswordById(vault, id)
+                .map(encrypted -> new PasswordSecret(id, encryptionService.decrypt(vault, encrypted)));
     }
 
+    @Transactional(readOnly = true)
     public List<PasswordEntry> getAllPasswords() {
-        List<PasswordEntry> passwords = passwordRepository.findAll();
-        passwords.forEach(p -> p.setEncryptedPassword(encryptionService.decrypt(p.getEncryptedPassword())));
+        String vault = vaultContext.currentVault();
+        List<PasswordEntry> passwords;
+        try (Stream<PasswordEntry> entries = passwordRepository.streamAll(vault)) {
+            passwords = entries.collect(Collectors.toCollection(ArrayList::new));
+        }
+        decryptInPlace(vault, passwords);
         return passwords;
     }
 
+    /**
+     * Zwraca pojedynczą stronę metadanych haseł przy użyciu stronicowania kursorowego (keyset).
+     * Z bazy pobierana jest tylko dana strona (plus jeden wiersz do wykrycia kolejnej strony),
+     * bez kolumny z hasłem - nic nie jest deszyfrowane.
+     * @param cursor Token kursora z poprzedniej strony lub null dla pierwszej strony.
+     * @param size Rozmiar strony (od 1 do {@link #MAX_PAGE_SIZE}).
+     * @param sort Klucz sortowania; musi być zgodny z kluczem zapisanym w kursorze.
+     * @param direction Kierunek sortowania; musi być zgodny z kierunkiem zapisanym w kursorze.
+     * @param includeTotal Jeśli true, odpowiedź zawiera łączną liczbę wpisów.
+     * @return Strona metadanych wpisów i kursor następnej strony.
+     * @throws IllegalArgumentException Jeśli rozmiar strony lub kursor są nieprawidłowe.
+     */
+    public PasswordPage getPasswordsPage(String cursor, int size, PageSort sort, Sort.Direction direction, boolean includeTotal) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Rozmiar strony musi wynosić od 1 do " + MAX_PAGE_SIZE);
+        }
+        PageCursor after = cursor == null || cursor.isBlank() ? null : PageCursor.decode(cursor);
+        if (after != null && (after.getSort() != sort || after.getDirection() != direction)) {
+            throw new IllegalArgumentException("Kursor dotyczy innego sortowania: " + after.getSort() + " " + after.getDirection());
+        }
+
+        // +1 wiersz, aby wiedzieć, czy istnieje kolejna strona
+        String vault = vaultContext.currentVault();
+        List<PasswordSummary> rows = passwordRepository.findSummaryPage(vault, sort, direction, after, size + 1);
+
+        String nextCursor = null;
+        List<PasswordSummary> items = rows;
+        if (rows.size() > size) {
+            items = rows.subList(0, size);
+            PasswordSummary last = items.get(size - 1);
+            nextCursor = new PageCursor(sort, direction, last.getId(), sort.keyOf(last)).encode();
+        }
+        Long totalCount = includeTotal ? passwordRepository.countByOwner(vault) : null;
+        return new PasswordPage(items, nextCursor, totalCount);
+    }
+
+    /**
+     * Deszyfruje hasła wszystkich podanych wpisów jednym wywołaniem hurtowym
+     * (równolegle dla dużych list).
+     */
+    private void decryptInPlace(String vault, List<PasswordEntry> entries) {
+        List<String> plainTexts = encryptionService.decryptAll(vault, entries.stream().map(PasswordEntry::getEncryptedPassword).toList());
+        for (int i = 0; i < entries.size(); i++) {
+            entries.get(i).setEncryptedPassword(plainTexts.get(i));
+        }
+    }
+
+    /**
+     * Zwraca odszyfrowany wpis. Jeśli włączona jest pamięć podręczna ({@code passwords.cache.enabled}),
+     * często odczytywane wpisy nie są za każdym razem pobierane z bazy i deszyfrowane.
+     * @param id Id wpisu.
+     * @return Odszyfrowany wpis lub pusty Optional, jeśli nie istnieje.
+     */
     public Optional<PasswordEntry> getPasswordById(Long id) {
-        return passwordRepository.findById(id)
+        String vault = vaultContext.currentVault();
+        // Klucz pamięci podręcznej to (sejf, id) - wpis z cudzego sejfu jest traktowany jak brak wpisu
+        Optional<PasswordEntry> entry = secretCache.get(vault, id, key -> loadDecrypted(vault, key));
+        entry.ifPresent(found -> entryRevisions.update(vault, id, found.getRevision()));
+        return entry;
+    }
+
+    /**
+     * Zwraca ostatnią znaną rewizję wpisu bez odczytu z bazy - do obsługi warunkowego GET ({@code If-None-Match}).
+     * @param id Id wpisu.
+     * @return Rewizja wpisu lub pusty wynik, jeśli nie jest znana (wpis nieodczytany od startu lub usunięty).
+     */
+    public OptionalLong getKnownRevision(Long id) {
+        return entryRevisions.get(vaultContext.currentVault(), id);
+    }
+
+    /** Ocena siły hasła jawnego wpisu; strona i użytkownik obniżają ocenę haseł, które je powtarzają. */
+    private int strengthScore(PasswordEntry plainEntry) {
+        return strengthEstimator.score(plainEntry.getEncryptedPassword(), plainEntry.getWebsite(), plainEntry.getUsername());
+    }
+
+    private Optional<PasswordEntry> loadDecrypted(String vault, Long id) {
+        return passwordRepository.findByIdAndOwner(id, vault)
                 .map(p -> {
-                    p.setEncryptedPassword(encryptionService.decrypt(p.getEncryptedPassword()));
+                    p.setEncryptedPassword(encryptionService.decrypt(vault, p.getEncryptedPassword()));
                     return p;
                 });
     }
 
+    /**
+     * Zapisuje nowy wpis w sejfie bieżącego użytkownika. Hasło jest przed zaszyfrowaniem sprawdzane w korpusie
+     * wycieków ({@link BreachedPasswordChecker}) - wynik trafia do {@code breached} zapisanego wpisu - i oceniane
+     * ({@link PasswordStrengthEstimator}) - ocena jest zapisywana w {@code strengthScore}.
+     * @param passwordEntry Wpis z hasłem jawnym.
+     * @return Zapisany wpis z hasłem jawnym.
+     * @throws BreachedPasswordException Jeśli hasło wyciekło, a {@code passwords.breach.reject=true}.
+     */
     public PasswordEntry savePassword(PasswordEntry passwordEntry) {
-        String encryptedPass = encryptionService.encrypt(passwordEntry.getEncryptedPassword());
+        String vault = vaultContext.currentVault();
+        boolean breached = breachedPasswordChecker.isBreached(passwordEntry.getEncryptedPassword());
+        if (breached && rejectBreached) {
+            throw new BreachedPasswordException();
+        }
+        passwordEntry.setPasswordFingerprint(encryptionService.fingerprint(vault, passwordEntry.getEncryptedPassword()));
+        passwordEntry.setStrengthScore(strengthScore(passwordEntry));
+        String encryptedPass = encryptionService.encrypt(vault, passwordEntry.getEncryptedPassword());
         passwordEntry.setEncryptedPassword(encryptedPass);
-        PasswordEntry savedEntry = passwordRepository.save(passwordEntry);
-        savedEntry.setEncryptedPassword(encryptionService.decrypt(savedEntry.getEncryptedPassword()));
+        passwordEntry.setOwner(vault);
+        PasswordEntry savedEntry;
+        long revision = revisionCounter.begin(vault);
+        try {
+            passwordEntry.setRevision(revision);
+            savedEntry = passwordRepository.save(passwordEntry);
+        } finally {
+            revisionCounter.complete(revision);
+        }
+        searchIndex.put(savedEntry);
+        entryRevisions.update(vault, savedEntry.getId(), savedEntry.getRevision());
+        savedEntry.setEncryptedPassword(encryptionService.decrypt(vault, savedEntry.getEncryptedPassword()));
+        savedEntry.setBreached(breachedPasswordChecker.isEnabled() ? breached : null);
         return savedEntry;
     }
 
     public Optional<PasswordEntry> updatePassword(Long id, PasswordEntry updatedPasswordEntry) {
-        return passwordRepository.findById(id).map(existingEntry -> {
-            existingEntry.setWebsite(updatedPasswordEntry.getWebsite());
-            existingEntry.setUsername(updatedPasswordEntry.getUsername());
-            String encryptedPass = encryptionService.encrypt(updatedPasswordEntry.getEncryptedPassword());
-            existingEntry.setEncryptedPassword(encryptedPass);
-            PasswordEntry savedEntry = passwordRepository.save(existingEntry);
-            savedEntry.setEncryptedPassword(encryptionService.decrypt(savedEntry.getEncryptedPassword()));
-            return savedEntry;
-        });
+        return updatePassword(id, updatedPasswordEntry, null);
     }
 
+    /**
+     * Zmienia wpis, jeśli jego bieżąca rewizja jest jedną z oczekiwanych (nagłówek {@code If-Match}),
+     * co chroni przed nadpisaniem zmiany, której klient nie widział (lost update). Sprawdzenie i zapis
+     * są wykonywane pod blokadą wpisu, więc równoległa zmiana tego samego wpisu nie wejdzie pomiędzy nie.
+     * @param id Id wpisu.
+     * @param updatedPasswordEntry Nowe dane wpisu (hasło jawne).
+     * @param expectedRevisions Rewizje, względem których klient zmienia wpis; null - zmiana bezwarunkowa.
+     * @return Zmieniony wpis lub pusty Optional, jeśli wpis nie istnieje.
+     * @throws OptimisticLockingFailureException Jeśli wpis zmieniono od odczytu przez klienta.
+     */
+    public Optional<PasswordEntry> updatePassword(Long id, PasswordEntry updatedPasswordEntry, Set<Long> expectedRevisions) {
+        String vault = vaultContext.currentVault();
+        ReentrantLock lock = lockFor(id);
+        lock.lock();
+        try {
+            return passwordRepository.findByIdAndOwner(id, vault).map(existingEntry -> {
+                if (expectedRevisions != null && !expectedRevisions.contains(existingEntry.getRevision())) {
+                    throw new OptimisticLockingFailureException("Wpis " + id + " został zmieniony (bieżąca rewizja "
+                            + existingEntry.getRevision() + ")");
+                }
+                return update(vault, id, existingEntry, updatedPasswordEntry);
+            });
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private PasswordEntry update(String vault, Long id, PasswordEntry existingEntry, PasswordEntry updatedPasswordEntry) {
+        existingEntry.setWebsite(updatedPasswordEntry.getWebsite());
+        existingEntry.setUsername(updatedPasswordEntry.getUsername());
+        existingEntry.setPasswordFingerprint(encryptionService.fingerprint(vault, updatedPasswordEntry.getEncryptedPassword()));
+        existingEntry.setStrengthScore(strengthScore(updatedPasswordEntry));
+        String encryptedPass = encryptionService.encrypt(vault, updatedPasswordEntry.getEncryptedPassword());
+        existingEntry.setEncryptedPassword(encryptedPass);
+        PasswordEntry savedEntry;
+        long revision = revisionCounter.begin(vault);
+        try {
+            existingEntry.setRevision(revision);
+            savedEntry = passwordRepository.save(existingEntry);
+        } finally {
+            revisionCounter.complete(revision);
+        }
+        searchIndex.put(savedEntry);
+        secretCache.invalidate(vault, id);
+        entryRevisions.update(vault, id, savedEntry.getRevision());
+        savedEntry.setEncryptedPassword(encryptionService.decrypt(vault, savedEntry.getEncryptedPassword()));
+        return savedEntry;
+    }
+
+    /**
+     * Usuwa wpis, zostawiając znacznik usunięcia dla eksportu przyrostowego.
+     * @param id Id wpisu.
+     * @return true, jeśli wpis istniał i został usunięty.
+     */
     public boolean deletePassword(Long id) {
-        if (passwordRepository.existsById(id)) {
-            passwordRepository.deleteById(id);
-            return true;
+        String vault = vaultContext.currentVault();
+        boolean deleted;
+        ReentrantLock lock = lockFor(id);
+        lock.lock(); // Zmiana w toku nie przywróci usuniętego wpisu
+        try {
+            long revision = revisionCounter.begin(vault);
+            try {
+                deleted = passwordRepository.deleteWithTombstone(vault, id, revision);
+            } finally {
+                revisionCounter.complete(revision);
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (deleted) {
+            searchIndex.delete(vault, id);
+            secretCache.invalidate(vault, id);
+            entryRevisions.markDeleted(id);
+        }
+        return deleted;
+    }
+
+    // ---------- Operacje hurtowe ----------
+
+    /**
+     * Dodaje wiele wpisów naraz: hasła są szyfrowane hurtowo, a wpisy zapisywane w jednej transakcji
+     * (batch JDBC, jedna rewizja sejfu). Nieprawidłowe pozycje są pomijane i zgłaszane w wyniku.
+     * @param entries Nowe wpisy (hasła jawne); id jest ignorowane.
+     * @return Wynik dla każdej pozycji, w kolejności żądania (201 z zapisanym wpisem lub 400).
+     * @throws IllegalArgumentException Jeśli liczba pozycji jest poza zakresem 1..{@link #MAX_BATCH_SIZE}.
+     */
+    public List<BatchItemResult> savePasswords(List<PasswordEntry> entries) {
+        checkBatchSize(entries);
+        String vault = vaultContext.currentVault();
+        BatchItemResult[] results = new BatchItemResult[entries.size()];
+        List<PasswordEntry> valid = new ArrayList<>(entries.size());
+        List<Integer> positions = new ArrayList<>(entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            PasswordEntry entry = entries.get(i);
+            if (entry == null || entry.getEncryptedPassword() == null) {
+                results[i] = BatchItemResult.rejected(i, null, "Brak hasła");
+            } else {
+                entry.setId(null); // Nowy wpis - id nada sekwencja
+                entry.setOwner(vault);
+                valid.add(entry);
+                positions.add(i);
+            }
+        }
+        if (!valid.isEmpty()) {
+            List<String> plain = valid.stream().map(PasswordEntry::getEncryptedPassword).toList();
+            List<String> encrypted = encryptionService.encryptAll(vault, plain);
+            List<String> fingerprints = encryptionService.fingerprintAll(vault, plain);
+            long revision = revisionCounter.begin(vault);
+            try {
+                for (int i = 0; i < valid.size(); i++) {
+                    valid.get(i).setEncryptedPassword(encrypted.get(i));
+                    valid.get(i).setPasswordFingerprint(fingerprints.get(i));
+                    valid.get(i).setStrengthScore(strengthEstimator.score(plain.get(i), valid.get(i).getWebsite(), valid.get(i).getUsername()));
+                    valid.get(i).setRevision(revision);
+                }
+                passwordBatchWriter.writeChunk(valid);
+            } finally {
+                revisionCounter.complete(revision);
+            }
+            searchIndex.putAll(valid); // Id nadane przy zapisie
+            for (int i = 0; i < valid.size(); i++) {
+                PasswordEntry saved = valid.get(i);
+                entryRevisions.update(vault, saved.getId(), saved.getRevision());
+                saved.setEncryptedPassword(plain.get(i)); // Odpowiedź jak przy pojedynczym zapisie - hasło jawne
+                results[positions.get(i)] = new BatchItemResult(positions.get(i), saved.getId(), 201, null, saved);
+            }
         }
-        return false;
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Zmienia wiele wpisów naraz w jednej transakcji: istniejące wpisy są wczytywane jednym zapytaniem,
+     * a zmiany zapisywane batchem JDBC w jednej rewizji sejfu. Zmieniane wpisy są blokowane jak przy
+     * {@link #updatePassword(Long, PasswordEntry, Set)}, więc batch nie przeplata się z pojedynczą zmianą.
+     * @param entries Nowe dane wpisów (z id i hasłem jawnym).
+     * @return Wynik dla każdej pozycji, w kolejności żądania (200 ze zmienionym wpisem, 400 lub 404).
+     * @throws IllegalArgumentException Jeśli liczba pozycji jest poza zakresem 1..{@link #MAX_BATCH_SIZE}.
+     */
+    public List<BatchItemResult> updatePasswords(List<PasswordEntry> entries) {
+        checkBatchSize(entries);
+        String vault = vaultContext.currentVault();
+        BatchItemResult[] results = new BatchItemResult[entries.size()];
+        Map<Long, Integer> positions = new LinkedHashMap<>();
+        List<PasswordEntry> valid = new ArrayList<>(entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            PasswordEntry entry = entries.get(i);
+            if (entry == null || entry.getId() == null) {
+                results[i] = BatchItemResult.rejected(i, null, "Brak id wpisu");
+            } else if (entry.getEncryptedPassword() == null) {
+                results[i] = BatchItemResult.rejected(i, entry.getId(), "Brak hasła");
+            } else if (positions.putIfAbsent(entry.getId(), i) != null) {
+                results[i] = BatchItemResult.rejected(i, entry.getId(), "Wpis występuje w batchu więcej niż raz");
+            } else {
+                valid.add(entry);
+            }
+        }
+        if (!valid.isEmpty()) {
+            List<String> plain = valid.stream().map(PasswordEntry::getEncryptedPassword).toList();
+            List<String> encrypted = encryptionService.encryptAll(vault, plain);
+            List<String> fingerprints = encryptionService.fingerprintAll(vault, plain);
+            List<PasswordEntry> changes = new ArrayList<>(valid.size());
+            for (int i = 0; i < valid.size(); i++) {
+                PasswordEntry change = new PasswordEntry(valid.get(i).getId(), valid.get(i).getWebsite(),
+                        valid.get(i).getUsername(), encrypted.get(i));
+                change.setPasswordFingerprint(fingerprints.get(i));
+                change.setStrengthScore(strengthScore(valid.get(i)));
+                changes.add(change);
+            }
+            List<PasswordEntry> updated;
+            List<ReentrantLock> locks = lockAll(positions.keySet());
+            try {
+                long revision = revisionCounter.begin(vault);
+                try {
+                    updated = passwordBatchWriter.updateChunk(vault, changes, revision);
+                } finally {
+                    revisionCounter.complete(revision);
+                }
+                searchIndex.putAll(updated);
+                for (PasswordEntry entry : updated) {
+                    secretCache.invalidate(vault, entry.getId());
+                    entryRevisions.update(vault, entry.getId(), entry.getRevision());
+                }
+            } finally {
+                locks.forEach(ReentrantLock::unlock);
+            }
+            Map<Long, String> plainById = new HashMap<>();
+            for (int i = 0; i < valid.size(); i++) {
+                plainById.put(valid.get(i).getId(), plain.get(i));
+            }
+            for (PasswordEntry entry : updated) {
+                entry.setEncryptedPassword(plainById.get(entry.getId()));
+                int position = positions.get(entry.getId());
+                results[position] = new BatchItemResult(position, entry.getId(), 200, null, entry);
+            }
+            for (PasswordEntry entry : valid) {
+                int position = positions.get(entry.getId());
+                if (results[position] == null) {
+                    results[position] = new BatchItemResult(position, entry.getId(), 404, "Wpis nie istnieje", null);
+                }
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Usuwa wiele wpisów naraz - jednym zapytaniem DELETE i z batchem znaczników usunięcia w jednej transakcji
+     * (zamiast sprawdzania i usuwania każdego wpisu osobno).
+     * @param ids Id wpisów do usunięcia.
+     * @return Wynik dla każdej pozycji, w kolejności żądania (204, 400 lub 404).
+     * @throws IllegalArgumentException Jeśli liczba pozycji jest poza zakresem 1..{@link #MAX_BATCH_SIZE}.
+     */
+    public List<BatchItemResult> deletePasswords(List<Long> ids) {
+        checkBatchSize(ids);
+        String vault = vaultContext.currentVault();
+        BatchItemResult[] results = new BatchItemResult[ids.size()];
+        Map<Long, Integer> positions = new LinkedHashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            Long id = ids.get(i);
+            if (id == null) {
+                results[i] = BatchItemResult.rejected(i, null, "Brak id wpisu");
+            } else if (positions.putIfAbsent(id, i) != null) {
+                results[i] = BatchItemResult.rejected(i, id, "Wpis występuje w batchu więcej niż raz");
+            }
+        }
+        if (!positions.isEmpty()) {
+            Set<Long> deleted;
+            List<ReentrantLock> locks = lockAll(positions.keySet());
+            try {
+                long revision = revisionCounter.begin(vault);
+                try {
+                    deleted = new HashSet<>(passwordRepository.deleteAllWithTombstones(vault, positions.keySet(), revision));
+                } finally {
+                    revisionCounter.complete(revision);
+                }
+                for (Long id : deleted) {
+                    searchIndex.delete(vault, id);
+                    secretCache.invalidate(vault, id);
+                    entryRevisions.markDeleted(id);
+                }
+            } finally {
+                locks.forEach(ReentrantLock::unlock);
+            }
+            positions.forEach((id, position) -> results[position] = deleted.contains(id)
+                    ? new BatchItemResult(position, id, 204, null, null)
+                    : new BatchItemResult(position, id, 404, "Wpis nie istnieje", null));
+        }
+        return Arrays.asList(results);
+    }
+
+    private static void checkBatchSize(List<?> items) {
+        if (items == null || items.isEmpty() || items.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("Liczba operacji w batchu musi być od 1 do " + MAX_BATCH_SIZE);
+        }
+    }
+
+    private ReentrantLock lockFor(Long id) {
+        return entryLocks[stripeOf(id)];
+    }
+
+    private static int stripeOf(Long id) {
+        return Math.floorMod(id.hashCode(), ENTRY_LOCK_STRIPES);
+    }
+
+    /**
+     * Blokuje wpisy o podanych id. Blokady są zakładane w kolejności numerów (każda raz),
+     * więc dwa równoległe batche nie zakleszczą się nawzajem.
+     */
+    private List<ReentrantLock> lockAll(Collection<Long> ids) {
+        List<ReentrantLock> locks = ids.stream()
+                .map(PasswordService::stripeOf)
+                .distinct()
+                .sorted()
+                .map(stripe -> entryLocks[stripe])
+                .toList();
+        locks.forEach(ReentrantLock::lock);
+        return locks;
     }
 
     public String generateSecurePassword() {
         return passwordGenerator.generateSecurePassword(16);
     }
 
+    /**
+     * Generuje wiele bezpiecznych haseł naraz (równolegle).
+     * @param count Liczba haseł.
+     * @param length Długość każdego hasła.
+     * @return Lista wygenerowanych haseł.
+     * @throws IllegalArgumentException Jeśli liczba lub długość haseł są poza zakresem.
+     */
+    public List<String> generateSecurePasswords(int count, int length) {
+        return passwordGenerator.generateSecurePasswords(count, length);
+    }
+
+    /**
+     * Sortuje listę wpisów w pamięci po nazwie strony (bez względu na wielkość liter).
+     * Tylko dla list spoza bazy - listy z repozytorium sortuje baza ({@link #getPasswordSummaries(PageSort, Sort.Direction)}).
+     * Sortowanie jest stabilne, O(n log n), a klucze porównania są wyliczane raz na wpis.
+     * @param passwordEntries Lista do posortowania (modyfikowana w miejscu).
+     */
     public void sortPasswordsByWebsite(List<PasswordEntry> passwordEntries) {
-        quickSort(passwordEntries, 0, passwordEntries.size() - 1);
+        CollationSort.sort(passwordEntries, PasswordEntry::getWebsite);
     }
 
-    private void quickSort(List<PasswordEntry> arr, int low, int high) {
-        if (low < high) {
-            int pi = partition(arr, low, high);
-            quickSort(arr, low, pi - 1);
-            quickSort(arr, pi + 1, high);
+    // ---------- Export / Import ----------
+
+    /**
+     * Eksportuje cały sejf do pliku JSON w trybie strumieniowym.
+     * Wpisy są czytane kursorem w jednej transakcji tylko do odczytu (spójny obraz sejfu
+     * nawet przy równoległych zapisach), deszyfrowane do odłączonych kopii
+     * i od razu zapisywane na dysk - zużycie pamięci nie zależy od rozmiaru sejfu.
+     * Pliki sejfów innych niż domyślny trafiają do podkatalogu sejfu ({@link VaultContext#fileName(String, String)}).
+     * @param fileName Nazwa pliku do zapisu.
+     * @throws IOException Jeśli wystąpi błąd wejścia/wyjścia.
+     */
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public void exportPasswordsToJson(String fileName) throws IOException {
+        String vault = vaultContext.currentVault();
+        try (Stream<PasswordEntry> entries = passwordRepository.streamAll(vault)) {
+            fileStorageService.writePasswordStreamToJson(decryptedSnapshot(vault, entries), VaultContext.fileName(vault, fileName));
         }
     }
 
-    private int partition(List<PasswordEntry> arr, int low, int high) {
-        PasswordEntry pivot = arr.get(high);
-        int i = (low - 1);
-        for (int j = low; j < high; j++) {
-            if (arr.get(j).getWebsite().compareToIgnoreCase(pivot.getWebsite()) < 0) {
-                i++;
-                PasswordEntry temp = arr.get(i);
-                arr.set(i, arr.get(j));
-                arr.set(j, temp);
-            }
+    /**
+     * Zwraca bieżącą rewizję sejfu - wszystkie zmiany do niej włącznie są zatwierdzone.
+     * Rewizja pobrana przed pełnym eksportem może być użyta jako {@code since} pierwszego eksportu przyrostowego.
+     * @return Bieżąca rewizja.
+     */
+    public long getCurrentRevision() {
+        return revisionCounter.safeRevision();
+    }
+
+    /**
+     * Zwraca rewizję sejfu bieżącego użytkownika - zmienia się tylko przy zmianach w tym sejfie.
+     * @return Rewizja lub pusty wynik, jeśli w sejfie trwa zapis.
+     */
+    public OptionalLong getVaultRevision() {
+        return revisionCounter.vaultRevision(vaultContext.currentVault());
+    }
+
+    /**
+     * Eksportuje do pliku JSON tylko zmiany od {@code since}: wpisy zapisane lub zmienione
+     * i znaczniki usuniętych wpisów. Wpisy są wybierane po indeksie rewizji (lub daty modyfikacji),
+     * więc czas eksportu zależy od liczby zmian, a nie od rozmiaru sejfu. Eksport obejmuje zmiany
+     * do rewizji zwróconej w podsumowaniu - zmiany zatwierdzane w trakcie trafią do następnego eksportu.
+     * @param since Rewizja lub data, od której eksportowane są zmiany.
+     * @param fileName Nazwa pliku do zapisu.
+     * @return Podsumowanie z rewizją do użycia jako {@code since} następnego eksportu.
+     * @throws IOException Jeśli wystąpi błąd wejścia/wyjścia.
+     */
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public ChangeExportSummary exportChangesToJson(ChangeSince since, String fileName) throws IOException {
+        String vault = vaultContext.currentVault();
+        long revision = revisionCounter.safeRevision();
+        List<PasswordTombstone> deleted = passwordRepository.findTombstonesSince(vault, since, revision);
+        try (Stream<PasswordEntry> entries = passwordRepository.streamChangedSince(vault, since, revision)) {
+            long changed = fileStorageService.writePasswordChangesToJson(decryptedSnapshot(vault, entries), deleted, since, revision,
+                    VaultContext.fileName(vault, fileName));
+            return new ChangeExportSummary(fileName, since.toString(), revision, changed, deleted.size());
         }
-        PasswordEntry temp = arr.get(i + 1);
-        arr.set(i + 1, arr.get(high));
-        arr.set(high, temp);
-        return i + 1;
     }
 
-    // ---------- Export / Import ----------
+    /**
+     * Eksportuje zmiany od {@code since} do pliku XML, na tych samych zasadach co
+     * {@link #exportChangesToJson(ChangeSince, String)}.
+     * @param since Rewizja lub data, od której eksportowane są zmiany.
+     * @param fileName Nazwa pliku do zapisu.
+     * @return Podsumowanie z rewizją do użycia jako {@code since} następnego eksportu.
+     * @throws Exception Jeśli wystąpi błąd wejścia/wyjścia lub XML.
+     */
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public ChangeExportSummary exportChangesToXml(ChangeSince since, String fileName) throws Exception {
+        String vault = vaultContext.currentVault();
+        long revision = revisionCounter.safeRevision();
+        List<PasswordTombstone> deleted = passwordRepository.findTombstonesSince(vault, since, revision);
+        try (Stream<PasswordEntry> entries = passwordRepository.streamChangedSince(vault, since, revision)) {
+            long changed = fileStorageService.writePasswordChangesToXml(decryptedSnapshot(vault, entries), deleted, since, revision,
+                    VaultContext.fileName(vault, fileName));
+            return new ChangeExportSummary(fileName, since.toString(), revision, changed, deleted.size());
+        }
+    }
 
-    public void exportPasswordsToJson(String fileName) throws IOException {
-        List<PasswordEntry> passwords = getAllPasswords(); // already decrypted
-        fileStorageService.writePasswordsToJson(passwords, fileName);
+    /**
+     * Zamienia strumień zarządzanych encji na strumień odszyfrowanych kopii.
+     * Encje są pobierane porcjami po {@link #EXPORT_CHUNK_SIZE}, deszyfrowane hurtowo
+     * ({@link EncryptionService#decryptAll(String, List)}), a po każdej porcji kontekst persystencji
+     * jest czyszczony. Encje nie są modyfikowane - odszyfrowane hasło nie trafia do kontekstu.
+     */
+    private Stream<PasswordEntry> decryptedSnapshot(String vault, Stream<PasswordEntry> managedEntries) {
+        Iterator<PasswordEntry> managed = managedEntries.iterator();
+        Iterator<PasswordEntry> decrypted = new Iterator<>() {
+            private Iterator<PasswordEntry> chunk = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                if (!chunk.hasNext() && managed.hasNext()) {
+                    chunk = nextDecryptedChunk(vault, managed);
+                }
+                return chunk.hasNext();
+            }
+
+            @Override
+            public PasswordEntry next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return chunk.next();
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(decrypted, Spliterator.ORDERED), false);
     }
 
+    private Iterator<PasswordEntry> nextDecryptedChunk(String vault, Iterator<PasswordEntry> managed) {
+        List<PasswordEntry> entries = new ArrayList<>(EXPORT_CHUNK_SIZE);
+        while (entries.size() < EXPORT_CHUNK_SIZE && managed.hasNext()) {
+            entries.add(managed.next());
+        }
+        List<String> plainTexts = encryptionService.decryptAll(vault, entries.stream().map(PasswordEntry::getEncryptedPassword).toList());
+        List<PasswordEntry> copies = new ArrayList<>(entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            PasswordEntry p = entries.get(i);
+            copies.add(new PasswordEntry(p.getId(), p.getWebsite(), p.getUsername(), plainTexts.get(i)));
+        }
+        if (entries.size() == EXPORT_CHUNK_SIZE) {
+            entityManager.clear();
+        }
+        return copies.iterator();
+    }
+
+    /**
+     * Eksportuje cały sejf do pliku XML w trybie strumieniowym (StAX),
+     * na tych samych zasadach co {@link #exportPasswordsToJson(String)}.
+     * @param fileName Nazwa pliku do zapisu.
+     * @throws Exception Jeśli wystąpi błąd wejścia/wyjścia lub XML.
+     */
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
     public void exportPasswordsToXml(String fileName) throws Exception {
-        List<PasswordEntry> passwords = getAllPasswords(); // already decrypted
-        fileStorageService.writePasswordsToXml(passwords, fileName);
+        String vault = vaultContext.currentVault();
+        try (Stream<PasswordEntry> entries = passwordRepository.streamAll(vault)) {
+            fileStorageService.writePasswordStreamToXml(decryptedSnapshot(vault, entries), VaultContext.fileName(vault, fileName));
+        }
+    }
+
+    /**
+     * Eksportuje cały sejf do pliku w podanym formacie, opcjonalnie kompresowanym w locie,
+     * na tych samych zasadach co {@link #exportPasswordsToJson(String)}. Formaty binarne
+     * (Smile, CBOR) dają kilkukrotnie mniejsze pliki i szybszy odczyt niż sformatowany JSON.
+     * @param fileName Nazwa pliku do zapisu.
+     * @param format Nazwa formatu ("json", "smile", "cbor", "xml").
+     * @param compression Kompresja pliku.
+     * @return Liczba wyeksportowanych wpisów.
+     * @throws IOException Jeśli wystąpi błąd wejścia/wyjścia.
+     * @throws IllegalArgumentException Jeśli format nie jest obsługiwany.
+     */
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public long exportPasswords(String fileName, String format, Compression compression) throws IOException {
+        fileStorageService.getFormat(format); // Nieznany format zgłaszamy przed otwarciem kursora
+        String vault = vaultContext.currentVault();
+        try (Stream<PasswordEntry> entries = passwordRepository.streamAll(vault)) {
+            return fileStorageService.writePasswordStream(decryptedSnapshot(vault, entries), VaultContext.fileName(vault, fileName),
+                    format, compression);
+        }
+    }
+
+    /**
+     * Importuje hasła z pliku JSON. Plik jest czytany strumieniowo, a wpisy zapisywane
+     * porcjami po {@code passwords.import.batch-size} (batch JDBC, jedna transakcja na porcję).
+     * Zaimportowane wpisy zawsze otrzymują nowe id.
+     * @param fileName Nazwa pliku JSON do odczytu.
+     * @return Podsumowanie importu.
+     * @throws IOException Jeśli wystąpi błąd wejścia/wyjścia.
+     */
+    public ImportSummary importPasswordsFromJson(String fileName) throws IOException {
+        String vault = vaultContext.currentVault();
+        ChunkedImport chunkedImport = new ChunkedImport(vault);
+        fileStorageService.readPasswordsFromJson(VaultContext.fileName(vault, fileName), chunkedImport::add);
+        return chunkedImport.finish(fileName);
     }
 
-    public List<PasswordEntry> importPasswordsFromJson(String fileName) throws IOException {
-        List<PasswordEntry> imported = fileStorageService.readPasswordsFromJson(fileName);
-        // Zapisz każde hasło z szyfrowaniem
-        imported.forEach(this::savePassword);
-        return getAllPasswords();
+    /**
+     * Importuje hasła z pliku XML na tych samych zasadach co {@link #importPasswordsFromJson(String)}.
+     * @param fileName Nazwa pliku XML do odczytu.
+     * @return Podsumowanie importu.
+     * @throws Exception Jeśli wystąpi błąd wejścia/wyjścia lub XML.
+     */
+    public ImportSummary importPasswordsFromXml(String fileName) throws Exception {
+        String vault = vaultContext.currentVault();
+        ChunkedImport chunkedImport = new ChunkedImport(vault);
+        fileStorageService.readPasswordsFromXml(VaultContext.fileName(vault, fileName), chunkedImport::add);
+        return chunkedImport.finish(fileName);
     }
 
-    public List<PasswordEntry> importPasswordsFromXml(String fileName) throws Exception {
-        List<PasswordEntry> imported = fileStorageService.readPasswordsFromXml(fileName);
-        imported.forEach(this::savePassword);
-        return getAllPasswords();
+    /**
+     * Importuje hasła z pliku w dowolnym obsługiwanym formacie i kompresji - oba są wykrywane
+     * po pierwszych bajtach pliku. Wpisy zapisywane są jak w {@link #importPasswordsFromJson(String)}.
+     * @param fileName Nazwa pliku do odczytu.
+     * @return Podsumowanie importu.
+     * @throws IOException Jeśli wystąpi błąd wejścia/wyjścia lub format nie został rozpoznany.
+     */
+    public ImportSummary importPasswords(String fileName) throws IOException {
+        String vault = vaultContext.currentVault();
+        ChunkedImport chunkedImport = new ChunkedImport(vault);
+        fileStorageService.readPasswords(VaultContext.fileName(vault, fileName), chunkedImport::add);
+        return chunkedImport.finish(fileName);
+    }
+
+    /**
+     * Zbiera importowane wpisy sejfu w porcje, szyfruje je i przekazuje do {@link PasswordBatchWriter}.
+     * W pamięci trzymana jest co najwyżej jedna porcja.
+     */
+    private class ChunkedImport {
+
+        private final String vault;
+        private final long startNanos = System.nanoTime();
+        private List<PasswordEntry> chunk = new ArrayList<>(importBatchSize);
+        private long imported;
+        private int chunks;
+
+        ChunkedImport(String vault) {
+            this.vault = vault;
+        }
+
+        void add(PasswordEntry entry) {
+            entry.setId(null); // Nowy wpis - id nada sekwencja
+            entry.setOwner(vault);
+            chunk.add(entry);
+            if (chunk.size() >= importBatchSize) {
+                flush();
+            }
+        }
+
+        ImportSummary finish(String fileName) {
+            flush();
+            long durationMillis = (System.nanoTime() - startNanos) / 1_000_000;
+            return new ImportSummary(fileName, imported, chunks, durationMillis);
+        }
+
+        private void flush() {
+            if (chunk.isEmpty()) {
+                return;
+            }
+            // Szyfrowanie całej porcji naraz - równolegle na wszystkich rdzeniach
+            List<String> plain = chunk.stream().map(PasswordEntry::getEncryptedPassword).toList();
+            List<String> encrypted = encryptionService.encryptAll(vault, plain);
+            List<String> fingerprints = encryptionService.fingerprintAll(vault, plain);
+            long revision = revisionCounter.begin(vault); // Jedna rewizja na porcję (jedną transakcję)
+            try {
+                for (int i = 0; i < chunk.size(); i++) {
+                    chunk.get(i).setEncryptedPassword(encrypted.get(i));
+                    chunk.get(i).setPasswordFingerprint(fingerprints.get(i));
+                    chunk.get(i).setStrengthScore(strengthEstimator.score(plain.get(i), chunk.get(i).getWebsite(), chunk.get(i).getUsername()));
+                    chunk.get(i).setRevision(revision);
+                }
+                imported += passwordBatchWriter.writeChunk(chunk);
+            } finally {
+                revisionCounter.complete(revision);
+            }
+            searchIndex.putAll(chunk); // Id nadane przy zapisie
+            chunks++;
+            chunk = new ArrayList<>(importBatchSize);
+        }
     }
 }
 
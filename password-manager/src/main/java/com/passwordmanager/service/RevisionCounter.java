@@ -0,0 +1,90 @@
+package com.passwordmanager.service;
+
+import com.passwordmanager.repository.PasswordRepository;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.OptionalLong;
+import java.util.TreeMap;
+
+/**
+ * Nadaje kolejne, rosnące numery rewizji zmianom w sejfie (zapis, zmiana, usunięcie, porcja importu)
+ * i śledzi rewizje, których zapis jeszcze trwa.
+ * <p>
+ * {@link #safeRevision()} to najwyższa rewizja, poniżej której żaden zapis już nie trwa. Eksport przyrostowy
+ * obejmuje zmiany do tej rewizji, dzięki czemu zapis zatwierdzony później z niższym numerem nie zostanie
+ * pominięty przez następny eksport. Licznik startuje od najwyższej rewizji zapisanej w repozytorium.
+ * <p>
+ * {@link #vaultRevision(String)} to rewizja jednego sejfu (ETag jego list) - zmienia się tylko przy zmianach
+ * w tym sejfie, więc zapis w jednym sejfie nie unieważnia list zapamiętanych przez klientów innych sejfów.
+ */
+@Component
+public class RevisionCounter {
+
+    private final PasswordRepository passwordRepository;
+
+    /** Rewizje nadane, ale jeszcze niezatwierdzone → sejf zmiany. */
+    private final NavigableMap<Long, String> inFlight = new TreeMap<>();
+    /** Sejf → rewizja jego ostatniej zmiany od startu aplikacji. */
+    private final Map<String, Long> vaultRevisions = new HashMap<>();
+    private long last = -1;
+    /** Rewizja z repozytorium przy starcie - rewizja sejfów niezmienionych od startu. */
+    private long initial;
+
+    public RevisionCounter(PasswordRepository passwordRepository) {
+        this.passwordRepository = passwordRepository;
+    }
+
+    /**
+     * Nadaje rewizję nowej zmianie. Każde wywołanie musi zostać zakończone przez {@link #complete(long)}.
+     * @param vault Sejf, którego wpisy zmienia zmiana.
+     * @return Nowa rewizja.
+     */
+    public synchronized long begin(String vault) {
+        initialize();
+        long revision = ++last;
+        inFlight.put(revision, vault);
+        vaultRevisions.put(vault, revision);
+        return revision;
+    }
+
+    /**
+     * Oznacza zmianę jako zakończoną (zatwierdzoną lub wycofaną).
+     * @param revision Rewizja zwrócona przez {@link #begin(String)}.
+     */
+    public synchronized void complete(long revision) {
+        inFlight.remove(revision);
+    }
+
+    /**
+     * Zwraca najwyższą rewizję, do której wszystkie zmiany są już zatwierdzone.
+     * @return Rewizja, którą można bezpiecznie przekazać jako granicę eksportu.
+     */
+    public synchronized long safeRevision() {
+        initialize();
+        return inFlight.isEmpty() ? last : inFlight.firstKey() - 1;
+    }
+
+    /**
+     * Zwraca rewizję ostatniej zmiany w sejfie - wartość dla ETagu list sejfu.
+     * @param vault Sejf.
+     * @return Rewizja lub pusty wynik, jeśli w sejfie trwa zapis - odczyt może go jeszcze nie widzieć,
+     *         a po jego zatwierdzeniu rewizja już się nie zmieni, więc odpowiedź nie powinna dostać ETagu.
+     */
+    public synchronized OptionalLong vaultRevision(String vault) {
+        initialize();
+        if (inFlight.containsValue(vault)) {
+            return OptionalLong.empty();
+        }
+        return OptionalLong.of(vaultRevisions.getOrDefault(vault, initial));
+    }
+
+    private void initialize() {
+        if (last < 0) {
+            last = passwordRepository.findMaxRevision();
+            initial = last;
+        }
+    }
+}
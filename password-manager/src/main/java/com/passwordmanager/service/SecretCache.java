@@ -0,0 +1,261 @@
+package com.passwordmanager.service;
+
+import com.passwordmanager.model.PasswordEntry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Opcjonalna, ograniczona pamięć podręczna odszyfrowanych wpisów dla {@link PasswordService#getPasswordById(Long)}.
+ * <p>
+ * Hasło jest przechowywane jako bajty UTF-8 w buforze poza stertą ({@link ByteBuffer#allocateDirect(int)}),
+ * a nie jako {@link String}, i jest nadpisywane zerami przy usunięciu z pamięci podręcznej
+ * (wygaśnięcie TTL, wyparcie LRU, zmiana lub usunięcie wpisu, zamknięcie aplikacji).
+ * Kluczem jest para (sejf, id) - wczytanie wpisu przez jeden sejf nie wpływa na odczyty w innym.
+ * Równoczesne chybienia dla tego samego klucza są łączone w jedno wczytanie z bazy.
+ * <p>
+ * Domyślnie wyłączona ({@code passwords.cache.enabled=false}) - wtedy każde wywołanie trafia do bazy.
+ */
+@Component
+public class SecretCache {
+
+    private final boolean enabled;
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+
+    /** Kolejność dostępu - pierwszy element to najdawniej używany (kandydat do wyparcia). */
+    private final LinkedHashMap<Key, CachedSecret> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Key, CompletableFuture<Optional<PasswordEntry>>> loading = new ConcurrentHashMap<>();
+    /** Zwiększane przy każdym unieważnieniu; wczytanie rozpoczęte przed unieważnieniem nie trafia do pamięci podręcznej. */
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    @Autowired
+    public SecretCache(@Value("${passwords.cache.enabled:false}") boolean enabled,
+                       @Value("${passwords.cache.max-entries:1000}") int maxEntries,
+                       @Value("${passwords.cache.ttl:PT5M}") Duration ttl) {
+        this(enabled, maxEntries, ttl, System::nanoTime);
+    }
+
+    SecretCache(boolean enabled, int maxEntries, Duration ttl, LongSupplier clock) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("Rozmiar pamięci podręcznej musi być dodatni");
+        }
+        this.enabled = enabled;
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttl.toNanos();
+        this.clock = clock;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Zwraca odszyfrowany wpis z pamięci podręcznej lub wczytuje go przez {@code loader}.
+     * Każde wywołanie dostaje nową kopię wpisu - zmiany zwróconego obiektu nie wpływają na pamięć podręczną.
+     * @param vault Sejf, w którym wpis jest wyszukiwany.
+     * @param id Id wpisu.
+     * @param loader Wczytuje i deszyfruje wpis sejfu z bazy (wywoływany najwyżej raz dla równoczesnych chybień).
+     * @return Odszyfrowany wpis lub pusty Optional, jeśli nie istnieje w sejfie.
+     */
+    public Optional<PasswordEntry> get(String vault, Long id, Function<Long, Optional<PasswordEntry>> loader) {
+        if (!enabled) {
+            return loader.apply(id);
+        }
+        Key key = new Key(vault, id);
+        synchronized (entries) {
+            CachedSecret cached = entries.get(key);
+            if (cached != null) {
+                if (!cached.isExpired(clock.getAsLong())) {
+                    hits.incrementAndGet();
+                    return Optional.of(cached.toEntry());
+                }
+                entries.remove(key);
+                cached.wipe();
+            }
+        }
+        misses.incrementAndGet();
+
+        CompletableFuture<Optional<PasswordEntry>> ownLoad = new CompletableFuture<>();
+        CompletableFuture<Optional<PasswordEntry>> inFlight = loading.putIfAbsent(key, ownLoad);
+        if (inFlight != null) {
+            return join(inFlight).map(SecretCache::copyOf); // Wczytanie trwa w innym wątku - czekamy na jego wynik
+        }
+        try {
+            long generation = invalidations.get();
+            Optional<PasswordEntry> loaded = loader.apply(id);
+            loaded.ifPresent(entry -> store(key, entry, generation));
+            ownLoad.complete(loaded);
+            return loaded;
+        } catch (RuntimeException e) {
+            ownLoad.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key, ownLoad);
+        }
+    }
+
+    /**
+     * Usuwa wpis z pamięci podręcznej i zeruje jego hasło (po zmianie lub usunięciu wpisu).
+     * @param vault Sejf wpisu.
+     * @param id Id wpisu.
+     */
+    public void invalidate(String vault, Long id) {
+        if (!enabled) {
+            return;
+        }
+        invalidations.incrementAndGet();
+        synchronized (entries) {
+            CachedSecret removed = entries.remove(new Key(vault, id));
+            if (removed != null) {
+                removed.wipe();
+            }
+        }
+    }
+
+    /**
+     * Usuwa wszystkie wpisy i zeruje ich hasła.
+     */
+    @PreDestroy
+    public void clear() {
+        invalidations.incrementAndGet();
+        synchronized (entries) {
+            entries.values().forEach(CachedSecret::wipe);
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    private void store(Key key, PasswordEntry entry, long generation) {
+        long now = clock.getAsLong();
+        CachedSecret secret = new CachedSecret(entry, now + ttlNanos);
+        synchronized (entries) {
+            if (invalidations.get() != generation) {
+                secret.wipe(); // Wpis zmieniono w trakcie wczytywania - wynik mógł być nieaktualny
+                return;
+            }
+            CachedSecret previous = entries.put(key, secret);
+            if (previous != null) {
+                previous.wipe();
+            }
+            evict(now);
+        }
+    }
+
+    /** Usuwa wygasłe wpisy z początku kolejki oraz najdawniej używane ponad limit. Wywoływane pod blokadą. */
+    private void evict(long now) {
+        Iterator<CachedSecret> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            CachedSecret candidate = iterator.next();
+            if (entries.size() <= maxEntries && !candidate.isExpired(now)) {
+                return;
+            }
+            iterator.remove();
+            candidate.wipe();
+        }
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+    }
+
+    private static PasswordEntry copyOf(PasswordEntry entry) {
+        PasswordEntry copy = new PasswordEntry(entry.getId(), entry.getWebsite(), entry.getUsername(), entry.getEncryptedPassword());
+        copy.setRevision(entry.getRevision()); // Rewizja jest ETagiem wpisu
+        copy.setOwner(entry.getOwner());
+        return copy;
+    }
+
+    /** Klucz pamięci podręcznej - ten sam id w różnych sejfach to różne klucze. */
+    private record Key(String vault, Long id) {
+    }
+
+    /**
+     * Wpis w pamięci podręcznej: metadane na stercie, hasło w buforze bezpośrednim.
+     */
+    private static final class CachedSecret {
+
+        private final Long id;
+        private final String owner;
+        private final String website;
+        private final String username;
+        private final ByteBuffer password;
+        private final long revision;
+        private final long expiresAtNanos;
+
+        CachedSecret(PasswordEntry entry, long expiresAtNanos) {
+            this.id = entry.getId();
+            this.owner = entry.getOwner();
+            this.revision = entry.getRevision();
+            this.website = entry.getWebsite();
+            this.username = entry.getUsername();
+            byte[] bytes = entry.getEncryptedPassword().getBytes(StandardCharsets.UTF_8);
+            this.password = ByteBuffer.allocateDirect(bytes.length);
+            this.password.put(bytes).flip();
+            Arrays.fill(bytes, (byte) 0);
+            this.expiresAtNanos = expiresAtNanos;
+        }
+
+        boolean isExpired(long now) {
+            return now - expiresAtNanos >= 0;
+        }
+
+        PasswordEntry toEntry() {
+            byte[] bytes = new byte[password.remaining()];
+            password.duplicate().get(bytes);
+            PasswordEntry entry = new PasswordEntry(id, website, username, new String(bytes, StandardCharsets.UTF_8));
+            entry.setRevision(revision);
+            entry.setOwner(owner);
+            Arrays.fill(bytes, (byte) 0);
+            return entry;
+        }
+
+        void wipe() {
+            password.clear();
+            for (int i = 0; i < password.capacity(); i++) {
+                password.put(i, (byte) 0);
+            }
+            password.limit(0);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.passwordmanager.service;
+
+import com.passwordmanager.model.PasswordEntry;
+import com.passwordmanager.model.PasswordTombstone;
+import com.passwordmanager.model.SyncChange;
+import com.passwordmanager.model.SyncCursor;
+import com.passwordmanager.model.SyncResponse;
+import com.passwordmanager.repository.PasswordRepository;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Synchronizacja przyrostowa klientów (aplikacji desktopowych i mobilnych) z sejfem.
+ * <p>
+ * Dziennikiem zmian są rewizje wpisów i znaczniki usunięcia: każda zmiana w {@link PasswordService} nadaje
+ * wpisowi nową rewizję ({@link RevisionCounter}), a usunięcie zostawia znacznik z rewizją. Synchronizacja
+ * zwraca zmiany za kursorem w kolejności (rewizja, id), czytane z indeksów {@code (owner, revision, id)}
+ * wpisów i znaczników - koszt zależy od liczby zmian, a nie od rozmiaru sejfu. Zmieniony wpis występuje
+ * w dzienniku raz, z ostatnią rewizją, więc klient dostaje tylko jego bieżący stan.
+ * <p>
+ * Znaczniki starsze niż {@code passwords.sync.retention} są okresowo usuwane ({@link #compact()}).
+ * Kursor, którego synchronizacja zaczęła się przed oknem retencji, mógłby pominąć usunięte znaczniki -
+ * jest odrzucany ({@link CursorExpiredException}), a klient musi zsynchronizować sejf od początku.
+ */
+@Service
+@Timed("passwords.service")
+public class SyncService {
+
+    public static final int DEFAULT_LIMIT = 500;
+    public static final int MAX_LIMIT = 5000;
+    /**
+     * Zapas przy usuwaniu znaczników względem okna retencji - usunięcie zatwierdzane w chwili synchronizacji
+     * może mieć datę nieco wcześniejszą niż czas zapisany w kursorze.
+     */
+    static final Duration PURGE_MARGIN = Duration.ofMinutes(5);
+
+    private final PasswordRepository passwordRepository;
+    private final EncryptionService encryptionService;
+    private final RevisionCounter revisionCounter;
+    private final VaultContext vaultContext;
+    private final Duration retention;
+    private final Clock clock;
+
+    @Autowired
+    public SyncService(PasswordRepository passwordRepository,
+                       EncryptionService encryptionService,
+                       RevisionCounter revisionCounter,
+                       VaultContext vaultContext,
+                       @Value("${passwords.sync.retention:P30D}") Duration retention) {
+        this(passwordRepository, encryptionService, revisionCounter, vaultContext, retention, Clock.systemUTC());
+    }
+
+    SyncService(PasswordRepository passwordRepository, EncryptionService encryptionService, RevisionCounter revisionCounter,
+                VaultContext vaultContext, Duration retention, Clock clock) {
+        if (retention.isNegative() || retention.isZero()) {
+            throw new IllegalArgumentException("Okres retencji dziennika zmian musi być dodatni");
+        }
+        this.passwordRepository = passwordRepository;
+        this.encryptionService = encryptionService;
+        this.revisionCounter = revisionCounter;
+        this.vaultContext = vaultContext;
+        this.retention = retention;
+        this.clock = clock;
+    }
+
+    /**
+     * Zwraca zmiany sejfu bieżącego użytkownika za kursorem: zapisane wpisy (z odszyfrowanymi hasłami)
+     * i usunięcia, w kolejności rewizji i id. Zmiany zatwierdzane w trakcie trafią do następnej synchronizacji.
+     * @param cursor Token kursora z poprzedniej synchronizacji lub null dla pierwszej (pełnej) synchronizacji.
+     * @param limit Maksymalna liczba zmian (od 1 do {@link #MAX_LIMIT}).
+     * @return Zmiany i kursor do następnej synchronizacji.
+     * @throws IllegalArgumentException Jeśli limit lub kursor są nieprawidłowe.
+     * @throws CursorExpiredException Jeśli kursor jest starszy niż okno retencji dziennika zmian.
+     */
+    public SyncResponse sync(String cursor, int limit) {
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new IllegalArgumentException("Limit zmian musi wynosić od 1 do " + MAX_LIMIT);
+        }
+        SyncCursor after = cursor == null || cursor.isBlank() ? SyncCursor.START : SyncCursor.decode(cursor);
+        // Czas odczytany przed granicą rewizji - usunięcia późniejsze niż on mają rewizję ponad granicą
+        Instant now = clock.instant();
+        if (after.getSyncedAt() != null && after.getSyncedAt().isBefore(now.minus(retention))) {
+            throw new CursorExpiredException();
+        }
+
+        String vault = vaultContext.currentVault();
+        long upTo = revisionCounter.safeRevision();
+        // +1 zmiana, aby wiedzieć, czy są kolejne
+        List<PasswordEntry> entries = passwordRepository.findChangesAfter(vault, after.getRevision(), after.getLastId(), upTo, limit + 1);
+        List<PasswordTombstone> tombstones = passwordRepository.findTombstonesAfter(vault, after.getRevision(), after.getLastId(), upTo, limit + 1);
+        decryptInPlace(vault, entries);
+
+        List<SyncChange> changes = merge(entries, tombstones, limit + 1);
+        Instant syncedAt = after.getSyncedAt() != null ? after.getSyncedAt() : now;
+        if (changes.size() > limit) {
+            changes = changes.subList(0, limit);
+            SyncChange last = changes.get(limit - 1);
+            // Kolejna porcja tej samej synchronizacji - czas jej początku pozostaje w kursorze
+            return new SyncResponse(changes, new SyncCursor(last.getRevision(), last.getId(), syncedAt).encode(), true);
+        }
+        if (upTo < after.getRevision()) {
+            // Kursor spoza bieżącego dziennika (np. innej instancji) - pozycja klienta pozostaje bez zmian
+            return new SyncResponse(changes, new SyncCursor(after.getRevision(), after.getLastId(), syncedAt).encode(), false);
+        }
+        return new SyncResponse(changes, new SyncCursor(upTo, Long.MAX_VALUE, now).encode(), false);
+    }
+
+    /**
+     * Kompaktacja dziennika zmian: usuwa znaczniki usunięcia wszystkich sejfów starsze niż okno retencji.
+     * Uruchamiana co {@code passwords.sync.compaction-interval}.
+     * @return Liczba usuniętych znaczników.
+     */
+    @Scheduled(fixedDelayString = "${passwords.sync.compaction-interval:PT1H}",
+            initialDelayString = "${passwords.sync.compaction-interval:PT1H}")
+    public int compact() {
+        Instant cutoff = clock.instant().minus(retention).minus(PURGE_MARGIN);
+        return passwordRepository.deleteTombstonesBefore(cutoff, revisionCounter.safeRevision());
+    }
+
+    private void decryptInPlace(String vault, List<PasswordEntry> entries) {
+        List<String> plainTexts = encryptionService.decryptAll(vault, entries.stream().map(PasswordEntry::getEncryptedPassword).toList());
+        for (int i = 0; i < entries.size(); i++) {
+            entries.get(i).setEncryptedPassword(plainTexts.get(i));
+        }
+    }
+
+    /**
+     * Scala dwie listy uporządkowane po (rewizja, id) - id wpisu i znacznika nigdy się nie powtarzają.
+     */
+    private static List<SyncChange> merge(List<PasswordEntry> entries, List<PasswordTombstone> tombstones, int limit) {
+        List<SyncChange> changes = new ArrayList<>(Math.min(limit, entries.size() + tombstones.size()));
+        int e = 0;
+        int t = 0;
+        while (changes.size() < limit && (e < entries.size() || t < tombstones.size())) {
+            boolean takeEntry = t == tombstones.size()
+                    || e < entries.size() && compare(entries.get(e).getRevision(), entries.get(e).getId(),
+                    tombstones.get(t).getRevision(), tombstones.get(t).getId()) < 0;
+            changes.add(takeEntry ? SyncChange.put(entries.get(e++)) : SyncChange.delete(tombstones.get(t++)));
+        }
+        return changes;
+    }
+
+    private static int compare(long revision, long id, long otherRevision, long otherId) {
+        int byRevision = Long.compare(revision, otherRevision);
+        return byRevision != 0 ? byRevision : Long.compare(id, otherId);
+    }
+
+    /**
+     * Kursor synchronizacji jest starszy niż okno retencji dziennika zmian - klient musi zsynchronizować
+     * sejf od początku (bez kursora).
+     */
+    public static class CursorExpiredException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        public CursorExpiredException() {
+            super("Kursor synchronizacji wygasł - wymagana pełna synchronizacja");
+        }
+    }
+}
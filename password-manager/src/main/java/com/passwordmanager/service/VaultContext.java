@@ -0,0 +1,55 @@
+package com.passwordmanager.service;
+
+import com.passwordmanager.model.PasswordEntry;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Wyznacza sejf (właściciela wpisów) bieżącego żądania: nazwę uwierzytelnionego użytkownika
+ * albo {@link PasswordEntry#DEFAULT_OWNER} dla żądań bez uwierzytelnienia.
+ * <p>
+ * Sejf jest odczytywany w wątku żądania - zadania w tle muszą go przechwycić przy zleceniu.
+ */
+@Component
+public class VaultContext {
+
+    /** Katalog plików sejfów innych niż domyślny (względem katalogu danych). */
+    static final String VAULTS_DIR = "vaults";
+
+    /**
+     * @return Sejf zalogowanego użytkownika lub {@link PasswordEntry#DEFAULT_OWNER}.
+     */
+    public String currentVault() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()
+                || authentication instanceof AnonymousAuthenticationToken) {
+            return PasswordEntry.DEFAULT_OWNER;
+        }
+        return authentication.getName();
+    }
+
+    /**
+     * Ścieżka pliku eksportu/importu sejfu względem katalogu danych. Pliki sejfu domyślnego leżą
+     * bezpośrednio w katalogu danych (jak przed podziałem na sejfy), pozostałych - w osobnym podkatalogu.
+     * @param vault Sejf.
+     * @param fileName Nazwa pliku podana przez użytkownika.
+     * @return Ścieżka względna pliku.
+     * @throws IllegalArgumentException Jeśli nazwa pliku wskazuje poza katalog sejfu.
+     */
+    public static String fileName(String vault, String fileName) {
+        if (fileName == null || fileName.isBlank() || fileName.contains("/") || fileName.contains("\\") || fileName.contains("..")) {
+            throw new IllegalArgumentException("Nieprawidłowa nazwa pliku: " + fileName);
+        }
+        if (PasswordEntry.DEFAULT_OWNER.equals(vault)) {
+            return fileName;
+        }
+        // Nazwa użytkownika może zawierać znaki niedozwolone w ścieżce - katalog to jej Base64 (URL-safe)
+        String directory = Base64.getUrlEncoder().withoutPadding().encodeToString(vault.getBytes(StandardCharsets.UTF_8));
+        return VAULTS_DIR + "/" + directory + "/" + fileName;
+    }
+}
@@ -0,0 +1,105 @@
+package com.passwordmanager.service.breach;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Filtr Blooma przed korpusem skrótów ({@link BreachCorpus}), w osobnym pliku zmapowanym w pamięć.
+ * <p>
+ * Plik: nagłówek ({@link #MAGIC}, wersja, liczba funkcji skrótu, liczba skrótów korpusu, liczba bitów),
+ * po nim tablica bitów. Kluczami są skróty SHA-1, czyli wartości już równomiernie rozłożone - pozycje bitów
+ * wyznacza podwójne haszowanie {@code h1 + i * h2} z dwóch pierwszych słów skrótu, bez dodatkowego haszowania.
+ * Przy 10 bitach na skrót odsetek fałszywych trafień wynosi ok. 1%, a brak w filtrze rozstrzyga sprawdzenie
+ * po odczycie kilku bajtów, bez wyszukiwania w korpusie.
+ */
+final class BreachBloomFilter {
+
+    /** "PMBF" */
+    static final int MAGIC = 0x504D4246;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 4 + 4 + 4 + 4 + 8 + 8;
+
+    private final MappedRegion bits;
+    private final long bitCount;
+    private final int hashes;
+    private final long entries;
+
+    private BreachBloomFilter(MappedRegion bits, long bitCount, int hashes, long entries) {
+        this.bits = bits;
+        this.bitCount = bitCount;
+        this.hashes = hashes;
+        this.entries = entries;
+    }
+
+    /**
+     * Tworzy pusty filtr dla {@code entries} skrótów w pliku otwartym do zapisu.
+     * @param bitsPerEntry Liczba bitów filtra na skrót (większa - mniej fałszywych trafień).
+     */
+    static BreachBloomFilter create(FileChannel channel, long entries, int bitsPerEntry) throws IOException {
+        if (bitsPerEntry < 1 || bitsPerEntry > 64) {
+            throw new IllegalArgumentException("Liczba bitów filtra Blooma na skrót musi wynosić od 1 do 64");
+        }
+        long bitCount = Math.max(64, (entries * bitsPerEntry + 7) & ~7L);
+        int hashes = Math.max(1, (int) Math.round(bitsPerEntry * Math.log(2)));
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+                .putInt(MAGIC).putInt(VERSION).putInt(hashes).putInt(0).putLong(entries).putLong(bitCount).flip();
+        while (header.hasRemaining()) {
+            channel.write(header, header.position());
+        }
+        channel.truncate(HEADER_SIZE);
+        // Mapowanie poza koniec pliku powiększa go - tablica bitów zaczyna się wyzerowana
+        MappedRegion bits = new MappedRegion(channel, HEADER_SIZE, bitCount / 8, FileChannel.MapMode.READ_WRITE,
+                MappedRegion.DEFAULT_SEGMENT_SHIFT);
+        return new BreachBloomFilter(bits, bitCount, hashes, entries);
+    }
+
+    /**
+     * Otwiera filtr zapisany przez {@link #create(FileChannel, long, int)}.
+     * @throws IOException Jeśli plik nie jest filtrem w obsługiwanej wersji.
+     */
+    static BreachBloomFilter open(FileChannel channel, int segmentShift) throws IOException {
+        ByteBuffer header = BreachCorpus.readFully(channel, HEADER_SIZE, 0);
+        int magic = header.getInt();
+        int version = header.getInt();
+        int hashes = header.getInt();
+        header.getInt();
+        long entries = header.getLong();
+        long bitCount = header.getLong();
+        if (magic != MAGIC || version != VERSION || hashes < 1 || bitCount < 64 || bitCount % 8 != 0
+                || channel.size() != HEADER_SIZE + bitCount / 8) {
+            throw new IOException("Plik nie jest filtrem Blooma korpusu wycieków w obsługiwanej wersji");
+        }
+        MappedRegion bits = new MappedRegion(channel, HEADER_SIZE, bitCount / 8, FileChannel.MapMode.READ_ONLY, segmentShift);
+        return new BreachBloomFilter(bits, bitCount, hashes, entries);
+    }
+
+    /** Liczba skrótów korpusu, dla którego zbudowano filtr. */
+    long entries() {
+        return entries;
+    }
+
+    void add(long h1, long h2) {
+        for (int i = 0; i < hashes; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, bitCount);
+            bits.put(bit >>> 3, (byte) (bits.get(bit >>> 3) | (1 << (bit & 7))));
+        }
+    }
+
+    /**
+     * @return false, jeśli skrótu na pewno nie ma w korpusie; true - może być (wymaga sprawdzenia w korpusie).
+     */
+    boolean mightContain(long h1, long h2) {
+        for (int i = 0; i < hashes; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, bitCount);
+            if ((bits.get(bit >>> 3) & (1 << (bit & 7))) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    void force() {
+        bits.force();
+    }
+}
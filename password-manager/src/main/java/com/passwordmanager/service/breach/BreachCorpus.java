@@ -0,0 +1,211 @@
+package com.passwordmanager.service.breach;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Korpus skrótów SHA-1 haseł z wycieków danych w pliku binarnym, zmapowanym w pamięć i przeszukiwanym binarnie.
+ * <p>
+ * Plik (tworzony przez {@link BreachCorpusConverter}): nagłówek ({@link #MAGIC}, wersja, liczba rekordów),
+ * tablica rozgałęzień - dla każdego 16-bitowego prefiksu skrótu liczba rekordów o prefiksie nie większym -
+ * i rekordy stałej długości {@code [SHA-1: 20 bajtów][liczba wystąpień: int]} posortowane po skrócie.
+ * Tablica rozgałęzień (512 KB) jest trzymana na stercie i zawęża wyszukiwanie do rekordów jednego prefiksu:
+ * przy 900 mln rekordów to ok. 14 tys. rekordów i 14 porównań, bez alokacji i bez wywołań systemowych.
+ * <p>
+ * Opcjonalny filtr Blooma ({@link #bloomPath(Path)}) odrzuca większość skrótów spoza korpusu przed wyszukiwaniem.
+ * Obiekt jest bezpieczny wątkowo - mapowania są tylko do odczytu.
+ */
+public final class BreachCorpus implements Closeable {
+
+    /** "PMBC" */
+    static final int MAGIC = 0x504D4243;
+    static final int VERSION = 1;
+    static final int HASH_LENGTH = 20;
+    static final int RECORD_SIZE = HASH_LENGTH + 4;
+    static final int FANOUT_SIZE = 1 << 16;
+    static final int HEADER_SIZE = 4 + 4 + 8 + FANOUT_SIZE * 8;
+
+    private final FileChannel channel;
+    private final FileChannel bloomChannel;
+    private final MappedRegion records;
+    private final BreachBloomFilter bloomFilter;
+    /** fanout[p] - liczba rekordów, których dwa pierwsze bajty skrótu są nie większe niż p. */
+    private final long[] fanout;
+    private final long size;
+
+    private BreachCorpus(FileChannel channel, MappedRegion records, long[] fanout, long size,
+                         FileChannel bloomChannel, BreachBloomFilter bloomFilter) {
+        this.channel = channel;
+        this.records = records;
+        this.fanout = fanout;
+        this.size = size;
+        this.bloomChannel = bloomChannel;
+        this.bloomFilter = bloomFilter;
+    }
+
+    /**
+     * Otwiera korpus.
+     * @param path Plik korpusu.
+     * @param useBloomFilter Czy używać filtra Blooma, jeśli obok korpusu istnieje jego plik ({@link #bloomPath(Path)}).
+     * @throws IOException Jeśli plik nie istnieje, nie jest korpusem w obsługiwanej wersji
+     *                     albo filtr Blooma nie pasuje do korpusu.
+     */
+    public static BreachCorpus open(Path path, boolean useBloomFilter) throws IOException {
+        return open(path, useBloomFilter, MappedRegion.DEFAULT_SEGMENT_SHIFT);
+    }
+
+    static BreachCorpus open(Path path, boolean useBloomFilter, int segmentShift) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        FileChannel bloomChannel = null;
+        try {
+            if (channel.size() < HEADER_SIZE) {
+                throw new IOException("Plik nie jest korpusem wycieków: " + path);
+            }
+            ByteBuffer header = readFully(channel, HEADER_SIZE, 0);
+            long size = header.getLong(8);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION || size < 0
+                    || channel.size() != HEADER_SIZE + size * RECORD_SIZE) {
+                throw new IOException("Plik nie jest korpusem wycieków w obsługiwanej wersji: " + path);
+            }
+            long[] fanout = new long[FANOUT_SIZE];
+            header.position(16).asLongBuffer().get(fanout);
+            for (int p = 0; p < FANOUT_SIZE; p++) {
+                if (fanout[p] < (p == 0 ? 0 : fanout[p - 1])) {
+                    throw new IOException("Uszkodzona tablica rozgałęzień korpusu wycieków: " + path);
+                }
+            }
+            if (fanout[FANOUT_SIZE - 1] != size) {
+                throw new IOException("Uszkodzona tablica rozgałęzień korpusu wycieków: " + path);
+            }
+            MappedRegion records = new MappedRegion(channel, HEADER_SIZE, size * RECORD_SIZE, FileChannel.MapMode.READ_ONLY,
+                    segmentShift);
+
+            BreachBloomFilter bloomFilter = null;
+            Path bloomPath = bloomPath(path);
+            if (useBloomFilter && Files.exists(bloomPath)) {
+                bloomChannel = FileChannel.open(bloomPath, StandardOpenOption.READ);
+                bloomFilter = BreachBloomFilter.open(bloomChannel, segmentShift);
+                if (bloomFilter.entries() != size) {
+                    throw new IOException("Filtr Blooma nie pasuje do korpusu wycieków (inna liczba skrótów): " + bloomPath);
+                }
+            }
+            return new BreachCorpus(channel, records, fanout, size, bloomChannel, bloomFilter);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            if (bloomChannel != null) {
+                bloomChannel.close();
+            }
+            throw e;
+        }
+    }
+
+    /** Plik filtra Blooma korpusu: {@code <korpus>.bloom}. */
+    public static Path bloomPath(Path corpus) {
+        return corpus.resolveSibling(corpus.getFileName() + ".bloom");
+    }
+
+    /** Liczba skrótów w korpusie. */
+    public long size() {
+        return size;
+    }
+
+    /** Czy sprawdzenia przechodzą przez filtr Blooma. */
+    public boolean hasBloomFilter() {
+        return bloomFilter != null;
+    }
+
+    /**
+     * Zwraca liczbę wystąpień skrótu w wyciekach.
+     * @param sha1 Skrót SHA-1 hasła (20 bajtów).
+     * @return Liczba wystąpień lub 0, jeśli skrótu nie ma w korpusie.
+     */
+    public int occurrences(byte[] sha1) {
+        if (sha1.length != HASH_LENGTH) {
+            throw new IllegalArgumentException("Skrót SHA-1 musi mieć " + HASH_LENGTH + " bajtów");
+        }
+        ByteBuffer key = ByteBuffer.wrap(sha1);
+        long high = key.getLong(0);
+        long middle = key.getLong(8);
+        int low = key.getInt(16);
+        if (bloomFilter != null && !bloomFilter.mightContain(high, middle)) {
+            return 0;
+        }
+        long index = find(high, middle, low);
+        return index < 0 ? 0 : records.getInt(index * RECORD_SIZE + HASH_LENGTH);
+    }
+
+    /** Czy skrót SHA-1 hasła występuje w korpusie. */
+    public boolean contains(byte[] sha1) {
+        return occurrences(sha1) > 0;
+    }
+
+    /**
+     * Wyszukiwanie binarne w zakresie rekordów prefiksu skrótu. Skrót jest porównywany jako dwa słowa long
+     * i jedno int bez znaku (big-endian) - to ta sama kolejność co porównanie bajtów.
+     * @return Numer rekordu lub -1.
+     */
+    private long find(long high, long middle, int low) {
+        int prefix = (int) (high >>> 48);
+        long from = prefix == 0 ? 0 : fanout[prefix - 1];
+        long to = fanout[prefix] - 1;
+        while (from <= to) {
+            long index = (from + to) >>> 1;
+            long offset = index * RECORD_SIZE;
+            int cmp = Long.compareUnsigned(records.getLong(offset), high);
+            if (cmp == 0) {
+                cmp = Long.compareUnsigned(records.getLong(offset + 8), middle);
+                if (cmp == 0) {
+                    cmp = Integer.compareUnsigned(records.getInt(offset + 16), low);
+                }
+            }
+            if (cmp < 0) {
+                from = index + 1;
+            } else if (cmp > 0) {
+                to = index - 1;
+            } else {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Wywołuje {@code consumer} dla dwóch pierwszych słów każdego skrótu, w kolejności pliku
+     * (budowa filtra Blooma przez {@link BreachCorpusConverter}).
+     */
+    void forEachHash(HashConsumer consumer) {
+        for (long offset = 0; offset < size * RECORD_SIZE; offset += RECORD_SIZE) {
+            consumer.accept(records.getLong(offset), records.getLong(offset + 8));
+        }
+    }
+
+    interface HashConsumer {
+        void accept(long high, long middle);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            channel.close();
+        } finally {
+            if (bloomChannel != null) {
+                bloomChannel.close();
+            }
+        }
+    }
+
+    static ByteBuffer readFully(FileChannel channel, int length, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Nieoczekiwany koniec pliku");
+            }
+        }
+        return buffer.flip();
+    }
+}
@@ -0,0 +1,248 @@
+package com.passwordmanager.service.breach;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Konwertuje tekstowy zrzut skrótów haseł z wycieków do pliku korpusu {@link BreachCorpus}.
+ * <p>
+ * Zrzut to wiersze {@code SHA1[:liczba]} (format list "Pwned Passwords" uporządkowanych po skrócie),
+ * skróty szesnastkowo w dowolnej wielkości liter. Zrzut musi być posortowany po skrócie - konwersja jest
+ * jednoprzebiegowa i strumieniowa, bez sortowania w pamięci; powtórzone skróty są scalane (liczby sumowane).
+ * Korpus jest zapisywany do pliku tymczasowego i podmieniany atomowo, a filtr Blooma budowany drugim
+ * przebiegiem po zmapowanych rekordach.
+ */
+public final class BreachCorpusConverter {
+
+    public static final int DEFAULT_BLOOM_BITS_PER_ENTRY = 10;
+
+    private static final int READ_BUFFER_SIZE = 1 << 20;
+    private static final int MAX_LINE_LENGTH = 256;
+
+    private BreachCorpusConverter() {
+    }
+
+    /**
+     * Konwertuje zrzut z pliku.
+     * @see #convert(InputStream, Path, int)
+     */
+    public static long convert(Path dump, Path corpus, int bloomBitsPerEntry) throws IOException {
+        try (InputStream in = Files.newInputStream(dump)) {
+            return convert(in, corpus, bloomBitsPerEntry);
+        }
+    }
+
+    /**
+     * Konwertuje zrzut ze strumienia.
+     * @param dump Zrzut tekstowy posortowany po skrócie.
+     * @param corpus Plik korpusu (zastępowany, jeśli istnieje).
+     * @param bloomBitsPerEntry Liczba bitów filtra Blooma na skrót; 0 - bez filtra (istniejący plik filtra jest usuwany).
+     * @return Liczba skrótów w korpusie.
+     * @throws IOException Jeśli zrzut jest nieprawidłowy lub nieposortowany albo zapis się nie powiódł.
+     */
+    public static long convert(InputStream dump, Path corpus, int bloomBitsPerEntry) throws IOException {
+        if (bloomBitsPerEntry < 0 || bloomBitsPerEntry > 64) {
+            throw new IllegalArgumentException("Liczba bitów filtra Blooma na skrót musi wynosić od 0 do 64");
+        }
+        Path directory = corpus.toAbsolutePath().getParent();
+        long count;
+        Path temp = Files.createTempFile(directory, corpus.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                RecordWriter writer = new RecordWriter(channel);
+                parse(dump, writer);
+                count = writer.finish();
+                channel.force(true);
+            }
+            Files.move(temp, corpus, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+
+        Path bloomPath = BreachCorpus.bloomPath(corpus);
+        if (bloomBitsPerEntry == 0) {
+            Files.deleteIfExists(bloomPath);
+            return count;
+        }
+        Path bloomTemp = Files.createTempFile(directory, bloomPath.getFileName().toString(), ".tmp");
+        try {
+            try (BreachCorpus source = BreachCorpus.open(corpus, false);
+                 FileChannel channel = FileChannel.open(bloomTemp, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                BreachBloomFilter filter = BreachBloomFilter.create(channel, source.size(), bloomBitsPerEntry);
+                source.forEachHash(filter::add);
+                filter.force();
+            }
+            Files.move(bloomTemp, bloomPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(bloomTemp);
+        }
+        return count;
+    }
+
+    /** Dzieli strumień na wiersze bez dekodowania znaków - zrzut jest czystym ASCII. */
+    private static void parse(InputStream in, RecordWriter writer) throws IOException {
+        byte[] buffer = new byte[READ_BUFFER_SIZE];
+        byte[] line = new byte[MAX_LINE_LENGTH];
+        int length = 0;
+        long lineNumber = 1;
+        int read;
+        while ((read = in.read(buffer)) >= 0) {
+            for (int i = 0; i < read; i++) {
+                byte b = buffer[i];
+                if (b == '\n') {
+                    parseLine(line, length, lineNumber++, writer);
+                    length = 0;
+                } else if (length == MAX_LINE_LENGTH) {
+                    throw new IOException("Zbyt długi wiersz " + lineNumber + " zrzutu");
+                } else {
+                    line[length++] = b;
+                }
+            }
+        }
+        parseLine(line, length, lineNumber, writer);
+    }
+
+    private static void parseLine(byte[] line, int length, long lineNumber, RecordWriter writer) throws IOException {
+        int from = 0;
+        int to = length;
+        while (from < to && line[from] <= ' ') {
+            from++;
+        }
+        while (to > from && line[to - 1] <= ' ') {
+            to--;
+        }
+        if (from == to) {
+            return;
+        }
+        int hexLength = BreachCorpus.HASH_LENGTH * 2;
+        if (to - from < hexLength) {
+            throw invalidLine(lineNumber);
+        }
+        byte[] hash = writer.hash;
+        for (int i = 0; i < BreachCorpus.HASH_LENGTH; i++) {
+            int high = Character.digit(line[from + 2 * i], 16);
+            int low = Character.digit(line[from + 2 * i + 1], 16);
+            if (high < 0 || low < 0) {
+                throw invalidLine(lineNumber);
+            }
+            hash[i] = (byte) (high << 4 | low);
+        }
+        long occurrences = 1;
+        int position = from + hexLength;
+        if (position < to) {
+            if (line[position] != ':' || position + 1 == to) {
+                throw invalidLine(lineNumber);
+            }
+            occurrences = 0;
+            for (position++; position < to; position++) {
+                int digit = line[position] - '0';
+                if (digit < 0 || digit > 9) {
+                    throw invalidLine(lineNumber);
+                }
+                occurrences = Math.min(Integer.MAX_VALUE, occurrences * 10 + digit);
+            }
+        }
+        writer.add((int) Math.max(1, occurrences), lineNumber);
+    }
+
+    private static IOException invalidLine(long lineNumber) {
+        return new IOException("Nieprawidłowy wiersz " + lineNumber + " zrzutu (oczekiwano SHA1[:liczba])");
+    }
+
+    /**
+     * Zapisuje rekordy za miejscem na nagłówek, scala powtórzenia skrótu i zlicza rekordy prefiksów;
+     * nagłówek z tablicą rozgałęzień jest zapisywany na końcu.
+     */
+    private static final class RecordWriter {
+
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BreachCorpus.RECORD_SIZE * (READ_BUFFER_SIZE / BreachCorpus.RECORD_SIZE));
+        private final long[] fanout = new long[BreachCorpus.FANOUT_SIZE];
+        /** Skrót bieżącego wiersza, wypełniany przez parser. */
+        final byte[] hash = new byte[BreachCorpus.HASH_LENGTH];
+        private final byte[] previous = new byte[BreachCorpus.HASH_LENGTH];
+        private long previousOccurrences;
+        private long count;
+        private long position = BreachCorpus.HEADER_SIZE;
+
+        RecordWriter(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void add(int occurrences, long lineNumber) throws IOException {
+            if (previousOccurrences > 0) {
+                int cmp = Arrays.compareUnsigned(hash, previous);
+                if (cmp < 0) {
+                    throw new IOException("Zrzut nie jest posortowany po skrócie (wiersz " + lineNumber
+                            + ") - użyj wersji zrzutu uporządkowanej po skrócie");
+                }
+                if (cmp == 0) {
+                    previousOccurrences = Math.min(Integer.MAX_VALUE, previousOccurrences + occurrences);
+                    return;
+                }
+                write();
+            }
+            System.arraycopy(hash, 0, previous, 0, hash.length);
+            previousOccurrences = occurrences;
+        }
+
+        private void write() throws IOException {
+            if (buffer.remaining() < BreachCorpus.RECORD_SIZE) {
+                flush();
+            }
+            buffer.put(previous).putInt((int) previousOccurrences);
+            fanout[(previous[0] & 0xFF) << 8 | previous[1] & 0xFF]++;
+            count++;
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+            buffer.clear();
+        }
+
+        /** Zapisuje ostatni rekord i nagłówek. */
+        long finish() throws IOException {
+            if (previousOccurrences > 0) {
+                write();
+            }
+            flush();
+            ByteBuffer header = ByteBuffer.allocate(BreachCorpus.HEADER_SIZE)
+                    .putInt(BreachCorpus.MAGIC).putInt(BreachCorpus.VERSION).putLong(count);
+            long cumulative = 0;
+            for (long prefixCount : fanout) {
+                cumulative += prefixCount;
+                header.putLong(cumulative);
+            }
+            header.flip();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Konwersja z wiersza poleceń: {@code <zrzut> <korpus> [bity filtra Blooma na skrót]}.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2 || args.length > 3) {
+            System.err.println("Użycie: BreachCorpusConverter <zrzut> <korpus> [bity filtra Blooma na skrót, domyślnie "
+                    + DEFAULT_BLOOM_BITS_PER_ENTRY + ", 0 - bez filtra]");
+            System.exit(2);
+        }
+        int bits = args.length == 3 ? Integer.parseInt(args[2]) : DEFAULT_BLOOM_BITS_PER_ENTRY;
+        long start = System.nanoTime();
+        long count = convert(Path.of(args[0]), Path.of(args[1]), bits);
+        System.out.printf("Zapisano %d skrótów do %s w %d ms%n", count, args[1], (System.nanoTime() - start) / 1_000_000);
+    }
+}
@@ -0,0 +1,99 @@
+package com.passwordmanager.service.breach;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * Sprawdza hasła w lokalnym korpusie skrótów haseł z wycieków ({@link BreachCorpus}) - bez dostępu do sieci,
+ * w czasie mikrosekund (skrót SHA-1 i wyszukiwanie w pliku zmapowanym w pamięć).
+ * <p>
+ * Korpus wskazuje {@code passwords.breach.corpus-path} (tworzony przez {@link BreachCorpusConverter});
+ * pusta ścieżka wyłącza sprawdzanie - {@link #isBreached(CharSequence)} zwraca wtedy zawsze false.
+ * {@code passwords.breach.bloom-filter} włącza filtr Blooma, jeśli jego plik istnieje obok korpusu.
+ */
+@Component
+public class BreachedPasswordChecker {
+
+    private static final ThreadLocal<MessageDigest> SHA1 = ThreadLocal.withInitial(BreachedPasswordChecker::newDigest);
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Brak algorytmu SHA-1", e);
+        }
+    }
+
+    private final BreachCorpus corpus;
+
+    @Autowired
+    public BreachedPasswordChecker(@Value("${passwords.breach.corpus-path:}") String corpusPath,
+                                   @Value("${passwords.breach.bloom-filter:true}") boolean bloomFilter) throws IOException {
+        this(corpusPath == null || corpusPath.isBlank() ? null : BreachCorpus.open(Path.of(corpusPath), bloomFilter));
+    }
+
+    BreachedPasswordChecker(BreachCorpus corpus) {
+        this.corpus = corpus;
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        if (corpus != null) {
+            corpus.close();
+        }
+    }
+
+    /** Czy skonfigurowano korpus wycieków. */
+    public boolean isEnabled() {
+        return corpus != null;
+    }
+
+    /**
+     * Czy hasło występuje w korpusie wycieków.
+     * @param password Hasło jawne.
+     * @return true, jeśli hasło wyciekło; false także przy wyłączonym sprawdzaniu i dla null.
+     */
+    public boolean isBreached(CharSequence password) {
+        return occurrences(password) > 0;
+    }
+
+    /**
+     * Zwraca liczbę wystąpień hasła w wyciekach.
+     * @param password Hasło jawne.
+     * @return Liczba wystąpień; 0, jeśli hasła nie ma w korpusie, sprawdzanie jest wyłączone lub hasło to null.
+     */
+    public int occurrences(CharSequence password) {
+        if (corpus == null || password == null) {
+            return 0;
+        }
+        byte[] sha1 = sha1(password);
+        try {
+            return corpus.occurrences(sha1);
+        } finally {
+            Arrays.fill(sha1, (byte) 0);
+        }
+    }
+
+    /** SHA-1 z UTF-8 hasła; bufor z bajtami hasła jest zerowany. */
+    static byte[] sha1(CharSequence password) {
+        ByteBuffer bytes = StandardCharsets.UTF_8.encode(CharBuffer.wrap(password));
+        try {
+            MessageDigest digest = SHA1.get();
+            digest.update(bytes.duplicate());
+            return digest.digest();
+        } finally {
+            Arrays.fill(bytes.array(), (byte) 0);
+        }
+    }
+}
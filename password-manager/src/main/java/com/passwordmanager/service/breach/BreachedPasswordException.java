@@ -0,0 +1,13 @@
+package com.passwordmanager.service.breach;
+
+/**
+ * Hasło występuje w korpusie wycieków, a konfiguracja ({@code passwords.breach.reject=true}) nie pozwala go zapisać.
+ */
+public class BreachedPasswordException extends IllegalArgumentException {
+
+    private static final long serialVersionUID = 1L;
+
+    public BreachedPasswordException() {
+        super("Hasło występuje w znanych wyciekach danych");
+    }
+}
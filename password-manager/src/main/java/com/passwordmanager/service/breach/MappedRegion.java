@@ -0,0 +1,70 @@
+package com.passwordmanager.service.breach;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Obszar pliku zmapowany w pamięć segmentami - pojedynczy {@link MappedByteBuffer} obejmuje najwyżej 2 GB,
+ * a korpus setek milionów skrótów zajmuje kilkanaście. Segmenty zachodzą na siebie o {@link #OVERLAP} bajtów,
+ * więc wartość krótsza niż zakładka, zaczynająca się w segmencie, leży w nim w całości - odczyt rekordu
+ * nie musi go składać z dwóch mapowań.
+ */
+final class MappedRegion {
+
+    static final int OVERLAP = 64;
+    /** Segmenty po 1 GB. */
+    static final int DEFAULT_SEGMENT_SHIFT = 30;
+
+    private final MappedByteBuffer[] segments;
+    private final int segmentShift;
+    private final long segmentMask;
+    private final long size;
+
+    /**
+     * @param channel Kanał pliku.
+     * @param position Początek obszaru w pliku.
+     * @param size Rozmiar obszaru w bajtach.
+     * @param mode Tryb mapowania.
+     * @param segmentShift Log2 rozmiaru segmentu.
+     */
+    MappedRegion(FileChannel channel, long position, long size, FileChannel.MapMode mode, int segmentShift) throws IOException {
+        long segmentSize = 1L << segmentShift;
+        this.segmentShift = segmentShift;
+        this.segmentMask = segmentSize - 1;
+        this.size = size;
+        this.segments = new MappedByteBuffer[(int) ((size + segmentSize - 1) >>> segmentShift)];
+        for (int i = 0; i < segments.length; i++) {
+            long start = (long) i << segmentShift;
+            segments[i] = channel.map(mode, position + start, Math.min(segmentSize + OVERLAP, size - start));
+        }
+    }
+
+    long size() {
+        return size;
+    }
+
+    byte get(long offset) {
+        return segments[(int) (offset >>> segmentShift)].get((int) (offset & segmentMask));
+    }
+
+    int getInt(long offset) {
+        return segments[(int) (offset >>> segmentShift)].getInt((int) (offset & segmentMask));
+    }
+
+    long getLong(long offset) {
+        return segments[(int) (offset >>> segmentShift)].getLong((int) (offset & segmentMask));
+    }
+
+    /** Zapis - tylko dla obszarów zmapowanych w trybie {@link FileChannel.MapMode#READ_WRITE}. */
+    void put(long offset, byte value) {
+        segments[(int) (offset >>> segmentShift)].put((int) (offset & segmentMask), value);
+    }
+
+    /** Utrwala zmiany zapisane przez {@link #put(long, byte)}. */
+    void force() {
+        for (MappedByteBuffer segment : segments) {
+            segment.force();
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.passwordmanager.service.format;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Strumieniowa kompresja pliku eksportu. Przy imporcie rodzaj kompresji wykrywany jest
+ * po nagłówku ({@link #detect(byte[], int)}), więc nie trzeba go podawać.
+ */
+public enum Compression {
+
+    /** Bez kompresji. */
+    NONE,
+    /** Format gzip (RFC 1952) - pliki można rozpakować np. poleceniem {@code gunzip}. */
+    GZIP,
+    /** Strumień zlib (RFC 1950) - nagłówek krótszy niż gzip, bez sumy CRC32. */
+    DEFLATE;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Opakowuje strumień wyjściowy kompresją. Zamknięcie zwróconego strumienia kończy kompresję
+     * i zamyka strumień docelowy.
+     * @param out Strumień docelowy.
+     * @return Strumień kompresujący (lub {@code out} dla {@link #NONE}).
+     * @throws IOException Jeśli wystąpi błąd zapisu nagłówka.
+     */
+    public OutputStream wrap(OutputStream out) throws IOException {
+        switch (this) {
+            case GZIP:
+                return new GZIPOutputStream(out, BUFFER_SIZE);
+            case DEFLATE:
+                Deflater deflater = new Deflater();
+                return new DeflaterOutputStream(out, deflater, BUFFER_SIZE) {
+                    @Override
+                    public void close() throws IOException {
+                        try {
+                            super.close();
+                        } finally {
+                            deflater.end(); // Zwolnienie pamięci natywnej zlib
+                        }
+                    }
+                };
+            default:
+                return out;
+        }
+    }
+
+    /**
+     * Opakowuje strumień wejściowy dekompresją.
+     * @param in Strumień źródłowy.
+     * @return Strumień dekompresujący (lub {@code in} dla {@link #NONE}).
+     * @throws IOException Jeśli nagłówek jest nieprawidłowy.
+     */
+    public InputStream unwrap(InputStream in) throws IOException {
+        switch (this) {
+            case GZIP:
+                return new GZIPInputStream(in, BUFFER_SIZE);
+            case DEFLATE:
+                Inflater inflater = new Inflater();
+                return new InflaterInputStream(in, inflater, BUFFER_SIZE) {
+                    @Override
+                    public void close() throws IOException {
+                        try {
+                            super.close();
+                        } finally {
+                            inflater.end();
+                        }
+                    }
+                };
+            default:
+                return in;
+        }
+    }
+
+    /**
+     * Rozpoznaje kompresję po pierwszych bajtach danych.
+     * @param header Pierwsze bajty danych.
+     * @param length Liczba odczytanych bajtów.
+     * @return Wykryta kompresja lub {@link #NONE}.
+     */
+    public static Compression detect(byte[] header, int length) {
+        if (length < 2) {
+            return NONE;
+        }
+        int b0 = header[0] & 0xFF;
+        int b1 = header[1] & 0xFF;
+        if (b0 == 0x1F && b1 == 0x8B) {
+            return GZIP;
+        }
+        // Nagłówek zlib: metoda 8 (deflate), okno do 32 KB, a CMF*256+FLG podzielne przez 31
+        if ((b0 & 0x0F) == 8 && (b0 >> 4) <= 7 && ((b0 << 8) | b1) % 31 == 0) {
+            return DEFLATE;
+        }
+        return NONE;
+    }
+
+    /**
+     * Odczytuje parametr {@code compression} (wielkość liter bez znaczenia).
+     * @param value Wartość parametru ("none", "gzip" lub "deflate").
+     * @return Odpowiadająca kompresja.
+     * @throws IllegalArgumentException Jeśli wartość nie jest obsługiwana.
+     */
+    public static Compression fromParam(String value) {
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Nieobsługiwana kompresja: " + value, e);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.passwordmanager.service.format;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.cbor.CBORGenerator;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import com.passwordmanager.model.PasswordEntry;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Formaty oparte na Jacksonie: plik to tablica obiektów {@link PasswordEntry} zapisywana
+ * i czytana strumieniowo ({@link JsonGenerator}/{@link JsonParser}).
+ * <ul>
+ *     <li>{@code json} - tekstowy, sformatowany (jak dotychczasowy eksport),</li>
+ *     <li>{@code smile} - binarny odpowiednik JSON; powtarzające się nazwy pól i krótkie wartości
+ *     (np. kategorie) zapisywane są jako odwołania do wcześniejszych wystąpień,</li>
+ *     <li>{@code cbor} - binarny format RFC 8949, czytelny także poza Javą.</li>
+ * </ul>
+ */
+public class JacksonPasswordFormat implements PasswordFormat {
+
+    private static final byte[] SMILE_MAGIC = {':', ')', '\n'};
+    private static final byte[] CBOR_MAGIC = {(byte) 0xD9, (byte) 0xD9, (byte) 0xF7}; // Znacznik "self-describe CBOR"
+
+    private final String name;
+    private final ObjectMapper mapper;
+    private final boolean prettyPrint;
+    private final byte[] magic; // null - format tekstowy, rozpoznawany po pierwszym znaku
+    private final ObjectReader entryReader;
+    private final ObjectWriter entryWriter;
+
+    private JacksonPasswordFormat(String name, ObjectMapper mapper, boolean prettyPrint, byte[] magic) {
+        this.name = name;
+        this.mapper = mapper;
+        this.prettyPrint = prettyPrint;
+        this.magic = magic;
+        this.entryReader = mapper.readerFor(PasswordEntry.class);
+        // Bez FLUSH_AFTER_WRITE_VALUE - inaczej każdy wpis kończyłby się osobnym zapisem na dysk
+        this.entryWriter = mapper.writerFor(PasswordEntry.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    public static JacksonPasswordFormat json() {
+        return new JacksonPasswordFormat(PasswordFormats.JSON, new ObjectMapper(), true, null);
+    }
+
+    public static JacksonPasswordFormat smile() {
+        SmileFactory factory = SmileFactory.builder()
+                .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+                .build();
+        return new JacksonPasswordFormat(PasswordFormats.SMILE, new ObjectMapper(factory), false, SMILE_MAGIC);
+    }
+
+    public static JacksonPasswordFormat cbor() {
+        CBORFactory factory = CBORFactory.builder()
+                .enable(CBORGenerator.Feature.WRITE_TYPE_HEADER) // Nagłówek pozwala wykryć format przy imporcie
+                .build();
+        return new JacksonPasswordFormat(PasswordFormats.CBOR, new ObjectMapper(factory), false, CBOR_MAGIC);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public boolean matches(byte[] header, int length) {
+        if (magic != null) {
+            return PasswordFormats.startsWith(header, length, magic);
+        }
+        int first = PasswordFormats.firstNonWhitespace(header, length);
+        return first >= 0 && header[first] == '[';
+    }
+
+    @Override
+    public long write(Stream<PasswordEntry> entries, OutputStream out) throws IOException {
+        long count = 0;
+        try (out; JsonGenerator generator = mapper.getFactory().createGenerator(out)) {
+            if (prettyPrint) {
+                generator.useDefaultPrettyPrinter();
+            }
+            generator.writeStartArray();
+            Iterator<PasswordEntry> iterator = entries.iterator();
+            while (iterator.hasNext()) {
+                entryWriter.writeValue(generator, iterator.next());
+                count++;
+            }
+            generator.writeEndArray();
+        }
+        return count;
+    }
+
+    @Override
+    public long read(InputStream in, Consumer<PasswordEntry> consumer) throws IOException {
+        long count = 0;
+        try (in; JsonParser parser = mapper.getFactory().createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("Dane w formacie " + name + " nie zawierają tablicy wpisów");
+            }
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                consumer.accept(entryReader.readValue(parser));
+                count++;
+            }
+        }
+        return count;
+    }
+}
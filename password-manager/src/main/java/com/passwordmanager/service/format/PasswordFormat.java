@@ -0,0 +1,53 @@
+package com.passwordmanager.service.format;
+
+import com.passwordmanager.model.PasswordEntry;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Format pliku eksportu/importu haseł. Wbudowane formaty to JSON, Smile, CBOR i XML ({@link PasswordFormats});
+ * kolejne można dodać bez zmian w serwisach, rejestrując implementację w pliku
+ * {@code META-INF/services/com.passwordmanager.service.format.PasswordFormat}.
+ * <p>
+ * Implementacje muszą być bezpieczne wątkowo i przetwarzać wpisy strumieniowo - naraz w pamięci
+ * powinien znajdować się tylko jeden wpis.
+ */
+public interface PasswordFormat {
+
+    /**
+     * @return Nazwa formatu używana w parametrze {@code format} (małymi literami, np. "smile").
+     */
+    String getName();
+
+    /**
+     * Sprawdza, czy dane zaczynające się od podanych bajtów są zapisane w tym formacie.
+     * Używane do wykrywania formatu przy imporcie (po zdjęciu ewentualnej kompresji).
+     * @param header Pierwsze bajty danych.
+     * @param length Liczba odczytanych bajtów w {@code header} (może być mniejsza od jego długości).
+     * @return true, jeśli nagłówek pasuje do formatu.
+     */
+    boolean matches(byte[] header, int length);
+
+    /**
+     * Zapisuje wpisy do strumienia, wpis po wpisie. Strumień wyjściowy jest zamykany po zapisie,
+     * strumień wpisów - nie.
+     * @param entries Wpisy do zapisania.
+     * @param out Strumień docelowy.
+     * @return Liczba zapisanych wpisów.
+     * @throws IOException Jeśli wystąpi błąd zapisu.
+     */
+    long write(Stream<PasswordEntry> entries, OutputStream out) throws IOException;
+
+    /**
+     * Odczytuje wpisy ze strumienia, przekazując je kolejno do konsumenta. Strumień jest zamykany po odczycie.
+     * @param in Strumień źródłowy.
+     * @param consumer Odbiorca kolejnych wpisów.
+     * @return Liczba odczytanych wpisów.
+     * @throws IOException Jeśli wystąpi błąd odczytu lub dane nie są zgodne z formatem.
+     */
+    long read(InputStream in, Consumer<PasswordEntry> consumer) throws IOException;
+}
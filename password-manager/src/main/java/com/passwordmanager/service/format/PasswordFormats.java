@@ -0,0 +1,146 @@
+package com.passwordmanager.service.format;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.Set;
+
+/**
+ * Rejestr formatów eksportu/importu: formaty wbudowane oraz implementacje {@link PasswordFormat}
+ * znalezione przez {@link ServiceLoader}. Wykrywa kompresję i format importowanych danych
+ * po ich pierwszych bajtach.
+ */
+public class PasswordFormats {
+
+    public static final String JSON = "json";
+    public static final String SMILE = "smile";
+    public static final String CBOR = "cbor";
+    public static final String XML = "xml";
+
+    private static final int HEADER_SIZE = 16;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Map<String, PasswordFormat> formats = new LinkedHashMap<>();
+
+    public PasswordFormats(Collection<? extends PasswordFormat> formats) {
+        for (PasswordFormat format : formats) {
+            String name = format.getName().toLowerCase(Locale.ROOT);
+            if (this.formats.putIfAbsent(name, format) != null) {
+                throw new IllegalStateException("Zduplikowana nazwa formatu: " + name);
+            }
+        }
+    }
+
+    /**
+     * Tworzy rejestr z podanych formatów wbudowanych i formatów zarejestrowanych przez {@link ServiceLoader}.
+     * @param builtIns Formaty wbudowane.
+     * @return Rejestr formatów.
+     */
+    public static PasswordFormats load(PasswordFormat... builtIns) {
+        List<PasswordFormat> all = new ArrayList<>(Arrays.asList(builtIns));
+        ServiceLoader.load(PasswordFormat.class).forEach(all::add);
+        return new PasswordFormats(all);
+    }
+
+    /**
+     * @return Rejestr z formatami JSON, Smile, CBOR, XML i zarejestrowanymi przez {@link ServiceLoader}.
+     */
+    public static PasswordFormats withBuiltIns() {
+        return load(JacksonPasswordFormat.json(), JacksonPasswordFormat.smile(), JacksonPasswordFormat.cbor(),
+                new XmlPasswordFormat());
+    }
+
+    /**
+     * Zwraca format o podanej nazwie (wielkość liter bez znaczenia).
+     * @param name Nazwa formatu.
+     * @return Format.
+     * @throws IllegalArgumentException Jeśli format nie jest obsługiwany.
+     */
+    public PasswordFormat get(String name) {
+        PasswordFormat format = formats.get(name.trim().toLowerCase(Locale.ROOT));
+        if (format == null) {
+            throw new IllegalArgumentException("Nieobsługiwany format: " + name + " (dostępne: "
+                    + String.join(", ", formats.keySet()) + ")");
+        }
+        return format;
+    }
+
+    public Set<String> names() {
+        return formats.keySet();
+    }
+
+    /**
+     * Rozpoznaje kompresję i format danych. Zwrócony strumień jest już zdekompresowany
+     * i ustawiony na początku danych - można go przekazać do {@link PasswordFormat#read}.
+     * @param in Strumień źródłowy (zamykany razem ze zwróconym strumieniem).
+     * @return Wykryty format, kompresja i strumień do odczytu.
+     * @throws IOException Jeśli nie udało się odczytać nagłówka lub format nie został rozpoznany.
+     */
+    public Detected detect(InputStream in) throws IOException {
+        BufferedInputStream raw = in instanceof BufferedInputStream buffered ? buffered
+                : new BufferedInputStream(in, BUFFER_SIZE);
+        byte[] header = new byte[HEADER_SIZE];
+        Compression compression = Compression.detect(header, peek(raw, header));
+
+        BufferedInputStream data = compression == Compression.NONE ? raw
+                : new BufferedInputStream(compression.unwrap(raw), BUFFER_SIZE);
+        int length = peek(data, header);
+        for (PasswordFormat format : formats.values()) {
+            if (format.matches(header, length)) {
+                return new Detected(format, compression, data);
+            }
+        }
+        throw new IOException("Nie rozpoznano formatu danych (obsługiwane: "
+                + String.join(", ", formats.keySet()) + ")");
+    }
+
+    private static int peek(BufferedInputStream in, byte[] header) throws IOException {
+        in.mark(header.length);
+        int length = in.readNBytes(header, 0, header.length);
+        in.reset();
+        return length;
+    }
+
+    static boolean startsWith(byte[] header, int length, byte[] magic) {
+        if (length < magic.length) {
+            return false;
+        }
+        for (int i = 0; i < magic.length; i++) {
+            if (header[i] != magic[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Zwraca pozycję pierwszego znaku innego niż biały (z pominięciem BOM UTF-8) albo -1.
+     */
+    static int firstNonWhitespace(byte[] header, int length) {
+        int i = 0;
+        if (length >= 3 && (header[0] & 0xFF) == 0xEF && (header[1] & 0xFF) == 0xBB && (header[2] & 0xFF) == 0xBF) {
+            i = 3;
+        }
+        while (i < length && (header[i] == ' ' || header[i] == '\t' || header[i] == '\n' || header[i] == '\r')) {
+            i++;
+        }
+        return i < length ? i : -1;
+    }
+
+    /**
+     * Wynik rozpoznania danych importu.
+     * @param format Wykryty format.
+     * @param compression Wykryta kompresja.
+     * @param stream Zdekompresowany strumień ustawiony na początku danych.
+     */
+    public record Detected(PasswordFormat format, Compression compression, InputStream stream) {
+    }
+}
@@ -0,0 +1,157 @@
+package com.passwordmanager.service.format;
+
+import com.passwordmanager.model.PasswordEntry;
+import com.passwordmanager.model.PasswordListWrapper;
+import jakarta.xml.bind.JAXBContext;
+import jakarta.xml.bind.JAXBException;
+import jakarta.xml.bind.Marshaller;
+import jakarta.xml.bind.Unmarshaller;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Format XML zgodny z {@link PasswordListWrapper}: element {@code passwords} z elementami
+ * {@code passwordEntry}. Zapis i odczyt są strumieniowe (StAX), a każdy wpis marshallowany jest
+ * osobno przez JAXB, więc pliki o rozmiarze wielu gigabajtów są przetwarzane w stałej pamięci.
+ */
+public class XmlPasswordFormat implements PasswordFormat {
+
+    // Nazwy elementów zgodne z adnotacjami JAXB w PasswordListWrapper i PasswordEntry
+    private static final String XML_ROOT_ELEMENT = "passwords";
+    private static final String XML_ENTRY_ELEMENT = "passwordEntry";
+
+    private static final XMLInputFactory XML_INPUT_FACTORY = createXmlInputFactory();
+    private static final XMLOutputFactory XML_OUTPUT_FACTORY = XMLOutputFactory.newFactory();
+
+    // JAXBContext jest bezpieczny wątkowo i kosztowny w tworzeniu - budujemy go raz.
+    // Marshaller i Unmarshaller nie są bezpieczne wątkowo, więc każdy wątek ma własną, ponownie używaną instancję.
+    private final JAXBContext jaxbContext;
+    private final ThreadLocal<Marshaller> fragmentMarshallers;
+    private final ThreadLocal<Unmarshaller> unmarshallers;
+
+    public XmlPasswordFormat() {
+        try {
+            jaxbContext = JAXBContext.newInstance(PasswordListWrapper.class);
+        } catch (JAXBException e) {
+            throw new RuntimeException("Błąd inicjalizacji JAXBContext", e);
+        }
+        fragmentMarshallers = ThreadLocal.withInitial(() -> {
+            try {
+                Marshaller marshaller = jaxbContext.createMarshaller();
+                marshaller.setProperty(Marshaller.JAXB_FRAGMENT, true); // Bez nagłówka XML - wpisy są fragmentami dokumentu
+                return marshaller;
+            } catch (JAXBException e) {
+                throw new RuntimeException("Błąd tworzenia Marshallera", e);
+            }
+        });
+        unmarshallers = ThreadLocal.withInitial(() -> {
+            try {
+                return jaxbContext.createUnmarshaller();
+            } catch (JAXBException e) {
+                throw new RuntimeException("Błąd tworzenia Unmarshallera", e);
+            }
+        });
+    }
+
+    private static XMLInputFactory createXmlInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        // Ochrona przed XXE - importowane pliki pochodzą z zewnątrz
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+
+    /**
+     * @return Fabryka zapisu StAX, współdzielona z innymi zapisami XML (np. eksportem przyrostowym).
+     */
+    public static XMLOutputFactory outputFactory() {
+        return XML_OUTPUT_FACTORY;
+    }
+
+    @Override
+    public String getName() {
+        return PasswordFormats.XML;
+    }
+
+    @Override
+    public boolean matches(byte[] header, int length) {
+        int first = PasswordFormats.firstNonWhitespace(header, length);
+        return first >= 0 && header[first] == '<';
+    }
+
+    /**
+     * Zapisuje pojedynczy wpis jako element {@code passwordEntry} w bieżącym miejscu dokumentu.
+     * @param entry Wpis do zapisania.
+     * @param writer Otwarty zapis StAX.
+     * @throws JAXBException Jeśli wystąpi błąd JAXB.
+     */
+    public void writeEntry(PasswordEntry entry, XMLStreamWriter writer) throws JAXBException {
+        fragmentMarshallers.get().marshal(entry, writer);
+    }
+
+    @Override
+    public long write(Stream<PasswordEntry> entries, OutputStream out) throws IOException {
+        long count = 0;
+        try (out) {
+            XMLStreamWriter writer = XML_OUTPUT_FACTORY.createXMLStreamWriter(out, StandardCharsets.UTF_8.name());
+            try {
+                writer.writeStartDocument(StandardCharsets.UTF_8.name(), "1.0");
+                writer.writeCharacters("\n");
+                writer.writeStartElement(XML_ROOT_ELEMENT);
+                Iterator<PasswordEntry> iterator = entries.iterator();
+                while (iterator.hasNext()) {
+                    writer.writeCharacters("\n    ");
+                    writeEntry(iterator.next(), writer);
+                    count++;
+                }
+                writer.writeCharacters("\n");
+                writer.writeEndElement();
+                writer.writeEndDocument();
+                writer.flush();
+            } finally {
+                writer.close();
+            }
+        } catch (XMLStreamException | JAXBException e) {
+            throw new IOException("Błąd zapisu XML: " + e.getMessage(), e);
+        }
+        return count;
+    }
+
+    @Override
+    public long read(InputStream in, Consumer<PasswordEntry> consumer) throws IOException {
+        Unmarshaller unmarshaller = unmarshallers.get();
+        long count = 0;
+        try (in) {
+            XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(in);
+            try {
+                while (reader.hasNext()) {
+                    if (reader.getEventType() == XMLStreamConstants.START_ELEMENT
+                            && XML_ENTRY_ELEMENT.equals(reader.getLocalName())) {
+                        // unmarshal przesuwa czytnik za koniec elementu, więc nie wołamy next()
+                        consumer.accept(unmarshaller.unmarshal(reader, PasswordEntry.class).getValue());
+                        count++;
+                    } else {
+                        reader.next();
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException | JAXBException e) {
+            throw new IOException("Błąd odczytu XML: " + e.getMessage(), e);
+        }
+        return count;
+    }
+}
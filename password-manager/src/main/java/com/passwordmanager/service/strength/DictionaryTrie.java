@@ -0,0 +1,128 @@
+package com.passwordmanager.service.strength;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Słownik słów z rangami jako zwarte drzewo prefiksowe (trie) w tablicach prostych - bez obiektu na węzeł.
+ * <p>
+ * Węzły są numerowane wszerz, więc dzieci węzła {@code n} zajmują ciągły zakres
+ * {@code [childStart[n], childStart[n + 1])}, posortowany po znaku - przejście do dziecka to wyszukiwanie
+ * binarne w kilku znakach; dzieci korzenia (odpytywane od każdej pozycji hasła) mają tablicę bezpośrednią dla ASCII. Ranga słowa (pozycja na liście, od 1) jest zapisana w węźle jego ostatniego znaku;
+ * 0 oznacza węzeł, który nie kończy słowa. Drzewo jest niezmienne i bezpieczne wątkowo.
+ */
+final class DictionaryTrie {
+
+    static final int ROOT = 0;
+    static final int NONE = -1;
+
+    private final char[] labels;
+    private final int[] childStart;
+    private final int[] ranks;
+    /** Dziecko korzenia dla znaku ASCII lub {@link #NONE}. */
+    private final int[] rootChildren = new int[128];
+
+    private DictionaryTrie(char[] labels, int[] childStart, int[] ranks) {
+        this.labels = labels;
+        this.childStart = childStart;
+        this.ranks = ranks;
+        Arrays.fill(rootChildren, NONE);
+        for (int child = childStart[ROOT]; child < childStart[ROOT + 1]; child++) {
+            if (labels[child] < rootChildren.length) {
+                rootChildren[labels[child]] = child;
+            }
+        }
+    }
+
+    /**
+     * Buduje drzewo ze słów i ich rang. Słowa powinny być już znormalizowane (małe litery).
+     * @param rankedWords Słowo → ranga (od 1).
+     */
+    static DictionaryTrie build(Map<String, Integer> rankedWords) {
+        String[] words = rankedWords.keySet().stream().filter(word -> !word.isEmpty()).sorted().toArray(String[]::new);
+        int capacity = 1 + Arrays.stream(words).mapToInt(String::length).sum();
+        char[] labels = new char[capacity];
+        int[] childStart = new int[capacity + 1];
+        int[] ranks = new int[capacity];
+
+        // Kolejka węzłów wszerz: węzeł i zakres [from, to) posortowanych słów o wspólnym prefiksie długości depth
+        int[] queueFrom = new int[capacity];
+        int[] queueTo = new int[capacity];
+        int[] queueDepth = new int[capacity];
+        queueFrom[0] = 0;
+        queueTo[0] = words.length;
+        int nodes = 1;
+        for (int node = 0; node < nodes; node++) {
+            int from = queueFrom[node];
+            int to = queueTo[node];
+            int depth = queueDepth[node];
+            // Słowo równe prefiksowi sortuje się przed swoimi przedłużeniami
+            if (from < to && words[from].length() == depth) {
+                ranks[node] = rankedWords.get(words[from]);
+                from++;
+            }
+            childStart[node] = nodes;
+            while (from < to) {
+                char label = words[from].charAt(depth);
+                int end = from + 1;
+                while (end < to && words[end].charAt(depth) == label) {
+                    end++;
+                }
+                labels[nodes] = label;
+                queueFrom[nodes] = from;
+                queueTo[nodes] = end;
+                queueDepth[nodes] = depth + 1;
+                nodes++;
+                from = end;
+            }
+        }
+        childStart[nodes] = nodes;
+        return new DictionaryTrie(Arrays.copyOf(labels, nodes), Arrays.copyOf(childStart, nodes + 1), Arrays.copyOf(ranks, nodes));
+    }
+
+    /** Liczba węzłów drzewa. */
+    int size() {
+        return ranks.length;
+    }
+
+    /**
+     * @return Węzeł dziecka {@code node} ze znakiem {@code c} lub {@link #NONE}.
+     */
+    int child(int node, char c) {
+        if (node == ROOT && c < rootChildren.length) {
+            return rootChildren[c];
+        }
+        int low = childStart[node];
+        int high = childStart[node + 1] - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            char label = labels[middle];
+            if (label < c) {
+                low = middle + 1;
+            } else if (label > c) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * @return Ranga słowa kończącego się w węźle lub 0.
+     */
+    int rank(int node) {
+        return ranks[node];
+    }
+
+    /**
+     * @return Ranga słowa lub 0, jeśli słowa nie ma w słowniku.
+     */
+    int rank(CharSequence word) {
+        int node = ROOT;
+        for (int i = 0; i < word.length() && node != NONE; i++) {
+            node = child(node, word.charAt(i));
+        }
+        return node == NONE ? 0 : ranks[node];
+    }
+}
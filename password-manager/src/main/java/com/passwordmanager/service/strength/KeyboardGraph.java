@@ -0,0 +1,98 @@
+package com.passwordmanager.service.strength;
+
+import java.util.Arrays;
+
+/**
+ * Graf sąsiedztwa klawiszy układu QWERTY (także polskiego programisty), wyliczony raz przy ładowaniu klasy.
+ * <p>
+ * Dla każdej pary znaków ASCII tablica {@code directions} przechowuje kierunek (1-6), w którym leży drugi
+ * klawisz względem pierwszego, lub 0, jeśli klawisze nie sąsiadują - sprawdzenie sąsiedztwa i liczenie zmian
+ * kierunku przy dopasowaniu ciągu klawiszy ({@code qwerty}, {@code zaq12wsx}) to jeden odczyt z tablicy.
+ * Znak z Shiftem leży na tym samym klawiszu co znak bez Shifta.
+ */
+final class KeyboardGraph {
+
+    /**
+     * Sąsiedzi w układzie skośnym (każdy rząd przesunięty w prawo względem wyższego):
+     * (wiersz, kolumna) → lewo, góra-lewo, góra-prawo, prawo, dół-prawo, dół-lewo.
+     */
+    private static final int[][] NEIGHBOURS = {{0, -1}, {-1, 0}, {-1, 1}, {0, 1}, {1, 0}, {1, -1}};
+
+    /** Inicjalizowany po {@link #NEIGHBOURS}, z którego korzysta konstruktor. */
+    static final KeyboardGraph QWERTY = new KeyboardGraph(
+            new String[] {"`1234567890-=", " qwertyuiop[]\\", " asdfghjkl;'", " zxcvbnm,./"},
+            new String[] {"~!@#$%^&*()_+", " QWERTYUIOP{}|", " ASDFGHJKL:\"", " ZXCVBNM<>?"});
+
+    private final byte[] directions = new byte[128 * 128];
+    private final boolean[] shifted = new boolean[128];
+    private final int keys;
+    private final double averageDegree;
+
+    private KeyboardGraph(String[] rows, String[] shiftedRows) {
+        int[] row = new int[128];
+        int[] column = new int[128];
+        char[][] layout = new char[rows.length][];
+        Arrays.fill(row, -1);
+        int keyCount = 0;
+        for (int r = 0; r < rows.length; r++) {
+            layout[r] = rows[r].toCharArray();
+            for (int c = 0; c < rows[r].length(); c++) {
+                char plain = rows[r].charAt(c);
+                if (plain == ' ') {
+                    continue;
+                }
+                char shift = shiftedRows[r].charAt(c);
+                row[plain] = r;
+                column[plain] = c;
+                row[shift] = r;
+                column[shift] = c;
+                shifted[shift] = true;
+                keyCount++;
+            }
+        }
+        int edges = 0;
+        for (int from = 0; from < 128; from++) {
+            if (row[from] < 0) {
+                continue;
+            }
+            for (int d = 0; d < NEIGHBOURS.length; d++) {
+                int r = row[from] + NEIGHBOURS[d][0];
+                int c = column[from] + NEIGHBOURS[d][1];
+                if (r < 0 || r >= layout.length || c < 0 || c >= layout[r].length || layout[r][c] == ' ') {
+                    continue;
+                }
+                char plain = layout[r][c];
+                char shift = shiftedRows[r].charAt(c);
+                directions[from * 128 + plain] = (byte) (d + 1);
+                directions[from * 128 + shift] = (byte) (d + 1);
+                if (!shifted[from]) {
+                    edges++;
+                }
+            }
+        }
+        this.keys = keyCount;
+        this.averageDegree = (double) edges / keyCount;
+    }
+
+    /**
+     * @return Kierunek (1-6) klawisza {@code to} względem {@code from} lub 0, jeśli nie sąsiadują.
+     */
+    int direction(char from, char to) {
+        return from < 128 && to < 128 ? directions[from * 128 + to] : 0;
+    }
+
+    /** Czy znak wymaga Shifta. */
+    boolean isShifted(char c) {
+        return c < 128 && shifted[c];
+    }
+
+    /** Liczba klawiszy - możliwe początki ciągu. */
+    int keys() {
+        return keys;
+    }
+
+    /** Średnia liczba sąsiadów klawisza. */
+    double averageDegree() {
+        return averageDegree;
+    }
+}
@@ -0,0 +1,34 @@
+package com.passwordmanager.service.strength;
+
+/**
+ * Wynik oceny siły hasła ({@link PasswordStrengthEstimator}): ocena 0-4 i szacowana liczba prób
+ * potrzebnych do odgadnięcia hasła (log10).
+ */
+public final class PasswordStrength {
+
+    private final int score;
+    private final double guessesLog10;
+
+    PasswordStrength(int score, double guessesLog10) {
+        this.score = score;
+        this.guessesLog10 = guessesLog10;
+    }
+
+    /**
+     * Ocena: 0 - hasło odgadywane natychmiast (&lt; 10^3 prób), 1 - &lt; 10^6, 2 - &lt; 10^8, 3 - &lt; 10^10,
+     * 4 - silne.
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /** Log10 szacowanej liczby prób. */
+    public double getGuessesLog10() {
+        return guessesLog10;
+    }
+
+    @Override
+    public String toString() {
+        return "PasswordStrength{score=" + score + ", guessesLog10=" + guessesLog10 + "}";
+    }
+}
@@ -0,0 +1,528 @@
+package com.passwordmanager.service.strength;
+
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Year;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Ocena siły hasła w stylu zxcvbn: hasło jest rozkładane na dopasowania (słowa ze słowników, także odwrócone
+ * i w zapisie l33t, ciągi klawiszy, sekwencje, powtórzenia, lata, dane wpisu - strona i użytkownik) oraz fragmenty
+ * odgadywane siłowo, a ocena wynika z najmniejszej liczby prób po wszystkich rozkładach.
+ * <p>
+ * Struktury są przygotowywane raz przy starcie: słowniki z zasobów {@code strength/*.txt} jako zwarte drzewo
+ * prefiksowe ({@link DictionaryTrie}), graf sąsiedztwa klawiszy ({@link KeyboardGraph}) i tablica podstawień l33t.
+ * Ocena hasła nie alokuje struktur zależnych od słowników - przejście drzewa od każdej pozycji hasła,
+ * tablica najlepszych dopasowań fragmentów i programowanie dynamiczne po pozycjach i liczbie dopasowań,
+ * więc mieści się w mikrosekundach i może być wykonywana przy każdym zapisie wpisu.
+ * <p>
+ * Analizowane jest pierwsze {@link #MAX_ANALYZED_LENGTH} znaków; dalsze liczą się jako odgadywane siłowo.
+ */
+@Component
+public class PasswordStrengthEstimator {
+
+    public static final int MIN_SCORE = 0;
+    public static final int MAX_SCORE = 4;
+    /** Długość analizowanego prefiksu hasła - pozycje startów dopasowań mieszczą się w masce {@code long}. */
+    static final int MAX_ANALYZED_LENGTH = 63;
+
+    /** Słowniki w kolejności od najważniejszego; ranga słowa to jego pozycja w pliku. */
+    static final String[] DICTIONARIES = {"strength/passwords.txt", "strength/words-pl.txt", "strength/words-en.txt"};
+
+    /** Progi log10 liczby prób dla ocen 1-4 (jak w zxcvbn: 10^3, 10^6, 10^8, 10^10 prób z marginesem 5). */
+    private static final double[] SCORE_THRESHOLDS = {
+            Math.log10(1e3 + 5), Math.log10(1e6 + 5), Math.log10(1e8 + 5), Math.log10(1e10 + 5)};
+    /** Log10 liczby prób na znak odgadywany siłowo. */
+    private static final double BRUTEFORCE_CARDINALITY_LOG10 = 1;
+    /** Kara za każde kolejne dopasowanie w rozkładzie (log10 z 10 000) - preferuje rozkłady z mniejszą liczbą części. */
+    private static final double MATCH_PENALTY_LOG10 = 4;
+    private static final double MIN_SINGLE_CHAR_GUESSES_LOG10 = 1;
+    private static final double MIN_SUBMATCH_GUESSES_LOG10 = Math.log10(50);
+    private static final int MIN_YEAR_SPACE = 20;
+    private static final int MIN_USER_INPUT_LENGTH = 3;
+    private static final Pattern USER_INPUT_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    /** Podstawienia l33t: znak → litery, które może zastępować. */
+    private static final char[][] L33T = new char[128][];
+
+    static {
+        String[][] table = {{"4", "a"}, {"@", "a"}, {"8", "b"}, {"(", "c"}, {"{", "c"}, {"[", "c"}, {"<", "c"},
+                {"3", "e"}, {"6", "g"}, {"9", "g"}, {"1", "il"}, {"!", "i"}, {"|", "il"}, {"0", "o"}, {"$", "s"},
+                {"5", "s"}, {"+", "t"}, {"7", "tl"}, {"%", "x"}, {"2", "z"}};
+        for (String[] substitution : table) {
+            L33T[substitution[0].charAt(0)] = substitution[1].toCharArray();
+        }
+    }
+
+    private static final double[] LOG10_FACTORIAL = new double[MAX_ANALYZED_LENGTH + 1];
+
+    static {
+        for (int i = 1; i < LOG10_FACTORIAL.length; i++) {
+            LOG10_FACTORIAL[i] = LOG10_FACTORIAL[i - 1] + Math.log10(i);
+        }
+    }
+
+    /** Tablice robocze wątku - ocena hasła nie alokuje ich przy każdym wywołaniu. */
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private final DictionaryTrie dictionary;
+    private final KeyboardGraph keyboard;
+    private final int referenceYear;
+
+    public PasswordStrengthEstimator() {
+        this(loadDictionaries(DICTIONARIES), Year.now().getValue());
+    }
+
+    PasswordStrengthEstimator(DictionaryTrie dictionary, int referenceYear) {
+        this.dictionary = dictionary;
+        this.keyboard = KeyboardGraph.QWERTY;
+        this.referenceYear = referenceYear;
+    }
+
+    /**
+     * Wczytuje słowniki z zasobów do jednego drzewa; słowo z kilku słowników dostaje najniższą rangę.
+     * Wiersze puste i zaczynające się od {@code #} są pomijane.
+     */
+    static DictionaryTrie loadDictionaries(String... resources) {
+        Map<String, Integer> ranks = new HashMap<>();
+        for (String resource : resources) {
+            InputStream in = PasswordStrengthEstimator.class.getClassLoader().getResourceAsStream(resource);
+            if (in == null) {
+                throw new IllegalStateException("Brak słownika oceny siły haseł: " + resource);
+            }
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+                int rank = 0;
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String word = line.strip();
+                    if (word.isEmpty() || word.startsWith("#")) {
+                        continue;
+                    }
+                    ranks.merge(normalize(word), ++rank, Math::min);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Nie można wczytać słownika oceny siły haseł: " + resource, e);
+            }
+        }
+        return DictionaryTrie.build(ranks);
+    }
+
+    /**
+     * Ocenia siłę hasła.
+     * @param password Hasło jawne (null - jak puste).
+     * @param userInputs Dane wpisu (np. strona i użytkownik) - hasło zbudowane z nich jest słabe.
+     * @return Ocena i szacowana liczba prób.
+     */
+    public PasswordStrength estimate(CharSequence password, String... userInputs) {
+        int length = password == null ? 0 : password.length();
+        int n = Math.min(length, MAX_ANALYZED_LENGTH);
+        Scratch scratch = SCRATCH.get();
+        scratch.reset(n);
+        char[] original = scratch.original;
+        char[] lower = scratch.lower;
+        for (int i = 0; i < n; i++) {
+            original[i] = password.charAt(i);
+            lower[i] = fold(Character.toLowerCase(original[i]));
+        }
+
+        for (int start = 0; start < n; start++) {
+            matchDictionary(scratch, n, DictionaryTrie.ROOT, start, start, 0, 0, false);
+        }
+        for (int i = 0; i < n; i++) {
+            scratch.reversed[i] = lower[n - 1 - i];
+        }
+        for (int start = 0; start < n; start++) {
+            matchDictionary(scratch, n, DictionaryTrie.ROOT, start, start, 0, 0, true);
+        }
+        matchUserInputs(scratch, n, userInputs);
+        matchSpatial(scratch, n);
+        matchSequences(scratch, n);
+        matchRepeats(scratch, n);
+        matchYears(scratch, n);
+
+        double guessesLog10 = minimumGuesses(scratch, n) + (length - n) * BRUTEFORCE_CARDINALITY_LOG10;
+        return new PasswordStrength(score(guessesLog10), guessesLog10);
+    }
+
+    /**
+     * Ocena 0-4 hasła - skrót {@link #estimate(CharSequence, String...)}.
+     */
+    public int score(CharSequence password, String... userInputs) {
+        return estimate(password, userInputs).getScore();
+    }
+
+    static int score(double guessesLog10) {
+        int score = 0;
+        while (score < SCORE_THRESHOLDS.length && guessesLog10 >= SCORE_THRESHOLDS[score]) {
+            score++;
+        }
+        return score;
+    }
+
+    // --- Dopasowania ---
+
+    /**
+     * Przejście drzewa słownika od pozycji {@code start}, z rozgałęzieniem na podstawieniach l33t.
+     * W trybie {@code reversed} przechodzi odwrócone hasło (bez l33t), a dopasowanie jest mapowane na pozycje oryginału.
+     */
+    private void matchDictionary(Scratch scratch, int n, int node, int start, int position, int substitutions,
+                                 int substitutedLetters, boolean reversed) {
+        if (position == n) {
+            return;
+        }
+        char[] text = reversed ? scratch.reversed : scratch.lower;
+        char c = text[position];
+        int child = dictionary.child(node, c);
+        if (child != DictionaryTrie.NONE) {
+            reportDictionary(scratch, n, child, start, position + 1, substitutions, substitutedLetters, reversed);
+            matchDictionary(scratch, n, child, start, position + 1, substitutions, substitutedLetters, reversed);
+        }
+        char[] letters = !reversed && c < 128 ? L33T[c] : null;
+        if (letters != null) {
+            for (char letter : letters) {
+                child = dictionary.child(node, letter);
+                if (child != DictionaryTrie.NONE) {
+                    int mask = substitutedLetters | 1 << (letter - 'a');
+                    reportDictionary(scratch, n, child, start, position + 1, substitutions + 1, mask, false);
+                    matchDictionary(scratch, n, child, start, position + 1, substitutions + 1, mask, false);
+                }
+            }
+        }
+    }
+
+    private void reportDictionary(Scratch scratch, int n, int node, int start, int end, int substitutions,
+                                  int substitutedLetters, boolean reversed) {
+        int rank = dictionary.rank(node);
+        if (rank == 0) {
+            return;
+        }
+        int from = reversed ? n - end : start;
+        int to = reversed ? n - start : end;
+        double guesses = Math.log10(rank) + uppercaseVariationsLog10(scratch.original, from, to)
+                + l33tVariationsLog10(scratch.lower, from, to, substitutions, substitutedLetters);
+        if (reversed) {
+            guesses += Math.log10(2);
+        }
+        scratch.offer(from, to, guesses);
+    }
+
+    /** Dane wpisu: każdy fragment alfanumeryczny (od 3 znaków) jako słowo o randze 1. */
+    private void matchUserInputs(Scratch scratch, int n, String[] userInputs) {
+        if (userInputs == null || userInputs.length == 0 || n == 0) {
+            return;
+        }
+        String text = new String(scratch.lower, 0, n);
+        for (String input : userInputs) {
+            if (input == null) {
+                continue;
+            }
+            for (String token : USER_INPUT_SEPARATOR.split(normalize(input))) {
+                if (token.length() < MIN_USER_INPUT_LENGTH) {
+                    continue;
+                }
+                for (int at = text.indexOf(token); at >= 0; at = text.indexOf(token, at + 1)) {
+                    scratch.offer(at, at + token.length(), uppercaseVariationsLog10(scratch.original, at, at + token.length()));
+                }
+            }
+        }
+    }
+
+    /**
+     * Ciągi sąsiednich klawiszy (co najmniej 3 znaki). Liczba prób jak w zxcvbn: suma po długościach i liczbie
+     * zmian kierunku z liczby klawiszy początkowych i średniego stopnia grafu, razy warianty z Shiftem.
+     */
+    private void matchSpatial(Scratch scratch, int n) {
+        char[] text = scratch.original;
+        int i = 0;
+        while (i < n - 2) {
+            int j = i + 1;
+            int turns = 0;
+            int lastDirection = 0;
+            int shifted = keyboard.isShifted(text[i]) ? 1 : 0;
+            while (j < n) {
+                int direction = keyboard.direction(text[j - 1], text[j]);
+                if (direction == 0) {
+                    break;
+                }
+                if (direction != lastDirection) {
+                    turns++;
+                    lastDirection = direction;
+                }
+                if (keyboard.isShifted(text[j])) {
+                    shifted++;
+                }
+                j++;
+            }
+            if (j - i >= 3) {
+                scratch.offer(i, j, spatialGuessesLog10(j - i, turns, shifted));
+                i = j - 1;
+            } else {
+                i++;
+            }
+        }
+    }
+
+    private double spatialGuessesLog10(int length, int turns, int shifted) {
+        double startingPositions = keyboard.keys();
+        double degree = keyboard.averageDegree();
+        double guesses = 0;
+        for (int i = 2; i <= length; i++) {
+            int possibleTurns = Math.min(turns, i - 1);
+            for (int j = 1; j <= possibleTurns; j++) {
+                guesses += binomial(i - 1, j - 1) * startingPositions * Math.pow(degree, j);
+            }
+        }
+        double log10 = Math.log10(guesses);
+        if (shifted > 0) {
+            int unshifted = length - shifted;
+            log10 += unshifted == 0 ? Math.log10(2) : Math.log10(variations(shifted, unshifted));
+        }
+        return log10;
+    }
+
+    /** Sekwencje znaków o stałym kroku 1-5 w jednej klasie (cyfry, małe, wielkie litery): {@code abc}, {@code 9753}. */
+    private void matchSequences(Scratch scratch, int n) {
+        char[] text = scratch.original;
+        int i = 0;
+        while (i < n - 2) {
+            int delta = text[i + 1] - text[i];
+            int kind = charClass(text[i]);
+            if (delta == 0 || Math.abs(delta) > 5 || kind == 0 || charClass(text[i + 1]) != kind) {
+                i++;
+                continue;
+            }
+            int j = i + 2;
+            while (j < n && text[j] - text[j - 1] == delta && charClass(text[j]) == kind) {
+                j++;
+            }
+            if (j - i >= 3) {
+                char first = text[i];
+                double base = "aAzZ019".indexOf(first) >= 0 ? 4 : Character.isDigit(first) ? 10 : 26;
+                if (delta < 0) {
+                    base *= 2;
+                }
+                scratch.offer(i, j, Math.log10(base * (j - i)));
+                i = j - 1;
+            } else {
+                i++;
+            }
+        }
+    }
+
+    /** Powtórzenia jednego znaku (co najmniej 3): {@code aaaa}, {@code 1111}. */
+    private void matchRepeats(Scratch scratch, int n) {
+        char[] text = scratch.original;
+        int i = 0;
+        while (i < n) {
+            int j = i + 1;
+            while (j < n && text[j] == text[i]) {
+                j++;
+            }
+            if (j - i >= 3) {
+                int cardinality = Character.isDigit(text[i]) ? 10 : Character.isLetter(text[i]) ? 26 : 33;
+                scratch.offer(i, j, Math.log10((double) cardinality * (j - i)));
+            }
+            i = j;
+        }
+    }
+
+    /** Lata 1900-2099 - liczba prób to odległość od bieżącego roku (co najmniej {@link #MIN_YEAR_SPACE}). */
+    private void matchYears(Scratch scratch, int n) {
+        char[] text = scratch.original;
+        for (int i = 0; i + 4 <= n; i++) {
+            if (!Character.isDigit(text[i]) || !Character.isDigit(text[i + 1])
+                    || !Character.isDigit(text[i + 2]) || !Character.isDigit(text[i + 3])) {
+                continue;
+            }
+            int year = (text[i] - '0') * 1000 + (text[i + 1] - '0') * 100 + (text[i + 2] - '0') * 10 + (text[i + 3] - '0');
+            if (year >= 1900 && year <= 2099) {
+                scratch.offer(i, i + 4, Math.log10(Math.max(Math.abs(year - referenceYear), MIN_YEAR_SPACE)));
+            }
+        }
+    }
+
+    // --- Najlepszy rozkład ---
+
+    /**
+     * Programowanie dynamiczne: najmniejszy log10 iloczynu prób dopasowań, które pokrywają hasło, dla każdej
+     * pozycji końca, liczby części i tego, czy ostatnia część jest odgadywana siłowo (kolejne znaki siłowe
+     * tworzą jedną część). Wynik: min po liczbie części l z {@code l! * iloczyn + 10000^(l-1)}.
+     * Całe hasło odgadywane siłowo to {@code 10^n} prób, a kara za l części to co najmniej {@code 10000^(l-1)},
+     * więc rozkłady na więcej niż {@code n / 4 + 1} części nie mogą wygrać i nie są liczone.
+     */
+    private static double minimumGuesses(Scratch scratch, int n) {
+        if (n == 0) {
+            return 0;
+        }
+        double[] state = scratch.state;
+        int stride = n + 1;
+        int maxParts = Math.min(n, (int) (n * BRUTEFORCE_CARDINALITY_LOG10 / MATCH_PENALTY_LOG10) + 1);
+        // state[(k * stride + l) * 2 + b]: prefiks długości k, l części, b = 1 - ostatnia część siłowa
+        state[0] = 0;
+        for (int k = 1; k <= n; k++) {
+            long starts = scratch.startsByEnd[k];
+            for (int l = 1; l <= Math.min(k, maxParts); l++) {
+                double best = Double.POSITIVE_INFINITY;
+                for (long bits = starts; bits != 0; bits &= bits - 1) {
+                    int start = Long.numberOfTrailingZeros(bits);
+                    int previous = (start * stride + l - 1) * 2;
+                    double before = Math.min(state[previous], state[previous + 1]);
+                    best = Math.min(best, before + scratch.span[start * stride + k]);
+                }
+                state[(k * stride + l) * 2] = best;
+                double extend = state[((k - 1) * stride + l) * 2 + 1];
+                double open = state[((k - 1) * stride + l - 1) * 2];
+                state[(k * stride + l) * 2 + 1] = Math.min(extend, open) + BRUTEFORCE_CARDINALITY_LOG10;
+            }
+        }
+        double result = Double.POSITIVE_INFINITY;
+        for (int l = 1; l <= maxParts; l++) {
+            double product = Math.min(state[(n * stride + l) * 2], state[(n * stride + l) * 2 + 1]);
+            if (product == Double.POSITIVE_INFINITY) {
+                continue;
+            }
+            result = Math.min(result, log10Sum(LOG10_FACTORIAL[l] + product, MATCH_PENALTY_LOG10 * (l - 1)));
+        }
+        return result;
+    }
+
+    // --- Warianty zapisu ---
+
+    /** Warianty wielkości liter: bez wielkich - 1; pierwsza, ostatnia lub wszystkie wielkie - 2; inaczej suma C(n, i). */
+    private static double uppercaseVariationsLog10(char[] original, int from, int to) {
+        int upper = 0;
+        int lower = 0;
+        for (int i = from; i < to; i++) {
+            if (Character.isUpperCase(original[i])) {
+                upper++;
+            } else if (Character.isLowerCase(original[i])) {
+                lower++;
+            }
+        }
+        if (upper == 0) {
+            return 0;
+        }
+        if (lower == 0 || upper == 1 && (Character.isUpperCase(original[from]) || Character.isUpperCase(original[to - 1]))) {
+            return Math.log10(2);
+        }
+        return Math.log10(variations(upper, lower));
+    }
+
+    /** Warianty l33t: podstawione znaki na tle niepodstawionych wystąpień tych samych liter w słowie. */
+    private static double l33tVariationsLog10(char[] lower, int from, int to, int substitutions, int substitutedLetters) {
+        if (substitutions == 0) {
+            return 0;
+        }
+        int unsubstituted = 0;
+        for (int i = from; i < to; i++) {
+            char c = lower[i];
+            if (c >= 'a' && c <= 'z' && (substitutedLetters & 1 << (c - 'a')) != 0) {
+                unsubstituted++;
+            }
+        }
+        return unsubstituted == 0 ? Math.log10(2) : Math.log10(variations(substitutions, unsubstituted));
+    }
+
+    /** Suma C(a + b, i) dla i = 1..min(a, b). */
+    private static double variations(int a, int b) {
+        double sum = 0;
+        for (int i = 1; i <= Math.min(a, b); i++) {
+            sum += binomial(a + b, i);
+        }
+        return sum;
+    }
+
+    private static double binomial(int n, int k) {
+        if (k < 0 || k > n) {
+            return 0;
+        }
+        double result = 1;
+        for (int i = 1; i <= k; i++) {
+            result = result * (n - k + i) / i;
+        }
+        return result;
+    }
+
+    private static double log10Sum(double a, double b) {
+        double max = Math.max(a, b);
+        return max + Math.log10(1 + Math.pow(10, Math.min(a, b) - max));
+    }
+
+    /** 1 - cyfra, 2 - mała litera, 3 - wielka litera, 0 - inny znak. */
+    private static int charClass(char c) {
+        if (c >= '0' && c <= '9') {
+            return 1;
+        }
+        if (c >= 'a' && c <= 'z') {
+            return 2;
+        }
+        return c >= 'A' && c <= 'Z' ? 3 : 0;
+    }
+
+    /** Małe litery bez polskich znaków diakrytycznych - słowniki są zapisane bez nich. */
+    static String normalize(String word) {
+        char[] chars = word.toLowerCase(Locale.ROOT).toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = fold(chars[i]);
+        }
+        return new String(chars);
+    }
+
+    private static char fold(char c) {
+        return switch (c) {
+            case 'ą' -> 'a';
+            case 'ć' -> 'c';
+            case 'ę' -> 'e';
+            case 'ł' -> 'l';
+            case 'ń' -> 'n';
+            case 'ó' -> 'o';
+            case 'ś' -> 's';
+            case 'ź', 'ż' -> 'z';
+            default -> c;
+        };
+    }
+
+    /**
+     * Tablice robocze jednej oceny: znaki hasła, najlepsza liczba prób (log10) dla każdego fragmentu [start, koniec),
+     * maski początków dopasowań kończących się na każdej pozycji i stany programowania dynamicznego.
+     */
+    private static final class Scratch {
+
+        final char[] original = new char[MAX_ANALYZED_LENGTH];
+        final char[] lower = new char[MAX_ANALYZED_LENGTH];
+        final char[] reversed = new char[MAX_ANALYZED_LENGTH];
+        final double[] span = new double[(MAX_ANALYZED_LENGTH + 1) * (MAX_ANALYZED_LENGTH + 1)];
+        final long[] startsByEnd = new long[MAX_ANALYZED_LENGTH + 1];
+        final double[] state = new double[(MAX_ANALYZED_LENGTH + 1) * (MAX_ANALYZED_LENGTH + 1) * 2];
+        private int stride;
+
+        void reset(int n) {
+            stride = n + 1;
+            Arrays.fill(startsByEnd, 0, n + 1, 0L);
+            Arrays.fill(state, 0, stride * stride * 2, Double.POSITIVE_INFINITY);
+        }
+
+        /** Zapamiętuje dopasowanie fragmentu [start, end), jeśli jest lepsze od dotychczasowego. */
+        void offer(int start, int end, double guessesLog10) {
+            double guesses = Math.max(guessesLog10, end - start == 1 ? MIN_SINGLE_CHAR_GUESSES_LOG10 : MIN_SUBMATCH_GUESSES_LOG10);
+            int index = start * stride + end;
+            long bit = 1L << start;
+            if ((startsByEnd[end] & bit) == 0) {
+                startsByEnd[end] |= bit;
+                span[index] = guesses;
+            } else if (guesses < span[index]) {
+                span[index] = guesses;
+            }
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.passwordmanager.utill;
+
+import java.text.CollationKey;
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+
+/**
+ * Sortowanie w pamięci według tekstu (np. nazwy strony), bez względu na wielkość liter.
+ * Używane tylko jako rozwiązanie awaryjne - listy z bazy są sortowane po indeksach w zapytaniu.
+ * <p>
+ * Klucz porównania ({@link CollationKey}) jest wyliczany raz dla każdego elementu,
+ * a nie przy każdym porównaniu. Sortowanie jest stabilne i ma złożoność O(n log n)
+ * niezależnie od początkowej kolejności danych.
+ */
+public final class CollationSort {
+
+    private CollationSort() {
+    }
+
+    /**
+     * Sortuje listę rosnąco według tekstu zwracanego przez {@code key}.
+     * Elementy o równych kluczach zachowują kolejność względem siebie; null jest traktowany jak pusty tekst.
+     * @param items Lista do posortowania (modyfikowana w miejscu).
+     * @param key Funkcja zwracająca tekst, według którego sortujemy.
+     * @param <T> Typ elementów listy.
+     */
+    public static <T> void sort(List<T> items, Function<? super T, String> key) {
+        if (items.size() < 2) {
+            return;
+        }
+        Collator collator = Collator.getInstance(Locale.ROOT); // Każde wywołanie dostaje własną instancję
+        collator.setStrength(Collator.SECONDARY); // Bez rozróżniania wielkości liter
+
+        List<Keyed<T>> keyed = new ArrayList<>(items.size());
+        for (T item : items) {
+            String text = key.apply(item);
+            keyed.add(new Keyed<>(collator.getCollationKey(text == null ? "" : text), item));
+        }
+        keyed.sort(Comparator.comparing(Keyed::collationKey)); // TimSort - stabilny
+
+        for (int i = 0; i < keyed.size(); i++) {
+            items.set(i, keyed.get(i).item());
+        }
+    }
+
+    private record Keyed<T>(CollationKey collationKey, T item) {
+    }
+}
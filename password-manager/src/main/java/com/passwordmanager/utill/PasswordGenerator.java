@@ -1,26 +1,73 @@
 package com.passwordmanager.utill;
 
+import com.passwordmanager.service.breach.BreachedPasswordChecker;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+import java.nio.CharBuffer;
+import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Random;
-import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * Utility class do generowania bezpiecznych, losowych haseł.
  * Umożliwia konfigurowanie długości oraz typów znaków (duże/małe litery, cyfry, znaki specjalne).
+ * <p>
+ * Alfabety są wyliczone raz jako tablice {@code char[]}; hasło powstaje w tablicy znaków
+ * i jest mieszane w miejscu (Fisher-Yates) - bez obiektów {@link Character} i pośrednich list.
+ * Każdy wątek ma własny {@link SecureRandom} (DRBG), więc generowanie hurtowe skaluje się na rdzenie
+ * bez rywalizacji o jedną instancję.
+ * <p>
+ * Jeśli sprawdzanie wycieków jest włączone ({@link BreachedPasswordChecker}), hasło znalezione w korpusie
+ * wycieków jest odrzucane (i zerowane) i generowane ponownie.
  */
 @Component // Oznacza klasę jako komponent Springa
 public class PasswordGenerator {
 
-    private static final String LOWERCASE_CHARS = "abcdefghijklmnopqrstuvwxyz";
-    private static final String UPPERCASE_CHARS = "ABCDEFGHIJKLMNOPQRSTUVWXYZ";
-    private static final String DIGITS = "0123456789";
-    private static final String SPECIAL_CHARS = "!@#$%^&*()-_=+[]{}|;:'\",.<>/?";
+    public static final int MIN_LENGTH = 8;
+    /** Limity generowania hurtowego - ograniczają rozmiar odpowiedzi. */
+    public static final int MAX_BULK_COUNT = 10_000;
+    public static final int MAX_BULK_LENGTH = 128;
+    /** Limit ponownych losowań hasła znalezionego w korpusie wycieków. */
+    static final int MAX_BREACH_ATTEMPTS = 16;
 
-    private final Random random = new SecureRandom();
+    private static final char[] LOWERCASE_CHARS = "abcdefghijklmnopqrstuvwxyz".toCharArray();
+    private static final char[] UPPERCASE_CHARS = "ABCDEFGHIJKLMNOPQRSTUVWXYZ".toCharArray();
+    private static final char[] DIGITS = "0123456789".toCharArray();
+    private static final char[] SPECIAL_CHARS = "!@#$%^&*()-_=+[]{}|;:'\",.<>/?".toCharArray();
+    private static final char[] ALL_CHARS = concat(LOWERCASE_CHARS, UPPERCASE_CHARS, DIGITS, SPECIAL_CHARS);
+
+    private static final ThreadLocal<SecureRandom> RANDOM = ThreadLocal.withInitial(PasswordGenerator::newRandom);
+
+    private static SecureRandom newRandom() {
+        try {
+            return SecureRandom.getInstance("DRBG");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Brak generatora liczb losowych DRBG", e);
+        }
+    }
+
+    private final BreachedPasswordChecker breachedPasswordChecker;
+
+    public PasswordGenerator() {
+        this(null);
+    }
+
+    @Autowired
+    public PasswordGenerator(BreachedPasswordChecker breachedPasswordChecker) {
+        this.breachedPasswordChecker = breachedPasswordChecker;
+    }
+
+    private static char[] concat(char[]... sets) {
+        char[] all = new char[Arrays.stream(sets).mapToInt(set -> set.length).sum()];
+        int offset = 0;
+        for (char[] set : sets) {
+            System.arraycopy(set, 0, all, offset, set.length);
+            offset += set.length;
+        }
+        return all;
+    }
 
     /**
      * Generuje bezpieczne hasło o podanej długości i wymaganiach.
@@ -31,40 +78,86 @@ public class PasswordGenerator {
      * @throws IllegalArgumentException Jeśli długość jest mniejsza niż 8.
      */
     public String generateSecurePassword(int length) {
-        if (length < 8) {
+        char[] password = generateSecurePasswordChars(length);
+        try {
+            return new String(password);
+        } finally {
+            Arrays.fill(password, '\0');
+        }
+    }
+
+    /**
+     * Generuje hasło jako tablicę znaków - wywołujący może ją wyzerować po użyciu.
+     *
+     * @param length Długość generowanego hasła.
+     * @return Wygenerowane hasło.
+     * @throws IllegalArgumentException Jeśli długość jest mniejsza niż 8.
+     * @throws IllegalStateException Jeśli {@link #MAX_BREACH_ATTEMPTS} kolejnych haseł wystąpiło w wyciekach.
+     */
+    public char[] generateSecurePasswordChars(int length) {
+        if (length < MIN_LENGTH) {
             throw new IllegalArgumentException("Długość hasła musi wynosić co najmniej 8 znaków.");
         }
+        if (breachedPasswordChecker == null || !breachedPasswordChecker.isEnabled()) {
+            return generate(length);
+        }
+        for (int attempt = 0; attempt < MAX_BREACH_ATTEMPTS; attempt++) {
+            char[] password = generate(length);
+            if (!breachedPasswordChecker.isBreached(CharBuffer.wrap(password))) {
+                return password;
+            }
+            Arrays.fill(password, '\0');
+        }
+        throw new IllegalStateException("Nie udało się wygenerować hasła spoza korpusu wycieków");
+    }
 
-        StringBuilder password = new StringBuilder(length);
-        List<Character> charPool = new ArrayList<>();
+    private char[] generate(int length) {
+        SecureRandom random = RANDOM.get();
+        char[] password = new char[length];
 
         // Upewnij się, że hasło zawiera co najmniej po jednym znaku z każdej kategorii
-        password.append(getRandomChar(LOWERCASE_CHARS));
-        password.append(getRandomChar(UPPERCASE_CHARS));
-        password.append(getRandomChar(DIGITS));
-        password.append(getRandomChar(SPECIAL_CHARS));
-
-        // Zbuduj pulę wszystkich możliwych znaków
-        charPool.addAll(LOWERCASE_CHARS.chars().mapToObj(c -> (char) c).toList());
-        charPool.addAll(UPPERCASE_CHARS.chars().mapToObj(c -> (char) c).toList());
-        charPool.addAll(DIGITS.chars().mapToObj(c -> (char) c).toList());
-        charPool.addAll(SPECIAL_CHARS.chars().mapToObj(c -> (char) c).toList());
+        password[0] = randomChar(LOWERCASE_CHARS, random);
+        password[1] = randomChar(UPPERCASE_CHARS, random);
+        password[2] = randomChar(DIGITS, random);
+        password[3] = randomChar(SPECIAL_CHARS, random);
 
         // Wypełnij resztę hasła losowymi znakami z puli
-        for (int i = password.length(); i < length; i++) {
-            password.append(charPool.get(random.nextInt(charPool.size())));
+        for (int i = 4; i < length; i++) {
+            password[i] = randomChar(ALL_CHARS, random);
         }
 
-        // Pomieszaj hasło, aby losowe znaki nie były na początku
-        List<Character> resultChars = password.chars().mapToObj(c -> (char) c).collect(Collectors.toList());
-        Collections.shuffle(resultChars, random);
+        // Pomieszaj hasło w miejscu (Fisher-Yates), aby wymagane znaki nie były na początku
+        for (int i = length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            char tmp = password[i];
+            password[i] = password[j];
+            password[j] = tmp;
+        }
+        return password;
+    }
 
-        return resultChars.stream()
-                .map(String::valueOf)
-                .collect(Collectors.joining());
+    /**
+     * Generuje wiele haseł naraz, równolegle na dostępnych rdzeniach.
+     *
+     * @param count Liczba haseł (od 1 do {@link #MAX_BULK_COUNT}).
+     * @param length Długość każdego hasła (od 8 do {@link #MAX_BULK_LENGTH}).
+     * @return Lista wygenerowanych haseł.
+     * @throws IllegalArgumentException Jeśli liczba lub długość haseł są poza zakresem.
+     */
+    public List<String> generateSecurePasswords(int count, int length) {
+        if (count < 1 || count > MAX_BULK_COUNT) {
+            throw new IllegalArgumentException("Liczba haseł musi wynosić od 1 do " + MAX_BULK_COUNT);
+        }
+        if (length < MIN_LENGTH || length > MAX_BULK_LENGTH) {
+            throw new IllegalArgumentException("Długość hasła musi wynosić od " + MIN_LENGTH + " do " + MAX_BULK_LENGTH);
+        }
+        return IntStream.range(0, count)
+                .parallel()
+                .mapToObj(i -> generateSecurePassword(length))
+                .toList();
     }
 
-    private char getRandomChar(String charSet) {
-        return charSet.charAt(random.nextInt(charSet.length()));
+    private static char randomChar(char[] charSet, SecureRandom random) {
+        return charSet[random.nextInt(charSet.length)];
     }
-}
\ No newline at end of file
+}
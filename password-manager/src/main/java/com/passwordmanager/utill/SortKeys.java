@@ -0,0 +1,28 @@
+package com.passwordmanager.utill;
+
+import java.text.Normalizer;
+import java.util.Locale;
+
+/**
+ * Wylicza klucze sortowania niezależne od wielkości liter.
+ * Klucze są zapisywane w osobnych, indeksowanych kolumnach, dzięki czemu baza sortuje
+ * po indeksie zamiast wywoływać {@code lower()} dla każdego wiersza.
+ */
+public final class SortKeys {
+
+    private SortKeys() {
+    }
+
+    /**
+     * Zwraca klucz sortowania dla podanego tekstu: postać NFC zapisana małymi literami.
+     * Dla null zwraca pusty tekst, aby kolumna klucza nigdy nie była pusta (wymóg stronicowania keyset).
+     * @param value Tekst źródłowy (np. nazwa strony).
+     * @return Klucz sortowania.
+     */
+    public static String fold(String value) {
+        if (value == null) {
+            return "";
+        }
+        return Normalizer.normalize(value, Normalizer.Form.NFC).toLowerCase(Locale.ROOT);
+    }
+}
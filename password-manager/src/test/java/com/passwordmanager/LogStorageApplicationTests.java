@@ -0,0 +1,46 @@
+package com.passwordmanager;
+
+import com.passwordmanager.model.PasswordEntry;
+import com.passwordmanager.repository.PasswordRepository;
+import com.passwordmanager.repository.log.LogPasswordRepository;
+import com.passwordmanager.service.PasswordService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Kontekst aplikacji z magazynem dziennikowym ({@code passwords.storage.type=log}) zamiast JPA.
+ */
+@SpringBootTest(properties = {"passwords.storage.type=log", "passwords.storage.log.fsync=false"})
+class LogStorageApplicationTests {
+
+	@TempDir
+	static Path dataDir;
+
+	@DynamicPropertySource
+	static void logPath(DynamicPropertyRegistry registry) {
+		registry.add("passwords.storage.log.path", () -> dataDir.resolve("vault.log").toString());
+	}
+
+	@Autowired
+	private PasswordRepository passwordRepository;
+
+	@Autowired
+	private PasswordService passwordService;
+
+	@Test
+	void contextLoadsWithLogStorage() {
+		assertInstanceOf(LogPasswordRepository.class, passwordRepository);
+
+		PasswordEntry saved = passwordService.savePassword(new PasswordEntry(null, "example.com", "user", "secret"));
+
+		assertTrue(passwordService.getPasswordById(saved.getId()).isPresent()); // Zapis i odczyt przez dziennik
+	}
+}
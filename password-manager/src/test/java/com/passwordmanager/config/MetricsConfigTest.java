@@ -0,0 +1,26 @@
+package com.passwordmanager.config;
+
+import com.passwordmanager.repository.PasswordRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Testy jednostkowe dla {@link MetricsConfig}.
+ */
+class MetricsConfigTest {
+
+    @Test
+    void testVaultSizeGaugeReadsRepositoryOnEachScrape() {
+        PasswordRepository repository = mock(PasswordRepository.class);
+        when(repository.count()).thenReturn(3L, 7L);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+        new MetricsConfig().vaultSizeMetrics(repository).bindTo(registry);
+
+        assertEquals(3, registry.get(MetricsConfig.VAULT_SIZE_GAUGE).gauge().value());
+        assertEquals(7, registry.get(MetricsConfig.VAULT_SIZE_GAUGE).gauge().value());
+    }
+}
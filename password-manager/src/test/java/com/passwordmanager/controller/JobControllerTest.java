@@ -0,0 +1,149 @@
+package com.passwordmanager.controller;
+
+import com.passwordmanager.config.SecurityConfig;
+import com.passwordmanager.model.JobInfo;
+import com.passwordmanager.model.JobState;
+import com.passwordmanager.service.JobService;
+import com.passwordmanager.service.format.Compression;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Testy warstwy kontrolera dla {@link JobController}.
+ */
+@WebMvcTest(JobController.class)
+@Import(SecurityConfig.class) // Konfiguracja bezpieczeństwa aplikacji zamiast domyślnej (HTTP Basic + CSRF)
+class JobControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private JobService jobService;
+
+    private static JobInfo job(JobState state, long rows) {
+        return new JobInfo("job-1", JobService.EXPORT_JSON, "out.json", state, rows, 100.0,
+                Instant.now(), Instant.now(), null, null);
+    }
+
+    @Test
+    void testSubmitExportReturnsAcceptedWithLocation() throws Exception {
+        when(jobService.submitExportToJson("out.json")).thenReturn(job(JobState.QUEUED, 0));
+
+        mockMvc.perform(post("/api/passwords/jobs/export/json").param("fileName", "out.json"))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "/api/passwords/jobs/job-1"))
+                .andExpect(jsonPath("$.id").value("job-1"))
+                .andExpect(jsonPath("$.state").value("QUEUED"));
+    }
+
+    @Test
+    @WithMockUser(username = "admin", roles = "ADMIN")
+    void testSubmitKeyRotation() throws Exception {
+        when(jobService.submitKeyRotation()).thenReturn(job(JobState.QUEUED, 0));
+
+        mockMvc.perform(post("/api/passwords/jobs/rotate-keys"))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "/api/passwords/jobs/job-1"));
+    }
+
+    @Test
+    @WithMockUser(username = "admin", roles = "ADMIN")
+    void testSubmitFingerprintBackfill() throws Exception {
+        when(jobService.submitFingerprintBackfill()).thenReturn(job(JobState.QUEUED, 0));
+
+        mockMvc.perform(post("/api/passwords/jobs/backfill-fingerprints"))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "/api/passwords/jobs/job-1"));
+    }
+
+    @Test
+    @WithMockUser(username = "admin", roles = "ADMIN")
+    void testSubmitStrengthBackfill() throws Exception {
+        when(jobService.submitStrengthBackfill()).thenReturn(job(JobState.QUEUED, 0));
+
+        mockMvc.perform(post("/api/passwords/jobs/backfill-strength"))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "/api/passwords/jobs/job-1"));
+    }
+
+    @Test
+    void testVaultWideJobsRequireAdminRole() throws Exception {
+        for (String path : new String[]{"rotate-keys", "backfill-fingerprints", "backfill-strength"}) {
+            mockMvc.perform(post("/api/passwords/jobs/" + path))
+                    .andExpect(status().isUnauthorized()); // Bez logowania - także przy require-auth=false
+            mockMvc.perform(post("/api/passwords/jobs/" + path).with(user("bartek").roles("USER")))
+                    .andExpect(status().isForbidden());
+        }
+        verifyNoInteractions(jobService); // Zadanie obejmujące cudze sejfy nie zostało zlecone
+    }
+
+    @Test
+    void testSubmitWhenQueueIsFull() throws Exception {
+        when(jobService.submitImportFromXml(anyString())).thenThrow(new RejectedExecutionException());
+
+        mockMvc.perform(post("/api/passwords/jobs/import/xml").param("fileName", "in.xml"))
+                .andExpect(status().isServiceUnavailable());
+    }
+
+    @Test
+    void testSubmitExportInCompactFormat() throws Exception {
+        when(jobService.submitExport("out.cbor.gz", "cbor", Compression.GZIP)).thenReturn(job(JobState.QUEUED, 0));
+
+        mockMvc.perform(post("/api/passwords/jobs/export")
+                        .param("fileName", "out.cbor.gz")
+                        .param("format", "cbor")
+                        .param("compression", "gzip"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.id").value("job-1"));
+        mockMvc.perform(post("/api/passwords/jobs/export")
+                        .param("fileName", "out.cbor")
+                        .param("compression", "brotli"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testSubmitImportWithDetectedFormat() throws Exception {
+        when(jobService.submitImport("in.smile")).thenReturn(job(JobState.QUEUED, 0));
+
+        mockMvc.perform(post("/api/passwords/jobs/import").param("fileName", "in.smile"))
+                .andExpect(status().isAccepted());
+    }
+
+    @Test
+    void testGetJobProgress() throws Exception {
+        when(jobService.getJob("job-1")).thenReturn(Optional.of(job(JobState.RUNNING, 5000)));
+
+        mockMvc.perform(get("/api/passwords/jobs/job-1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.rowsProcessed").value(5000))
+                .andExpect(jsonPath("$.rowsPerSecond").value(100.0));
+    }
+
+    @Test
+    void testCancelJob() throws Exception {
+        when(jobService.cancelJob("job-1")).thenReturn(Optional.of(job(JobState.CANCELLED, 10)));
+        when(jobService.cancelJob("missing")).thenReturn(Optional.empty());
+
+        mockMvc.perform(delete("/api/passwords/jobs/job-1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.state").value("CANCELLED"));
+        mockMvc.perform(delete("/api/passwords/jobs/missing"))
+                .andExpect(status().isNotFound());
+    }
+}
@@ -1,12 +1,31 @@
 package com.passwordmanager.controller;
 
+import com.passwordmanager.config.SecurityConfig;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.passwordmanager.model.BatchItemResult;
+import com.passwordmanager.model.ChangeExportSummary;
+import com.passwordmanager.model.ChangeSince;
+import com.passwordmanager.model.ImportSummary;
+import com.passwordmanager.model.PageSort;
 import com.passwordmanager.model.PasswordEntry;
+import com.passwordmanager.model.PasswordPage;
+import com.passwordmanager.model.PasswordSecret;
+import com.passwordmanager.model.PasswordSummary;
+import com.passwordmanager.model.ReuseGroup;
+import com.passwordmanager.model.ReuseReport;
+import com.passwordmanager.model.StrengthGroup;
+import com.passwordmanager.model.StrengthReport;
 import com.passwordmanager.service.PasswordService;
+import com.passwordmanager.service.breach.BreachedPasswordException;
+import com.passwordmanager.service.format.Compression;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
@@ -14,8 +33,11 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
 import java.io.IOException;
 
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
@@ -27,6 +49,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
  * Testy integracyjne (warstwa kontrolera) dla {@link PasswordController}.
  */
 @WebMvcTest(PasswordController.class) // Testuje tylko warstwę Web, mockując inne zależności
+@Import(SecurityConfig.class) // Konfiguracja bezpieczeństwa aplikacji zamiast domyślnej (HTTP Basic + CSRF)
 class PasswordControllerTest {
 
     @Autowired
@@ -40,43 +63,212 @@ class PasswordControllerTest {
 
     @Test
     void testGetAllPasswords() throws Exception {
-        PasswordEntry p1 = new PasswordEntry(1L, "google.com", "user1", "pass1");
-        PasswordEntry p2 = new PasswordEntry(2L, "facebook.com", "user2", "pass2");
-        when(passwordService.getAllPasswords()).thenReturn(Arrays.asList(p1, p2));
+        PasswordSummary p1 = new PasswordSummary(1L, "google.com", "user1");
+        PasswordSummary p2 = new PasswordSummary(2L, "facebook.com", "user2");
+        when(passwordService.getPasswordSummaries(PageSort.ID, Sort.Direction.ASC)).thenReturn(Arrays.asList(p1, p2));
 
         mockMvc.perform(get("/api/passwords"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$[0].website").value("google.com"))
-                .andExpect(jsonPath("$[1].username").value("user2"));
+                .andExpect(jsonPath("$[1].username").value("user2"))
+                .andExpect(jsonPath("$[0].password").doesNotExist()); // Lista nie zawiera haseł
 
-        verify(passwordService, times(1)).getAllPasswords();
+        verify(passwordService, times(1)).getPasswordSummaries(PageSort.ID, Sort.Direction.ASC);
     }
 
     @Test
-    void testGetAllPasswordsSorted() throws Exception {
-        PasswordEntry p1 = new PasswordEntry(1L, "z-site.com", "u1", "p1");
-        PasswordEntry p2 = new PasswordEntry(2L, "a-site.com", "u2", "p2");
-        List<PasswordEntry> unsorted = Arrays.asList(p1, p2);
-        List<PasswordEntry> sorted = Arrays.asList(p2, p1);
+    void testGetReusedPasswords() throws Exception {
+        ReuseGroup group = new ReuseGroup(List.of(new PasswordSummary(1L, "google.com", "user1"),
+                new PasswordSummary(5L, "gmail.com", "user1")));
+        when(passwordService.findReusedPasswords()).thenReturn(new ReuseReport(List.of(group), 2));
+
+        mockMvc.perform(get("/api/passwords/audit/reuse"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.groups[0].count").value(2))
+                .andExpect(jsonPath("$.groups[0].entries[1].id").value(5))
+                .andExpect(jsonPath("$.groups[0].entries[0].password").doesNotExist()) // Raport nie zawiera haseł
+                .andExpect(jsonPath("$.unfingerprinted").value(2));
+    }
+
+    @Test
+    void testGetWeakPasswords() throws Exception {
+        StrengthGroup group = new StrengthGroup(0, List.of(new PasswordSummary(3L, "example.com", "user1")));
+        when(passwordService.findWeakPasswords(1)).thenReturn(new StrengthReport(1, List.of(group), 4));
+
+        mockMvc.perform(get("/api/passwords/audit/strength").param("maxScore", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.maxScore").value(1))
+                .andExpect(jsonPath("$.groups[0].score").value(0))
+                .andExpect(jsonPath("$.groups[0].entries[0].id").value(3))
+                .andExpect(jsonPath("$.groups[0].entries[0].password").doesNotExist()) // Raport nie zawiera haseł
+                .andExpect(jsonPath("$.unscored").value(4));
+    }
+
+    @Test
+    void testGetWeakPasswordsRejectsScoreOutOfRange() throws Exception {
+        when(passwordService.findWeakPasswords(5)).thenThrow(new IllegalArgumentException("Ocena siły hasła musi wynosić od 0 do 4"));
 
-        // Kiedy wywołujemy getAllPasswords bez sortowania, zwraca niesortowane
-        when(passwordService.getAllPasswords()).thenReturn(new java.util.ArrayList<>(unsorted)); // Zwróć modyfikowalną listę
+        mockMvc.perform(get("/api/passwords/audit/strength").param("maxScore", "5"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testGetAllPasswordsReturnsVaultETag() throws Exception {
+        when(passwordService.getVaultRevision()).thenReturn(OptionalLong.of(12L));
+        when(passwordService.getPasswordSummaries(PageSort.ID, Sort.Direction.ASC)).thenReturn(Collections.emptyList());
+
+        mockMvc.perform(get("/api/passwords"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"vault-12\""));
+    }
+
+    @Test
+    void testGetAllPasswordsNotModified() throws Exception {
+        when(passwordService.getVaultRevision()).thenReturn(OptionalLong.of(12L));
 
-        // Kiedy wywołujemy sortPasswordsByWebsite, symulujemy sortowanie na liście
-        doAnswer(invocation -> {
-            List<PasswordEntry> list = invocation.getArgument(0);
-            list.sort((e1, e2) -> e1.getWebsite().compareToIgnoreCase(e2.getWebsite()));
-            return null;
-        }).when(passwordService).sortPasswordsByWebsite(anyList());
+        mockMvc.perform(get("/api/passwords").header(HttpHeaders.IF_NONE_MATCH, "\"vault-12\""))
+                .andExpect(status().isNotModified());
 
+        verify(passwordService, never()).getPasswordSummaries(any(), any()); // 304 bez odczytu z bazy
+    }
+
+    @Test
+    void testGetAllPasswordsWithoutETagWhileVaultWriteInFlight() throws Exception {
+        when(passwordService.getVaultRevision()).thenReturn(OptionalLong.empty());
+        when(passwordService.getPasswordSummaries(PageSort.ID, Sort.Direction.ASC)).thenReturn(Collections.emptyList());
+
+        mockMvc.perform(get("/api/passwords").header(HttpHeaders.IF_NONE_MATCH, "\"vault-12\""))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.ETAG));
+    }
+
+    @Test
+    void testGetPasswordsPageNotModified() throws Exception {
+        when(passwordService.getVaultRevision()).thenReturn(OptionalLong.of(3L));
+
+        mockMvc.perform(get("/api/passwords/page").header(HttpHeaders.IF_NONE_MATCH, "\"vault-3\""))
+                .andExpect(status().isNotModified());
+
+        verify(passwordService, never()).getPasswordsPage(any(), anyInt(), any(), any(), anyBoolean());
+    }
+
+    @Test
+    void testGetAllPasswordsSorted() throws Exception {
+        PasswordSummary p1 = new PasswordSummary(2L, "a-site.com", "u2");
+        PasswordSummary p2 = new PasswordSummary(1L, "z-site.com", "u1");
+        when(passwordService.getPasswordSummaries(PageSort.WEBSITE, Sort.Direction.ASC)).thenReturn(Arrays.asList(p1, p2));
 
         mockMvc.perform(get("/api/passwords?sortByWebsite=true"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$[0].website").value("a-site.com"))
                 .andExpect(jsonPath("$[1].website").value("z-site.com"));
 
-        verify(passwordService, times(1)).getAllPasswords();
-        verify(passwordService, times(1)).sortPasswordsByWebsite(anyList());
+        verify(passwordService, times(1)).getPasswordSummaries(PageSort.WEBSITE, Sort.Direction.ASC);
+    }
+
+    @Test
+    void testGetAllPasswordsSortedByUsernameDescending() throws Exception {
+        when(passwordService.getPasswordSummaries(PageSort.USERNAME, Sort.Direction.DESC)).thenReturn(List.of());
+
+        mockMvc.perform(get("/api/passwords").param("sortBy", "username").param("direction", "desc"))
+                .andExpect(status().isOk());
+
+        verify(passwordService, times(1)).getPasswordSummaries(PageSort.USERNAME, Sort.Direction.DESC);
+    }
+
+    @Test
+    void testGetAllPasswordsInvalidDirection() throws Exception {
+        mockMvc.perform(get("/api/passwords").param("sortBy", "lastModified").param("direction", "sideways"))
+                .andExpect(status().isBadRequest());
+
+        verify(passwordService, never()).getPasswordSummaries(any(PageSort.class), any(Sort.Direction.class));
+    }
+
+    @Test
+    void testGetPasswordSecret() throws Exception {
+        when(passwordService.getPasswordSecret(1L)).thenReturn(Optional.of(new PasswordSecret(1L, "pass1")));
+
+        mockMvc.perform(get("/api/passwords/1/secret"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(1))
+                .andExpect(jsonPath("$.password").value("pass1"));
+    }
+
+    @Test
+    void testGetPasswordSecretNotFound() throws Exception {
+        when(passwordService.getPasswordSecret(anyLong())).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/api/passwords/99/secret"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testGetPasswordsPage() throws Exception {
+        PasswordSummary p1 = new PasswordSummary(1L, "google.com", "user1");
+        when(passwordService.getPasswordsPage(eq("abc"), eq(1), eq(PageSort.WEBSITE), eq(Sort.Direction.ASC), eq(true)))
+                .thenReturn(new PasswordPage(List.of(p1), "next", 5L));
+
+        mockMvc.perform(get("/api/passwords/page")
+                        .param("cursor", "abc")
+                        .param("size", "1")
+                        .param("sortBy", "website")
+                        .param("includeTotal", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].website").value("google.com"))
+                .andExpect(jsonPath("$.nextCursor").value("next"))
+                .andExpect(jsonPath("$.totalCount").value(5));
+    }
+
+    @Test
+    void testGetPasswordsPageInvalidSize() throws Exception {
+        when(passwordService.getPasswordsPage(any(), anyInt(), any(PageSort.class), any(Sort.Direction.class), anyBoolean()))
+                .thenThrow(new IllegalArgumentException("Rozmiar strony"));
+
+        mockMvc.perform(get("/api/passwords/page").param("size", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testGetPasswordsPageUnknownSort() throws Exception {
+        mockMvc.perform(get("/api/passwords/page").param("sortBy", "color"))
+                .andExpect(status().isBadRequest());
+
+        verify(passwordService, never()).getPasswordsPage(any(), anyInt(), any(PageSort.class), any(Sort.Direction.class), anyBoolean());
+    }
+
+    @Test
+    void testSearchPasswords() throws Exception {
+        when(passwordService.searchPasswords("goo", 5)).thenReturn(List.of(new PasswordSummary(1L, "google.com", "user1")));
+
+        mockMvc.perform(get("/api/passwords/search").param("q", "goo").param("limit", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].website").value("google.com"))
+                .andExpect(jsonPath("$[0].password").doesNotExist());
+    }
+
+    @Test
+    void testSearchPasswordsInvalidQuery() throws Exception {
+        when(passwordService.searchPasswords(anyString(), anyInt())).thenThrow(new IllegalArgumentException("Puste zapytanie"));
+
+        mockMvc.perform(get("/api/passwords/search").param("q", " "))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testGenerateSecurePasswordsBulk() throws Exception {
+        when(passwordService.generateSecurePasswords(3, 20)).thenReturn(List.of("a", "b", "c"));
+
+        mockMvc.perform(get("/api/passwords/generate-secure/bulk").param("count", "3").param("length", "20"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3));
+    }
+
+    @Test
+    void testGenerateSecurePasswordsBulkInvalidCount() throws Exception {
+        when(passwordService.generateSecurePasswords(anyInt(), anyInt())).thenThrow(new IllegalArgumentException("Liczba haseł"));
+
+        mockMvc.perform(get("/api/passwords/generate-secure/bulk").param("count", "0"))
+                .andExpect(status().isBadRequest());
     }
 
     @Test
@@ -91,6 +283,27 @@ class PasswordControllerTest {
         verify(passwordService, times(1)).getPasswordById(1L);
     }
 
+    @Test
+    void testGetPasswordByIdReturnsEntryETag() throws Exception {
+        PasswordEntry p1 = new PasswordEntry(1L, "google.com", "user1", "pass1");
+        p1.setRevision(5L);
+        when(passwordService.getPasswordById(1L)).thenReturn(Optional.of(p1));
+
+        mockMvc.perform(get("/api/passwords/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"5\""));
+    }
+
+    @Test
+    void testGetPasswordByIdNotModified() throws Exception {
+        when(passwordService.getKnownRevision(1L)).thenReturn(OptionalLong.of(5L));
+
+        mockMvc.perform(get("/api/passwords/1").header(HttpHeaders.IF_NONE_MATCH, "\"5\""))
+                .andExpect(status().isNotModified());
+
+        verify(passwordService, never()).getPasswordById(anyLong()); // Bez odczytu i deszyfrowania
+    }
+
     @Test
     void testGetPasswordByIdNotFound() throws Exception {
         when(passwordService.getPasswordById(anyLong())).thenReturn(Optional.empty());
@@ -112,11 +325,35 @@ class PasswordControllerTest {
                         .content(objectMapper.writeValueAsString(newEntry)))
                 .andExpect(status().isCreated())
                 .andExpect(jsonPath("$.id").value(1L))
-                .andExpect(jsonPath("$.website").value("new.com"));
+                .andExpect(jsonPath("$.website").value("new.com"))
+                .andExpect(jsonPath("$.breached").doesNotExist()); // Bez korpusu wycieków pole jest pomijane
 
         verify(passwordService, times(1)).savePassword(any(PasswordEntry.class));
     }
 
+    @Test
+    void testCreatePasswordReportsBreachedPassword() throws Exception {
+        PasswordEntry savedEntry = new PasswordEntry(1L, "new.com", "new_user", "123456");
+        savedEntry.setBreached(true);
+        when(passwordService.savePassword(any(PasswordEntry.class))).thenReturn(savedEntry);
+
+        mockMvc.perform(post("/api/passwords")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new PasswordEntry(null, "new.com", "new_user", "123456"))))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.breached").value(true));
+    }
+
+    @Test
+    void testCreateRejectedBreachedPasswordReturnsBadRequest() throws Exception {
+        when(passwordService.savePassword(any(PasswordEntry.class))).thenThrow(new BreachedPasswordException());
+
+        mockMvc.perform(post("/api/passwords")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new PasswordEntry(null, "new.com", "new_user", "123456"))))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void testCreatePasswordValidationFail() throws Exception {
         PasswordEntry invalidEntry = new PasswordEntry(null, "ab", "user", "pass"); // Too short website
@@ -156,6 +393,40 @@ class PasswordControllerTest {
         verify(passwordService, times(1)).updatePassword(eq(99L), any(PasswordEntry.class));
     }
 
+    @Test
+    void testUpdatePasswordWithIfMatch() throws Exception {
+        PasswordEntry updatedData = new PasswordEntry(1L, "updated.com", "updated_user", "updated_pass");
+        updatedData.setRevision(6L);
+        when(passwordService.updatePassword(eq(1L), any(PasswordEntry.class), eq(Set.of(5L)))).thenReturn(Optional.of(updatedData));
+
+        mockMvc.perform(put("/api/passwords/1")
+                        .header(HttpHeaders.IF_MATCH, "\"5\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(updatedData)))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"6\""));
+    }
+
+    @Test
+    void testUpdatePasswordIfMatchFails() throws Exception {
+        PasswordEntry updatedData = new PasswordEntry(1L, "updated.com", "updated_user", "updated_pass");
+        when(passwordService.updatePassword(eq(1L), any(PasswordEntry.class), any()))
+                .thenThrow(new OptimisticLockingFailureException("zmieniony"));
+
+        mockMvc.perform(put("/api/passwords/1")
+                        .header(HttpHeaders.IF_MATCH, "\"5\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(updatedData)))
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    void testParseIfMatch() {
+        assertNull(PasswordController.parseIfMatch("*"));
+        assertEquals(Set.of(1L, 2L), PasswordController.parseIfMatch("\"1\", \"2\""));
+        assertEquals(Set.of(), PasswordController.parseIfMatch("W/\"1\", \"vault-2\"")); // Słabe i obce ETagi nie pasują
+    }
+
     @Test
     void testDeletePasswordSuccess() throws Exception {
         when(passwordService.deletePassword(1L)).thenReturn(true);
@@ -176,6 +447,48 @@ class PasswordControllerTest {
         verify(passwordService, times(1)).deletePassword(99L);
     }
 
+    @Test
+    void testCreatePasswordsBatch() throws Exception {
+        PasswordEntry saved = new PasswordEntry(1L, "new.com", "new_user", "new_pass");
+        when(passwordService.savePasswords(anyList())).thenReturn(List.of(
+                new BatchItemResult(0, 1L, 201, null, saved),
+                BatchItemResult.rejected(1, null, "Brak hasła")));
+
+        mockMvc.perform(post("/api/passwords/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(saved, new PasswordEntry()))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value(201))
+                .andExpect(jsonPath("$[0].entry.website").value("new.com"))
+                .andExpect(jsonPath("$[1].status").value(400));
+    }
+
+    @Test
+    void testDeletePasswordsBatch() throws Exception {
+        when(passwordService.deletePasswords(List.of(1L, 2L))).thenReturn(List.of(
+                new BatchItemResult(0, 1L, 204, null, null),
+                new BatchItemResult(1, 2L, 404, "Wpis nie istnieje", null)));
+
+        mockMvc.perform(delete("/api/passwords/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[1, 2]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[1].id").value(2))
+                .andExpect(jsonPath("$[1].status").value(404));
+
+        verify(passwordService, never()).deletePassword(anyLong()); // Nie trafia do DELETE /{id}
+    }
+
+    @Test
+    void testUpdatePasswordsBatchTooLarge() throws Exception {
+        when(passwordService.updatePasswords(anyList())).thenThrow(new IllegalArgumentException("za dużo"));
+
+        mockMvc.perform(put("/api/passwords/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[]"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void testGenerateSecurePassword() throws Exception {
         String generatedPass = "superSecureGeneratedPass";
@@ -212,28 +525,122 @@ class PasswordControllerTest {
         verify(passwordService, times(1)).exportPasswordsToJson("error.json");
     }
 
+    @Test
+    void testExportToJsonReturnsRevisionHeader() throws Exception {
+        when(passwordService.getCurrentRevision()).thenReturn(42L);
+
+        mockMvc.perform(get("/api/passwords/export/json")
+                        .param("fileName", "full.json"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(PasswordController.REVISION_HEADER, "42"));
+    }
+
+    @Test
+    void testExportChangesToJsonSinceRevision() throws Exception {
+        when(passwordService.exportChangesToJson(any(ChangeSince.class), eq("delta.json")))
+                .thenReturn(new ChangeExportSummary("delta.json", "40", 45L, 3, 1));
+
+        mockMvc.perform(get("/api/passwords/export/json")
+                        .param("fileName", "delta.json")
+                        .param("since", "40"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(PasswordController.REVISION_HEADER, "45"))
+                .andExpect(jsonPath("$.changed").value(3))
+                .andExpect(jsonPath("$.deleted").value(1));
+
+        verify(passwordService).exportChangesToJson(
+                argThat(since -> since.isRevision() && since.getRevision() == 40), eq("delta.json"));
+        verify(passwordService, never()).exportPasswordsToJson(anyString()); // Bez pełnego eksportu
+    }
+
+    @Test
+    void testExportChangesToXmlSinceTimestamp() throws Exception {
+        when(passwordService.exportChangesToXml(any(ChangeSince.class), eq("delta.xml")))
+                .thenReturn(new ChangeExportSummary("delta.xml", "2024-05-01T00:00:00Z", 7L, 0, 0));
+
+        mockMvc.perform(get("/api/passwords/export/xml")
+                        .param("fileName", "delta.xml")
+                        .param("since", "2024-05-01T00:00:00Z"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(PasswordController.REVISION_HEADER, "7"));
+
+        verify(passwordService).exportChangesToXml(argThat(since -> !since.isRevision()), eq("delta.xml"));
+    }
+
+    @Test
+    void testExportChangesInvalidSince() throws Exception {
+        mockMvc.perform(get("/api/passwords/export/json")
+                        .param("fileName", "delta.json")
+                        .param("since", "yesterday"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(passwordService);
+    }
+
+    @Test
+    void testExportInCompactFormat() throws Exception {
+        when(passwordService.getCurrentRevision()).thenReturn(9L);
+        when(passwordService.exportPasswords("vault.smile.gz", "smile", Compression.GZIP)).thenReturn(120L);
+
+        mockMvc.perform(get("/api/passwords/export")
+                        .param("fileName", "vault.smile.gz")
+                        .param("format", "smile")
+                        .param("compression", "gzip"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(PasswordController.REVISION_HEADER, "9"))
+                .andExpect(content().string("Wyeksportowano 120 haseł do vault.smile.gz"));
+    }
+
+    @Test
+    void testExportRejectsUnknownFormatOrCompression() throws Exception {
+        when(passwordService.exportPasswords(anyString(), eq("yaml"), any(Compression.class)))
+                .thenThrow(new IllegalArgumentException("Nieobsługiwany format: yaml"));
+
+        mockMvc.perform(get("/api/passwords/export")
+                        .param("fileName", "vault.yaml")
+                        .param("format", "yaml"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/passwords/export")
+                        .param("fileName", "vault.cbor")
+                        .param("format", "cbor")
+                        .param("compression", "brotli"))
+                .andExpect(status().isBadRequest());
+
+        verify(passwordService, never()).exportPasswords(anyString(), eq("cbor"), any(Compression.class));
+    }
+
+    @Test
+    void testImportWithDetectedFormat() throws Exception {
+        when(passwordService.importPasswords("vault.cbor.gz")).thenReturn(new ImportSummary("vault.cbor.gz", 7, 1, 3));
+
+        mockMvc.perform(post("/api/passwords/import")
+                        .param("fileName", "vault.cbor.gz"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.imported").value(7));
+    }
+
     @Test
     void testImportFromJson() throws Exception {
-        PasswordEntry importedEntry = new PasswordEntry(1L, "imported.com", "iuser", "ipass");
-        when(passwordService.importPasswordsFromJson(anyString())).thenReturn(Collections.singletonList(importedEntry));
+        when(passwordService.importPasswordsFromJson(anyString())).thenReturn(new ImportSummary("import.json", 3, 1, 12));
 
         mockMvc.perform(post("/api/passwords/import/json")
                         .param("fileName", "import.json"))
                 .andExpect(status().isCreated())
-                .andExpect(jsonPath("$[0].website").value("imported.com"));
+                .andExpect(jsonPath("$.imported").value(3))
+                .andExpect(jsonPath("$.chunks").value(1));
 
         verify(passwordService, times(1)).importPasswordsFromJson("import.json");
     }
 
     @Test
     void testImportFromXml() throws Exception {
-        PasswordEntry importedEntry = new PasswordEntry(1L, "xmlimported.com", "xuser", "xpass");
-        when(passwordService.importPasswordsFromXml(anyString())).thenReturn(Collections.singletonList(importedEntry));
+        when(passwordService.importPasswordsFromXml(anyString())).thenReturn(new ImportSummary("import.xml", 1, 1, 5));
 
         mockMvc.perform(post("/api/passwords/import/xml")
                         .param("fileName", "import.xml"))
                 .andExpect(status().isCreated())
-                .andExpect(jsonPath("$[0].website").value("xmlimported.com"));
+                .andExpect(jsonPath("$.fileName").value("import.xml"))
+                .andExpect(jsonPath("$.imported").value(1));
 
         verify(passwordService, times(1)).importPasswordsFromXml("import.xml");
     }
@@ -0,0 +1,76 @@
+package com.passwordmanager.controller;
+
+import com.passwordmanager.config.SecurityConfig;
+import com.passwordmanager.model.PasswordTombstone;
+import com.passwordmanager.model.SyncChange;
+import com.passwordmanager.model.SyncResponse;
+import com.passwordmanager.service.SyncService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Testy warstwy kontrolera dla {@link SyncController}.
+ */
+@WebMvcTest(SyncController.class)
+@Import(SecurityConfig.class) // Konfiguracja bezpieczeństwa aplikacji zamiast domyślnej (HTTP Basic + CSRF)
+class SyncControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private SyncService syncService;
+
+    @Test
+    void testSyncReturnsChangesAndCursor() throws Exception {
+        SyncChange deleted = SyncChange.delete(new PasswordTombstone(5L, 3, Instant.parse("2024-06-01T12:00:00Z")));
+        when(syncService.sync(isNull(), eq(SyncService.DEFAULT_LIMIT))).thenReturn(new SyncResponse(List.of(deleted), "kursor", false));
+
+        mockMvc.perform(get("/api/sync"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.changes[0].type").value("DELETE"))
+                .andExpect(jsonPath("$.changes[0].id").value(5))
+                .andExpect(jsonPath("$.changes[0].revision").value(3))
+                .andExpect(jsonPath("$.cursor").value("kursor"))
+                .andExpect(jsonPath("$.hasMore").value(false));
+    }
+
+    @Test
+    void testSyncPassesCursorAndLimit() throws Exception {
+        when(syncService.sync("abc", 10)).thenReturn(new SyncResponse(List.of(), "def", true));
+
+        mockMvc.perform(get("/api/sync").param("cursor", "abc").param("limit", "10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.cursor").value("def"))
+                .andExpect(jsonPath("$.hasMore").value(true));
+    }
+
+    @Test
+    void testInvalidCursorReturnsBadRequest() throws Exception {
+        when(syncService.sync(eq("zly"), anyInt())).thenThrow(new IllegalArgumentException("Nieprawidłowy kursor synchronizacji"));
+
+        mockMvc.perform(get("/api/sync").param("cursor", "zly"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testExpiredCursorReturnsGone() throws Exception {
+        when(syncService.sync(eq("stary"), anyInt())).thenThrow(new SyncService.CursorExpiredException());
+
+        mockMvc.perform(get("/api/sync").param("cursor", "stary"))
+                .andExpect(status().isGone());
+    }
+}
@@ -0,0 +1,141 @@
+package com.passwordmanager.repository.log;
+
+import com.passwordmanager.model.ChangeSince;
+import com.passwordmanager.model.PageCursor;
+import com.passwordmanager.model.PageSort;
+import com.passwordmanager.model.PasswordEntry;
+import com.passwordmanager.model.PasswordSummary;
+import com.passwordmanager.model.PasswordTombstone;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.Sort;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testy jednostkowe dla {@link LogPasswordRepository}.
+ */
+class LogPasswordRepositoryTest {
+
+    @TempDir
+    Path directory;
+
+    private LogPasswordRepository repository;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        repository = new LogPasswordRepository(new VaultLog(directory.resolve("vault.log"), false, 0.5, Long.MAX_VALUE));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        repository.close();
+    }
+
+    @Test
+    void testQueriesAreScopedToOwner() {
+        PasswordEntry entry = new PasswordEntry("alice", "example.com", "enc1");
+        entry.setOwner("alicja");
+        PasswordEntry saved = repository.save(entry);
+
+        assertTrue(repository.findByIdAndOwner(saved.getId(), "alicja").isPresent());
+        assertTrue(repository.findByIdAndOwner(saved.getId(), "bartek").isEmpty());
+        assertTrue(repository.findEncryptedPasswordById("bartek", saved.getId()).isEmpty());
+        assertTrue(repository.findAllSummaries("bartek", Sort.by("id")).isEmpty());
+        assertFalse(repository.deleteWithTombstone("bartek", saved.getId(), 2)); // Cudzego wpisu nie da się usunąć
+        assertTrue(repository.deleteAllWithTombstones("bartek", List.of(saved.getId()), 2).isEmpty());
+        assertTrue(repository.existsById(saved.getId()));
+        assertTrue(repository.deleteWithTombstone("alicja", saved.getId(), 3));
+    }
+
+    @Test
+    void testSaveFindUpdateDelete() {
+        PasswordEntry saved = repository.save(new PasswordEntry("alice", "example.com", "enc1"));
+
+        assertNotNull(saved.getId());
+        assertNotNull(saved.getLastModified());
+        assertEquals("example.com", saved.getWebsiteSortKey());
+
+        PasswordEntry loaded = repository.findById(saved.getId()).orElseThrow();
+        loaded.setEncryptedPassword("enc2");
+        repository.save(loaded);
+        assertEquals("enc2", repository.findEncryptedPasswordById(PasswordEntry.DEFAULT_OWNER, saved.getId()).orElseThrow());
+        assertEquals(1, repository.countByOwner(PasswordEntry.DEFAULT_OWNER));
+
+        repository.deleteById(saved.getId());
+        assertFalse(repository.existsById(saved.getId()));
+        repository.deleteById(saved.getId()); // Usunięcie nieistniejącego wpisu nic nie robi
+    }
+
+    @Test
+    void testDeleteWithTombstoneAndChangesSince() {
+        PasswordEntry kept = new PasswordEntry("alice", "kept.com", "enc");
+        kept.setRevision(1);
+        PasswordEntry removed = new PasswordEntry("bob", "removed.com", "enc");
+        removed.setRevision(2);
+        repository.saveAll(List.of(kept, removed));
+
+        assertTrue(repository.deleteWithTombstone(PasswordEntry.DEFAULT_OWNER, removed.getId(), 3));
+        assertFalse(repository.deleteWithTombstone(PasswordEntry.DEFAULT_OWNER, removed.getId(), 4));
+
+        assertEquals(3, repository.findMaxRevision());
+        assertEquals(List.of(removed.getId()), repository.findTombstonesSince(PasswordEntry.DEFAULT_OWNER, ChangeSince.revision(1), 3).stream()
+                .map(PasswordTombstone::getId).toList());
+        try (Stream<PasswordEntry> changed = repository.streamChangedSince(PasswordEntry.DEFAULT_OWNER, ChangeSince.revision(0), 3)) {
+            assertEquals(List.of(kept.getId()), changed.map(PasswordEntry::getId).toList());
+        }
+    }
+
+    @Test
+    void testDeleteAllWithTombstonesSkipsMissingIds() {
+        PasswordEntry first = new PasswordEntry("alice", "first.com", "enc");
+        PasswordEntry second = new PasswordEntry("bob", "second.com", "enc");
+        repository.saveAll(List.of(first, second));
+
+        List<Long> deleted = repository.deleteAllWithTombstones(PasswordEntry.DEFAULT_OWNER, List.of(first.getId(), 999L, second.getId()), 5);
+
+        assertEquals(List.of(first.getId(), second.getId()), deleted);
+        assertEquals(0, repository.countByOwner(PasswordEntry.DEFAULT_OWNER));
+        assertEquals(2, repository.findTombstonesSince(PasswordEntry.DEFAULT_OWNER, ChangeSince.revision(0), 5).size());
+    }
+
+    @Test
+    void testFindAllSummariesWithRepositorySorts() {
+        repository.saveAll(List.of(new PasswordEntry("bob", "Beta.com", "e"), new PasswordEntry("amy", "alpha.com", "e")));
+
+        List<PasswordSummary> byWebsite = repository.findAllSummaries(PasswordEntry.DEFAULT_OWNER, Sort.by(
+                new Sort.Order(Sort.Direction.ASC, PageSort.WEBSITE.getProperty()), new Sort.Order(Sort.Direction.ASC, "id")));
+        List<PasswordSummary> byIdDesc = repository.findAllSummaries(PasswordEntry.DEFAULT_OWNER, Sort.by(Sort.Direction.DESC, "id"));
+
+        assertEquals(List.of("alpha.com", "Beta.com"), byWebsite.stream().map(PasswordSummary::getWebsite).toList());
+        assertEquals(List.of(2L, 1L), byIdDesc.stream().map(PasswordSummary::getId).toList());
+        assertThrows(IllegalArgumentException.class, () -> repository.findAllSummaries(PasswordEntry.DEFAULT_OWNER, Sort.by("password")));
+    }
+
+    @Test
+    void testFindSummaryPageWithCursor() {
+        repository.saveAll(List.of(new PasswordEntry("u", "c.com", "e"), new PasswordEntry("u", "a.com", "e"),
+                new PasswordEntry("u", "b.com", "e")));
+
+        List<PasswordSummary> first = repository.findSummaryPage(PasswordEntry.DEFAULT_OWNER, PageSort.WEBSITE, Sort.Direction.ASC, null, 2);
+        PasswordSummary last = first.get(1);
+        PageCursor cursor = new PageCursor(PageSort.WEBSITE, Sort.Direction.ASC, last.getId(), PageSort.WEBSITE.keyOf(last));
+        List<PasswordSummary> second = repository.findSummaryPage(PasswordEntry.DEFAULT_OWNER, PageSort.WEBSITE, Sort.Direction.ASC, cursor, 2);
+
+        assertEquals(List.of("a.com", "b.com"), first.stream().map(PasswordSummary::getWebsite).toList());
+        assertEquals(List.of("c.com"), second.stream().map(PasswordSummary::getWebsite).toList());
+    }
+
+    @Test
+    void testQueryByExampleIsNotSupported() {
+        assertThrows(UnsupportedOperationException.class, () -> repository.findAll(Example.of(new PasswordEntry())));
+    }
+}
@@ -0,0 +1,657 @@
+package com.passwordmanager.repository.log;
+
+import com.passwordmanager.model.ChangeSince;
+import com.passwordmanager.model.PageSort;
+import com.passwordmanager.model.PasswordEntry;
+import com.passwordmanager.model.PasswordSummary;
+import com.passwordmanager.model.PasswordTombstone;
+import com.passwordmanager.model.ReuseGroup;
+import com.passwordmanager.model.StrengthGroup;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testy jednostkowe dla {@link VaultLog}.
+ */
+class VaultLogTest {
+
+    @TempDir
+    Path directory;
+
+    private VaultLog vaultLog;
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (vaultLog != null) {
+            vaultLog.close();
+        }
+    }
+
+    private Path file() {
+        return directory.resolve("vault.log");
+    }
+
+    private VaultLog open() throws IOException {
+        vaultLog = new VaultLog(file(), true, 0.5, Long.MAX_VALUE);
+        return vaultLog;
+    }
+
+    private static PasswordEntry entry(String website, String username, String encrypted) {
+        PasswordEntry entry = new PasswordEntry(username, website, encrypted);
+        entry.beforeSave();
+        return entry;
+    }
+
+    private static PasswordEntry entry(String website, long revision) {
+        PasswordEntry entry = entry(website, "u", "e");
+        entry.setRevision(revision);
+        return entry;
+    }
+
+    private static List<Long> changedIds(VaultLog log, ChangeSince since, long upToRevision) {
+        try (Stream<PasswordEntry> changed = log.streamChangedSince(PasswordEntry.DEFAULT_OWNER, since, upToRevision)) {
+            return changed.map(PasswordEntry::getId).toList();
+        }
+    }
+
+    @Test
+    void testPutAssignsIdsAndReadsBack() throws IOException {
+        VaultLog log = open();
+
+        log.putAll(List.of(entry("github.com", "alice", "enc1"), entry("gitlab.com", "bob", "enc2")));
+
+        assertEquals(2, log.size());
+        PasswordEntry read = log.get(2).orElseThrow();
+        assertEquals("gitlab.com", read.getWebsite());
+        assertEquals("bob", read.getUsername());
+        assertEquals("enc2", read.getEncryptedPassword());
+        assertNotNull(read.getLastModified());
+        assertEquals("enc1", log.getPassword(1).orElseThrow());
+        assertTrue(log.get(3).isEmpty());
+    }
+
+    @Test
+    void testUpdateAndDeleteSurviveRestart() throws IOException {
+        VaultLog log = open();
+        PasswordEntry first = entry("a.com", "alice", "v1");
+        PasswordEntry second = entry("b.com", "bob", "v1");
+        log.putAll(List.of(first, second));
+        first.setEncryptedPassword("v2");
+        log.putAll(List.of(first));
+        log.deleteAll(List.of(second.getId()));
+        log.close();
+
+        VaultLog reopened = open();
+
+        assertEquals(1, reopened.size());
+        assertEquals("v2", reopened.get(first.getId()).orElseThrow().getEncryptedPassword());
+        assertFalse(reopened.contains(second.getId()));
+        PasswordEntry third = entry("c.com", "carol", "v1");
+        reopened.putAll(List.of(third));
+        assertEquals(3L, third.getId()); // Id usuniętego wpisu nie jest używane ponownie
+    }
+
+    @Test
+    void testReplacePasswordKeepsRevisionAndChecksExpectedValue() throws IOException {
+        VaultLog log = open();
+        PasswordEntry entry = entry("a.com", 7);
+        log.putAll(List.of(entry));
+        Instant lastModified = log.get(entry.getId()).orElseThrow().getLastModified();
+
+        assertTrue(log.replacePassword(entry.getId(), "e", "rewrapped"));
+        assertFalse(log.replacePassword(entry.getId(), "e", "stale")); // Oczekiwana wartość już nieaktualna
+        assertFalse(log.replacePassword(99, "e", "missing"));
+        log.close();
+
+        PasswordEntry read = open().get(entry.getId()).orElseThrow();
+        assertEquals("rewrapped", read.getEncryptedPassword());
+        assertEquals(7, read.getRevision());
+        assertEquals(lastModified, read.getLastModified());
+    }
+
+    @Test
+    void testConcurrentReplacementsDoNotLoseUpdates() throws Exception {
+        VaultLog log = open();
+        PasswordEntry entry = entry("a.com", "alice", "0");
+        log.putAll(List.of(entry));
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                workers.add(executor.submit(() -> {
+                    for (int i = 0; i < 25; i++) {
+                        String current;
+                        do {
+                            current = log.getPassword(entry.getId()).orElseThrow();
+                        } while (!log.replacePassword(entry.getId(), current, String.valueOf(Integer.parseInt(current) + 1)));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Zamiany z tą samą oczekiwaną wartością w jednej grupie commitu - przechodzi tylko pierwsza
+        assertEquals("100", log.getPassword(entry.getId()).orElseThrow());
+    }
+
+    @Test
+    void testReplacementKeepsFingerprintSetConcurrently() throws Exception {
+        VaultLog log = open();
+        PasswordEntry entry = entry("a.com", "alice", "0");
+        log.putAll(List.of(entry));
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> rewrap = executor.submit(() -> {
+                for (int i = 0; i < 200; i++) {
+                    log.replacePassword(entry.getId(), String.valueOf(i), String.valueOf(i + 1));
+                }
+                return null;
+            });
+            Future<?> fingerprint = executor.submit(() -> {
+                while (!log.setFingerprint(entry.getId(), log.getPassword(entry.getId()).orElseThrow(), "fp")) {
+                    Thread.onSpinWait();
+                }
+                return null;
+            });
+            rewrap.get();
+            fingerprint.get();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Zamiana hasła jest stosowana do wpisu z chwili commitu, więc nie cofa odcisku zapisanego w międzyczasie
+        PasswordEntry read = log.get(entry.getId()).orElseThrow();
+        assertEquals("200", read.getEncryptedPassword());
+        assertEquals("fp", read.getPasswordFingerprint());
+    }
+
+    @Test
+    void testTornTailIsTruncatedOnOpen() throws IOException {
+        VaultLog log = open();
+        log.putAll(List.of(entry("a.com", "alice", "secret")));
+        long validSize = log.fileSize();
+        log.close();
+        // Niepełny rekord - np. awaria w trakcie zapisu
+        Files.write(file(), new byte[]{0, 0, 0, 64, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        VaultLog reopened = open();
+
+        assertEquals(1, reopened.size());
+        assertEquals(validSize, reopened.fileSize());
+        assertEquals(validSize, Files.size(file()));
+    }
+
+    @Test
+    void testRejectsForeignFile() throws IOException {
+        Files.write(file(), new byte[]{'n', 'o', 't', ' ', 'a', ' ', 'l', 'o', 'g'});
+
+        assertThrows(IOException.class, () -> new VaultLog(file(), true, 0.5, Long.MAX_VALUE));
+    }
+
+    @Test
+    void testConcurrentWritesAreGroupCommitted() throws Exception {
+        VaultLog log = open();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int thread = t;
+                writers.add(executor.submit(() -> {
+                    for (int i = 0; i < 50; i++) {
+                        log.putAll(List.of(entry("site" + thread + "-" + i + ".com", "user", "enc")));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> writer : writers) {
+                writer.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(400, log.size());
+        assertTrue(log.getCommitCount() <= 400);
+    }
+
+    @Test
+    void testCompactionKeepsLiveRecordsAndShrinksFile() throws IOException {
+        VaultLog log = open();
+        PasswordEntry kept = entry("a.com", "alice", "v0");
+        PasswordEntry deleted = entry("b.com", "bob", "v0");
+        log.putAll(List.of(kept, deleted));
+        for (int i = 1; i <= 20; i++) {
+            kept.setEncryptedPassword("v" + i);
+            log.putAll(List.of(kept));
+        }
+        log.deleteAll(List.of(deleted.getId()));
+        long before = log.fileSize();
+
+        log.compact();
+
+        assertTrue(log.fileSize() < before);
+        assertEquals(1, log.getCompactionCount());
+        assertEquals("v20", log.get(kept.getId()).orElseThrow().getEncryptedPassword());
+        log.close();
+
+        VaultLog reopened = open();
+        assertEquals(1, reopened.size());
+        assertEquals("v20", reopened.get(kept.getId()).orElseThrow().getEncryptedPassword());
+        PasswordEntry next = entry("c.com", "carol", "v0");
+        reopened.putAll(List.of(next));
+        assertEquals(3L, next.getId());
+    }
+
+    @Test
+    void testStreamIsSnapshotAcrossCompaction() throws IOException {
+        VaultLog log = open();
+        log.putAll(List.of(entry("a.com", "alice", "enc"), entry("b.com", "bob", "enc")));
+
+        try (Stream<PasswordEntry> snapshot = log.streamAll()) {
+            log.deleteAll(List.of(1L));
+            log.compact();
+            assertEquals(List.of(1L, 2L), snapshot.map(PasswordEntry::getId).toList());
+        }
+        assertEquals(1, log.size());
+    }
+
+    @Test
+    void testBackgroundCompactionAfterThreshold() throws Exception {
+        vaultLog = new VaultLog(file(), false, 0.5, 0);
+        PasswordEntry entry = entry("a.com", "alice", "v0");
+        for (int i = 0; i < 50; i++) {
+            entry.setEncryptedPassword("v" + i);
+            vaultLog.putAll(List.of(entry));
+        }
+        for (int i = 0; i < 100 && vaultLog.getCompactionCount() == 0; i++) {
+            Thread.sleep(20);
+        }
+
+        assertTrue(vaultLog.getCompactionCount() > 0);
+        assertEquals("v49", vaultLog.get(entry.getId()).orElseThrow().getEncryptedPassword());
+    }
+
+    @Test
+    void testPagesBySortKeyInBothDirections() throws IOException {
+        VaultLog log = open();
+        log.putAll(List.of(entry("Charlie.com", "u", "e"), entry("alpha.com", "u", "e"),
+                entry("Bravo.com", "u", "e"), entry("delta.com", "u", "e")));
+
+        List<PasswordSummary> first = log.page(PasswordEntry.DEFAULT_OWNER, PageSort.WEBSITE, true, null, null, 2);
+        PasswordSummary last = first.get(1);
+        List<PasswordSummary> second = log.page(PasswordEntry.DEFAULT_OWNER, PageSort.WEBSITE, true, last.getId(),
+                PageSort.WEBSITE.parseKey(PageSort.WEBSITE.keyOf(last)), 2);
+        List<PasswordSummary> descending = log.page(PasswordEntry.DEFAULT_OWNER, PageSort.ID, false, 3L, null, 10);
+
+        assertEquals(List.of("alpha.com", "Bravo.com"), first.stream().map(PasswordSummary::getWebsite).toList());
+        assertEquals(List.of("Charlie.com", "delta.com"), second.stream().map(PasswordSummary::getWebsite).toList());
+        assertEquals(List.of(2L, 1L), descending.stream().map(PasswordSummary::getId).toList());
+        assertEquals(List.of(4L, 3L, 2L, 1L),
+                log.summaries(PasswordEntry.DEFAULT_OWNER, PageSort.ID, false).stream().map(PasswordSummary::getId).toList());
+    }
+
+    @Test
+    void testChangesSinceRevisionIncludeTombstones() throws IOException {
+        VaultLog log = open();
+        PasswordEntry a = entry("a.com", 1);
+        PasswordEntry b = entry("b.com", 2);
+        PasswordEntry c = entry("c.com", 3);
+        log.putAll(List.of(a, b, c));
+        a.setRevision(4);
+        log.putAll(List.of(a));
+        log.deleteAll(List.of(b.getId()), 5);
+
+        assertEquals(List.of(c.getId(), a.getId()), changedIds(log, ChangeSince.revision(2), 5));
+        assertEquals(List.of(c.getId()), changedIds(log, ChangeSince.revision(2), 3)); // Granica rewizji
+        List<PasswordTombstone> deleted = log.tombstonesSince(PasswordEntry.DEFAULT_OWNER, ChangeSince.revision(2), 5);
+        assertEquals(1, deleted.size());
+        assertEquals(b.getId(), deleted.get(0).getId());
+        assertEquals(5, deleted.get(0).getRevision());
+        assertTrue(log.tombstonesSince(PasswordEntry.DEFAULT_OWNER, ChangeSince.revision(5), 5).isEmpty());
+        assertEquals(5, log.maxRevision());
+        assertEquals(4, log.get(a.getId()).orElseThrow().getRevision());
+    }
+
+    @Test
+    void testChangesSinceTimestamp() throws IOException {
+        VaultLog log = open();
+        Instant day = Instant.parse("2024-05-01T00:00:00Z");
+        PasswordEntry old = PasswordEntry.restore(null, "old.com", "u", "e", day.minusSeconds(60));
+        PasswordEntry recent = PasswordEntry.restore(null, "recent.com", "u", "e", day.plusSeconds(60));
+        log.putAll(List.of(old, recent));
+
+        assertEquals(List.of(recent.getId()), changedIds(log, ChangeSince.timestamp(day), Long.MAX_VALUE));
+    }
+
+    @Test
+    void testTombstonesAndRevisionSurviveCompactionAndRestart() throws IOException {
+        VaultLog log = open();
+        PasswordEntry a = entry("a.com", 1);
+        PasswordEntry b = entry("b.com", 2);
+        log.putAll(List.of(a, b));
+        log.deleteAll(List.of(a.getId()), 3);
+        log.deleteAll(List.of(b.getId())); // Bez rewizji - bez znacznika
+        log.compact();
+        log.close();
+
+        VaultLog reopened = open();
+
+        assertEquals(0, reopened.size());
+        assertEquals(3, reopened.maxRevision()); // Rewizje nie wracają po restarcie
+        assertEquals(List.of(a.getId()), reopened.tombstonesSince(PasswordEntry.DEFAULT_OWNER, ChangeSince.revision(0), 3).stream()
+                .map(PasswordTombstone::getId).toList());
+        PasswordEntry again = entry("a.com", 4);
+        again.setId(a.getId());
+        reopened.putAll(List.of(again));
+        assertTrue(reopened.tombstonesSince(PasswordEntry.DEFAULT_OWNER, ChangeSince.revision(0), 4).isEmpty()); // Ponowny zapis usuwa znacznik
+    }
+
+    @Test
+    void testChangesAfterPagesByRevisionAndId() throws IOException {
+        VaultLog log = open();
+        PasswordEntry a = entry("a.com", 1);
+        PasswordEntry b = entry("b.com", 1); // Ta sama rewizja (np. porcja importu) - kolejność po id
+        PasswordEntry c = entry("c.com", 2);
+        PasswordEntry other = entry("d.com", 2);
+        other.setOwner("alicja");
+        log.putAll(List.of(a, b, c, other));
+        log.deleteAll(List.of(c.getId()), 3);
+        String owner = PasswordEntry.DEFAULT_OWNER;
+
+        assertEquals(List.of(a.getId()), log.changesAfter(owner, 0, Long.MIN_VALUE, 3, 1).stream().map(PasswordEntry::getId).toList());
+        assertEquals(List.of(b.getId()), log.changesAfter(owner, 1, a.getId(), 3, 10).stream().map(PasswordEntry::getId).toList());
+        assertTrue(log.changesAfter(owner, 1, b.getId(), 3, 10).isEmpty()); // c usunięty, wpis alicji w innym sejfie
+        assertTrue(log.changesAfter(owner, 0, Long.MIN_VALUE, 0, 10).isEmpty()); // Granica rewizji
+        assertEquals(List.of(c.getId()), log.tombstonesAfter(owner, 1, b.getId(), 3, 10).stream().map(PasswordTombstone::getId).toList());
+        assertTrue(log.tombstonesAfter(owner, 3, c.getId(), 3, 10).isEmpty());
+        assertTrue(log.tombstonesAfter("alicja", 0, Long.MIN_VALUE, 3, 10).isEmpty());
+    }
+
+    @Test
+    void testPurgedTombstonesDoNotReturnAfterRestart() throws IOException {
+        VaultLog log = open();
+        PasswordEntry a = entry("a.com", 1);
+        PasswordEntry b = entry("b.com", 2);
+        PasswordEntry c = entry("c.com", 3);
+        log.putAll(List.of(a, b, c));
+        log.deleteAll(List.of(a.getId()), 4);
+        log.deleteAll(List.of(b.getId()), 5);
+
+        assertEquals(0, log.purgeTombstones(Instant.now().minusSeconds(3600), 5)); // Żaden znacznik nie jest tak stary
+        assertEquals(1, log.purgeTombstones(Instant.now().plusSeconds(1), 5)); // Znacznik najwyższej rewizji zostaje
+        log.close();
+
+        VaultLog reopened = open();
+
+        assertEquals(List.of(b.getId()), reopened.tombstonesAfter(PasswordEntry.DEFAULT_OWNER, 0, Long.MIN_VALUE, 5, 10).stream()
+                .map(PasswordTombstone::getId).toList());
+        assertEquals(List.of(c.getId()), reopened.summaries(PasswordEntry.DEFAULT_OWNER, PageSort.ID, true).stream()
+                .map(PasswordSummary::getId).toList());
+        assertEquals(5, reopened.maxRevision());
+        assertEquals(1, reopened.purgeTombstones(Instant.now().plusSeconds(1), 6));
+        reopened.compact();
+        assertEquals(5, reopened.maxRevision()); // Rewizja przetrwała usunięcie wszystkich znaczników
+        assertTrue(reopened.tombstonesAfter(PasswordEntry.DEFAULT_OWNER, 0, Long.MIN_VALUE, 5, 10).isEmpty());
+    }
+
+    @Test
+    void testOwnersAreIsolatedAndSurviveRestart() throws IOException {
+        VaultLog log = open();
+        PasswordEntry shared = entry("a.com", 1);
+        PasswordEntry alice = entry("b.com", 2);
+        alice.setOwner("alicja");
+        PasswordEntry alice2 = entry("c.com", 3);
+        alice2.setOwner("alicja");
+        log.putAll(List.of(shared, alice, alice2));
+        log.deleteAll(List.of(alice2.getId()), 4);
+        log.close();
+
+        VaultLog reopened = open();
+
+        assertEquals("alicja", reopened.ownerOf(alice.getId()));
+        assertEquals(1, reopened.count("alicja"));
+        assertEquals(1, reopened.count(PasswordEntry.DEFAULT_OWNER));
+        assertEquals(0, reopened.count("bartek"));
+        assertEquals(List.of(alice.getId()), reopened.page("alicja", PageSort.WEBSITE, true, null, null, 10).stream()
+                .map(PasswordSummary::getId).toList());
+        assertEquals(List.of(shared.getId()), reopened.summaries(PasswordEntry.DEFAULT_OWNER, PageSort.ID, true).stream()
+                .map(PasswordSummary::getId).toList());
+        try (Stream<PasswordEntry> entries = reopened.streamAll("alicja")) {
+            assertEquals(List.of(alice.getId()), entries.map(PasswordEntry::getId).toList());
+        }
+        assertEquals(List.of(alice2.getId()), reopened.tombstonesSince("alicja", ChangeSince.revision(0), 4).stream()
+                .map(PasswordTombstone::getId).toList());
+        assertTrue(reopened.tombstonesSince(PasswordEntry.DEFAULT_OWNER, ChangeSince.revision(0), 4).isEmpty());
+        assertEquals(2, reopened.entriesAfter(Long.MIN_VALUE, 10).size()); // Przepakowanie kluczy widzi wszystkie sejfy
+    }
+
+    @Test
+    void testReusedPasswordsAreGroupedByFingerprintAndSurviveRestart() throws IOException {
+        VaultLog log = open();
+        PasswordEntry first = entry("a.com", "u1", "enc1");
+        first.setPasswordFingerprint("fp-same");
+        PasswordEntry other = entry("b.com", "u2", "enc2");
+        other.setPasswordFingerprint("fp-other");
+        PasswordEntry second = entry("c.com", "u3", "enc3");
+        second.setPasswordFingerprint("fp-same");
+        PasswordEntry legacy = entry("d.com", "u4", "enc4");
+        PasswordEntry foreign = entry("e.com", "u5", "enc5");
+        foreign.setOwner("alicja");
+        foreign.setPasswordFingerprint("fp-same");
+        log.putAll(List.of(first, other, second, legacy, foreign));
+
+        List<ReuseGroup> groups = log.reusedPasswords(PasswordEntry.DEFAULT_OWNER);
+
+        assertEquals(1, groups.size()); // Pojedyncze odciski i wpisy innych sejfów nie tworzą grup
+        assertEquals(2, groups.get(0).getCount());
+        assertEquals(List.of(first.getId(), second.getId()), groups.get(0).getEntries().stream().map(PasswordSummary::getId).toList());
+        assertEquals(1, log.countWithoutFingerprint(PasswordEntry.DEFAULT_OWNER));
+        assertEquals(List.of(legacy.getId()), log.entriesWithoutFingerprintAfter(Long.MIN_VALUE, 10).stream()
+                .map(PasswordEntry::getId).toList());
+
+        assertFalse(log.setFingerprint(legacy.getId(), "inne", "fp-other")); // Hasło zmienione od odczytu
+        assertTrue(log.setFingerprint(legacy.getId(), "enc4", "fp-other"));
+        assertEquals(legacy.getRevision(), log.get(legacy.getId()).orElseThrow().getRevision());
+        log.compact();
+        log.close();
+
+        VaultLog reopened = open();
+
+        assertEquals("fp-same", reopened.get(first.getId()).orElseThrow().getPasswordFingerprint());
+        assertEquals(0, reopened.countWithoutFingerprint(PasswordEntry.DEFAULT_OWNER));
+        assertTrue(reopened.entriesWithoutFingerprintAfter(Long.MIN_VALUE, 10).isEmpty());
+        assertEquals(List.of(List.of(first.getId(), second.getId()), List.of(other.getId(), legacy.getId())),
+                reopened.reusedPasswords(PasswordEntry.DEFAULT_OWNER).stream()
+                        .map(group -> group.getEntries().stream().map(PasswordSummary::getId).toList()).toList());
+    }
+
+    @Test
+    void testWeakPasswordsAreReadByStrengthRangeAndSurviveRestart() throws IOException {
+        VaultLog log = open();
+        PasswordEntry strong = entry("a.com", "u1", "enc1");
+        strong.setStrengthScore(4);
+        PasswordEntry weakest = entry("b.com", "u2", "enc2");
+        weakest.setStrengthScore(0);
+        PasswordEntry weak = entry("c.com", "u3", "enc3");
+        weak.setStrengthScore(2);
+        PasswordEntry alsoWeakest = entry("d.com", "u4", "enc4");
+        alsoWeakest.setStrengthScore(0);
+        PasswordEntry legacy = entry("e.com", "u5", "enc5");
+        PasswordEntry foreign = entry("f.com", "u6", "enc6");
+        foreign.setOwner("alicja");
+        foreign.setStrengthScore(0);
+        log.putAll(List.of(strong, weakest, weak, alsoWeakest, legacy, foreign));
+
+        List<StrengthGroup> groups = log.weakPasswords(PasswordEntry.DEFAULT_OWNER, 2);
+
+        // Od najsłabszej grupy; wpisy bez oceny, silniejsze i innych sejfów są pominięte
+        assertEquals(List.of(0, 2), groups.stream().map(StrengthGroup::getScore).toList());
+        assertEquals(List.of(weakest.getId(), alsoWeakest.getId()), groups.get(0).getEntries().stream().map(PasswordSummary::getId).toList());
+        assertEquals(List.of(weak.getId()), groups.get(1).getEntries().stream().map(PasswordSummary::getId).toList());
+        assertEquals(1, log.countWithoutStrength(PasswordEntry.DEFAULT_OWNER));
+        assertEquals(List.of(legacy.getId()), log.entriesWithoutStrengthAfter(Long.MIN_VALUE, 10).stream()
+                .map(PasswordEntry::getId).toList());
+
+        assertFalse(log.setStrength(legacy.getId(), "inne", 1, 77)); // Hasło zmienione od odczytu
+        assertTrue(log.setStrength(legacy.getId(), "enc5", 1, 77));
+        assertEquals(77, log.get(legacy.getId()).orElseThrow().getRevision()); // Nowa rewizja - zmienia ETag wpisu
+        weak.setStrengthScore(3); // Zmiana oceny przenosi wpis w indeksie
+        log.putAll(List.of(weak));
+        log.compact();
+        log.close();
+
+        VaultLog reopened = open();
+
+        assertEquals(4, reopened.get(strong.getId()).orElseThrow().getStrengthScore());
+        assertEquals(0, reopened.countWithoutStrength(PasswordEntry.DEFAULT_OWNER));
+        assertTrue(reopened.entriesWithoutStrengthAfter(Long.MIN_VALUE, 10).isEmpty());
+        assertEquals(List.of(List.of(weakest.getId(), alsoWeakest.getId()), List.of(legacy.getId())),
+                reopened.weakPasswords(PasswordEntry.DEFAULT_OWNER, 2).stream()
+                        .map(group -> group.getEntries().stream().map(PasswordSummary::getId).toList()).toList());
+    }
+
+    @Test
+    void testCommitsRacingWithCloseEitherPersistOrFail() throws Exception {
+        VaultLog log = open();
+        List<Long> persisted = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch started = new CountDownLatch(100);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                writers.add(executor.submit(() -> {
+                    while (true) {
+                        PasswordEntry entry = entry("race.com", "u", "e");
+                        try {
+                            log.putAll(List.of(entry));
+                        } catch (IllegalStateException e) {
+                            return null; // Dziennik zamknięty przed przyjęciem zapisu
+                        }
+                        persisted.add(entry.getId());
+                        started.countDown();
+                    }
+                }));
+            }
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            log.close();
+
+            for (Future<?> writer : writers) {
+                writer.get(10, TimeUnit.SECONDS); // Żaden zapis nie czeka w nieskończoność na zamknięty dziennik
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        VaultLog reopened = open();
+        for (Long id : persisted) {
+            assertTrue(reopened.get(id).isPresent()); // Zapis potwierdzony przed zamknięciem jest w pliku
+        }
+    }
+
+    @Test
+    void testConcurrentFingerprintAndStrengthBothSurvive() throws Exception {
+        VaultLog log = open();
+        List<PasswordEntry> entries = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            entries.add(entry(i + ".com", "u", "enc" + i));
+        }
+        log.putAll(entries);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> fingerprints = executor.submit(() -> {
+                for (PasswordEntry entry : entries) {
+                    assertTrue(log.setFingerprint(entry.getId(), entry.getEncryptedPassword(), "fp" + entry.getId()));
+                }
+                return null;
+            });
+            Future<?> strengths = executor.submit(() -> {
+                for (PasswordEntry entry : entries) {
+                    assertTrue(log.setStrength(entry.getId(), entry.getEncryptedPassword(), 3, 1));
+                }
+                return null;
+            });
+            fingerprints.get();
+            strengths.get();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Uzupełnianie oceny siły nie kasuje równolegle zapisanego odcisku i odwrotnie
+        for (PasswordEntry entry : entries) {
+            PasswordEntry read = log.get(entry.getId()).orElseThrow();
+            assertEquals("fp" + entry.getId(), read.getPasswordFingerprint());
+            assertEquals(3, read.getStrengthScore());
+        }
+        assertEquals(0, log.countWithoutStrength(PasswordEntry.DEFAULT_OWNER));
+        assertEquals(0, log.countWithoutFingerprint(PasswordEntry.DEFAULT_OWNER));
+    }
+
+    @Test
+    void testVersion1FileIsUpgradedOnOpen() throws IOException {
+        byte[] put = version1Put(7, "old.com", "alice", "enc");
+        ByteBuffer file = ByteBuffer.allocate(VaultLog.HEADER_SIZE + put.length)
+                .putInt(VaultLog.MAGIC).putInt(1).put(put);
+        Files.write(file(), file.array());
+
+        VaultLog log = open();
+
+        PasswordEntry read = log.get(7).orElseThrow();
+        assertEquals("old.com", read.getWebsite());
+        assertEquals("enc", read.getEncryptedPassword());
+        assertEquals(0, read.getRevision());
+        assertEquals(PasswordEntry.DEFAULT_OWNER, read.getOwner()); // Wpisy sprzed podziału na sejfy
+        assertNull(read.getPasswordFingerprint()); // Do uzupełnienia zadaniem w tle
+        assertEquals(1, log.countWithoutFingerprint(PasswordEntry.DEFAULT_OWNER));
+        assertNull(read.getStrengthScore());
+        assertEquals(1, log.countWithoutStrength(PasswordEntry.DEFAULT_OWNER));
+        try (FileChannel channel = FileChannel.open(file())) {
+            ByteBuffer header = ByteBuffer.allocate(VaultLog.HEADER_SIZE);
+            channel.read(header, 0);
+            assertEquals(VaultLog.VERSION, header.getInt(4));
+        }
+        log.putAll(List.of(entry("new.com", 1)));
+        assertEquals(8L, log.get(8).orElseThrow().getId());
+    }
+
+    /** Rekord zapisu w formacie 1: typ, id, data modyfikacji, strona, użytkownik, hasło. */
+    private static byte[] version1Put(long id, String website, String username, String password) {
+        byte[][] strings = {website.getBytes(StandardCharsets.UTF_8), username.getBytes(StandardCharsets.UTF_8),
+                password.getBytes(StandardCharsets.UTF_8)};
+        ByteBuffer body = ByteBuffer.allocate(1 + 8 + 8 + 4 + 12 + strings[0].length + strings[1].length + strings[2].length);
+        body.put(VaultLog.PUT).putLong(id).putLong(1_700_000_000L).putInt(0);
+        for (byte[] string : strings) {
+            body.putInt(string.length).put(string);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(body.array());
+        return ByteBuffer.allocate(VaultLog.RECORD_HEADER_SIZE + body.capacity())
+                .putInt(body.capacity()).putInt((int) crc.getValue()).put(body.array()).array();
+    }
+}
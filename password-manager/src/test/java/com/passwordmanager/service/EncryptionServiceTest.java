@@ -2,7 +2,19 @@ package com.passwordmanager.service;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.springframework.test.util.ReflectionTestUtils;
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -13,11 +25,11 @@ class EncryptionServiceTest {
 
     private EncryptionService encryptionService;
 
+    private static final String TEST_SECRET_KEY = "mySuperSecretKey123";
+
     @BeforeEach
     void setUp() {
-        encryptionService = new EncryptionService();
-        String TEST_SECRET_KEY = "mySuperSecretKey123";
-        ReflectionTestUtils.setField(encryptionService, "secretKey", TEST_SECRET_KEY);
+        encryptionService = new EncryptionService(TEST_SECRET_KEY);
     }
 
     @Test
@@ -58,4 +70,234 @@ class EncryptionServiceTest {
         String invalidEncryptedText = "thisIsNotValidBase64!";
         assertThrows(RuntimeException.class, () -> encryptionService.decrypt(invalidEncryptedText));
     }
+
+    @Test
+    void testCiphertextCompatibleWithPreviousImplementation() throws Exception {
+        // Poprzednia implementacja: AES/ECB, klucz z SHA-1 - takie szyfrogramy nadal są odczytywane
+        String legacy = legacyEncrypt("zażółć-hasło");
+
+        assertEquals("zażółć-hasło", encryptionService.decrypt(legacy));
+        assertTrue(encryptionService.needsRewrap(legacy));
+
+        String migrated = encryptionService.rewrap(legacy);
+        assertTrue(migrated.startsWith(EncryptionService.ENVELOPE_PREFIX));
+        assertFalse(encryptionService.needsRewrap(migrated));
+        assertEquals("zażółć-hasło", encryptionService.decrypt(migrated));
+    }
+
+    @Test
+    void testSamePlainTextEncryptsDifferently() {
+        String first = encryptionService.encrypt("to-samo");
+        String second = encryptionService.encrypt("to-samo");
+
+        assertNotEquals(first, second); // Losowy IV przy każdym szyfrowaniu
+        assertEquals("to-samo", encryptionService.decrypt(first));
+        assertEquals("to-samo", encryptionService.decrypt(second));
+    }
+
+    @Test
+    void testRewrapMovesDataKeyToActiveMasterKey() {
+        String underV1 = encryptionService.encrypt("rotowane");
+        EncryptionService rotated = new EncryptionService(TEST_SECRET_KEY, 256, "2:nowyKluczGlowny", 2, 100);
+
+        assertEquals("rotowane", rotated.decrypt(underV1)); // Stary klucz główny nadal skonfigurowany
+        assertTrue(rotated.needsRewrap(underV1));
+
+        String underV2 = rotated.rewrap(underV1);
+        assertFalse(rotated.needsRewrap(underV2));
+        assertEquals("rotowane", rotated.decrypt(underV2));
+        assertSame(underV2, rotated.rewrap(underV2));
+
+        // Po wycofaniu sekretu wersji 1 przepakowany szyfrogram jest nadal czytelny, a stary już nie
+        EncryptionService onlyV2 = new EncryptionService("innySekret", 256, "2:nowyKluczGlowny", 2, 100);
+        assertEquals("rotowane", onlyV2.decrypt(underV2));
+        assertThrows(RuntimeException.class, () -> onlyV2.decrypt(underV1));
+    }
+
+    @Test
+    void testVaultCiphertextIsReadableOnlyWithinItsVault() {
+        String alice = encryptionService.encrypt("alicja", "hasło-alicji");
+
+        assertEquals("hasło-alicji", encryptionService.decrypt("alicja", alice));
+        assertThrows(RuntimeException.class, () -> encryptionService.decrypt("bartek", alice)); // Inny klucz sejfu
+        assertThrows(RuntimeException.class, () -> encryptionService.decrypt(alice)); // Ani kluczem instancji
+        assertFalse(encryptionService.needsRewrap("alicja", alice));
+        assertEquals(List.of("a", "b"), encryptionService.decryptAll("alicja", encryptionService.encryptAll("alicja", List.of("a", "b"))));
+    }
+
+    @Test
+    void testRewrapMovesInstanceCiphertextToVaultKey() throws Exception {
+        String instance = encryptionService.encrypt("sprzed-sejfów");
+        String legacy = legacyEncrypt("jeszcze-starsze");
+
+        assertTrue(encryptionService.needsRewrap("alicja", instance));
+        assertEquals("sprzed-sejfów", encryptionService.decrypt("alicja", instance)); // Odczyt przed migracją
+        String migrated = encryptionService.rewrap("alicja", instance);
+        String migratedLegacy = encryptionService.rewrap("alicja", legacy);
+
+        assertFalse(encryptionService.needsRewrap("alicja", migrated));
+        assertEquals("sprzed-sejfów", encryptionService.decrypt("alicja", migrated));
+        assertEquals("jeszcze-starsze", encryptionService.decrypt("alicja", migratedLegacy));
+        assertThrows(RuntimeException.class, () -> encryptionService.decrypt("bartek", migrated));
+    }
+
+    @Test
+    void testFingerprintIsDeterministicPerVaultAndSurvivesKeyRotation() {
+        String fingerprint = encryptionService.fingerprint("alicja", "to-samo");
+
+        assertEquals(fingerprint, encryptionService.fingerprint("alicja", "to-samo"));
+        assertEquals(43, fingerprint.length()); // HMAC-SHA256 w Base64url bez dopełnienia
+        assertNotEquals(fingerprint, encryptionService.fingerprint("alicja", "inne"));
+        assertNotEquals(fingerprint, encryptionService.fingerprint("bartek", "to-samo")); // Odciski nie łączą sejfów
+        assertFalse(fingerprint.contains("to-samo"));
+        assertNull(encryptionService.fingerprint("alicja", null));
+        assertEquals(List.of(fingerprint, encryptionService.fingerprint("alicja", "inne")),
+                encryptionService.fingerprintAll("alicja", List.of("to-samo", "inne")));
+
+        // Po zmianie aktywnego klucza głównego odciski zapisanych wpisów pozostają aktualne
+        EncryptionService rotated = new EncryptionService(TEST_SECRET_KEY, 256, "2:nowyKluczGlowny", 2, 100);
+        assertEquals(fingerprint, rotated.fingerprint("alicja", "to-samo"));
+    }
+
+    @Test
+    void testVaultKeysAreCachedWithBoundedSize() {
+        EncryptionService bounded = new EncryptionService(TEST_SECRET_KEY, 256, "", 1, 100, 2);
+        String first = bounded.encrypt("v1", "a");
+        bounded.encrypt("v2", "b");
+        bounded.encrypt("v3", "c"); // Wypiera klucze sejfu v1
+
+        assertEquals(2, bounded.cachedVaultKeys());
+        assertEquals("a", bounded.decrypt("v1", first)); // Klucz sejfu jest wyprowadzany ponownie
+        bounded.shutdown();
+    }
+
+    @Test
+    void testDataKeyIsReplacedAfterMaxUses() {
+        EncryptionService shortLived = new EncryptionService(TEST_SECRET_KEY, 256, "", 1, 2);
+        List<String> encrypted = shortLived.encryptAll(List.of("a", "b", "c"));
+        int headerChars = EncryptionService.ENVELOPE_PREFIX.length() + 56; // 42 z 43 bajtów nagłówka w Base64
+
+        assertEquals(encrypted.get(0).substring(0, headerChars), encrypted.get(1).substring(0, headerChars));
+        assertNotEquals(encrypted.get(1).substring(0, headerChars), encrypted.get(2).substring(0, headerChars));
+        assertEquals(List.of("a", "b", "c"), shortLived.decryptAll(encrypted));
+    }
+
+    @Test
+    void testInvalidMasterKeyConfigurationIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new EncryptionService(TEST_SECRET_KEY, 256, "", 2, 100));
+        assertThrows(IllegalArgumentException.class, () -> new EncryptionService(TEST_SECRET_KEY, 256, "1:inny", 1, 100));
+        assertThrows(IllegalArgumentException.class, () -> new EncryptionService(TEST_SECRET_KEY, 256, "bezWersji", 1, 100));
+    }
+
+    @Test
+    void testByteArrayRoundTrip() {
+        byte[] plain = "bytes-secret".getBytes(StandardCharsets.UTF_8);
+
+        byte[] encrypted = encryptionService.encrypt(plain);
+
+        assertEquals(EncryptionService.encryptedLength(plain.length), encrypted.length);
+        assertArrayEquals(plain, encryptionService.decrypt(encrypted));
+    }
+
+    @Test
+    void testByteBufferRoundTrip() {
+        ByteBuffer plain = ByteBuffer.wrap("buffer-secret-longer-than-one-block".getBytes(StandardCharsets.UTF_8));
+        ByteBuffer encrypted = ByteBuffer.allocateDirect(EncryptionService.encryptedLength(plain.remaining()));
+        int written = encryptionService.encrypt(plain, encrypted);
+        encrypted.flip();
+
+        ByteBuffer decrypted = ByteBuffer.allocate(written);
+        int plainLength = encryptionService.decrypt(encrypted, decrypted);
+        decrypted.flip();
+
+        assertEquals("buffer-secret-longer-than-one-block",
+                new String(decrypted.array(), 0, plainLength, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testCipherUsableAfterFailedDecryption() {
+        String encrypted = encryptionService.encrypt("still-works");
+
+        assertThrows(RuntimeException.class, () -> encryptionService.decrypt(new byte[15])); // Za krótka koperta
+
+        assertEquals("still-works", encryptionService.decrypt(encrypted));
+    }
+
+    @Test
+    void testConcurrentUseFromManyThreads() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int thread = t;
+                results.add(executor.submit(() -> {
+                    for (int i = 0; i < 500; i++) {
+                        String plain = "secret-" + thread + "-" + i;
+                        if (!plain.equals(encryptionService.decrypt(encryptionService.encrypt(plain)))) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }));
+            }
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testBulkOperationsPreserveOrderBelowAndAboveThreshold() {
+        EncryptionService parallel = new EncryptionService(TEST_SECRET_KEY, 8);
+        for (int size : new int[]{0, 5, 1000}) {
+            List<String> plainTexts = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                plainTexts.add("secret-" + i);
+            }
+
+            List<String> encrypted = parallel.encryptAll(plainTexts);
+            List<String> decrypted = parallel.decryptAll(encrypted);
+
+            assertEquals(plainTexts, decrypted);
+            for (int i = 0; i < size; i++) {
+                assertEquals(plainTexts.get(i), encryptionService.decrypt(encrypted.get(i))); // Zgodne z trybem pojedynczym
+            }
+        }
+        parallel.shutdown();
+    }
+
+    @Test
+    void testVaultBulkDecryptionAboveThresholdReadsVaultAndInstanceEnvelopes() {
+        EncryptionService parallel = new EncryptionService(TEST_SECRET_KEY, 8);
+        List<String> plainTexts = new ArrayList<>();
+        List<String> cipherTexts = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            plainTexts.add("secret-" + i);
+            // Co drugi wpis sprzed podziału na sejfy - koperta instancji
+            cipherTexts.add(i % 2 == 0 ? parallel.encrypt("alicja", "secret-" + i) : parallel.encrypt("secret-" + i));
+        }
+
+        assertEquals(plainTexts, parallel.decryptAll("alicja", cipherTexts));
+        assertThrows(RuntimeException.class, () -> parallel.decryptAll("bartek", cipherTexts)); // Klucze innego sejfu
+        parallel.shutdown();
+    }
+
+    @Test
+    void testBulkDecryptionPropagatesErrors() {
+        EncryptionService parallel = new EncryptionService(TEST_SECRET_KEY, 8);
+        List<String> cipherTexts = new ArrayList<>(parallel.encryptAll(Collections.nCopies(100, "ok")));
+        cipherTexts.set(57, "thisIsNotValidBase64!");
+
+        assertThrows(RuntimeException.class, () -> parallel.decryptAll(cipherTexts));
+        parallel.shutdown();
+    }
+
+    private static String legacyEncrypt(String plainText) throws Exception {
+        byte[] key = Arrays.copyOf(MessageDigest.getInstance("SHA-1").digest(TEST_SECRET_KEY.getBytes(StandardCharsets.UTF_8)), 16);
+        Cipher cipher = Cipher.getInstance("AES/ECB/PKCS5Padding");
+        cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(key, "AES"));
+        return Base64.getEncoder().encodeToString(cipher.doFinal(plainText.getBytes(StandardCharsets.UTF_8)));
+    }
 }
\ No newline at end of file
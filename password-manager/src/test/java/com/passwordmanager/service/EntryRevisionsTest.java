@@ -0,0 +1,59 @@
+package com.passwordmanager.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.OptionalLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testy jednostkowe dla {@link EntryRevisions}.
+ */
+class EntryRevisionsTest {
+
+    @Test
+    void testKeepsNewestRevision() {
+        EntryRevisions revisions = new EntryRevisions(100);
+        assertTrue(revisions.get("alicja", 1L).isEmpty());
+
+        revisions.update("alicja", 1L, 5);
+        revisions.update("alicja", 1L, 3); // Spóźniony odczyt starszej wersji
+        assertEquals(OptionalLong.of(5), revisions.get("alicja", 1L));
+
+        revisions.update("alicja", 1L, 8);
+        assertEquals(OptionalLong.of(8), revisions.get("alicja", 1L));
+    }
+
+    @Test
+    void testDeletedEntryIsNotResurrected() {
+        EntryRevisions revisions = new EntryRevisions(100);
+        revisions.update("alicja", 1L, 5);
+
+        revisions.markDeleted(1L);
+        revisions.update("alicja", 1L, 5); // Odczyt sprzed usunięcia
+
+        assertTrue(revisions.get("alicja", 1L).isEmpty());
+    }
+
+    @Test
+    void testRevisionIsNotVisibleFromOtherVault() {
+        EntryRevisions revisions = new EntryRevisions(100);
+        revisions.update("alicja", 1L, 5);
+
+        assertTrue(revisions.get("bartek", 1L).isEmpty());
+        assertEquals(OptionalLong.of(5), revisions.get("alicja", 1L));
+    }
+
+    @Test
+    void testLeastRecentlyUsedEntryIsEvicted() {
+        EntryRevisions revisions = new EntryRevisions(2);
+        revisions.update("alicja", 1L, 5);
+        revisions.update("alicja", 2L, 6);
+        revisions.get("alicja", 1L); // Wpis 2 staje się najdawniej używany
+
+        revisions.markDeleted(3L);
+
+        assertEquals(OptionalLong.of(5), revisions.get("alicja", 1L));
+        assertTrue(revisions.get("alicja", 2L).isEmpty()); // Zwolniony - następny odczyt pójdzie do bazy
+    }
+}
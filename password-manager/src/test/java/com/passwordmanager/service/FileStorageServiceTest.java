@@ -0,0 +1,221 @@
+package com.passwordmanager.service;
+
+import com.passwordmanager.model.PasswordEntry;
+import com.passwordmanager.service.format.Compression;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testy jednostkowe dla {@link FileStorageService}.
+ */
+class FileStorageServiceTest {
+
+    @TempDir
+    Path dataDir;
+
+    private FileStorageService fileStorageService;
+
+    @BeforeEach
+    void setUp() {
+        fileStorageService = new FileStorageService(dataDir);
+    }
+
+    @Test
+    void testJsonStreamRoundTrip() throws Exception {
+        long written = fileStorageService.writePasswordStreamToJson(entries(3), "vault.json");
+
+        List<PasswordEntry> read = fileStorageService.readPasswordsFromJson("vault.json");
+
+        assertEquals(3, written);
+        assertEquals(3, read.size());
+        assertEquals("site2.com", read.get(1).getWebsite());
+        assertEquals("secret2", read.get(1).getEncryptedPassword());
+    }
+
+    @Test
+    void testJsonStreamingRead() throws Exception {
+        fileStorageService.writePasswordsToJson(entries(4).toList(), "vault.json");
+
+        List<PasswordEntry> read = new ArrayList<>();
+        long count = fileStorageService.readPasswordsFromJson("vault.json", read::add);
+
+        assertEquals(4, count);
+        assertEquals("site4.com", read.get(3).getWebsite());
+    }
+
+    @Test
+    void testJsonStreamingReadRejectsNonArray() throws Exception {
+        Files.writeString(dataDir.resolve("object.json"), "{\"website\":\"a.com\"}", StandardCharsets.UTF_8);
+
+        assertThrows(IOException.class, () -> fileStorageService.readPasswordsFromJson("object.json", e -> { }));
+    }
+
+    @Test
+    void testXmlStreamRoundTrip() throws Exception {
+        long written = fileStorageService.writePasswordStreamToXml(entries(3), "vault.xml");
+
+        List<PasswordEntry> read = new ArrayList<>();
+        long count = fileStorageService.readPasswordsFromXml("vault.xml", read::add);
+
+        assertEquals(3, written);
+        assertEquals(3, count);
+        assertEquals(3L, read.get(2).getId());
+        assertEquals("user3", read.get(2).getUsername());
+        assertEquals("secret3", read.get(2).getEncryptedPassword());
+    }
+
+    @Test
+    void testXmlWrittenByStreamIsReadableAsList() throws Exception {
+        fileStorageService.writePasswordsToXml(entries(2).toList(), "vault.xml");
+
+        List<PasswordEntry> read = fileStorageService.readPasswordsFromXml("vault.xml");
+
+        assertEquals(2, read.size());
+        assertEquals("site1.com", read.get(0).getWebsite());
+    }
+
+    @Test
+    void testReadXmlInLegacyJaxbFormat() throws Exception {
+        String legacy = """
+                <?xml version="1.0" encoding="UTF-8" standalone="yes"?>
+                <passwords>
+                    <passwordEntry>
+                        <id>7</id>
+                        <password>legacy_secret</password>
+                        <username>legacy_user</username>
+                        <website>legacy.com</website>
+                    </passwordEntry>
+                </passwords>
+                """;
+        Files.writeString(dataDir.resolve("legacy.xml"), legacy, StandardCharsets.UTF_8);
+
+        List<PasswordEntry> read = fileStorageService.readPasswordsFromXml("legacy.xml");
+
+        assertEquals(1, read.size());
+        assertEquals(7L, read.get(0).getId());
+        assertEquals("legacy_secret", read.get(0).getEncryptedPassword());
+    }
+
+    @Test
+    void testReadXmlRejectsDoctype() throws Exception {
+        String xxe = """
+                <?xml version="1.0"?>
+                <!DOCTYPE passwords [<!ENTITY xxe SYSTEM "file:///etc/passwd">]>
+                <passwords><passwordEntry><website>&xxe;</website></passwordEntry></passwords>
+                """;
+        Files.writeString(dataDir.resolve("xxe.xml"), xxe, StandardCharsets.UTF_8);
+
+        assertThrows(Exception.class, () -> fileStorageService.readPasswordsFromXml("xxe.xml"));
+    }
+
+    @Test
+    void testReadMissingFilesReturnsNothing() throws Exception {
+        assertTrue(fileStorageService.readPasswordsFromJson("missing.json").isEmpty());
+        assertEquals(0, fileStorageService.readPasswordsFromJson("missing.json", e -> fail("Nie powinno być wpisów")));
+        assertEquals(0, fileStorageService.readPasswordsFromXml("missing.xml", e -> fail("Nie powinno być wpisów")));
+    }
+
+    @Test
+    void testBinaryFormatsRoundTripWithDetection() throws Exception {
+        for (String format : List.of("smile", "cbor")) {
+            for (Compression compression : Compression.values()) {
+                String fileName = "vault." + format + "." + compression.name().toLowerCase();
+                assertEquals(3, fileStorageService.writePasswordStream(entries(3), fileName, format, compression));
+
+                List<PasswordEntry> read = new ArrayList<>();
+                assertEquals(3, fileStorageService.readPasswords(fileName, read::add), fileName);
+                assertEquals("site3.com", read.get(2).getWebsite(), fileName);
+                assertEquals("secret3", read.get(2).getEncryptedPassword(), fileName);
+            }
+        }
+    }
+
+    @Test
+    void testReadPasswordsDetectsTextFormats() throws Exception {
+        fileStorageService.writePasswordStreamToJson(entries(2), "vault.json");
+        fileStorageService.writePasswordStream(entries(2), "vault.xml.gz", "xml", Compression.GZIP);
+
+        List<PasswordEntry> read = new ArrayList<>();
+        fileStorageService.readPasswords("vault.json", read::add);
+        fileStorageService.readPasswords("vault.xml.gz", read::add);
+
+        assertEquals(4, read.size());
+        assertEquals("user2", read.get(3).getUsername());
+    }
+
+    @Test
+    void testCompactFormatsAreSmallerThanJson() throws Exception {
+        fileStorageService.writePasswordStreamToJson(entries(500), "vault.json");
+        fileStorageService.writePasswordStream(entries(500), "vault.smile", "smile", Compression.NONE);
+        fileStorageService.writePasswordStream(entries(500), "vault.smile.gz", "smile", Compression.GZIP);
+
+        long json = Files.size(dataDir.resolve("vault.json"));
+        long smile = Files.size(dataDir.resolve("vault.smile"));
+        long compressed = Files.size(dataDir.resolve("vault.smile.gz"));
+        assertTrue(smile < json, "Smile: " + smile + " B, JSON: " + json + " B");
+        assertTrue(compressed * 3 < json, "Smile+gzip: " + compressed + " B, JSON: " + json + " B");
+    }
+
+    @Test
+    void testReadPasswordsRejectsUnknownFormat() throws Exception {
+        Files.write(dataDir.resolve("vault.bin"), new byte[]{0x00, 0x01, 0x02, 0x03});
+
+        assertThrows(IOException.class, () -> fileStorageService.readPasswords("vault.bin", e -> { }));
+    }
+
+    @Test
+    void testWritePasswordStreamRejectsUnknownFormat() {
+        assertThrows(IllegalArgumentException.class,
+                () -> fileStorageService.writePasswordStream(entries(1), "vault.yaml", "yaml", Compression.NONE));
+        assertFalse(Files.exists(dataDir.resolve("vault.yaml")));
+    }
+
+    @Test
+    void testReadAndWriteAreMeasured() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        FileStorageService measured = new FileStorageService(dataDir, registry);
+
+        measured.writePasswordStream(entries(5), "vault.cbor.gz", "cbor", Compression.GZIP);
+        measured.readPasswords("vault.cbor.gz", e -> { });
+
+        long size = Files.size(dataDir.resolve("vault.cbor.gz"));
+        for (String operation : List.of("write", "read")) {
+            assertEquals(5, registry.get(FileStorageService.FILE_ROWS)
+                    .tags("operation", operation, "format", "cbor").counter().count(), operation);
+            assertEquals(size, registry.get(FileStorageService.FILE_BYTES)
+                    .tags("operation", operation, "format", "cbor").counter().count(), operation);
+            assertEquals(1, registry.get(FileStorageService.FILE_TIMER)
+                    .tags("operation", operation, "outcome", "success").timer().count(), operation);
+        }
+    }
+
+    @Test
+    void testFailedReadIsMeasuredAsError() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        Files.writeString(dataDir.resolve("object.json"), "{\"website\":\"a.com\"}", StandardCharsets.UTF_8);
+
+        assertThrows(IOException.class,
+                () -> new FileStorageService(dataDir, registry).readPasswordsFromJson("object.json", e -> { }));
+
+        assertEquals(1, registry.get(FileStorageService.FILE_TIMER).tag("outcome", "error").timer().count());
+        assertNull(registry.find(FileStorageService.FILE_ROWS).counter());
+    }
+
+    private static Stream<PasswordEntry> entries(int count) {
+        return LongStream.rangeClosed(1, count)
+                .mapToObj(i -> new PasswordEntry(i, "site" + i + ".com", "user" + i, "secret" + i));
+    }
+}
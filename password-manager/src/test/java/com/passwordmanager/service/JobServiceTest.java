@@ -0,0 +1,280 @@
+package com.passwordmanager.service;
+
+import com.passwordmanager.model.JobInfo;
+import com.passwordmanager.model.JobState;
+import com.passwordmanager.model.PasswordEntry;
+import com.passwordmanager.repository.PasswordRepository;
+import com.passwordmanager.service.strength.PasswordStrengthEstimator;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Testy jednostkowe dla {@link JobService}.
+ */
+class JobServiceTest {
+
+    private PasswordRepository passwordRepository;
+    private EncryptionService encryptionService;
+    private FileStorageService fileStorageService;
+    private PasswordBatchWriter passwordBatchWriter;
+    private PasswordSearchIndex searchIndex;
+    private VaultContext vaultContext;
+    private EntryRevisions entryRevisions;
+    private SecretCache secretCache;
+    private RevisionCounter revisionCounter;
+    private JobService jobService;
+
+    @BeforeEach
+    void setUp() {
+        passwordRepository = mock(PasswordRepository.class);
+        encryptionService = mock(EncryptionService.class);
+        fileStorageService = mock(FileStorageService.class);
+        passwordBatchWriter = mock(PasswordBatchWriter.class);
+        searchIndex = mock(PasswordSearchIndex.class);
+        vaultContext = mock(VaultContext.class);
+        entryRevisions = mock(EntryRevisions.class);
+        secretCache = mock(SecretCache.class);
+        revisionCounter = new RevisionCounter(passwordRepository);
+        when(vaultContext.currentVault()).thenReturn(PasswordEntry.DEFAULT_OWNER);
+        when(encryptionService.decryptAll(anyString(), anyList())).thenAnswer(invocation ->
+                invocation.<List<String>>getArgument(1).stream().map(s -> s.replace("encrypted_", "")).toList());
+        when(encryptionService.encryptAll(anyString(), anyList())).thenAnswer(invocation ->
+                invocation.<List<String>>getArgument(1).stream().map(s -> "encrypted_" + s).toList());
+        when(encryptionService.fingerprintAll(anyString(), anyList())).thenAnswer(invocation ->
+                invocation.<List<String>>getArgument(1).stream().map(s -> invocation.getArgument(0) + ":" + s).toList());
+        jobService = new JobService(passwordRepository, encryptionService, fileStorageService, passwordBatchWriter,
+                searchIndex, revisionCounter, entryRevisions, secretCache, vaultContext,
+                new PasswordStrengthEstimator(), mock(EntityManager.class),
+                mock(PlatformTransactionManager.class), 1, 1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jobService.shutdown();
+    }
+
+    private JobInfo awaitFinished(String id) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            JobInfo info = jobService.getJob(id).orElseThrow();
+            if (info.getState().isFinished()) {
+                return info;
+            }
+            Thread.sleep(10);
+        }
+        fail("Zadanie nie zakończyło się w czasie");
+        return null;
+    }
+
+    @Test
+    void testExportJobWritesDecryptedSnapshot() throws Exception {
+        when(passwordRepository.streamAll(PasswordEntry.DEFAULT_OWNER)).thenReturn(Stream.of(
+                new PasswordEntry(1L, "a.com", "u1", "encrypted_p1"),
+                new PasswordEntry(2L, "b.com", "u2", "encrypted_p2")));
+        List<PasswordEntry> written = new ArrayList<>();
+        when(fileStorageService.writePasswordStreamToJson(any(), eq("out.json"))).thenAnswer(invocation -> {
+            Stream<PasswordEntry> entries = invocation.getArgument(0);
+            entries.forEach(written::add);
+            return (long) written.size();
+        });
+
+        JobInfo submitted = jobService.submitExportToJson("out.json");
+        JobInfo finished = awaitFinished(submitted.getId());
+
+        assertEquals(JobState.COMPLETED, finished.getState());
+        assertEquals(2, finished.getRowsProcessed());
+        assertEquals(List.of("p1", "p2"), written.stream().map(PasswordEntry::getEncryptedPassword).toList());
+        verify(fileStorageService, never()).deleteFile(anyString());
+    }
+
+    @Test
+    void testFailedExportRemovesPartialFile() throws Exception {
+        when(passwordRepository.streamAll(PasswordEntry.DEFAULT_OWNER)).thenReturn(Stream.of(new PasswordEntry(1L, "a.com", "u1", "encrypted_p1")));
+        when(fileStorageService.writePasswordStreamToXml(any(), eq("out.xml"))).thenThrow(new IOException("Dysk pełny"));
+
+        JobInfo finished = awaitFinished(jobService.submitExportToXml("out.xml").getId());
+
+        assertEquals(JobState.FAILED, finished.getState());
+        assertEquals("Dysk pełny", finished.getError());
+        verify(fileStorageService).deleteFile("out.xml");
+    }
+
+    @Test
+    void testImportJobEncryptsWritesAndIndexesChunks() throws Exception {
+        when(fileStorageService.readPasswordsFromJson(eq("in.json"), any())).thenAnswer(invocation -> {
+            Consumer<PasswordEntry> consumer = invocation.getArgument(1);
+            consumer.accept(new PasswordEntry(9L, "a.com", "u1", "p1"));
+            return 1L;
+        });
+        List<PasswordEntry> stored = new ArrayList<>();
+        when(passwordBatchWriter.writeChunk(anyList())).thenAnswer(invocation -> {
+            List<PasswordEntry> chunk = invocation.getArgument(0);
+            stored.addAll(chunk);
+            return chunk.size();
+        });
+
+        JobInfo finished = awaitFinished(jobService.submitImportFromJson("in.json").getId());
+
+        assertEquals(JobState.COMPLETED, finished.getState());
+        assertEquals(1, finished.getRowsProcessed());
+        assertNull(stored.get(0).getId()); // Id z pliku jest pomijane
+        assertEquals("encrypted_p1", stored.get(0).getEncryptedPassword());
+        verify(searchIndex).putAll(anyList());
+    }
+
+    @Test
+    void testCancelRunningJob() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);
+        when(fileStorageService.readPasswordsFromJson(eq("in.json"), any())).thenAnswer(invocation -> {
+            Consumer<PasswordEntry> consumer = invocation.getArgument(1);
+            consumer.accept(new PasswordEntry(null, "a.com", "u1", "p1"));
+            return 1L;
+        });
+        when(passwordBatchWriter.writeChunk(anyList())).thenAnswer(invocation -> {
+            writing.countDown();
+            new CountDownLatch(1).await(); // Blokuje do przerwania wątku
+            return 0;
+        });
+
+        JobInfo submitted = jobService.submitImportFromJson("in.json");
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+        jobService.cancelJob(submitted.getId());
+
+        assertEquals(JobState.CANCELLED, awaitFinished(submitted.getId()).getState());
+    }
+
+    @Test
+    void testQueuedJobCanBeCancelledAndFullQueueIsRejected() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(fileStorageService.readPasswordsFromJson(anyString(), any())).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return 0L;
+        });
+
+        JobInfo running = jobService.submitImportFromJson("slow.json"); // Zajmuje jedyny wątek
+        Thread.sleep(50);
+        JobInfo queued = jobService.submitImportFromJson("next.json"); // Jedyne miejsce w kolejce
+        assertThrows(java.util.concurrent.RejectedExecutionException.class, () -> jobService.submitImportFromJson("third.json"));
+
+        assertEquals(JobState.CANCELLED, jobService.cancelJob(queued.getId()).orElseThrow().getState());
+        release.countDown();
+        assertEquals(JobState.COMPLETED, awaitFinished(running.getId()).getState());
+        assertTrue(jobService.getJob("brak").isEmpty());
+    }
+
+    @Test
+    void testKeyRotationRewrapsOutdatedEntriesWithCompareAndSet() throws Exception {
+        PasswordEntry outdated = new PasswordEntry(1L, "a.com", "u1", "v1_p1");
+        outdated.setOwner("alicja");
+        when(passwordRepository.findAllAfterId(eq(Long.MIN_VALUE), anyInt())).thenReturn(List.of(
+                outdated,
+                new PasswordEntry(2L, "b.com", "u2", "v2_p2")));
+        when(passwordRepository.findAllAfterId(eq(2L), anyInt())).thenReturn(List.of());
+        when(encryptionService.needsRewrap(anyString(), anyString()))
+                .thenAnswer(invocation -> invocation.<String>getArgument(1).startsWith("v1_"));
+        when(encryptionService.rewrap("alicja", "v1_p1")).thenReturn("v2_p1"); // Klucz sejfu właściciela wpisu
+        when(passwordRepository.replaceEncryptedPassword(1L, "v1_p1", "v2_p1")).thenReturn(true);
+
+        JobInfo info = awaitFinished(jobService.submitKeyRotation().getId());
+
+        assertEquals(JobState.COMPLETED, info.getState());
+        assertEquals(JobService.KEY_ROTATION, info.getType());
+        assertEquals(2, info.getRowsProcessed());
+        verify(passwordRepository).replaceEncryptedPassword(1L, "v1_p1", "v2_p1");
+        verify(passwordRepository, never()).replaceEncryptedPassword(eq(2L), anyString(), anyString());
+        verify(passwordRepository).findAllAfterId(eq(2L), anyInt()); // Kolejna porcja od ostatniego id
+    }
+
+    @Test
+    void testFingerprintBackfillFingerprintsEachVaultWithCompareAndSet() throws Exception {
+        PasswordEntry alice = new PasswordEntry(1L, "a.com", "u1", "encrypted_p1");
+        alice.setOwner("alicja");
+        PasswordEntry bob = new PasswordEntry(3L, "b.com", "u2", "encrypted_p2");
+        bob.setOwner("bartek");
+        when(passwordRepository.findWithoutFingerprintAfterId(eq(Long.MIN_VALUE), anyInt())).thenReturn(List.of(alice, bob));
+        when(passwordRepository.findWithoutFingerprintAfterId(eq(3L), anyInt())).thenReturn(List.of());
+
+        JobInfo info = awaitFinished(jobService.submitFingerprintBackfill().getId());
+
+        assertEquals(JobState.COMPLETED, info.getState());
+        assertEquals(JobService.FINGERPRINT_BACKFILL, info.getType());
+        assertEquals(2, info.getRowsProcessed());
+        // Odcisk kluczem sejfu właściciela, zapis warunkowy względem odczytanego szyfrogramu
+        verify(passwordRepository).updatePasswordFingerprint(1L, "encrypted_p1", "alicja:p1");
+        verify(passwordRepository).updatePasswordFingerprint(3L, "encrypted_p2", "bartek:p2");
+        verify(passwordRepository).findWithoutFingerprintAfterId(eq(3L), anyInt()); // Kolejna porcja od ostatniego id
+    }
+
+    @Test
+    void testStrengthBackfillScoresEachVaultWithCompareAndSet() throws Exception {
+        PasswordEntry alice = new PasswordEntry(1L, "a.com", "u1", "encrypted_password");
+        alice.setOwner("alicja");
+        PasswordEntry bob = new PasswordEntry(3L, "b.com", "u2", "encrypted_xK#9mQ2$vL7p");
+        bob.setOwner("bartek");
+        when(passwordRepository.findWithoutStrengthAfterId(eq(Long.MIN_VALUE), anyInt())).thenReturn(List.of(alice, bob));
+        when(passwordRepository.findWithoutStrengthAfterId(eq(3L), anyInt())).thenReturn(List.of());
+        when(passwordRepository.updateStrengthScore(eq(1L), anyString(), anyInt(), anyLong())).thenReturn(true);
+        when(passwordRepository.updateStrengthScore(eq(3L), anyString(), anyInt(), anyLong())).thenReturn(false); // Zmieniony w międzyczasie
+
+        JobInfo info = awaitFinished(jobService.submitStrengthBackfill().getId());
+
+        assertEquals(JobState.COMPLETED, info.getState());
+        assertEquals(JobService.STRENGTH_BACKFILL, info.getType());
+        assertEquals(2, info.getRowsProcessed());
+        // Ocena odszyfrowanego hasła, zapis warunkowy względem odczytanego szyfrogramu
+        // Każdy sejf porcji dostaje nową rewizję - ocena zmienia odpowiedź z wpisem, więc i jego ETag
+        verify(passwordRepository).updateStrengthScore(1L, "encrypted_password", 0, 1L);
+        verify(passwordRepository).updateStrengthScore(3L, "encrypted_xK#9mQ2$vL7p", 4, 2L);
+        verify(entryRevisions).update("alicja", 1L, 1L);
+        verify(secretCache).invalidate("alicja", 1L);
+        verify(entryRevisions, never()).update(eq("bartek"), anyLong(), anyLong()); // Zapis odrzucony
+        assertEquals(OptionalLong.of(1L), revisionCounter.vaultRevision("alicja")); // Także ETag list sejfu
+        verify(encryptionService).decryptAll("alicja", List.of("encrypted_password"));
+        verify(encryptionService).decryptAll("bartek", List.of("encrypted_xK#9mQ2$vL7p"));
+        verify(passwordRepository).findWithoutStrengthAfterId(eq(3L), anyInt()); // Kolejna porcja od ostatniego id
+    }
+
+    @Test
+    void testJobBelongsToVaultOfSubmitter() throws Exception {
+        when(vaultContext.currentVault()).thenReturn("alicja");
+        when(passwordRepository.streamAll("alicja")).thenReturn(Stream.of(new PasswordEntry(1L, "a.com", "u1", "encrypted_p1")));
+        String path = VaultContext.fileName("alicja", "out.json");
+        when(fileStorageService.writePasswordStreamToJson(any(), eq(path))).thenAnswer(invocation ->
+                invocation.<Stream<PasswordEntry>>getArgument(0).count());
+
+        JobInfo submitted = jobService.submitExportToJson("out.json");
+        JobInfo finished = awaitFinished(submitted.getId());
+
+        assertEquals(JobState.COMPLETED, finished.getState());
+        assertEquals("out.json", finished.getFileName()); // Użytkownik widzi własną nazwę pliku
+        verify(encryptionService).decryptAll(eq("alicja"), anyList());
+        when(vaultContext.currentVault()).thenReturn("bartek");
+        assertTrue(jobService.getJob(submitted.getId()).isEmpty()); // Cudze zadanie jest niewidoczne
+        assertTrue(jobService.cancelJob(submitted.getId()).isEmpty());
+    }
+
+    @Test
+    void testSubmitRejectsFileNameOutsideVault() {
+        assertThrows(IllegalArgumentException.class, () -> jobService.submitExportToJson("../other.json"));
+    }
+}
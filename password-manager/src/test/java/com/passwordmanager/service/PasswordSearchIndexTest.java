@@ -0,0 +1,123 @@
+package com.passwordmanager.service;
+
+import com.passwordmanager.model.PasswordEntry;
+import com.passwordmanager.model.PasswordSummary;
+import com.passwordmanager.repository.PasswordRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Testy jednostkowe dla {@link PasswordSearchIndex}.
+ */
+class PasswordSearchIndexTest {
+
+    private static final String VAULT = PasswordEntry.DEFAULT_OWNER;
+
+    private PasswordRepository passwordRepository;
+    private PasswordSearchIndex searchIndex;
+
+    @BeforeEach
+    void setUp() {
+        passwordRepository = mock(PasswordRepository.class);
+        when(passwordRepository.findAllSummaries(eq(VAULT), any(Sort.class))).thenReturn(List.of(
+                new PasswordSummary(1L, "Google.com", "alice"),
+                new PasswordSummary(2L, "github.com", "bob"),
+                new PasswordSummary(3L, "mail.google.com", "carol"),
+                new PasswordSummary(4L, "bank.pl", "Gosia")
+        ));
+        searchIndex = new PasswordSearchIndex(passwordRepository);
+        searchIndex.rebuild();
+    }
+
+    private static List<Long> ids(List<PasswordSummary> summaries) {
+        return summaries.stream().map(PasswordSummary::getId).toList();
+    }
+
+    @Test
+    void testPrefixMatchesWebsiteAndUsernameIgnoringCase() {
+        assertEquals(List.of(2L, 1L, 4L), ids(searchIndex.search(VAULT, "G", 10))); // github, google, gosia - po kluczu
+        assertEquals(List.of(4L), ids(searchIndex.search(VAULT, "gos", 10)));
+    }
+
+    @Test
+    void testPrefixMatchesComeBeforeSubstringMatches() {
+        assertEquals(List.of(1L, 3L), ids(searchIndex.search(VAULT, "goog", 10)));
+    }
+
+    @Test
+    void testFuzzyMatchToleratesTypo() {
+        List<Long> result = ids(searchIndex.search(VAULT, "gogle", 10));
+
+        assertTrue(result.contains(1L));
+        assertTrue(result.contains(3L));
+        assertFalse(result.contains(4L));
+    }
+
+    @Test
+    void testLimitAndValidation() {
+        assertEquals(1, searchIndex.search(VAULT, "g", 1).size());
+        assertThrows(IllegalArgumentException.class, () -> searchIndex.search(VAULT, " ", 10));
+        assertThrows(IllegalArgumentException.class, () -> searchIndex.search(VAULT, "g", 0));
+        assertThrows(IllegalArgumentException.class, () -> searchIndex.search(VAULT, "g", PasswordSearchIndex.MAX_LIMIT + 1));
+    }
+
+    @Test
+    void testPutReplacesAndDeleteRemoves() {
+        searchIndex.put(new PasswordEntry(2L, "gitlab.com", "bob", "x"));
+        assertTrue(searchIndex.search(VAULT, "github", 10).isEmpty());
+        assertEquals(List.of(2L), ids(searchIndex.search(VAULT, "gitlab", 10)));
+
+        searchIndex.delete(VAULT, 2L);
+        assertTrue(searchIndex.search(VAULT, "gitlab", 10).isEmpty());
+        assertEquals(3, searchIndex.size());
+    }
+
+    @Test
+    void testPutAllKeepsPostingsSorted() {
+        List<PasswordEntry> chunk = new ArrayList<>();
+        for (long id = 1000; id > 900; id--) { // Kolejność malejąca - wstawianie w środek list
+            chunk.add(new PasswordEntry(id, "shop" + id + ".com", "buyer", "x"));
+        }
+        searchIndex.putAll(chunk);
+
+        List<Long> result = ids(searchIndex.search(VAULT, "buyer", 3));
+        assertEquals(List.of(901L, 902L, 903L), result);
+    }
+
+    @Test
+    void testVaultsAreIndexedSeparately() {
+        when(passwordRepository.findAllSummaries(eq("alicja"), any(Sort.class)))
+                .thenReturn(List.of(new PasswordSummary(10L, "google.pl", "alicja")));
+
+        assertEquals(List.of(10L), ids(searchIndex.search("alicja", "goog", 10))); // Tylko wpisy własnego sejfu
+        assertEquals(List.of(1L, 3L), ids(searchIndex.search(VAULT, "goog", 10)));
+
+        PasswordEntry added = new PasswordEntry(11L, "google.de", "alicja", "x");
+        added.setOwner("alicja");
+        searchIndex.put(added);
+        assertEquals(List.of(11L, 10L), ids(searchIndex.search("alicja", "goog", 10))); // google.de przed google.pl
+        assertEquals(List.of(1L, 3L), ids(searchIndex.search(VAULT, "goog", 10)));
+        verify(passwordRepository, times(1)).findAllSummaries(eq("alicja"), any(Sort.class)); // Sejf wczytany raz, leniwie
+    }
+
+    @Test
+    void testLeastRecentlyUsedVaultIsEvicted() {
+        PasswordSearchIndex bounded = new PasswordSearchIndex(passwordRepository, 1);
+        clearInvocations(passwordRepository); // Pomija odbudowę indeksu z setUp
+        when(passwordRepository.findAllSummaries(eq("alicja"), any(Sort.class))).thenReturn(List.of());
+
+        bounded.search(VAULT, "g", 10);
+        bounded.search("alicja", "g", 10); // Wypiera indeks sejfu domyślnego
+        bounded.search(VAULT, "g", 10);
+
+        verify(passwordRepository, times(2)).findAllSummaries(eq(VAULT), any(Sort.class));
+    }
+}
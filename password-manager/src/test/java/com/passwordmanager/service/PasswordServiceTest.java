@@ -1,24 +1,55 @@
 package com.passwordmanager.service;
 
+import com.passwordmanager.model.BatchItemResult;
+import com.passwordmanager.model.ChangeExportSummary;
+import com.passwordmanager.model.ChangeSince;
+import com.passwordmanager.model.ImportSummary;
+import com.passwordmanager.model.PageCursor;
+import com.passwordmanager.model.PageSort;
 import com.passwordmanager.model.PasswordEntry;
+import com.passwordmanager.model.PasswordPage;
+import com.passwordmanager.model.PasswordSecret;
+import com.passwordmanager.model.PasswordSummary;
+import com.passwordmanager.model.PasswordTombstone;
+import com.passwordmanager.model.ReuseGroup;
+import com.passwordmanager.model.ReuseReport;
+import com.passwordmanager.model.StrengthGroup;
+import com.passwordmanager.model.StrengthReport;
 import com.passwordmanager.repository.PasswordRepository;
+import com.passwordmanager.service.breach.BreachedPasswordChecker;
+import com.passwordmanager.service.breach.BreachedPasswordException;
+import com.passwordmanager.service.format.Compression;
+import com.passwordmanager.service.strength.PasswordStrengthEstimator;
 import com.passwordmanager.utill.PasswordGenerator;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Base64;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 
 /**
@@ -26,6 +57,8 @@ import static org.mockito.Mockito.*;
  */
 class PasswordServiceTest {
 
+    private static final String VAULT = PasswordEntry.DEFAULT_OWNER;
+
     @Mock
     private PasswordRepository passwordRepository;
 
@@ -38,27 +71,66 @@ class PasswordServiceTest {
     @Mock
     private FileStorageService fileStorageService; // Mockujemy serwis plików
 
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private PasswordBatchWriter passwordBatchWriter;
+
+    @Mock
+    private PasswordSearchIndex searchIndex;
+
+    @Mock
+    private SecretCache secretCache;
+
+    @Mock
+    private RevisionCounter revisionCounter;
+
+    @Mock
+    private EntryRevisions entryRevisions;
+
+    @Mock
+    private VaultContext vaultContext;
+
+    @Mock
+    private BreachedPasswordChecker breachedPasswordChecker;
+
+    @Mock
+    private PasswordStrengthEstimator strengthEstimator;
+
     @InjectMocks
     private PasswordService passwordService;
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this); // Inicjalizuje mocki
+        when(vaultContext.currentVault()).thenReturn(VAULT);
         // Ustaw domyślne zachowanie mocka encryptionService
         // Zawsze zwracaj "encrypted_" + input przy szyfrowaniu
-        when(encryptionService.encrypt(anyString())).thenAnswer(invocation -> "encrypted_" + invocation.getArgument(0));
+        when(encryptionService.encrypt(anyString(), anyString())).thenAnswer(invocation -> "encrypted_" + invocation.getArgument(1));
         // Zawsze zwracaj "decrypted_" + input (z usunięciem "encrypted_") przy deszyfrowaniu
-        when(encryptionService.decrypt(anyString())).thenAnswer(invocation -> {
-            String arg = invocation.getArgument(0);
+        when(encryptionService.decrypt(anyString(), anyString())).thenAnswer(invocation -> {
+            String arg = invocation.getArgument(1);
             return arg.startsWith("encrypted_") ? arg.substring("encrypted_".length()) : arg;
         });
+        // Operacje hurtowe delegują do pojedynczych, aby weryfikacje encrypt/decrypt obejmowały oba tryby
+        when(encryptionService.decryptAll(anyString(), anyList())).thenAnswer(invocation -> invocation.<List<String>>getArgument(1).stream()
+                .map(cipherText -> encryptionService.decrypt(invocation.getArgument(0), cipherText)).toList());
+        when(encryptionService.encryptAll(anyString(), anyList())).thenAnswer(invocation -> invocation.<List<String>>getArgument(1).stream()
+                .map(plainText -> encryptionService.encrypt(invocation.getArgument(0), plainText)).toList());
+        when(encryptionService.fingerprint(anyString(), anyString())).thenAnswer(invocation -> "fp_" + invocation.getArgument(1));
+        when(encryptionService.fingerprintAll(anyString(), anyList())).thenAnswer(invocation -> invocation.<List<String>>getArgument(1).stream()
+                .map(plainText -> encryptionService.fingerprint(invocation.getArgument(0), plainText)).toList());
+        // Pamięć podręczna wyłączona - zawsze wczytuje przez loader
+        when(secretCache.get(anyString(), anyLong(), any())).thenAnswer(invocation ->
+                invocation.<Function<Long, Optional<PasswordEntry>>>getArgument(2).apply(invocation.getArgument(1)));
     }
 
     @Test
     void testGetAllPasswords() {
         PasswordEntry p1 = new PasswordEntry(1L, "google.com", "user1", "encrypted_pass1");
         PasswordEntry p2 = new PasswordEntry(2L, "facebook.com", "user2", "encrypted_pass2");
-        when(passwordRepository.findAll()).thenReturn(Arrays.asList(p1, p2));
+        when(passwordRepository.streamAll(VAULT)).thenReturn(Stream.of(p1, p2));
 
         List<PasswordEntry> passwords = passwordService.getAllPasswords();
 
@@ -66,14 +138,136 @@ class PasswordServiceTest {
         assertEquals(2, passwords.size());
         assertEquals("pass1", passwords.get(0).getEncryptedPassword()); // Sprawdź, czy są odszyfrowane
         assertEquals("pass2", passwords.get(1).getEncryptedPassword());
-        verify(passwordRepository, times(1)).findAll();
-        verify(encryptionService, times(2)).decrypt(anyString());
+        verify(passwordRepository, times(1)).streamAll(VAULT);
+        verify(encryptionService, times(1)).decryptAll(anyString(), anyList()); // Jedno wywołanie hurtowe zamiast pętli
+        verify(encryptionService, times(2)).decrypt(anyString(), anyString());
+    }
+
+    @Test
+    void testGetPasswordSummariesSortedByWebsite() {
+        List<PasswordSummary> summaries = List.of(new PasswordSummary(2L, "a.com", "u2"), new PasswordSummary(1L, "b.com", "u1"));
+        when(passwordRepository.findAllSummaries(eq(VAULT), any(Sort.class))).thenReturn(summaries);
+
+        List<PasswordSummary> result = passwordService.getPasswordSummaries(PageSort.WEBSITE, Sort.Direction.ASC);
+
+        assertEquals(summaries, result);
+        verify(passwordRepository).findAllSummaries(eq(VAULT), argThat(sort -> {
+            Sort.Order order = sort.getOrderFor("websiteSortKey"); // Kolumna z indeksem zamiast lower(website)
+            return order != null && order.isAscending() && sort.getOrderFor("id") != null;
+        }));
+        verify(encryptionService, never()).decrypt(anyString(), anyString());
+        verify(encryptionService, never()).decryptAll(anyString(), anyList());
+    }
+
+    @Test
+    void testGetPasswordSummariesByLastModifiedDescending() {
+        when(passwordRepository.findAllSummaries(eq(VAULT), any(Sort.class))).thenReturn(List.of());
+
+        passwordService.getPasswordSummaries(PageSort.LAST_MODIFIED, Sort.Direction.DESC);
+
+        verify(passwordRepository).findAllSummaries(eq(VAULT), argThat(sort -> {
+            Sort.Order key = sort.getOrderFor("lastModified");
+            Sort.Order tieBreak = sort.getOrderFor("id");
+            return key != null && key.isDescending() && tieBreak != null && tieBreak.isDescending();
+        }));
+    }
+
+    @Test
+    void testGetPasswordSecret() {
+        when(passwordRepository.findEncryptedPasswordById(VAULT, 1L)).thenReturn(Optional.of("encrypted_pass1"));
+
+        Optional<PasswordSecret> secret = passwordService.getPasswordSecret(1L);
+
+        assertTrue(secret.isPresent());
+        assertEquals(1L, secret.get().getId());
+        assertEquals("pass1", secret.get().getPassword());
+        verify(passwordRepository, never()).findByIdAndOwner(anyLong(), anyString()); // Odczyt samej kolumny z hasłem
+    }
+
+    @Test
+    void testGetPasswordSecretNotFound() {
+        when(passwordRepository.findEncryptedPasswordById(anyString(), anyLong())).thenReturn(Optional.empty());
+
+        assertTrue(passwordService.getPasswordSecret(99L).isEmpty());
+        verify(encryptionService, never()).decrypt(anyString(), anyString());
+    }
+
+    @Test
+    void testGetPasswordsPageFirstPageHasNextCursor() {
+        PasswordSummary p1 = new PasswordSummary(1L, "a.com", "user1");
+        PasswordSummary p2 = new PasswordSummary(2L, "b.com", "user2");
+        PasswordSummary p3 = new PasswordSummary(3L, "c.com", "user3");
+        when(passwordRepository.findSummaryPage(eq(VAULT), eq(PageSort.ID), eq(Sort.Direction.ASC), isNull(), anyInt()))
+                .thenReturn(new ArrayList<>(Arrays.asList(p1, p2, p3)));
+
+        PasswordPage page = passwordService.getPasswordsPage(null, 2, PageSort.ID, Sort.Direction.ASC, false);
+
+        assertEquals(2, page.getItems().size());
+        assertEquals("a.com", page.getItems().get(0).getWebsite());
+        assertEquals(2L, PageCursor.decode(page.getNextCursor()).getLastId());
+        assertNull(page.getTotalCount());
+        verify(passwordRepository).findSummaryPage(VAULT, PageSort.ID, Sort.Direction.ASC, null, 3);
+        verify(encryptionService, never()).decryptAll(anyString(), anyList()); // Listowanie niczego nie deszyfruje
+        verify(passwordRepository, never()).countByOwner(anyString());
+    }
+
+    @Test
+    void testGetPasswordsPageByWebsiteWithCursorAndTotal() {
+        String cursor = new PageCursor(PageSort.WEBSITE, Sort.Direction.ASC, 7L, "b.com").encode();
+        PasswordSummary p1 = new PasswordSummary(8L, "c.com", "user1");
+        when(passwordRepository.findSummaryPage(eq(VAULT), eq(PageSort.WEBSITE), eq(Sort.Direction.ASC),
+                argThat(c -> c.getLastId() == 7L && "b.com".equals(c.getLastKey())), eq(11)))
+                .thenReturn(new ArrayList<>(List.of(p1)));
+        when(passwordRepository.countByOwner(VAULT)).thenReturn(8L);
+
+        PasswordPage page = passwordService.getPasswordsPage(cursor, 10, PageSort.WEBSITE, Sort.Direction.ASC, true);
+
+        assertEquals(1, page.getItems().size());
+        assertNull(page.getNextCursor()); // Ostatnia strona
+        assertEquals(8L, page.getTotalCount());
+    }
+
+    @Test
+    void testGetPasswordsPageCursorCarriesFoldedKeyAndDirection() {
+        PasswordSummary p1 = new PasswordSummary(4L, "Zeta.com", "user1");
+        PasswordSummary p2 = new PasswordSummary(3L, "Beta.COM", "user2");
+        when(passwordRepository.findSummaryPage(eq(VAULT), eq(PageSort.WEBSITE), eq(Sort.Direction.DESC), isNull(), anyInt()))
+                .thenReturn(new ArrayList<>(Arrays.asList(p1, p2)));
+
+        PasswordPage page = passwordService.getPasswordsPage(null, 1, PageSort.WEBSITE, Sort.Direction.DESC, false);
+
+        PageCursor next = PageCursor.decode(page.getNextCursor());
+        assertEquals(PageSort.WEBSITE, next.getSort());
+        assertEquals(Sort.Direction.DESC, next.getDirection());
+        assertEquals(4L, next.getLastId());
+        assertEquals("zeta.com", next.getLastKey()); // Klucz jak w kolumnie website_sort_key
+    }
+
+    @Test
+    void testGetPasswordsPageRejectsInvalidArguments() {
+        String idCursor = new PageCursor(PageSort.ID, Sort.Direction.ASC, 1L, null).encode();
+        String lastModifiedCursor = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString("LAST_MODIFIED\nASC\n1\nnie-data".getBytes(StandardCharsets.UTF_8));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> passwordService.getPasswordsPage(null, 0, PageSort.ID, Sort.Direction.ASC, false));
+        assertThrows(IllegalArgumentException.class,
+                () -> passwordService.getPasswordsPage(null, PasswordService.MAX_PAGE_SIZE + 1, PageSort.ID, Sort.Direction.ASC, false));
+        assertThrows(IllegalArgumentException.class,
+                () -> passwordService.getPasswordsPage("###", 10, PageSort.ID, Sort.Direction.ASC, false));
+        assertThrows(IllegalArgumentException.class,
+                () -> passwordService.getPasswordsPage(idCursor, 10, PageSort.WEBSITE, Sort.Direction.ASC, false));
+        assertThrows(IllegalArgumentException.class,
+                () -> passwordService.getPasswordsPage(idCursor, 10, PageSort.ID, Sort.Direction.DESC, false));
+        assertThrows(IllegalArgumentException.class,
+                () -> passwordService.getPasswordsPage(lastModifiedCursor, 10, PageSort.LAST_MODIFIED, Sort.Direction.ASC, false));
+        verifyNoInteractions(passwordRepository);
     }
 
     @Test
     void testGetPasswordByIdFound() {
         PasswordEntry p1 = new PasswordEntry(1L, "google.com", "user1", "encrypted_pass1");
-        when(passwordRepository.findById(1L)).thenReturn(Optional.of(p1));
+        when(passwordRepository.findByIdAndOwner(1L, VAULT)).thenReturn(Optional.of(p1));
 
         Optional<PasswordEntry> result = passwordService.getPasswordById(1L);
 
@@ -81,19 +275,50 @@ class PasswordServiceTest {
         assertEquals(1L, result.get().getId());
         assertEquals("google.com", result.get().getWebsite());
         assertEquals("pass1", result.get().getEncryptedPassword()); // Sprawdź, czy odszyfrowane
-        verify(passwordRepository, times(1)).findById(1L);
-        verify(encryptionService, times(1)).decrypt(anyString());
+        verify(passwordRepository, times(1)).findByIdAndOwner(1L, VAULT);
+        verify(encryptionService, times(1)).decrypt(anyString(), anyString());
     }
 
     @Test
     void testGetPasswordByIdNotFound() {
-        when(passwordRepository.findById(anyLong())).thenReturn(Optional.empty());
+        when(passwordRepository.findByIdAndOwner(anyLong(), anyString())).thenReturn(Optional.empty());
 
         Optional<PasswordEntry> result = passwordService.getPasswordById(99L);
 
         assertFalse(result.isPresent());
-        verify(passwordRepository, times(1)).findById(99L);
-        verify(encryptionService, never()).decrypt(anyString()); // Nie powinno być wywołane
+        verify(passwordRepository, times(1)).findByIdAndOwner(99L, VAULT);
+        verify(encryptionService, never()).decrypt(anyString(), anyString()); // Nie powinno być wywołane
+    }
+
+    @Test
+    void testGetPasswordByIdHidesEntryOfOtherVault() {
+        PasswordEntry cached = new PasswordEntry(1L, "google.com", "user1", "pass1");
+        cached.setOwner("bartek");
+        doReturn(Optional.of(cached)).when(secretCache).get(eq("bartek"), eq(1L), any()); // Wpis wczytany wcześniej przez inny sejf
+
+        Optional<PasswordEntry> result = passwordService.getPasswordById(1L);
+
+        assertFalse(result.isPresent()); // Cudzy wpis wygląda jak nieistniejący
+        verify(secretCache, times(1)).get(eq(VAULT), eq(1L), any()); // Odczyt w obrębie sejfu bieżącego użytkownika
+        verify(passwordRepository, times(1)).findByIdAndOwner(1L, VAULT);
+        verify(entryRevisions, never()).update(anyString(), anyLong(), anyLong());
+    }
+
+    @Test
+    void testOperationsUseVaultOfCurrentUser() throws IOException {
+        when(vaultContext.currentVault()).thenReturn("alicja");
+        when(passwordRepository.streamAll("alicja")).thenReturn(Stream.of(new PasswordEntry(1L, "test.com", "user", "encrypted_pass")));
+        when(fileStorageService.writePasswordStreamToJson(any(), anyString())).thenReturn(1L);
+        when(passwordRepository.save(any(PasswordEntry.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        PasswordEntry saved = passwordService.savePassword(new PasswordEntry(null, "a.com", "u", "raw"));
+        passwordService.exportPasswordsToJson("export.json");
+
+        assertEquals("alicja", saved.getOwner());
+        verify(encryptionService, times(1)).encrypt("alicja", "raw"); // Klucz sejfu użytkownika
+        // Pliki sejfu leżą w jego podkatalogu
+        verify(fileStorageService, times(1)).writePasswordStreamToJson(any(), eq(VaultContext.fileName("alicja", "export.json")));
+        verify(passwordRepository, never()).streamAll(VAULT);
     }
 
     @Test
@@ -110,9 +335,122 @@ class PasswordServiceTest {
         assertEquals("linkedin.com", result.getWebsite());
         assertEquals("user3", result.getUsername());
         assertEquals("raw_pass3", result.getEncryptedPassword()); // Sprawdź, czy zwrócone hasło jest odszyfrowane
-        verify(encryptionService, times(1)).encrypt("raw_pass3");
+        verify(encryptionService, times(1)).encrypt(VAULT, "raw_pass3");
         verify(passwordRepository, times(1)).save(any(PasswordEntry.class)); // Sprawdź, czy save zostało wywołane
-        verify(encryptionService, times(1)).decrypt("encrypted_raw_pass3"); // Sprawdź, czy decrypt zostało wywołane
+        verify(encryptionService, times(1)).decrypt(VAULT, "encrypted_raw_pass3"); // Sprawdź, czy decrypt zostało wywołane
+        verify(searchIndex, times(1)).put(savedEntryInDb); // Nowy wpis trafia do indeksu wyszukiwania
+    }
+
+    @Test
+    void testSavePasswordFlagsBreachedPassword() {
+        when(passwordRepository.save(any(PasswordEntry.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(breachedPasswordChecker.isEnabled()).thenReturn(true);
+        when(breachedPasswordChecker.isBreached("123456")).thenReturn(true);
+
+        PasswordEntry breached = passwordService.savePassword(new PasswordEntry(null, "a.com", "u", "123456"));
+        PasswordEntry safe = passwordService.savePassword(new PasswordEntry(null, "b.com", "u", "raw"));
+
+        assertEquals(Boolean.TRUE, breached.getBreached()); // Domyślnie zapis z ostrzeżeniem
+        assertEquals(Boolean.FALSE, safe.getBreached());
+        verify(passwordRepository, times(2)).save(any(PasswordEntry.class));
+    }
+
+    @Test
+    void testSavePasswordWithoutCorpusLeavesBreachedUnset() {
+        when(passwordRepository.save(any(PasswordEntry.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        PasswordEntry saved = passwordService.savePassword(new PasswordEntry(null, "a.com", "u", "raw"));
+
+        assertNull(saved.getBreached()); // Sprawdzanie wyłączone - pole nie trafia do odpowiedzi
+    }
+
+    @Test
+    void testSavePasswordRejectsBreachedPasswordWhenConfigured() {
+        ReflectionTestUtils.setField(passwordService, "rejectBreached", true);
+        when(breachedPasswordChecker.isEnabled()).thenReturn(true);
+        when(breachedPasswordChecker.isBreached("123456")).thenReturn(true);
+
+        assertThrows(BreachedPasswordException.class,
+                () -> passwordService.savePassword(new PasswordEntry(null, "a.com", "u", "123456")));
+        verify(passwordRepository, never()).save(any(PasswordEntry.class));
+        verify(encryptionService, never()).encrypt(anyString(), anyString());
+    }
+
+    @Test
+    void testSaveAndUpdateStoreFingerprintOfPlainText() {
+        when(passwordRepository.save(any(PasswordEntry.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        PasswordEntry existingEntry = new PasswordEntry(1L, "old.com", "old_user", "encrypted_old_pass");
+        existingEntry.setPasswordFingerprint("fp_old_pass");
+        when(passwordRepository.findByIdAndOwner(1L, VAULT)).thenReturn(Optional.of(existingEntry));
+
+        PasswordEntry saved = passwordService.savePassword(new PasswordEntry(null, "a.com", "u", "raw"));
+        passwordService.updatePassword(1L, new PasswordEntry(1L, "new.com", "new_user", "new_raw_pass"));
+
+        assertEquals("fp_raw", saved.getPasswordFingerprint());
+        assertEquals("fp_new_raw_pass", existingEntry.getPasswordFingerprint()); // Odcisk nowego hasła, nie poprzedniego
+        verify(encryptionService).fingerprint(VAULT, "raw"); // Klucz odcisków sejfu użytkownika
+    }
+
+    @Test
+    void testFindReusedPasswordsGroupsFingerprintsWithoutDecryption() {
+        ReuseGroup group = new ReuseGroup(List.of(new PasswordSummary(1L, "a.com", "u1", null),
+                new PasswordSummary(4L, "b.com", "u2", null)));
+        when(passwordRepository.findReusedPasswords(VAULT)).thenReturn(List.of(group));
+        when(passwordRepository.countWithoutFingerprint(VAULT)).thenReturn(3L);
+
+        ReuseReport report = passwordService.findReusedPasswords();
+
+        assertEquals(List.of(group), report.getGroups());
+        assertEquals(2, report.getGroups().get(0).getCount());
+        assertEquals(3, report.getUnfingerprinted());
+        verify(passwordRepository, never()).streamAll(anyString());
+        verifyNoInteractions(encryptionService);
+    }
+
+    @Test
+    void testSaveAndUpdateStoreStrengthScoreOfPlainText() {
+        when(passwordRepository.save(any(PasswordEntry.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        PasswordEntry existingEntry = new PasswordEntry(1L, "old.com", "old_user", "encrypted_old_pass");
+        existingEntry.setStrengthScore(4);
+        when(passwordRepository.findByIdAndOwner(1L, VAULT)).thenReturn(Optional.of(existingEntry));
+        // Strona i użytkownik wpisu są danymi, które obniżają ocenę haseł z nich zbudowanych
+        when(strengthEstimator.score("raw", "a.com", "u")).thenReturn(1);
+        when(strengthEstimator.score("new_raw_pass", "new.com", "new_user")).thenReturn(3);
+
+        PasswordEntry saved = passwordService.savePassword(new PasswordEntry(null, "a.com", "u", "raw"));
+        passwordService.updatePassword(1L, new PasswordEntry(1L, "new.com", "new_user", "new_raw_pass"));
+
+        assertEquals(1, saved.getStrengthScore());
+        assertEquals(3, existingEntry.getStrengthScore()); // Ocena nowego hasła, nie poprzedniego
+    }
+
+    @Test
+    void testSavePasswordsStoreStrengthScores() {
+        when(passwordBatchWriter.writeChunk(anyList())).thenAnswer(invocation -> invocation.<List<?>>getArgument(0).size());
+        when(strengthEstimator.score("pass1", "a.com", "user1")).thenReturn(0);
+        when(strengthEstimator.score("pass3", "c.com", "user3")).thenReturn(2);
+
+        List<BatchItemResult> results = passwordService.savePasswords(List.of(
+                new PasswordEntry("user1", "a.com", "pass1"),
+                new PasswordEntry("user3", "c.com", "pass3")));
+
+        assertEquals(List.of(0, 2), results.stream().map(result -> result.getEntry().getStrengthScore()).toList());
+    }
+
+    @Test
+    void testFindWeakPasswordsReadsScoresWithoutDecryption() {
+        StrengthGroup group = new StrengthGroup(0, List.of(new PasswordSummary(2L, "a.com", "u1", null)));
+        when(passwordRepository.findWeakPasswords(VAULT, 2)).thenReturn(List.of(group));
+        when(passwordRepository.countWithoutStrength(VAULT)).thenReturn(5L);
+
+        StrengthReport report = passwordService.findWeakPasswords(2);
+
+        assertEquals(2, report.getMaxScore());
+        assertEquals(List.of(group), report.getGroups());
+        assertEquals(5, report.getUnscored());
+        verifyNoInteractions(encryptionService, strengthEstimator);
+        assertThrows(IllegalArgumentException.class, () -> passwordService.findWeakPasswords(-1));
+        assertThrows(IllegalArgumentException.class, () -> passwordService.findWeakPasswords(5));
     }
 
     @Test
@@ -121,7 +459,7 @@ class PasswordServiceTest {
         PasswordEntry updatedData = new PasswordEntry(1L, "new.com", "new_user", "new_raw_pass");
         PasswordEntry savedEntryInDb = new PasswordEntry(1L, "new.com", "new_user", "encrypted_new_raw_pass");
 
-        when(passwordRepository.findById(1L)).thenReturn(Optional.of(existingEntry));
+        when(passwordRepository.findByIdAndOwner(1L, VAULT)).thenReturn(Optional.of(existingEntry));
         when(passwordRepository.save(any(PasswordEntry.class))).thenReturn(savedEntryInDb);
 
         Optional<PasswordEntry> result = passwordService.updatePassword(1L, updatedData);
@@ -130,45 +468,173 @@ class PasswordServiceTest {
         assertEquals("new.com", result.get().getWebsite());
         assertEquals("new_user", result.get().getUsername());
         assertEquals("new_raw_pass", result.get().getEncryptedPassword()); // Sprawdź, czy odszyfrowane
-        verify(passwordRepository, times(1)).findById(1L);
-        verify(encryptionService, times(1)).encrypt("new_raw_pass");
+        verify(passwordRepository, times(1)).findByIdAndOwner(1L, VAULT);
+        verify(encryptionService, times(1)).encrypt(VAULT, "new_raw_pass");
         verify(passwordRepository, times(1)).save(any(PasswordEntry.class));
-        verify(encryptionService, times(1)).decrypt("encrypted_new_raw_pass");
+        verify(encryptionService, times(1)).decrypt(VAULT, "encrypted_new_raw_pass");
+        verify(searchIndex, times(1)).put(savedEntryInDb);
+        verify(secretCache, times(1)).invalidate(VAULT, 1L); // Stare hasło nie może zostać w pamięci podręcznej
     }
 
     @Test
     void testUpdatePasswordNotFound() {
         PasswordEntry updatedData = new PasswordEntry(99L, "nonexistent.com", "user", "pass");
-        when(passwordRepository.findById(anyLong())).thenReturn(Optional.empty());
+        when(passwordRepository.findByIdAndOwner(anyLong(), anyString())).thenReturn(Optional.empty());
 
         Optional<PasswordEntry> result = passwordService.updatePassword(99L, updatedData);
 
         assertFalse(result.isPresent());
-        verify(passwordRepository, times(1)).findById(99L);
+        verify(passwordRepository, times(1)).findByIdAndOwner(99L, VAULT);
         verify(passwordRepository, never()).save(any(PasswordEntry.class)); // Save nie powinno być wywołane
     }
 
+    @Test
+    void testUpdatePasswordWithMatchingRevision() {
+        PasswordEntry existingEntry = new PasswordEntry(1L, "old.com", "old_user", "encrypted_old_pass");
+        existingEntry.setRevision(3L);
+        when(passwordRepository.findByIdAndOwner(1L, VAULT)).thenReturn(Optional.of(existingEntry));
+        when(passwordRepository.save(any(PasswordEntry.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(revisionCounter.begin(VAULT)).thenReturn(4L);
+
+        Optional<PasswordEntry> result = passwordService.updatePassword(1L,
+                new PasswordEntry(1L, "new.com", "new_user", "new_pass"), Set.of(3L));
+
+        assertTrue(result.isPresent());
+        assertEquals(4L, result.get().getRevision());
+        verify(entryRevisions, times(1)).update(VAULT, 1L, 4L); // Nowy ETag wpisu znany bez odczytu z bazy
+    }
+
+    @Test
+    void testUpdatePasswordRejectsStaleRevision() {
+        PasswordEntry existingEntry = new PasswordEntry(1L, "old.com", "old_user", "encrypted_old_pass");
+        existingEntry.setRevision(7L);
+        when(passwordRepository.findByIdAndOwner(1L, VAULT)).thenReturn(Optional.of(existingEntry));
+
+        assertThrows(OptimisticLockingFailureException.class, () -> passwordService.updatePassword(1L,
+                new PasswordEntry(1L, "new.com", "new_user", "new_pass"), Set.of(3L)));
+
+        verify(passwordRepository, never()).save(any(PasswordEntry.class)); // Zmiana klienta nie nadpisuje nowszej
+        verify(revisionCounter, never()).begin(anyString());
+    }
+
     @Test
     void testDeletePasswordSuccess() {
-        when(passwordRepository.existsById(1L)).thenReturn(true);
-        doNothing().when(passwordRepository).deleteById(1L);
+        when(revisionCounter.begin(VAULT)).thenReturn(8L);
+        when(passwordRepository.deleteWithTombstone(VAULT, 1L, 8L)).thenReturn(true);
 
         boolean result = passwordService.deletePassword(1L);
 
         assertTrue(result);
-        verify(passwordRepository, times(1)).existsById(1L);
-        verify(passwordRepository, times(1)).deleteById(1L);
+        verify(passwordRepository, times(1)).deleteWithTombstone(VAULT, 1L, 8L); // Usunięcie zostawia znacznik z rewizją
+        verify(revisionCounter, times(1)).complete(8L);
+        verify(searchIndex, times(1)).delete(VAULT, 1L);
+        verify(secretCache, times(1)).invalidate(VAULT, 1L);
+        verify(entryRevisions, times(1)).markDeleted(1L);
     }
 
     @Test
     void testDeletePasswordNotFound() {
-        when(passwordRepository.existsById(anyLong())).thenReturn(false);
+        when(passwordRepository.deleteWithTombstone(anyString(), anyLong(), anyLong())).thenReturn(false);
 
         boolean result = passwordService.deletePassword(99L);
 
         assertFalse(result);
-        verify(passwordRepository, times(1)).existsById(99L);
-        verify(passwordRepository, never()).deleteById(anyLong()); // Delete nie powinno być wywołane
+        verify(passwordRepository, never()).deleteById(anyLong());
+        verify(searchIndex, never()).delete(anyString(), anyLong());
+        verify(revisionCounter, times(1)).complete(anyLong()); // Rewizja zwolniona także bez usunięcia
+    }
+
+    @Test
+    void testSavePasswordsWritesValidItemsInOneChunk() {
+        when(revisionCounter.begin(VAULT)).thenReturn(9L);
+        List<String> writtenPasswords = new ArrayList<>();
+        List<Long> writtenRevisions = new ArrayList<>();
+        when(passwordBatchWriter.writeChunk(anyList())).thenAnswer(invocation -> {
+            List<PasswordEntry> chunk = invocation.getArgument(0);
+            for (int i = 0; i < chunk.size(); i++) {
+                chunk.get(i).setId(100L + i);
+                // Kopia stanu z chwili zapisu - savePasswords potem wpisuje do tych obiektów hasło jawne
+                writtenPasswords.add(chunk.get(i).getEncryptedPassword());
+                writtenRevisions.add(chunk.get(i).getRevision());
+            }
+            return chunk.size();
+        });
+
+        List<BatchItemResult> results = passwordService.savePasswords(Arrays.asList(
+                new PasswordEntry("user1", "a.com", "pass1"),
+                new PasswordEntry("user2", "b.com", null),
+                new PasswordEntry("user3", "c.com", "pass3")));
+
+        assertEquals(List.of(201, 400, 201), results.stream().map(BatchItemResult::getStatus).toList());
+        assertEquals(101L, results.get(2).getId());
+        assertEquals("pass3", results.get(2).getEntry().getEncryptedPassword()); // Odpowiedź z hasłem jawnym
+        verify(passwordBatchWriter, times(1)).writeChunk(anyList());
+        assertEquals(List.of("encrypted_pass1", "encrypted_pass3"), writtenPasswords);
+        assertEquals(List.of(9L, 9L), writtenRevisions);
+        verify(revisionCounter, times(1)).complete(9L);
+        verify(entryRevisions, times(1)).update(VAULT, 100L, 9L);
+    }
+
+    @Test
+    void testUpdatePasswordsReportsMissingAndDuplicateIds() {
+        when(revisionCounter.begin(VAULT)).thenReturn(11L);
+        when(passwordBatchWriter.updateChunk(eq(VAULT), anyList(), eq(11L))).thenAnswer(invocation -> {
+            List<PasswordEntry> changes = invocation.getArgument(1);
+            PasswordEntry updated = new PasswordEntry(1L, changes.get(0).getWebsite(), changes.get(0).getUsername(),
+                    changes.get(0).getEncryptedPassword());
+            updated.setRevision(11L);
+            return List.of(updated); // Wpis 2 nie istnieje
+        });
+
+        List<BatchItemResult> results = passwordService.updatePasswords(Arrays.asList(
+                new PasswordEntry(1L, "new.com", "user", "new_pass"),
+                new PasswordEntry(2L, "gone.com", "user", "pass"),
+                new PasswordEntry(1L, "again.com", "user", "pass"),
+                new PasswordEntry(null, "noid.com", "user", "pass")));
+
+        assertEquals(List.of(200, 404, 400, 400), results.stream().map(BatchItemResult::getStatus).toList());
+        assertEquals("new_pass", results.get(0).getEntry().getEncryptedPassword());
+        verify(passwordBatchWriter, times(1)).updateChunk(eq(VAULT), argThat(changes -> changes.size() == 2), eq(11L));
+        verify(secretCache, times(1)).invalidate(VAULT, 1L);
+        verify(secretCache, never()).invalidate(VAULT, 2L);
+        verify(entryRevisions, times(1)).update(VAULT, 1L, 11L);
+    }
+
+    @Test
+    void testDeletePasswordsInOneStatement() {
+        when(revisionCounter.begin(VAULT)).thenReturn(12L);
+        when(passwordRepository.deleteAllWithTombstones(eq(VAULT), anyCollection(), eq(12L))).thenReturn(List.of(1L, 3L));
+
+        List<BatchItemResult> results = passwordService.deletePasswords(Arrays.asList(1L, 2L, 3L, null));
+
+        assertEquals(List.of(204, 404, 204, 400), results.stream().map(BatchItemResult::getStatus).toList());
+        verify(passwordRepository, never()).deleteWithTombstone(anyString(), anyLong(), anyLong()); // Bez zapytań per wpis
+        verify(searchIndex, times(1)).delete(VAULT, 1L);
+        verify(searchIndex, times(1)).delete(VAULT, 3L);
+        verify(entryRevisions, times(1)).markDeleted(3L);
+        verify(revisionCounter, times(1)).complete(12L);
+    }
+
+    @Test
+    void testBatchRejectsEmptyOrOversizedRequests() {
+        assertThrows(IllegalArgumentException.class, () -> passwordService.deletePasswords(List.of()));
+        List<Long> tooMany = new ArrayList<>();
+        for (long i = 0; i <= PasswordService.MAX_BATCH_SIZE; i++) {
+            tooMany.add(i);
+        }
+        assertThrows(IllegalArgumentException.class, () -> passwordService.deletePasswords(tooMany));
+        verifyNoInteractions(passwordRepository);
+    }
+
+    @Test
+    void testSavePasswordStampsRevision() {
+        when(revisionCounter.begin(VAULT)).thenReturn(5L);
+        when(passwordRepository.save(any(PasswordEntry.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        PasswordEntry saved = passwordService.savePassword(new PasswordEntry("user", "site.com", "pass"));
+
+        assertEquals(5L, saved.getRevision());
+        verify(revisionCounter).complete(5L);
     }
 
     @Test
@@ -198,71 +664,173 @@ class PasswordServiceTest {
         assertEquals("google.com", passwords.get(2).getWebsite());
     }
 
+    @Test
+    void testSortPasswordsByWebsiteIsStableAndHandlesSortedInput() {
+        List<PasswordEntry> passwords = new ArrayList<>();
+        for (long i = 0; i < 20_000; i++) { // Posortowane dane - dawny quickSort przepełniał tu stos
+            passwords.add(new PasswordEntry(i, String.format("site%05d.com", i), "u", "p"));
+        }
+        passwords.add(new PasswordEntry(20_001L, "SITE00001.COM", "u", "p"));
+
+        passwordService.sortPasswordsByWebsite(passwords);
+
+        assertEquals("site00000.com", passwords.get(0).getWebsite());
+        assertEquals(1L, passwords.get(1).getId()); // Równe klucze zachowują kolejność
+        assertEquals(20_001L, passwords.get(2).getId());
+        assertEquals("site19999.com", passwords.get(passwords.size() - 1).getWebsite());
+    }
+
     @Test
     void testExportPasswordsToJson() throws IOException {
-        List<PasswordEntry> passwords = Arrays.asList(new PasswordEntry(1L, "test.com", "user", "encrypted_pass"));
-        when(passwordRepository.findAll()).thenReturn(passwords);
+        PasswordEntry managed = new PasswordEntry(1L, "test.com", "user", "encrypted_pass");
+        when(passwordRepository.streamAll(VAULT)).thenReturn(Stream.of(managed));
+        List<PasswordEntry> written = new ArrayList<>();
+        when(fileStorageService.writePasswordStreamToJson(any(), eq("test_export.json"))).thenAnswer(invocation -> {
+            Stream<PasswordEntry> entries = invocation.getArgument(0);
+            entries.forEach(written::add);
+            return (long) written.size();
+        });
 
         passwordService.exportPasswordsToJson("test_export.json");
 
-        verify(fileStorageService, times(1)).writePasswordsToJson(anyList(), eq("test_export.json"));
-        verify(encryptionService, times(1)).decrypt("encrypted_pass");
+        assertEquals(1, written.size());
+        assertEquals("pass", written.get(0).getEncryptedPassword()); // Eksportowana kopia jest odszyfrowana
+        assertEquals("encrypted_pass", managed.getEncryptedPassword()); // Encja zarządzana pozostaje zaszyfrowana
+        verify(passwordRepository, never()).findAll();
+        verify(encryptionService, times(1)).decrypt(VAULT, "encrypted_pass");
+    }
+
+    @Test
+    void testExportPasswordsToJsonClearsPersistenceContextPerChunk() throws IOException {
+        List<PasswordEntry> entries = new ArrayList<>();
+        for (long i = 1; i <= PasswordService.EXPORT_CHUNK_SIZE * 2L + 1; i++) {
+            entries.add(new PasswordEntry(i, "site" + i + ".com", "user", "encrypted_pass" + i));
+        }
+        when(passwordRepository.streamAll(VAULT)).thenReturn(entries.stream());
+        when(fileStorageService.writePasswordStreamToJson(any(), anyString())).thenAnswer(invocation -> {
+            Stream<PasswordEntry> stream = invocation.getArgument(0);
+            return (long) stream.toList().size();
+        });
+
+        passwordService.exportPasswordsToJson("big.json");
+
+        verify(entityManager, times(2)).clear();
     }
 
     @Test
     void testExportPasswordsToXml() throws Exception {
-        List<PasswordEntry> passwords = Arrays.asList(new PasswordEntry(1L, "test.com", "user", "encrypted_pass"));
-        when(passwordRepository.findAll()).thenReturn(passwords);
+        when(passwordRepository.streamAll(VAULT)).thenReturn(Stream.of(new PasswordEntry(1L, "test.com", "user", "encrypted_pass")));
+        List<PasswordEntry> written = new ArrayList<>();
+        when(fileStorageService.writePasswordStreamToXml(any(), eq("test_export.xml"))).thenAnswer(invocation -> {
+            Stream<PasswordEntry> entries = invocation.getArgument(0);
+            entries.forEach(written::add);
+            return (long) written.size();
+        });
 
         passwordService.exportPasswordsToXml("test_export.xml");
 
-        verify(fileStorageService, times(1)).writePasswordsToXml(anyList(), eq("test_export.xml"));
-        verify(encryptionService, times(1)).decrypt("encrypted_pass");
+        assertEquals(1, written.size());
+        assertEquals("pass", written.get(0).getEncryptedPassword());
+        verify(encryptionService, times(1)).decrypt(VAULT, "encrypted_pass");
     }
 
     @Test
-    void testImportPasswordsFromJson() throws IOException {
-        List<PasswordEntry> imported = Arrays.asList(
-                new PasswordEntry(null, "import.com", "iuser", "raw_imported_pass")
-        );
-        when(fileStorageService.readPasswordsFromJson(anyString())).thenReturn(imported);
-        when(passwordRepository.save(any(PasswordEntry.class))).thenAnswer(invocation -> {
-            PasswordEntry arg = invocation.getArgument(0);
-            arg.setId(100L); // Symulacja przypisania ID przez bazę
-            return arg;
-        });
+    void testExportPasswordsInCompactFormat() throws IOException {
+        when(passwordRepository.streamAll(VAULT)).thenReturn(Stream.of(new PasswordEntry(1L, "test.com", "user", "encrypted_pass")));
+        List<PasswordEntry> written = new ArrayList<>();
+        when(fileStorageService.writePasswordStream(any(), eq("vault.smile.gz"), eq("smile"), eq(Compression.GZIP)))
+                .thenAnswer(invocation -> {
+                    Stream<PasswordEntry> entries = invocation.getArgument(0);
+                    entries.forEach(written::add);
+                    return (long) written.size();
+                });
+
+        assertEquals(1, passwordService.exportPasswords("vault.smile.gz", "smile", Compression.GZIP));
+        assertEquals("pass", written.get(0).getEncryptedPassword());
+    }
 
-        List<PasswordEntry> result = passwordService.importPasswordsFromJson("import.json");
+    @Test
+    void testExportPasswordsRejectsUnknownFormatBeforeReading() {
+        when(fileStorageService.getFormat("yaml")).thenThrow(new IllegalArgumentException("Nieobsługiwany format: yaml"));
 
-        assertNotNull(result);
-        assertEquals(1, result.size());
-        assertEquals("import.com", result.get(0).getWebsite());
-        assertEquals("raw_imported_pass", result.get(0).getEncryptedPassword());
-        verify(fileStorageService, times(1)).readPasswordsFromJson("import.json");
-        verify(encryptionService, times(1)).encrypt("raw_imported_pass");
-        verify(passwordRepository, times(1)).save(any(PasswordEntry.class));
+        assertThrows(IllegalArgumentException.class,
+                () -> passwordService.exportPasswords("vault.yaml", "yaml", Compression.NONE));
+        verify(passwordRepository, never()).streamAll(anyString());
     }
 
     @Test
-    void testImportPasswordsFromXml() throws Exception {
-        List<PasswordEntry> imported = Arrays.asList(
-                new PasswordEntry(null, "xmlimport.net", "xuser", "raw_xml_pass")
-        );
-        when(fileStorageService.readPasswordsFromXml(anyString())).thenReturn(imported);
-        when(passwordRepository.save(any(PasswordEntry.class))).thenAnswer(invocation -> {
-            PasswordEntry arg = invocation.getArgument(0);
-            arg.setId(200L);
-            return arg;
+    void testExportChangesToJson() throws IOException {
+        ChangeSince since = ChangeSince.revision(10);
+        PasswordEntry changed = new PasswordEntry(1L, "test.com", "user", "encrypted_pass");
+        List<PasswordTombstone> deleted = List.of(new PasswordTombstone(2L, 12L, Instant.EPOCH));
+        when(revisionCounter.safeRevision()).thenReturn(15L);
+        when(passwordRepository.findTombstonesSince(VAULT, since, 15L)).thenReturn(deleted);
+        when(passwordRepository.streamChangedSince(VAULT, since, 15L)).thenReturn(Stream.of(changed));
+        List<PasswordEntry> written = new ArrayList<>();
+        when(fileStorageService.writePasswordChangesToJson(any(), eq(deleted), eq(since), eq(15L), eq("delta.json")))
+                .thenAnswer(invocation -> {
+                    Stream<PasswordEntry> entries = invocation.getArgument(0);
+                    entries.forEach(written::add);
+                    return (long) written.size();
+                });
+
+        ChangeExportSummary summary = passwordService.exportChangesToJson(since, "delta.json");
+
+        assertEquals(15L, summary.getRevision()); // Następny eksport zaczyna się od tej rewizji
+        assertEquals("10", summary.getSince());
+        assertEquals(1, summary.getChanged());
+        assertEquals(1, summary.getDeleted());
+        assertEquals("pass", written.get(0).getEncryptedPassword());
+        verify(passwordRepository, never()).streamAll(anyString()); // Bez przechodzenia całego sejfu
+    }
+
+    @Test
+    void testImportPasswordsFromJson() throws IOException {
+        PasswordEntry importedEntry = new PasswordEntry(5L, "import.com", "iuser", "raw_imported_pass");
+        when(fileStorageService.readPasswordsFromJson(anyString(), any())).thenAnswer(invocation -> {
+            Consumer<PasswordEntry> consumer = invocation.getArgument(1);
+            consumer.accept(importedEntry);
+            return 1L;
         });
+        when(passwordBatchWriter.writeChunk(anyList())).thenAnswer(invocation -> invocation.<List<?>>getArgument(0).size());
+
+        ImportSummary summary = passwordService.importPasswordsFromJson("import.json");
+
+        assertEquals("import.json", summary.getFileName());
+        assertEquals(1, summary.getImported());
+        assertEquals(1, summary.getChunks());
+        assertNull(importedEntry.getId()); // Id z pliku jest pomijane - nada je sekwencja
+        assertEquals("encrypted_raw_imported_pass", importedEntry.getEncryptedPassword());
+        verify(fileStorageService, times(1)).readPasswordsFromJson(eq("import.json"), any());
+        verify(encryptionService, times(1)).encrypt(VAULT, "raw_imported_pass");
+        verify(passwordRepository, never()).save(any(PasswordEntry.class)); // Brak zapisów pojedynczych
+        verify(passwordRepository, never()).findAll(); // Brak ponownego odczytu całego sejfu
+    }
 
-        List<PasswordEntry> result = passwordService.importPasswordsFromXml("import.xml");
+    @Test
+    void testImportPasswordsFromXmlInChunks() throws Exception {
+        ReflectionTestUtils.setField(passwordService, "importBatchSize", 2);
+        when(fileStorageService.readPasswordsFromXml(anyString(), any())).thenAnswer(invocation -> {
+            Consumer<PasswordEntry> consumer = invocation.getArgument(1);
+            for (int i = 1; i <= 5; i++) {
+                consumer.accept(new PasswordEntry(null, "site" + i + ".net", "xuser", "raw_xml_pass" + i));
+            }
+            return 5L;
+        });
+        List<Integer> chunkSizes = new ArrayList<>();
+        when(passwordBatchWriter.writeChunk(anyList())).thenAnswer(invocation -> {
+            int size = invocation.<List<?>>getArgument(0).size();
+            chunkSizes.add(size);
+            return size;
+        });
 
-        assertNotNull(result);
-        assertEquals(1, result.size());
-        assertEquals("xmlimport.net", result.get(0).getWebsite());
-        assertEquals("raw_xml_pass", result.get(0).getEncryptedPassword());
-        verify(fileStorageService, times(1)).readPasswordsFromXml("import.xml");
-        verify(encryptionService, times(1)).encrypt("raw_xml_pass");
-        verify(passwordRepository, times(1)).save(any(PasswordEntry.class));
+        ImportSummary summary = passwordService.importPasswordsFromXml("import.xml");
+
+        assertEquals(5, summary.getImported());
+        assertEquals(3, summary.getChunks());
+        assertEquals(List.of(2, 2, 1), chunkSizes);
+        verify(searchIndex, times(3)).putAll(anyList()); // Indeks aktualizowany po każdej zapisanej porcji
+        verify(encryptionService, times(5)).encrypt(anyString(), anyString());
+        verify(passwordRepository, never()).findAll();
     }
 }
\ No newline at end of file
@@ -0,0 +1,57 @@
+package com.passwordmanager.service;
+
+import com.passwordmanager.repository.PasswordRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.OptionalLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Testy jednostkowe dla {@link RevisionCounter}.
+ */
+class RevisionCounterTest {
+
+    @Test
+    void testContinuesFromStoredMaxRevision() {
+        PasswordRepository repository = mock(PasswordRepository.class);
+        when(repository.findMaxRevision()).thenReturn(41L);
+        RevisionCounter counter = new RevisionCounter(repository);
+
+        assertEquals(41, counter.safeRevision());
+        assertEquals(42, counter.begin("alicja"));
+        verify(repository, times(1)).findMaxRevision(); // Wczytywane tylko raz
+    }
+
+    @Test
+    void testSafeRevisionStopsBelowOldestWriteInFlight() {
+        RevisionCounter counter = new RevisionCounter(mock(PasswordRepository.class));
+        long first = counter.begin("alicja");
+        long second = counter.begin("alicja");
+
+        counter.complete(second);
+        assertEquals(first - 1, counter.safeRevision()); // Niższa rewizja jeszcze niezatwierdzona
+
+        counter.complete(first);
+        assertEquals(second, counter.safeRevision());
+    }
+
+    @Test
+    void testVaultRevisionChangesOnlyWithWritesInThatVault() {
+        PasswordRepository repository = mock(PasswordRepository.class);
+        when(repository.findMaxRevision()).thenReturn(41L);
+        RevisionCounter counter = new RevisionCounter(repository);
+        assertEquals(OptionalLong.of(41), counter.vaultRevision("alicja")); // Sejf niezmieniony od startu
+
+        counter.complete(counter.begin("bartek"));
+        assertEquals(OptionalLong.of(41), counter.vaultRevision("alicja")); // Zapis w innym sejfie
+
+        long revision = counter.begin("alicja");
+        assertTrue(counter.vaultRevision("alicja").isEmpty()); // Zapis w toku - odczyt może go jeszcze nie widzieć
+        assertEquals(OptionalLong.of(42), counter.vaultRevision("bartek"));
+
+        counter.complete(revision);
+        assertEquals(OptionalLong.of(43), counter.vaultRevision("alicja"));
+    }
+}
@@ -0,0 +1,194 @@
+package com.passwordmanager.service;
+
+import com.passwordmanager.model.PasswordEntry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testy jednostkowe dla {@link SecretCache}.
+ */
+class SecretCacheTest {
+
+    private static final String VAULT = "alicja";
+
+    private final AtomicLong clock = new AtomicLong();
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private final Function<Long, Optional<PasswordEntry>> loader = id -> {
+        loads.incrementAndGet();
+        return Optional.of(new PasswordEntry(id, "site" + id + ".com", "user", "secret" + id));
+    };
+
+    private SecretCache cache(int maxEntries) {
+        return new SecretCache(true, maxEntries, Duration.ofSeconds(10), clock::get);
+    }
+
+    @Test
+    void testHitReturnsFreshCopyWithoutLoading() {
+        SecretCache cache = cache(10);
+
+        PasswordEntry first = cache.get(VAULT, 1L, loader).orElseThrow();
+        first.setEncryptedPassword("zmienione"); // Zmiana kopii nie wpływa na pamięć podręczną
+        PasswordEntry second = cache.get(VAULT, 1L, loader).orElseThrow();
+
+        assertEquals("secret1", second.getEncryptedPassword());
+        assertEquals("site1.com", second.getWebsite());
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    void testTtlExpiry() {
+        SecretCache cache = cache(10);
+        cache.get(VAULT, 1L, loader);
+
+        clock.addAndGet(Duration.ofSeconds(11).toNanos());
+        cache.get(VAULT, 1L, loader);
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void testLeastRecentlyUsedIsEvicted() {
+        SecretCache cache = cache(2);
+        cache.get(VAULT, 1L, loader);
+        cache.get(VAULT, 2L, loader);
+        cache.get(VAULT, 1L, loader); // 2 jest teraz najdawniej używany
+        cache.get(VAULT, 3L, loader);
+
+        assertEquals(2, cache.size());
+        cache.get(VAULT, 1L, loader);
+        assertEquals(3, loads.get());
+        cache.get(VAULT, 2L, loader);
+        assertEquals(4, loads.get());
+    }
+
+    @Test
+    void testInvalidateForcesReload() {
+        SecretCache cache = cache(10);
+        cache.get(VAULT, 1L, loader);
+
+        cache.invalidate(VAULT, 1L);
+        cache.get(VAULT, 1L, loader);
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void testMissingEntryIsNotCached() {
+        SecretCache cache = cache(10);
+
+        assertTrue(cache.get(VAULT, 1L, id -> Optional.empty()).isEmpty());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testDisabledCacheAlwaysLoads() {
+        SecretCache cache = new SecretCache(false, 10, Duration.ofSeconds(10), clock::get);
+        cache.get(VAULT, 1L, loader);
+        cache.get(VAULT, 1L, loader);
+
+        assertEquals(2, loads.get());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testConcurrentMissesAreCoalesced() throws Exception {
+        SecretCache cache = cache(10);
+        CountDownLatch loaderStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Function<Long, Optional<PasswordEntry>> slowLoader = id -> {
+            loaderStarted.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return loader.apply(id);
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<Optional<PasswordEntry>> first = executor.submit(() -> cache.get(VAULT, 7L, slowLoader));
+            assertTrue(loaderStarted.await(5, TimeUnit.SECONDS));
+            Future<Optional<PasswordEntry>> second = executor.submit(() -> cache.get(VAULT, 7L, slowLoader));
+            Future<Optional<PasswordEntry>> third = executor.submit(() -> cache.get(VAULT, 7L, slowLoader));
+            Thread.sleep(100); // Pozostałe wątki czekają na trwające wczytanie
+            release.countDown();
+
+            assertEquals("secret7", first.get(5, TimeUnit.SECONDS).orElseThrow().getEncryptedPassword());
+            assertEquals("secret7", second.get(5, TimeUnit.SECONDS).orElseThrow().getEncryptedPassword());
+            assertEquals("secret7", third.get(5, TimeUnit.SECONDS).orElseThrow().getEncryptedPassword());
+            assertEquals(1, loads.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testLoadStartedBeforeInvalidationIsNotCached() {
+        SecretCache cache = cache(10);
+
+        cache.get(VAULT, 1L, id -> {
+            cache.invalidate(VAULT, id); // Równoległa zmiana wpisu w trakcie wczytywania
+            return loader.apply(id);
+        });
+        cache.get(VAULT, 1L, loader);
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void testSameIdInOtherVaultIsSeparateEntry() {
+        SecretCache cache = cache(10);
+        cache.get(VAULT, 1L, loader);
+
+        assertTrue(cache.get("bartek", 1L, id -> Optional.empty()).isEmpty()); // Wpis alicji nie jest widoczny w sejfie bartka
+        cache.invalidate("bartek", 1L);
+        cache.get(VAULT, 1L, loader);
+
+        assertEquals(1, loads.get()); // Unieważnienie w innym sejfie nie usuwa wpisu
+    }
+
+    @Test
+    void testConcurrentMissesInDifferentVaultsAreNotCoalesced() throws Exception {
+        SecretCache cache = cache(10);
+        CountDownLatch foreignLoadStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Function<Long, Optional<PasswordEntry>> foreignLoader = id -> {
+            foreignLoadStarted.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return Optional.empty(); // Wpis 7 nie należy do sejfu bartka
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Optional<PasswordEntry>> foreign = executor.submit(() -> cache.get("bartek", 7L, foreignLoader));
+            assertTrue(foreignLoadStarted.await(5, TimeUnit.SECONDS));
+            // Właściciel nie czeka na wczytanie z cudzego sejfu i nie dostaje jego pustego wyniku
+            Future<Optional<PasswordEntry>> owner = executor.submit(() -> cache.get(VAULT, 7L, loader));
+
+            assertEquals("secret7", owner.get(5, TimeUnit.SECONDS).orElseThrow().getEncryptedPassword());
+            release.countDown();
+            assertTrue(foreign.get(5, TimeUnit.SECONDS).isEmpty());
+            assertEquals(1, loads.get());
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.passwordmanager.service;
+
+import com.passwordmanager.model.PasswordEntry;
+import com.passwordmanager.model.PasswordTombstone;
+import com.passwordmanager.model.SyncChange;
+import com.passwordmanager.model.SyncCursor;
+import com.passwordmanager.model.SyncResponse;
+import com.passwordmanager.repository.PasswordRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Testy jednostkowe dla {@link SyncService}.
+ */
+class SyncServiceTest {
+
+    private static final String VAULT = PasswordEntry.DEFAULT_OWNER;
+    private static final Instant NOW = Instant.parse("2024-06-01T12:00:00Z");
+    private static final Duration RETENTION = Duration.ofDays(30);
+
+    @Mock
+    private PasswordRepository passwordRepository;
+
+    @Mock
+    private EncryptionService encryptionService;
+
+    @Mock
+    private RevisionCounter revisionCounter;
+
+    @Mock
+    private VaultContext vaultContext;
+
+    private SyncService syncService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(vaultContext.currentVault()).thenReturn(VAULT);
+        when(revisionCounter.safeRevision()).thenReturn(10L);
+        // Deszyfrowanie usuwa prefiks "encrypted_"
+        when(encryptionService.decryptAll(anyString(), anyList())).thenAnswer(invocation -> invocation.<List<String>>getArgument(1).stream()
+                .map(cipherText -> cipherText.substring("encrypted_".length())).toList());
+        when(passwordRepository.findChangesAfter(anyString(), anyLong(), anyLong(), anyLong(), anyInt())).thenReturn(List.of());
+        when(passwordRepository.findTombstonesAfter(anyString(), anyLong(), anyLong(), anyLong(), anyInt())).thenReturn(List.of());
+        syncService = new SyncService(passwordRepository, encryptionService, revisionCounter, vaultContext, RETENTION,
+                Clock.fixed(NOW, ZoneOffset.UTC));
+    }
+
+    private static PasswordEntry entry(long id, long revision) {
+        PasswordEntry entry = PasswordEntry.restore(id, "site" + id + ".com", "user", "encrypted_pass" + id, NOW);
+        entry.setRevision(revision);
+        return entry;
+    }
+
+    @Test
+    void testFirstSyncReturnsChangesInRevisionOrderWithCursorAtCurrentRevision() {
+        when(passwordRepository.findChangesAfter(VAULT, 0, Long.MIN_VALUE, 10, SyncService.DEFAULT_LIMIT + 1))
+                .thenReturn(List.of(entry(2, 3), entry(1, 7)));
+        when(passwordRepository.findTombstonesAfter(VAULT, 0, Long.MIN_VALUE, 10, SyncService.DEFAULT_LIMIT + 1))
+                .thenReturn(List.of(new PasswordTombstone(3L, VAULT, 5, NOW.minusSeconds(10))));
+
+        SyncResponse response = syncService.sync(null, SyncService.DEFAULT_LIMIT);
+
+        assertEquals(List.of(2L, 3L, 1L), response.getChanges().stream().map(SyncChange::getId).toList());
+        assertEquals(List.of(SyncChange.Type.PUT, SyncChange.Type.DELETE, SyncChange.Type.PUT),
+                response.getChanges().stream().map(SyncChange::getType).toList());
+        assertEquals("pass2", response.getChanges().get(0).getEntry().getEncryptedPassword()); // Odszyfrowane hasło
+        assertNull(response.getChanges().get(1).getEntry());
+        assertFalse(response.isHasMore());
+        SyncCursor cursor = SyncCursor.decode(response.getCursor());
+        assertEquals(10, cursor.getRevision());
+        assertEquals(Long.MAX_VALUE, cursor.getLastId());
+        assertEquals(NOW, cursor.getSyncedAt());
+    }
+
+    @Test
+    void testSyncFromCursorReadsOnlyChangesAfterIt() {
+        String cursor = new SyncCursor(10, Long.MAX_VALUE, NOW.minusSeconds(60)).encode();
+        when(revisionCounter.safeRevision()).thenReturn(12L);
+        when(passwordRepository.findChangesAfter(VAULT, 10, Long.MAX_VALUE, 12, 3)).thenReturn(List.of(entry(1, 12)));
+
+        SyncResponse response = syncService.sync(cursor, 2);
+
+        assertEquals(List.of(1L), response.getChanges().stream().map(SyncChange::getId).toList());
+        assertEquals(12, SyncCursor.decode(response.getCursor()).getRevision());
+        verify(passwordRepository).findTombstonesAfter(VAULT, 10, Long.MAX_VALUE, 12, 3);
+        verify(passwordRepository, never()).streamAll(anyString()); // Koszt zależy od liczby zmian, nie od rozmiaru sejfu
+    }
+
+    @Test
+    void testLimitSplitsChangesOfOneRevisionAndKeepsSyncStartTime() {
+        // Porcja importu: wiele wpisów z tą samą rewizją - kursor zapamiętuje także id
+        when(passwordRepository.findChangesAfter(VAULT, 0, Long.MIN_VALUE, 10, 3))
+                .thenReturn(List.of(entry(1, 4), entry(2, 4), entry(3, 4)));
+
+        SyncResponse first = syncService.sync(null, 2);
+
+        assertTrue(first.isHasMore());
+        assertEquals(List.of(1L, 2L), first.getChanges().stream().map(SyncChange::getId).toList());
+        SyncCursor cursor = SyncCursor.decode(first.getCursor());
+        assertEquals(4, cursor.getRevision());
+        assertEquals(2, cursor.getLastId());
+        assertEquals(NOW, cursor.getSyncedAt());
+
+        Instant started = NOW.minusSeconds(3600);
+        when(passwordRepository.findChangesAfter(VAULT, 4, 2, 10, 3)).thenReturn(List.of(entry(3, 4)));
+
+        SyncResponse second = syncService.sync(new SyncCursor(4, 2, started).encode(), 2);
+
+        assertFalse(second.isHasMore());
+        assertEquals(List.of(3L), second.getChanges().stream().map(SyncChange::getId).toList());
+        assertEquals(NOW, SyncCursor.decode(second.getCursor()).getSyncedAt());
+
+        when(passwordRepository.findChangesAfter(VAULT, 4, 2, 10, 2)).thenReturn(List.of(entry(3, 4), entry(4, 5)));
+        SyncResponse partial = syncService.sync(new SyncCursor(4, 2, started).encode(), 1);
+        assertEquals(started, SyncCursor.decode(partial.getCursor()).getSyncedAt()); // Ta sama synchronizacja - czas początku bez zmian
+    }
+
+    @Test
+    void testExpiredCursorIsRejected() {
+        String expired = new SyncCursor(5, Long.MAX_VALUE, NOW.minus(RETENTION).minusSeconds(1)).encode();
+        String valid = new SyncCursor(5, Long.MAX_VALUE, NOW.minus(RETENTION).plusSeconds(1)).encode();
+
+        assertThrows(SyncService.CursorExpiredException.class, () -> syncService.sync(expired, 10));
+        assertNotNull(syncService.sync(valid, 10));
+        verify(passwordRepository, times(1)).findChangesAfter(anyString(), anyLong(), anyLong(), anyLong(), anyInt());
+    }
+
+    @Test
+    void testInvalidCursorAndLimitAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> syncService.sync("nie-kursor", 10));
+        assertThrows(IllegalArgumentException.class, () -> syncService.sync(null, 0));
+        assertThrows(IllegalArgumentException.class, () -> syncService.sync(null, SyncService.MAX_LIMIT + 1));
+    }
+
+    @Test
+    void testSyncUsesVaultOfCurrentUser() {
+        when(vaultContext.currentVault()).thenReturn("alicja");
+
+        syncService.sync(null, 10);
+
+        verify(passwordRepository).findChangesAfter(eq("alicja"), anyLong(), anyLong(), anyLong(), anyInt());
+        verify(passwordRepository).findTombstonesAfter(eq("alicja"), anyLong(), anyLong(), anyLong(), anyInt());
+    }
+
+    @Test
+    void testCompactionRemovesTombstonesOlderThanRetention() {
+        when(passwordRepository.deleteTombstonesBefore(any(), anyLong())).thenReturn(7);
+
+        assertEquals(7, syncService.compact());
+
+        // Z zapasem względem okna retencji; znacznik najwyższej rewizji zostaje
+        verify(passwordRepository).deleteTombstonesBefore(NOW.minus(RETENTION).minus(SyncService.PURGE_MARGIN), 10L);
+    }
+}
@@ -0,0 +1,134 @@
+package com.passwordmanager.service.breach;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testy jednostkowe dla {@link BreachCorpus} i {@link BreachCorpusConverter}.
+ */
+class BreachCorpusTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testConvertedCorpusFindsEveryHashWithCount() throws Exception {
+        Path corpus = tempDir.resolve("corpus.bin");
+        List<String> lines = dumpOf(2000);
+
+        long count = BreachCorpusConverter.convert(stream(String.join("\n", lines)), corpus, 10);
+
+        assertEquals(2000, count);
+        try (BreachCorpus breachCorpus = BreachCorpus.open(corpus, true)) {
+            assertTrue(breachCorpus.hasBloomFilter());
+            assertEquals(2000, breachCorpus.size());
+            for (String line : lines) {
+                String[] parts = line.split(":");
+                assertEquals(Integer.parseInt(parts[1]), breachCorpus.occurrences(HexFormat.of().parseHex(parts[0])));
+            }
+            for (int i = 0; i < 2000; i++) { // Hasła spoza korpusu
+                assertFalse(breachCorpus.contains(sha1("inne" + i)));
+            }
+        }
+    }
+
+    @Test
+    void testLookupWorksAcrossSmallSegmentsWithoutBloomFilter() throws Exception {
+        Path corpus = tempDir.resolve("corpus.bin");
+        List<String> lines = dumpOf(500);
+        BreachCorpusConverter.convert(stream(String.join("\r\n", lines) + "\r\n"), corpus, 0);
+
+        assertFalse(Files.exists(BreachCorpus.bloomPath(corpus)));
+        // Segmenty po 64 bajty - rekordy na granicach segmentów są czytane z zakładki
+        try (BreachCorpus breachCorpus = BreachCorpus.open(corpus, true, 6)) {
+            assertFalse(breachCorpus.hasBloomFilter());
+            for (int i = 0; i < 500; i++) {
+                assertTrue(breachCorpus.contains(sha1("haslo" + i)));
+                assertFalse(breachCorpus.contains(sha1("inne" + i)));
+            }
+        }
+    }
+
+    @Test
+    void testConverterAcceptsLowercaseHashesWithoutCountsAndMergesDuplicates() throws Exception {
+        Path corpus = tempDir.resolve("corpus.bin");
+        String hash = hex(sha1("123456")).toLowerCase(Locale.ROOT);
+
+        long count = BreachCorpusConverter.convert(stream("\n  " + hash + "\n" + hash + ":4\n\n"), corpus, 10);
+
+        assertEquals(1, count);
+        try (BreachCorpus breachCorpus = BreachCorpus.open(corpus, true)) {
+            assertEquals(5, breachCorpus.occurrences(sha1("123456"))); // Brak liczby = 1, powtórzenia sumowane
+        }
+    }
+
+    @Test
+    void testConverterRejectsUnsortedAndInvalidDumps() {
+        Path corpus = tempDir.resolve("corpus.bin");
+        List<String> lines = dumpOf(3);
+        String unsorted = lines.get(1) + "\n" + lines.get(0);
+
+        IOException e = assertThrows(IOException.class, () -> BreachCorpusConverter.convert(stream(unsorted), corpus, 10));
+        assertTrue(e.getMessage().contains("wiersz 2"));
+        assertThrows(IOException.class, () -> BreachCorpusConverter.convert(stream("XYZ:1"), corpus, 10));
+        assertThrows(IOException.class, () -> BreachCorpusConverter.convert(stream(hex(sha1("a")) + ":abc"), corpus, 10));
+        assertFalse(Files.exists(corpus)); // Nieudana konwersja nie zostawia pliku korpusu
+    }
+
+    @Test
+    void testOpenRejectsForeignFileAndMismatchedBloomFilter() throws Exception {
+        Path foreign = tempDir.resolve("foreign.bin");
+        Files.write(foreign, new byte[BreachCorpus.HEADER_SIZE]);
+        assertThrows(IOException.class, () -> BreachCorpus.open(foreign, true));
+
+        Path corpus = tempDir.resolve("corpus.bin");
+        Path other = tempDir.resolve("other.bin");
+        BreachCorpusConverter.convert(stream(String.join("\n", dumpOf(10))), corpus, 10);
+        BreachCorpusConverter.convert(stream(String.join("\n", dumpOf(20))), other, 10);
+        Files.copy(BreachCorpus.bloomPath(other), BreachCorpus.bloomPath(corpus), java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+
+        assertThrows(IOException.class, () -> BreachCorpus.open(corpus, true));
+        try (BreachCorpus breachCorpus = BreachCorpus.open(corpus, false)) { // Bez filtra korpus nadal działa
+            assertEquals(10, breachCorpus.size());
+        }
+    }
+
+    /** Posortowany zrzut {@code SHA1:liczba} dla haseł "haslo0".."hasloN". */
+    private static List<String> dumpOf(int size) {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            lines.add(hex(sha1("haslo" + i)) + ":" + (i + 1));
+        }
+        lines.sort(null); // Wielkie litery szesnastkowe - kolejność tekstu to kolejność bajtów
+        return lines;
+    }
+
+    static byte[] sha1(String password) {
+        try {
+            return MessageDigest.getInstance("SHA-1").digest(password.getBytes(StandardCharsets.UTF_8));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static String hex(byte[] bytes) {
+        return HexFormat.of().withUpperCase().formatHex(bytes);
+    }
+
+    static ByteArrayInputStream stream(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.US_ASCII));
+    }
+}
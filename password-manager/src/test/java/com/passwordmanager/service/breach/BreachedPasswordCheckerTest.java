@@ -0,0 +1,47 @@
+package com.passwordmanager.service.breach;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.CharBuffer;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testy jednostkowe dla {@link BreachedPasswordChecker}.
+ */
+class BreachedPasswordCheckerTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testChecksPasswordsAgainstCorpus() throws Exception {
+        Path corpus = tempDir.resolve("corpus.bin");
+        String dump = BreachCorpusTest.hex(BreachCorpusTest.sha1("zażółć")) + ":7"; // SHA-1 z UTF-8
+        BreachCorpusConverter.convert(BreachCorpusTest.stream(dump), corpus, 10);
+
+        BreachedPasswordChecker checker = new BreachedPasswordChecker(corpus.toString(), true);
+        try {
+            assertTrue(checker.isEnabled());
+            assertTrue(checker.isBreached("zażółć"));
+            assertTrue(checker.isBreached(CharBuffer.wrap("zażółć".toCharArray())));
+            assertEquals(7, checker.occurrences("zażółć"));
+            assertFalse(checker.isBreached("zazolc"));
+            assertFalse(checker.isBreached(null));
+        } finally {
+            checker.close();
+        }
+    }
+
+    @Test
+    void testEmptyCorpusPathDisablesChecking() throws Exception {
+        BreachedPasswordChecker checker = new BreachedPasswordChecker("", true);
+
+        assertFalse(checker.isEnabled());
+        assertFalse(checker.isBreached("123456"));
+        assertEquals(0, checker.occurrences("123456"));
+        checker.close();
+    }
+}
@@ -0,0 +1,104 @@
+package com.passwordmanager.service.format;
+
+import com.passwordmanager.model.PasswordEntry;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testy jednostkowe dla {@link PasswordFormats} i {@link Compression}.
+ */
+class PasswordFormatsTest {
+
+    private final PasswordFormats formats = PasswordFormats.withBuiltIns();
+
+    @Test
+    void testDetectsEveryFormatAndCompression() throws Exception {
+        for (String name : List.of("json", "smile", "cbor", "xml")) {
+            for (Compression compression : Compression.values()) {
+                byte[] data = write(formats.get(name), compression, new PasswordEntry(1L, "a.com", "jan", "tajne"));
+
+                PasswordFormats.Detected detected = formats.detect(new ByteArrayInputStream(data));
+                assertEquals(name, detected.format().getName(), name + "/" + compression);
+                assertEquals(compression, detected.compression(), name + "/" + compression);
+
+                List<PasswordEntry> read = new ArrayList<>();
+                assertEquals(1, detected.format().read(detected.stream(), read::add));
+                assertEquals("jan", read.get(0).getUsername());
+            }
+        }
+    }
+
+    @Test
+    void testDetectsJsonWithBomAndLeadingWhitespace() throws Exception {
+        byte[] json = "\uFEFF\n  [ ]".getBytes(StandardCharsets.UTF_8);
+
+        assertEquals("json", formats.detect(new ByteArrayInputStream(json)).format().getName());
+    }
+
+    @Test
+    void testBinaryReadRejectsNonArray() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        formats.get("cbor").write(Stream.empty(), out);
+        byte[] data = out.toByteArray();
+        data[3] = (byte) 0xA0; // Pusta mapa zamiast tablicy (po 3-bajtowym nagłówku CBOR)
+
+        assertThrows(IOException.class, () -> formats.get("cbor").read(new ByteArrayInputStream(data), e -> { }));
+    }
+
+    @Test
+    void testUnknownNamesAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> formats.get("yaml"));
+        assertThrows(IllegalArgumentException.class, () -> Compression.fromParam("brotli"));
+        assertEquals(Compression.GZIP, Compression.fromParam(" GZip "));
+        assertEquals("smile", formats.get("SMILE").getName());
+    }
+
+    @Test
+    void testDuplicateFormatNamesAreRejected() {
+        assertThrows(IllegalStateException.class,
+                () -> new PasswordFormats(List.of(JacksonPasswordFormat.json(), new NamedFormat("JSON"))));
+    }
+
+    private static byte[] write(PasswordFormat format, Compression compression, PasswordEntry entry) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = compression.wrap(bytes)) {
+            format.write(Stream.of(entry), out);
+        }
+        return bytes.toByteArray();
+    }
+
+    private record NamedFormat(String name) implements PasswordFormat {
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public boolean matches(byte[] header, int length) {
+            return false;
+        }
+
+        @Override
+        public long write(Stream<PasswordEntry> entries, OutputStream out) {
+            return 0;
+        }
+
+        @Override
+        public long read(InputStream in, Consumer<PasswordEntry> consumer) {
+            return 0;
+        }
+    }
+}
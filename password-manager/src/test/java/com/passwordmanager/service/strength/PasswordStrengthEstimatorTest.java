@@ -0,0 +1,113 @@
+package com.passwordmanager.service.strength;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testy jednostkowe dla {@link PasswordStrengthEstimator}, {@link DictionaryTrie} i {@link KeyboardGraph}.
+ */
+class PasswordStrengthEstimatorTest {
+
+    private final PasswordStrengthEstimator estimator = new PasswordStrengthEstimator();
+
+    @Test
+    void testCommonPasswordsAreWeakest() {
+        // Słownik, zapis l33t z wielką literą, słowo odwrócone, ciąg klawiszy, sekwencja, powtórzenie, rok
+        for (String password : List.of("password", "123456", "P@ssw0rd", "drowssap", "zaq12wsx", "abcdef", "aaaaaaaa", "1990")) {
+            assertEquals(0, estimator.score(password), password);
+        }
+    }
+
+    @Test
+    void testPolishWordsAreMatchedWithAndWithoutDiacritics() {
+        assertEquals(0, estimator.score("Słoneczko"));
+        assertEquals(0, estimator.score("sloneczko"));
+        assertTrue(estimator.score("słoneczko1") <= 1);
+    }
+
+    @Test
+    void testKeyboardWalksAndSequencesAreWeak() {
+        assertTrue(estimator.score("qazwsxedc") <= 1);
+        assertTrue(estimator.score("1357913579") <= 1);
+    }
+
+    @Test
+    void testRandomAndLongPasswordsAreStrong() {
+        assertEquals(4, estimator.score("xK#9mQ2$vL7p"));
+        assertEquals(4, estimator.score("correcthorsebatterystaple"));
+    }
+
+    @Test
+    void testUserInputsLowerScore() {
+        String password = "brzozowski.pl!";
+
+        PasswordStrength alone = estimator.estimate(password);
+        PasswordStrength withEntry = estimator.estimate(password, "brzozowski.pl", "jan.brzozowski");
+
+        assertEquals(4, alone.getScore());
+        assertTrue(withEntry.getScore() < alone.getScore()); // Hasło zbudowane ze strony wpisu
+        assertTrue(withEntry.getGuessesLog10() < alone.getGuessesLog10());
+        assertEquals(alone.getScore(), estimator.score(password, null, "", "pl")); // Puste i zbyt krótkie dane są pomijane
+    }
+
+    @Test
+    void testEmptyAndLongPasswords() {
+        assertEquals(0, estimator.score(null));
+        assertEquals(0, estimator.score(""));
+        // Poza analizowanym prefiksem każdy znak liczy się jako odgadywany siłowo
+        PasswordStrength longPassword = estimator.estimate("aB3$".repeat(250));
+        assertEquals(4, longPassword.getScore());
+        assertTrue(longPassword.getGuessesLog10() >= 1000 - PasswordStrengthEstimator.MAX_ANALYZED_LENGTH);
+    }
+
+    @Test
+    void testScoreThresholds() {
+        assertEquals(0, PasswordStrengthEstimator.score(2.9));
+        assertEquals(1, PasswordStrengthEstimator.score(3.1));
+        assertEquals(2, PasswordStrengthEstimator.score(6.1));
+        assertEquals(3, PasswordStrengthEstimator.score(8.1));
+        assertEquals(4, PasswordStrengthEstimator.score(10.1));
+    }
+
+    @Test
+    void testConcurrentEstimatesMatchSequential() {
+        List<String> passwords = IntStream.range(0, 2000).mapToObj(i -> "Wiosna" + i + "!" + "qwerty".substring(0, i % 6)).toList();
+        List<Integer> sequential = passwords.stream().map(password -> estimator.score(password, "example.com")).toList();
+
+        List<Integer> parallel = passwords.parallelStream().map(password -> estimator.score(password, "example.com")).toList();
+
+        assertEquals(sequential, parallel); // Tablice robocze są osobne dla każdego wątku
+    }
+
+    @Test
+    void testDictionaryTrieRanks() {
+        DictionaryTrie trie = DictionaryTrie.build(Map.of("kot", 2, "kotek", 1, "żaba", 3, "a", 4));
+
+        assertEquals(2, trie.rank("kot"));
+        assertEquals(1, trie.rank("kotek"));
+        assertEquals(3, trie.rank("żaba")); // Znaki spoza ASCII - wyszukiwanie binarne także w korzeniu
+        assertEquals(4, trie.rank("a"));
+        assertEquals(0, trie.rank("kote")); // Prefiks, który nie jest słowem
+        assertEquals(0, trie.rank("pies"));
+        assertEquals(DictionaryTrie.NONE, trie.child(DictionaryTrie.ROOT, 'x'));
+        assertEquals(1 + 1 + 5 + 4, trie.size()); // Korzeń, a, k-o-t-e-k, ż-a-b-a - wspólne prefiksy bez powtórzeń
+    }
+
+    @Test
+    void testKeyboardGraph() {
+        KeyboardGraph keyboard = KeyboardGraph.QWERTY;
+
+        assertNotEquals(0, keyboard.direction('q', 'w'));
+        assertEquals(keyboard.direction('q', '2'), keyboard.direction('Q', '@')); // Shift - ten sam klawisz
+        assertEquals(0, keyboard.direction('q', 'p'));
+        assertEquals(0, keyboard.direction('ą', 'a'));
+        assertTrue(keyboard.isShifted('@'));
+        assertFalse(keyboard.isShifted('2'));
+        assertEquals(47, keyboard.keys());
+    }
+}
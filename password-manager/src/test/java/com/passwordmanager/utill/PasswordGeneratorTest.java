@@ -1,9 +1,15 @@
 package com.passwordmanager.utill;
 
+import com.passwordmanager.service.breach.BreachedPasswordChecker;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.HashSet;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
 
 /**
  * Testy jednostkowe dla {@link PasswordGenerator}.
@@ -41,10 +47,60 @@ class PasswordGeneratorTest {
         assertDoesNotThrow(() -> passwordGenerator.generateSecurePassword(8));
     }
 
+    @Test
+    void testGenerateSecurePasswordCharsContainsAllCategories() {
+        for (int i = 0; i < 100; i++) { // Wymagane znaki nie mogą zginąć przy mieszaniu
+            String password = new String(passwordGenerator.generateSecurePasswordChars(8));
+            assertTrue(password.matches(".*[a-z].*") && password.matches(".*[A-Z].*") && password.matches(".*[0-9].*"),
+                    "Hasło powinno zawierać każdą kategorię znaków: " + password);
+        }
+    }
+
+    @Test
+    void testGenerateSecurePasswordsBulk() {
+        List<String> passwords = passwordGenerator.generateSecurePasswords(1000, 12);
+
+        assertEquals(1000, passwords.size());
+        assertTrue(passwords.stream().allMatch(p -> p.length() == 12));
+        assertEquals(1000, new HashSet<>(passwords).size(), "Hasła powinny być różne");
+    }
+
+    @Test
+    void testGenerateSecurePasswordsBulkLimits() {
+        assertThrows(IllegalArgumentException.class, () -> passwordGenerator.generateSecurePasswords(0, 12));
+        assertThrows(IllegalArgumentException.class,
+                () -> passwordGenerator.generateSecurePasswords(PasswordGenerator.MAX_BULK_COUNT + 1, 12));
+        assertThrows(IllegalArgumentException.class, () -> passwordGenerator.generateSecurePasswords(10, 7));
+        assertThrows(IllegalArgumentException.class,
+                () -> passwordGenerator.generateSecurePasswords(10, PasswordGenerator.MAX_BULK_LENGTH + 1));
+    }
+
     @Test
     void testPasswordsAreRandom() {
         String password1 = passwordGenerator.generateSecurePassword(10);
         String password2 = passwordGenerator.generateSecurePassword(10);
         assertNotEquals(password1, password2, "Dwa wygenerowane hasła powinny być różne");
     }
-}
\ No newline at end of file
+
+    @Test
+    void testBreachedPasswordIsRegenerated() {
+        BreachedPasswordChecker checker = mock(BreachedPasswordChecker.class);
+        when(checker.isEnabled()).thenReturn(true);
+        when(checker.isBreached(any())).thenReturn(true, true, false); // Dwa pierwsze hasła "wyciekły"
+
+        String password = new PasswordGenerator(checker).generateSecurePassword(12);
+
+        assertEquals(12, password.length());
+        verify(checker, times(3)).isBreached(any());
+    }
+
+    @Test
+    void testGenerationFailsWhenEveryPasswordIsBreached() {
+        BreachedPasswordChecker checker = mock(BreachedPasswordChecker.class);
+        when(checker.isEnabled()).thenReturn(true);
+        when(checker.isBreached(any())).thenReturn(true);
+
+        assertThrows(IllegalStateException.class, () -> new PasswordGenerator(checker).generateSecurePassword(12));
+        verify(checker, times(PasswordGenerator.MAX_BREACH_ATTEMPTS)).isBreached(any());
+    }
+}